@@ -0,0 +1,26 @@
+package org.opentripplanner.analyst.core;
+
+import com.conveyal.geojson.GeometrySerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.Serializable;
+
+/**
+ * The area reachable from an origin within a travel time cutoff, as a (multi)polygon with holes for unreachable
+ * areas.
+ */
+public class Isochrone implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public final int cutoffSec;
+
+    @JsonSerialize(using = GeometrySerializer.class)
+    public final Geometry geometry;
+
+    public Isochrone(int cutoffSec, Geometry geometry) {
+        this.cutoffSec = cutoffSec;
+        this.geometry = geometry;
+    }
+}
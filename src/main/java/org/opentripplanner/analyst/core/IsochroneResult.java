@@ -0,0 +1,35 @@
+package org.opentripplanner.analyst.core;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The isochrones from one origin, one per requested cutoff in increasing order, and optionally the travel time
+ * surface they were contoured from.
+ */
+public class IsochroneResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The origin and departure time the search was actually run from. Requests are rounded to a grid of origins
+     * and departure times so that nearby requests can share results.
+     */
+    public final double lat, lon;
+
+    public final long dateTime;
+
+    public final List<Isochrone> isochrones;
+
+    /** The travel time surface, or null if it was not requested. */
+    public final TravelTimeSurface surface;
+
+    public IsochroneResult(double lat, double lon, long dateTime, List<Isochrone> isochrones,
+            TravelTimeSurface surface) {
+        this.lat = lat;
+        this.lon = lon;
+        this.dateTime = dateTime;
+        this.isochrones = isochrones;
+        this.surface = surface;
+    }
+}
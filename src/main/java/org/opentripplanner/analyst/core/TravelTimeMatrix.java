@@ -0,0 +1,43 @@
+package org.opentripplanner.analyst.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A compact one-to-many (or few-to-many) result: the travel time in seconds and the number of transfers
+ * from each origin to each destination. Rows are origins and columns are destinations, both in the order
+ * they were supplied to the search. Unreachable or unlinkable destinations are marked with UNREACHABLE.
+ */
+public class TravelTimeMatrix implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int UNREACHABLE = -1;
+
+    /** travelTimes[origin][destination] in seconds, or UNREACHABLE. */
+    public final int[][] travelTimes;
+
+    /** transfers[origin][destination], or UNREACHABLE. A trip with a single transit ride has zero transfers. */
+    public final int[][] transfers;
+
+    public TravelTimeMatrix(int nOrigins, int nDestinations) {
+        this.travelTimes = new int[nOrigins][nDestinations];
+        this.transfers = new int[nOrigins][nDestinations];
+        for (int i = 0; i < nOrigins; i++) {
+            Arrays.fill(travelTimes[i], UNREACHABLE);
+            Arrays.fill(transfers[i], UNREACHABLE);
+        }
+    }
+
+    public int getOriginCount() {
+        return travelTimes.length;
+    }
+
+    public int getDestinationCount() {
+        return travelTimes.length == 0 ? 0 : travelTimes[0].length;
+    }
+
+    public boolean isReachable(int origin, int destination) {
+        return travelTimes[origin][destination] != UNREACHABLE;
+    }
+}
@@ -0,0 +1,39 @@
+package org.opentripplanner.analyst.core;
+
+import java.io.Serializable;
+
+/**
+ * A raster of travel times from one origin. Cell centers are regularly spaced in longitude and latitude, starting
+ * at the south-west corner. Times are stored row by row from south to north, and within a row from west to east.
+ */
+public class TravelTimeSurface implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int UNREACHABLE = -1;
+
+    /** Longitude and latitude of the south-west cell. */
+    public final double west, south;
+
+    /** Distance between two cells, in degrees of longitude and latitude. */
+    public final double dLon, dLat;
+
+    public final int width, height;
+
+    /** Travel times in seconds, or UNREACHABLE. */
+    public final int[] times;
+
+    public TravelTimeSurface(double west, double south, double dLon, double dLat, int width, int height) {
+        this.west = west;
+        this.south = south;
+        this.dLon = dLon;
+        this.dLat = dLat;
+        this.width = width;
+        this.height = height;
+        this.times = new int[width * height];
+    }
+
+    public int getTime(int x, int y) {
+        return times[y * width + x];
+    }
+}
@@ -0,0 +1,207 @@
+package org.opentripplanner.analyst.request;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.opentripplanner.analyst.core.Isochrone;
+import org.opentripplanner.analyst.core.IsochroneResult;
+import org.opentripplanner.analyst.core.TravelTimeSurface;
+import org.opentripplanner.common.geometry.RecursiveGridIsolineBuilder;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.common.model.GenericLocation;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.error.VertexNotFoundException;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.spt.SPTWalker;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Computes isochrones and travel time surfaces from one origin. A single batch search is run from the origin, its
+ * shortest path tree is sampled along the street edges with an SPTWalker into a regular grid of travel times, and
+ * the grid is contoured with a RecursiveGridIsolineBuilder for each cutoff. Sampling, contouring (one cutoff per
+ * thread) and rasterizing all run in parallel.
+ *
+ * Origins are rounded to a grid of ORIGIN_CELL_METERS and departure times to TIME_BUCKET_SECONDS, so that the
+ * street-only requests of a map view panned or refreshed a little can be served from a bounded cache. The cache is
+ * held by the graph; entries expire after a few minutes so traffic updates are eventually taken into account.
+ */
+public class IsochroneService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IsochroneService.class);
+
+    public static final int DEFAULT_CELL_SIZE_METERS = 200;
+
+    public static final int MIN_CELL_SIZE_METERS = 50;
+
+    public static final int MAX_CUTOFF_SECONDS = 4 * 60 * 60;
+
+    static final double ORIGIN_CELL_METERS = 100;
+
+    static final int TIME_BUCKET_SECONDS = 5 * 60;
+
+    /** Size of the blocks of the initial grid of the isoline builder, see RecursiveGridIsolineBuilder.SIZE_0. */
+    private static final int SEED_BLOCK_SIZE = 4;
+
+    private static final int MAX_CACHED_RESULTS = 200;
+
+    private static final long EXPIRE_AFTER_MINUTES = 10;
+
+    private final Graph graph;
+
+    private final Cache<String, IsochroneResult> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_RESULTS)
+            .expireAfterWrite(EXPIRE_AFTER_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    public IsochroneService(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param prototype the request providing departure time, modes and all other routing parameters. It is not
+     *                  modified; its origin and destination are ignored.
+     * @param cutoffsSec the travel time cutoffs, in increasing order
+     * @param cellSizeMeters the resolution of the sampling grid and of the travel time surface
+     * @param includeSurface true to return the travel time surface along with the isochrones
+     * @return the result, or null if the origin could not be linked to the street network
+     */
+    public IsochroneResult compute(RoutingRequest prototype, GenericLocation origin, List<Integer> cutoffsSec,
+            int cellSizeMeters, boolean includeSurface) {
+        double lat = round(origin.lat, SphericalDistanceLibrary.metersToDegrees(ORIGIN_CELL_METERS));
+        double lon = round(origin.lng, SphericalDistanceLibrary.metersToLonDegrees(ORIGIN_CELL_METERS, lat));
+        long dateTime = prototype.dateTime - Math.floorMod(prototype.dateTime, TIME_BUCKET_SECONDS);
+
+        String key = key(prototype, lat, lon, dateTime, cutoffsSec, cellSizeMeters, includeSurface);
+        if (key == null) {
+            return search(prototype, lat, lon, dateTime, cutoffsSec, cellSizeMeters, includeSurface);
+        }
+        try {
+            return cache.get(key,
+                    () -> search(prototype, lat, lon, dateTime, cutoffsSec, cellSizeMeters, includeSurface));
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            // The origin could not be linked, which is not cached.
+            return null;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new RuntimeException("Error while computing isochrones.", e.getCause());
+        }
+    }
+
+    private IsochroneResult search(RoutingRequest prototype, double lat, double lon, long dateTime,
+            List<Integer> cutoffsSec, int cellSizeMeters, boolean includeSurface) {
+        long startTime = System.currentTimeMillis();
+        int maxCutoff = cutoffsSec.get(cutoffsSec.size() - 1);
+        RoutingRequest request = prototype.clone();
+        request.rctx = null;
+        request.batch = true;
+        request.setArriveBy(false);
+        request.from = new GenericLocation(lat, lon);
+        request.to = null;
+        request.dateTime = dateTime;
+        request.worstTime = dateTime + maxCutoff;
+        TravelTimeGrid grid = new TravelTimeGrid(new Coordinate(lon, lat), cellSizeMeters, request.walkSpeed);
+        try {
+            request.setRoutingContext(graph);
+            ShortestPathTree spt = new AStar().getShortestPathTree(request);
+            if (spt == null) {
+                return null;
+            }
+            sample(spt, grid, cellSizeMeters);
+        } catch (VertexNotFoundException e) {
+            LOG.debug("Could not link isochrone origin {},{}", lat, lon);
+            return null;
+        } finally {
+            request.cleanup();
+        }
+        long sampled = System.currentTimeMillis();
+
+        List<Isochrone> isochrones = cutoffsSec.parallelStream()
+                .map(cutoff -> new Isochrone(cutoff, contour(grid, cutoff)))
+                .collect(Collectors.toList());
+        TravelTimeSurface surface = includeSurface ? rasterize(grid, maxCutoff) : null;
+        LOG.info("Computed {} isochrones in {} msec ({} msec searching and sampling)", cutoffsSec.size(),
+                System.currentTimeMillis() - startTime, sampled - startTime);
+        return new IsochroneResult(lat, lon, dateTime, isochrones, surface);
+    }
+
+    /**
+     * Sample the travel times along all street edges of the tree, at most half a cell apart, on several threads.
+     */
+    private static void sample(ShortestPathTree spt, TravelTimeGrid grid, int cellSizeMeters) {
+        new SPTWalker(spt).walk(new SPTWalker.SPTVisitor() {
+            @Override
+            public boolean accept(Edge e) {
+                return e instanceof StreetEdge;
+            }
+
+            @Override
+            public void visit(Edge e, Coordinate c, State s0, State s1, double d0, double d1, double speed) {
+                double t0 = s0.getElapsedTimeSeconds() + d0 / speed;
+                double t1 = s1.getElapsedTimeSeconds() + d1 / speed;
+                grid.addSample(c, Math.min(t0, t1));
+            }
+        }, cellSizeMeters / 2.0, true);
+    }
+
+    private static Geometry contour(TravelTimeGrid grid, int cutoffSec) {
+        List<Coordinate> seeds = grid.seeds(cutoffSec, SEED_BLOCK_SIZE);
+        if (seeds.isEmpty()) {
+            return null;
+        }
+        // The builder caches the grid nodes it samples, so each cutoff gets its own builder.
+        return new RecursiveGridIsolineBuilder(grid.dX, grid.dY, grid.center, grid, seeds).computeIsoline(cutoffSec);
+    }
+
+    private static TravelTimeSurface rasterize(TravelTimeGrid grid, int maxCutoff) {
+        int[] bounds = grid.bounds();
+        if (bounds == null) {
+            return null;
+        }
+        int minX = bounds[0], minY = bounds[1];
+        int width = bounds[2] - minX + 1, height = bounds[3] - minY + 1;
+        Coordinate southWest = grid.coordinate(minX, minY);
+        TravelTimeSurface surface = new TravelTimeSurface(southWest.x, southWest.y, grid.dX, grid.dY, width, height);
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                int time = grid.time(minX + x, minY + y);
+                surface.times[y * width + x] = time <= maxCutoff ? time : TravelTimeSurface.UNREACHABLE;
+            }
+        });
+        return surface;
+    }
+
+    private static double round(double value, double step) {
+        return Math.round(value / step) * step;
+    }
+
+    /**
+     * @return the cache key of a request, or null if the result must not be cached. Only the results of street-only
+     *         requests are cached: their weights depend on nothing but the cost profile, which is part of the key.
+     *         A transit search also depends on many filters and transfer parameters, and on realtime updates.
+     */
+    private static String key(RoutingRequest request, double lat, double lon, long dateTime,
+            List<Integer> cutoffsSec, int cellSizeMeters, boolean includeSurface) {
+        if (!StreetCostProfile.isFixed(request)) {
+            return null;
+        }
+        return String.format(Locale.ROOT, "%.7f,%.7f %d cutoffs=%s cell=%d surface=%b maxWalk=%f traffic=%b %s",
+                lat, lon, dateTime, cutoffsSec, cellSizeMeters, includeSurface, request.maxWalkDistance,
+                request.useTraffic, StreetCostProfile.of(request));
+    }
+}
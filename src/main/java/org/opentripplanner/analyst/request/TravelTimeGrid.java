@@ -0,0 +1,139 @@
+package org.opentripplanner.analyst.request;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.common.geometry.RecursiveGridIsolineBuilder;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A sparse regular grid of travel times in seconds, filled from the points sampled along the edges of a shortest
+ * path tree. Each sample propagates its time to the grid nodes around it, walking off-road in a straight line, and
+ * each node keeps the lowest time. Samples may be added from several threads at once.
+ *
+ * The grid is laid out the same way as the index of a {@link RecursiveGridIsolineBuilder} with the same center and
+ * cell size, so the builder only ever samples the times of grid nodes.
+ */
+class TravelTimeGrid implements RecursiveGridIsolineBuilder.ZFunc {
+
+    /** Number of nodes, on each side of a sample, that the sample may propagate its time to. */
+    private static final int PROPAGATION_RADIUS = 2;
+
+    final Coordinate center;
+
+    final double dX;
+
+    final double dY;
+
+    private final double offRoadDistanceMeters;
+
+    private final double offRoadSpeed;
+
+    private final Map<Long, Integer> times = new ConcurrentHashMap<>();
+
+    /**
+     * @param center the reference point of the grid index, e.g. the origin of the search
+     * @param cellSizeMeters the distance between two grid nodes
+     * @param offRoadSpeed the speed used to propagate times from a sample to the nodes around it, in m/s
+     */
+    TravelTimeGrid(Coordinate center, double cellSizeMeters, double offRoadSpeed) {
+        this.center = center;
+        this.dY = SphericalDistanceLibrary.metersToDegrees(cellSizeMeters);
+        this.dX = SphericalDistanceLibrary.metersToLonDegrees(cellSizeMeters, center.y);
+        this.offRoadDistanceMeters = cellSizeMeters * 1.5;
+        this.offRoadSpeed = offRoadSpeed;
+    }
+
+    /** Propagate the travel time of a sampled point to the nodes of the grid around it. */
+    void addSample(Coordinate c, double seconds) {
+        int x0 = (int) Math.floor((c.x - center.x) / dX);
+        int y0 = (int) Math.floor((c.y - center.y) / dY);
+        double cosLat = Math.cos(Math.toRadians(c.y));
+        for (int x = x0 - PROPAGATION_RADIUS + 1; x <= x0 + PROPAGATION_RADIUS; x++) {
+            for (int y = y0 - PROPAGATION_RADIUS + 1; y <= y0 + PROPAGATION_RADIUS; y++) {
+                double distance = SphericalDistanceLibrary.fastDistance(c, coordinate(x, y), cosLat);
+                if (distance <= offRoadDistanceMeters) {
+                    int z = (int) Math.round(seconds + distance / offRoadSpeed);
+                    times.merge(key(x, y), z, Math::min);
+                }
+            }
+        }
+    }
+
+    /** @return the travel time at the grid node nearest to c, or Long.MAX_VALUE if it is not reached. */
+    @Override
+    public long z(Coordinate c) {
+        Integer time = times.get(key(xIndex(c), yIndex(c)));
+        return time == null ? Long.MAX_VALUE : time;
+    }
+
+    /** @return the travel time at the given node, or -1 if it is not reached. */
+    int time(int x, int y) {
+        Integer time = times.get(key(x, y));
+        return time == null ? -1 : time;
+    }
+
+    boolean isEmpty() {
+        return times.isEmpty();
+    }
+
+    /**
+     * @return the index range of the reached nodes, as {minX, minY, maxX, maxY}, or null if no node is reached.
+     */
+    int[] bounds() {
+        if (times.isEmpty()) {
+            return null;
+        }
+        int[] bounds = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+        for (long key : times.keySet()) {
+            int x = (int) (key >> 32);
+            int y = (int) key;
+            bounds[0] = Math.min(bounds[0], x);
+            bounds[1] = Math.min(bounds[1], y);
+            bounds[2] = Math.max(bounds[2], x);
+            bounds[3] = Math.max(bounds[3], y);
+        }
+        return bounds;
+    }
+
+    /**
+     * @return one reached node within the given time in every block of blockSize by blockSize nodes, which is
+     *         enough to seed a RecursiveGridIsolineBuilder that uses blocks of that size for its initial grid.
+     */
+    List<Coordinate> seeds(int maxSeconds, int blockSize) {
+        Set<Long> blocks = new HashSet<>();
+        List<Coordinate> seeds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : times.entrySet()) {
+            if (entry.getValue() > maxSeconds) {
+                continue;
+            }
+            int x = (int) (entry.getKey() >> 32);
+            int y = (int) (long) entry.getKey();
+            if (blocks.add(key(Math.floorDiv(x, blockSize), Math.floorDiv(y, blockSize)))) {
+                seeds.add(coordinate(x, y));
+            }
+        }
+        return seeds;
+    }
+
+    Coordinate coordinate(int x, int y) {
+        return new Coordinate(center.x + x * dX, center.y + y * dY);
+    }
+
+    private int xIndex(Coordinate c) {
+        return (int) Math.round((c.x - center.x) / dX);
+    }
+
+    private int yIndex(Coordinate c) {
+        return (int) Math.round((c.y - center.y) / dY);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,184 @@
+package org.opentripplanner.analyst.request;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.opentripplanner.analyst.core.Sample;
+import org.opentripplanner.analyst.core.TravelTimeMatrix;
+import org.opentripplanner.common.model.GenericLocation;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.error.VertexNotFoundException;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes travel times from one or more origins to many destinations. Destinations are linked to the street
+ * network only once, as Analyst Samples, and each origin is handled with a single batch (one-to-many) search
+ * rather than one point-to-point search per destination. No itineraries are generated. Origins are searched
+ * in parallel on a fixed thread pool owned by the service, so concurrent matrix requests share the same threads
+ * instead of each starting its own. The pool is stopped with {@link #shutdown()} when the router is shut down.
+ */
+public class TravelTimeMatrixService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TravelTimeMatrixService.class);
+
+    /** Default search cutoff, the travel time beyond which destinations are considered unreachable. */
+    public static final int DEFAULT_MAX_DURATION_SECONDS = 60 * 60 * 2;
+
+    private final Graph graph;
+
+    private final ExecutorService executor;
+
+    public TravelTimeMatrixService(Graph graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TravelTimeMatrixService(Graph graph, int nThreads) {
+        this.graph = graph;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, nThreads), new ThreadFactoryBuilder()
+                .setNameFormat("TravelTimeMatrix-" + graph.routerId + "-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Link the given destinations into the street network. The resulting samples do not modify the graph and
+     * can be reused for any number of searches. Destinations that cannot be linked produce a null sample.
+     */
+    public List<Sample> linkDestinations(List<GenericLocation> destinations) {
+        SampleFactory sampleFactory = graph.getSampleFactory();
+        List<Sample> samples = new ArrayList<>(destinations.size());
+        for (GenericLocation destination : destinations) {
+            Sample sample = null;
+            if (destination.hasCoordinate()) {
+                sample = sampleFactory.getSample(destination.lng, destination.lat);
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    /**
+     * @param prototype the request providing departure time, modes and all other routing parameters. It is not
+     *                  modified; its origin and destination are ignored.
+     * @param maxDurationSeconds the search cutoff, destinations further away than this are unreachable.
+     */
+    public TravelTimeMatrix compute(RoutingRequest prototype, List<GenericLocation> origins,
+            List<GenericLocation> destinations, int maxDurationSeconds) {
+        long startTime = System.currentTimeMillis();
+        final List<Sample> samples = linkDestinations(destinations);
+        final TravelTimeMatrix matrix = new TravelTimeMatrix(origins.size(), destinations.size());
+
+        List<Future<?>> futures = new ArrayList<>(origins.size());
+        try {
+            for (int i = 0; i < origins.size(); i++) {
+                final int originIndex = i;
+                final GenericLocation origin = origins.get(i);
+                futures.add(executor.submit(() ->
+                        searchFromOrigin(prototype, origin, maxDurationSeconds, samples,
+                                matrix.travelTimes[originIndex], matrix.transfers[originIndex])));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while computing travel time matrix.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while computing travel time matrix.", e.getCause());
+        } finally {
+            // Only has an effect when a search failed, the other searches of this matrix are no longer needed.
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        LOG.info("Computed {}x{} travel time matrix in {} msec", origins.size(), destinations.size(),
+                System.currentTimeMillis() - startTime);
+        return matrix;
+    }
+
+    /** Release the threads of this service. Matrices already being computed are completed. */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Run one batch search from the given origin and fill in one row of the matrix. A failure to link the origin
+     * leaves the whole row unreachable rather than failing the entire matrix.
+     */
+    private void searchFromOrigin(RoutingRequest prototype, GenericLocation origin, int maxDurationSeconds,
+            List<Sample> samples, int[] travelTimes, int[] transfers) {
+        RoutingRequest request = prototype.clone();
+        request.rctx = null;
+        request.batch = true;
+        request.setArriveBy(false);
+        request.from = origin;
+        request.to = null;
+        request.worstTime = request.dateTime + maxDurationSeconds;
+        try {
+            request.setRoutingContext(graph);
+            ShortestPathTree spt = new AStar().getShortestPathTree(request);
+            if (spt == null) {
+                return;
+            }
+            for (int d = 0; d < samples.size(); d++) {
+                Sample sample = samples.get(d);
+                if (sample == null) {
+                    continue;
+                }
+                State best = null;
+                int bestTime = Integer.MAX_VALUE;
+                if (sample.v0 != null) {
+                    State s0 = getEarliestState(spt, sample.v0);
+                    if (s0 != null) {
+                        best = s0;
+                        bestTime = travelTime(s0, sample.d0, request.walkSpeed);
+                    }
+                }
+                if (sample.v1 != null) {
+                    State s1 = getEarliestState(spt, sample.v1);
+                    if (s1 != null && travelTime(s1, sample.d1, request.walkSpeed) < bestTime) {
+                        best = s1;
+                        bestTime = travelTime(s1, sample.d1, request.walkSpeed);
+                    }
+                }
+                if (best != null && bestTime <= maxDurationSeconds) {
+                    travelTimes[d] = bestTime;
+                    transfers[d] = Math.max(0, best.getNumBoardings() - 1);
+                }
+            }
+        } catch (VertexNotFoundException e) {
+            LOG.debug("Could not link travel time matrix origin {}", origin);
+        } finally {
+            request.cleanup();
+        }
+    }
+
+    /** The SPT may hold several Pareto-optimal states per vertex. For a travel time matrix we want the earliest. */
+    private static State getEarliestState(ShortestPathTree spt, Vertex vertex) {
+        List<State> states = spt.getStates(vertex);
+        if (states == null) {
+            return null;
+        }
+        State earliest = null;
+        for (State s : states) {
+            if (s.isFinal() && (earliest == null || s.getElapsedTimeSeconds() < earliest.getElapsedTimeSeconds())) {
+                earliest = s;
+            }
+        }
+        return earliest;
+    }
+
+    /** Use the same walk propagation from the street vertex to the sample point as SampleEdge does. */
+    private static int travelTime(State state, int distanceMeters, double walkSpeed) {
+        return (int) (state.getElapsedTimeSeconds() + distanceMeters / walkSpeed);
+    }
+}
@@ -345,6 +345,18 @@ public abstract class RoutingResource {
      */
     @QueryParam("reverseOptimizeOnTheFly")
     protected Boolean reverseOptimizeOnTheFly;
+
+    /** If true, use the round-based RAPTOR search instead of A* for depart-after transit searches. */
+    @QueryParam("useRaptor")
+    protected Boolean useRaptor;
+
+    /** If true, use the precomputed contraction hierarchies for street-only requests when they apply. */
+    @QueryParam("useContractionHierarchy")
+    protected Boolean useContractionHierarchy;
+
+    /** If true, search the legs between intermediate places concurrently. */
+    @QueryParam("parallelIntermediatePlaces")
+    protected Boolean parallelIntermediatePlaces;
         
     @QueryParam("boardSlack")
     private Integer boardSlack;
@@ -368,6 +380,12 @@ public abstract class RoutingResource {
     @QueryParam("disableRemainingWeightHeuristic")
     protected Boolean disableRemainingWeightHeuristic;
 
+    /**
+     * If true, the phase timings and counters of the search are included in the debug output of the response.
+     */
+    @QueryParam("showInstrumentation")
+    protected Boolean showInstrumentation;
+
     @QueryParam("maxHours")
     private Double maxHours;
 
@@ -637,12 +655,24 @@ public abstract class RoutingResource {
         if (reverseOptimizeOnTheFly != null)
             request.reverseOptimizeOnTheFly = reverseOptimizeOnTheFly;
 
+        if (useRaptor != null)
+            request.useRaptor = useRaptor;
+
+        if (useContractionHierarchy != null)
+            request.useContractionHierarchy = useContractionHierarchy;
+
+        if (parallelIntermediatePlaces != null)
+            request.parallelIntermediatePlaces = parallelIntermediatePlaces;
+
         if (ignoreRealtimeUpdates != null)
             request.ignoreRealtimeUpdates = ignoreRealtimeUpdates;
 
         if (disableRemainingWeightHeuristic != null)
             request.disableRemainingWeightHeuristic = disableRemainingWeightHeuristic;
 
+        if (showInstrumentation != null)
+            request.showInstrumentation = showInstrumentation;
+
         if (flagStopExtraPenalty != null)
             request.flagStopExtraPenalty = flagStopExtraPenalty;
 
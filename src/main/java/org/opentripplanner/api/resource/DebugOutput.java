@@ -13,11 +13,13 @@
 
 package org.opentripplanner.api.resource;
 
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.util.monitoring.RoutingInstrumentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +52,9 @@ public class DebugOutput {
     public long totalTime;
     public boolean timedOut;
 
+    /** Phase timings and counters of the request, only included when the request asks to show them. */
+    public RoutingInstrumentation instrumentation;
+
     /**
      * Record the time when we first began calculating a path for this request
      * (before any heuristic pre-calculation). Note that timings will not
@@ -71,6 +76,13 @@ public class DebugOutput {
         foundPaths.add(System.currentTimeMillis());
     }
 
+    /** Add the paths found and the timeout of a search done separately for the same request. */
+    public void addAll(DebugOutput other) {
+        foundPaths.addAll(other.foundPaths);
+        Collections.sort(foundPaths);
+        timedOut |= other.timedOut;
+    }
+
     /** Record the time when we finished calculating paths for this request. */
     public void finishedCalculating() {
         finishedCalculating = System.currentTimeMillis();
@@ -13,16 +13,15 @@
 
 package org.opentripplanner.api.resource;
 
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
 import org.opentripplanner.api.model.*;
+import org.opentripplanner.common.geometry.CoordinateBuffer;
 import org.opentripplanner.common.geometry.DirectionUtils;
-import org.opentripplanner.common.geometry.GeometryUtils;
 import org.opentripplanner.common.geometry.PackedCoordinateSequence;
 import org.opentripplanner.common.model.P2;
 import org.opentripplanner.model.*;
 import org.opentripplanner.routing.alertpatch.Alert;
+import org.opentripplanner.routing.alertpatch.AlertIndex;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
 import org.opentripplanner.routing.alertpatch.StopCondition;
 import org.opentripplanner.routing.core.*;
@@ -38,11 +37,14 @@ import org.opentripplanner.routing.services.FareService;
 import org.opentripplanner.routing.spt.GraphPath;
 import org.opentripplanner.routing.trippattern.TripTimes;
 import org.opentripplanner.routing.vertextype.*;
+import org.opentripplanner.util.PolylineBuilder;
 import org.opentripplanner.util.PolylineEncoder;
+import org.opentripplanner.util.monitoring.RoutingPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -60,6 +62,7 @@ public abstract class GraphPathToTripPlanConverter {
      */
     public static TripPlan generatePlan(List<GraphPath> paths, RoutingRequest request) {
 
+        long startTime = System.nanoTime();
         Locale requestedLocale = request.locale;
 
         GraphPath exemplar = paths.get(0);
@@ -130,6 +133,10 @@ public abstract class GraphPathToTripPlanConverter {
             }
         }
         request.rctx.debugOutput.finishedRendering();
+        // The search itself was already recorded in the router metrics, so record the conversion separately.
+        long conversionNanos = System.nanoTime() - startTime;
+        request.rctx.instrumentation.addTime(RoutingPhase.ITINERARY_CONVERSION, startTime);
+        request.rctx.graph.getRoutingMetrics().record(RoutingPhase.ITINERARY_CONVERSION, conversionNanos);
         return plan;
     }
 
@@ -382,10 +389,12 @@ public abstract class GraphPathToTripPlanConverter {
 
         addPlaces(leg, states, edges, showIntermediateStops, requestedLocale);
 
-        CoordinateArrayListSequence coordinates = makeCoordinates(edges);
-        Geometry geometry = GeometryUtils.getGeometryFactory().createLineString(coordinates);
-
-        leg.legGeometry = PolylineEncoder.createEncodings(geometry);
+        PolylineBuilder polyline = new PolylineBuilder();
+        for (Edge edge : edges) {
+            polyline.startLine();
+            edge.appendDisplayCoordinates(polyline);
+        }
+        leg.legGeometry = polyline.build();
 
         leg.interlineWithPreviousLeg = states[0].getBackEdge() instanceof PatternInterlineDwell;
 
@@ -692,6 +701,14 @@ public abstract class GraphPathToTripPlanConverter {
     private static void addAlertPatchesToLeg(Graph graph, Leg leg, boolean isFirstLeg, Locale requestedLocale) {
 
         if (graph.index != null) {
+            AlertIndex alerts = graph.index.getAlertIndex();
+            if (alerts.isEmpty()) {
+                return;
+            }
+            // Patches not displayed during the leg are removed below anyway, so only those are looked at.
+            long legStart = leg.startTime.getTimeInMillis() / 1000;
+            long legEnd = leg.endTime.getTimeInMillis() / 1000;
+
             Set<StopCondition> departingStopConditions = new HashSet<>();
             departingStopConditions.add(StopCondition.STOP);
             departingStopConditions.add(StopCondition.START_POINT);
@@ -708,31 +725,37 @@ public abstract class GraphPathToTripPlanConverter {
             arrivingStopConditions.add(StopCondition.STOP);
             arrivingStopConditions.add(StopCondition.DESTINATION);
 
+            Date startTime = leg.startTime.getTime();
+            Date endTime = leg.endTime.getTime();
+
             if (leg.routeId != null) {
+                Function<AgencyAndId, AlertIndex.Patches> stopAndRoute = stopId -> alerts.getStopAndRoutePatches(stopId, leg.routeId);
 
                 if (leg.from != null && leg.from.stopId != null) {
-                    addAlertPatchesToLeg(leg, departingStopConditions, getAlertsForStopAndRoute(graph, leg.from.stopId, leg.routeId), requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                    addStopAlertPatchesToLeg(graph, leg, departingStopConditions, leg.from.stopId, stopAndRoute, legStart, legEnd, startTime, endTime);
                 }
 
                 if (leg.to != null && leg.to.stopId != null) {
-                    addAlertPatchesToLeg(leg, arrivingStopConditions, getAlertsForStopAndRoute(graph, leg.to.stopId, leg.routeId), requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                    addStopAlertPatchesToLeg(graph, leg, arrivingStopConditions, leg.to.stopId, stopAndRoute, legStart, legEnd, startTime, endTime);
                 }
             }
 
             if (leg.tripId != null) {
+                Function<AgencyAndId, AlertIndex.Patches> stopAndTrip = stopId -> alerts.getStopAndTripPatches(stopId, leg.tripId);
+
                 if (leg.from != null && leg.from.stopId != null) {
-                    addAlertPatchesToLeg(leg, departingStopConditions, getAlertsForStopAndTrip(graph, leg.from.stopId, leg.tripId), requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                    addStopAlertPatchesToLeg(graph, leg, departingStopConditions, leg.from.stopId, stopAndTrip, legStart, legEnd, startTime, endTime);
                 }
 
                 if (leg.to != null && leg.to.stopId != null) {
-                    addAlertPatchesToLeg(leg, arrivingStopConditions, getAlertsForStopAndTrip(graph, leg.to.stopId, leg.tripId), requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                    addStopAlertPatchesToLeg(graph, leg, arrivingStopConditions, leg.to.stopId, stopAndTrip, legStart, legEnd, startTime, endTime);
                 }
 
                 if (leg.stop != null) {
                     for (Place place : leg.stop) {
                         if (place.stopId != null) {
-                            addAlertPatchesToLeg(leg, passingStopConditions, getAlertsForStopAndTrip(graph, place.stopId, leg.tripId),
-                                    requestedLocale, place.arrival.getTime(), place.departure.getTime());
+                            addStopAlertPatchesToLeg(graph, leg, passingStopConditions, place.stopId, stopAndTrip,
+                                    legStart, legEnd, place.arrival.getTime(), place.departure.getTime());
                         }
                     }
                 }
@@ -741,171 +764,85 @@ public abstract class GraphPathToTripPlanConverter {
             if (leg.stop != null) {
                 for (Place place : leg.stop) {
                     if (place.stopId != null) {
-                        addAlertPatchesToLeg(leg, passingStopConditions, getAlertsForStop(graph, place.stopId),
-                                requestedLocale, place.arrival.getTime(), place.departure.getTime());
+                        addStopAlertPatchesToLeg(graph, leg, passingStopConditions, place.stopId, alerts::getStopPatches,
+                                legStart, legEnd, place.arrival.getTime(), place.departure.getTime());
                     }
                 }
             }
 
             if (leg.from != null && leg.from.stopId != null) {
-                addAlertPatchesToLeg(leg, departingStopConditions, getAlertsForStop(graph, leg.from.stopId),
-                        requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                addStopAlertPatchesToLeg(graph, leg, departingStopConditions, leg.from.stopId, alerts::getStopPatches,
+                        legStart, legEnd, startTime, endTime);
             }
 
             if (leg.to != null && leg.to.stopId != null) {
-                addAlertPatchesToLeg(leg, arrivingStopConditions, getAlertsForStop(graph, leg.to.stopId),
-                        requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                addStopAlertPatchesToLeg(graph, leg, arrivingStopConditions, leg.to.stopId, alerts::getStopPatches,
+                        legStart, legEnd, startTime, endTime);
             }
 
             if (leg.tripId != null) {
-                addAlertPatchesToLeg(leg, graph.index.getAlertsForTripId(leg.tripId),
-                        requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                addAlertPatchesToLeg(leg, null, alerts.getTripPatches(leg.tripId), legStart, legEnd, startTime, endTime);
             }
             if (leg.routeId != null) {
-                addAlertPatchesToLeg(leg, graph.index.getAlertsForRouteId(leg.routeId),
-                        requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                addAlertPatchesToLeg(leg, null, alerts.getRoutePatches(leg.routeId), legStart, legEnd, startTime, endTime);
             }
 
             if (leg.agencyId != null) {
-                addAlertPatchesToLeg(leg, graph.index.getAlertsForAgency(graph.index.getAgencyWithoutFeedId(leg.agencyId)),
-                        requestedLocale, leg.startTime.getTime(), leg.endTime.getTime());
+                Agency agency = graph.index.getAgencyWithoutFeedId(leg.agencyId);
+                if (agency != null) {
+                    addAlertPatchesToLeg(leg, null, alerts.getAgencyPatches(agency.getId()), legStart, legEnd, startTime, endTime);
+                }
             }
 
             // Filter alerts when there are multiple timePeriods for each alert
-            leg.alertPatches.removeIf(alertPatch ->  !alertPatch.displayDuring(leg.startTime.getTimeInMillis()/1000, leg.endTime.getTimeInMillis()/1000));
+            leg.alertPatches.removeIf(alertPatch ->  !alertPatch.displayDuring(legStart, legEnd));
         }
     }
 
-    private static Collection<AlertPatch> getAlertsForStopAndRoute(Graph graph, AgencyAndId stopId, AgencyAndId routeId) {
-        return getAlertsForStopAndRoute(graph, stopId, routeId, true);
-    }
-
-    private static Collection<AlertPatch> getAlertsForStopAndRoute(Graph graph, AgencyAndId stopId, AgencyAndId routeId, boolean checkParentStop) {
-
+    /**
+     * Add the alert patches of a stop, of its parent station and of its multimodal station, as given by the lookup.
+     */
+    private static void addStopAlertPatchesToLeg(Graph graph, Leg leg, Collection<StopCondition> stopConditions,
+            AgencyAndId stopId, Function<AgencyAndId, AlertIndex.Patches> patchesForStop, long legStart, long legEnd,
+            Date fromTime, Date toTime) {
         Stop stop = graph.index.stopForId.get(stopId);
         if (stop == null) {
-            return new ArrayList<>();
+            return;
         }
-        Collection<AlertPatch> alertsForStopAndRoute = graph.index.getAlertsForStopAndRoute(stopId,routeId);
-        if (checkParentStop) {
-            if (alertsForStopAndRoute == null) {
-                alertsForStopAndRoute = new HashSet<>();
-            }
-            if (stop.getParentStation() != null) {
-                //Also check parent
-                Collection<AlertPatch> parentStopAlerts = graph.index.getAlertsForStopAndRoute(stop.getParentStationAgencyAndId(), routeId);
-                if (parentStopAlerts != null) {
-                    alertsForStopAndRoute.addAll(parentStopAlerts);
-                }
-            }
-            if (stop.getMultiModalStation() != null) {
-                //Also check multimodal parent
-
-                AgencyAndId multimodalStopId = new AgencyAndId(stopId.getAgencyId(), stop.getMultiModalStation());
-                Collection<AlertPatch> multimodalStopAlerts = graph.index.getAlertsForStopAndRoute(multimodalStopId, routeId);
-                if (multimodalStopAlerts != null) {
-                    alertsForStopAndRoute.addAll(multimodalStopAlerts);
-                }
-            }
+        addAlertPatchesToLeg(leg, stopConditions, patchesForStop.apply(stopId), legStart, legEnd, fromTime, toTime);
+        if (stop.getParentStation() != null) {
+            addAlertPatchesToLeg(leg, stopConditions, patchesForStop.apply(stop.getParentStationAgencyAndId()),
+                    legStart, legEnd, fromTime, toTime);
         }
-        return alertsForStopAndRoute;
-    }
-
-    private static Collection<AlertPatch> getAlertsForStopAndTrip(Graph graph, AgencyAndId stopId, AgencyAndId tripId) {
-        return getAlertsForStopAndTrip(graph, stopId, tripId, true);
-    }
-
-    private static Collection<AlertPatch> getAlertsForStopAndTrip(Graph graph, AgencyAndId stopId, AgencyAndId tripId, boolean checkParentStop) {
-
-        Stop stop = graph.index.stopForId.get(stopId);
-        if (stop == null) {
-            return new ArrayList<>();
+        if (stop.getMultiModalStation() != null) {
+            AgencyAndId multimodalStopId = new AgencyAndId(stopId.getAgencyId(), stop.getMultiModalStation());
+            addAlertPatchesToLeg(leg, stopConditions, patchesForStop.apply(multimodalStopId),
+                    legStart, legEnd, fromTime, toTime);
         }
-
-        Collection<AlertPatch> alertsForStopAndTrip = graph.index.getAlertsForStopAndTrip(stopId, tripId);
-        if (checkParentStop) {
-            if (alertsForStopAndTrip == null) {
-                alertsForStopAndTrip = new HashSet<>();
-            }
-            if  (stop.getParentStation() != null) {
-                // Also check parent
-                Collection<AlertPatch> parentStopAlerts = graph.index.getAlertsForStopAndTrip(stop.getParentStationAgencyAndId(), tripId);
-                if (parentStopAlerts != null) {
-                    alertsForStopAndTrip.addAll(parentStopAlerts);
-                }
-            }
-            if (stop.getMultiModalStation() != null) {
-                //Also check multimodal parent
-                AgencyAndId multimodalStopId = new AgencyAndId(stopId.getAgencyId(), stop.getMultiModalStation());
-                Collection<AlertPatch> multimodalStopAlerts = graph.index.getAlertsForStopAndTrip(multimodalStopId, tripId);
-                if (multimodalStopAlerts != null) {
-                    alertsForStopAndTrip.addAll(multimodalStopAlerts);
-                }
-            }
-        }
-        return alertsForStopAndTrip;
-    }
-
-    private static Collection<AlertPatch> getAlertsForStop(Graph graph, AgencyAndId stopId) {
-        return getAlertsForStop(graph, stopId, true);
     }
 
-    private static Collection<AlertPatch> getAlertsForStop(Graph graph, AgencyAndId stopId, boolean checkParentStop) {
-        Stop stop = graph.index.stopForId.get(stopId);
-        if (stop == null) {
-            return new ArrayList<>();
+    private static void addAlertPatchesToLeg(Leg leg, Collection<StopCondition> stopConditions, AlertIndex.Patches alertPatches,
+            long legStart, long legEnd, Date fromTime, Date toTime) {
+        if (alertPatches == null) {
+            return;
         }
-
-        Collection<AlertPatch> alertsForStop  = graph.index.getAlertsForStopId(stopId);
-        if (checkParentStop) {
-            if (alertsForStop == null) {
-                alertsForStop = new HashSet<>();
-            }
-            if  (stop.getParentStation() != null) {
-                // Also check parent
-                Collection<AlertPatch> parentStopAlerts = graph.index.getAlertsForStopId(stop.getParentStationAgencyAndId());
-                if (parentStopAlerts != null) {
-                    alertsForStop.addAll(parentStopAlerts);
-                }
-            }
-            if (stop.getMultiModalStation() != null) {
-                //Also check multimodal parent
-                AgencyAndId multimodalStopId = new AgencyAndId(stopId.getAgencyId(), stop.getMultiModalStation());
-                Collection<AlertPatch> multimodalStopAlerts = graph.index.getAlertsForStopId(multimodalStopId);
-                if (multimodalStopAlerts != null) {
-                    alertsForStop.addAll(multimodalStopAlerts);
-                }
-            }
-
-        }
-        return alertsForStop;
-    }
-
-
-    private static void addAlertPatchesToLeg(Leg leg, Collection<StopCondition> stopConditions, Collection<AlertPatch> alertPatches, Locale requestedLocale, Date fromTime, Date toTime) {
-        if (alertPatches != null) {
-            for (AlertPatch alert : alertPatches) {
-                if (alert.getAlert().effectiveStartDate.before(toTime) &&
-                        (alert.getAlert().effectiveEndDate == null || alert.getAlert().effectiveEndDate.after(fromTime))) {
-
-                    if (!alert.getStopConditions().isEmpty() &&  // Skip if stopConditions are not set for alert
-                            stopConditions != null && !stopConditions.isEmpty()) { // ...or specific stopConditions are not requested
-                        for (StopCondition stopCondition : stopConditions) {
-                            if (alert.getStopConditions().contains(stopCondition)) {
-                                leg.addAlertPatch(alert);
-                                break; //Only add alert once
-                            }
+        alertPatches.forEachDisplayedDuring(legStart, legEnd, alert -> {
+            if (alert.getAlert().effectiveStartDate.before(toTime) &&
+                    (alert.getAlert().effectiveEndDate == null || alert.getAlert().effectiveEndDate.after(fromTime))) {
+
+                if (!alert.getStopConditions().isEmpty() &&  // Skip if stopConditions are not set for alert
+                        stopConditions != null && !stopConditions.isEmpty()) { // ...or specific stopConditions are not requested
+                    for (StopCondition stopCondition : stopConditions) {
+                        if (alert.getStopConditions().contains(stopCondition)) {
+                            leg.addAlertPatch(alert);
+                            break; //Only add alert once
                         }
-                    } else {
-                        leg.addAlertPatch(alert);
                     }
+                } else {
+                    leg.addAlertPatch(alert);
                 }
             }
-        }
-    }
-
-    private static void addAlertPatchesToLeg(Leg leg, Collection<AlertPatch> alertPatches, Locale requestedLocale, Date fromTime, Date toTime) {
-        addAlertPatchesToLeg(leg, null, alertPatches, requestedLocale, fromTime, toTime);
+        });
     }
 
     /**
@@ -1183,6 +1120,8 @@ public abstract class GraphPathToTripPlanConverter {
             }
         }
 
+        // The geometry of the current edge, decoded into the same buffer for every edge.
+        CoordinateBuffer geom = new CoordinateBuffer();
         for (int i = 0; i < states.length - 1; i++) {
             State backState = states[i];
             State forwardState = states[i + 1];
@@ -1198,17 +1137,19 @@ public abstract class GraphPathToTripPlanConverter {
             if (forwardState.getBackMode() == null || !forwardState.getBackMode().isOnStreetNonTransit()) {
                 continue; // ignore STLs and the like
             }
-            Geometry geom = edge.getGeometry();
-            if (geom == null) {
+            geom.clear();
+            edge.appendCoordinates(geom);
+            if (geom.isEmpty()) {
                 continue;
             }
+            double firstAngle = DirectionUtils.getFirstAngle(geom);
 
             // generate a step for getting off an elevator (all
             // elevator narrative generation occurs when alighting). We don't need to know what came
             // before or will come after
             if (edge instanceof ElevatorAlightEdge) {
                 // don't care what came before or comes after
-                step = createWalkStep(graph, forwardState, requestedLocale);
+                step = createWalkStep(graph, forwardState, firstAngle, requestedLocale);
                 createdNewStep = true;
                 disableZagRemovalForThisStep = true;
 
@@ -1236,11 +1177,11 @@ public abstract class GraphPathToTripPlanConverter {
 
             if (step == null) {
                 // first step
-                step = createWalkStep(graph, forwardState, requestedLocale);
+                step = createWalkStep(graph, forwardState, firstAngle, requestedLocale);
                 createdNewStep = true;
 
                 steps.add(step);
-                double thisAngle = DirectionUtils.getFirstAngle(geom);
+                double thisAngle = firstAngle;
                 if (previous == null) {
                     step.setAbsoluteDirection(thisAngle);
                     step.relativeDirection = RelativeDirection.DEPART;
@@ -1264,7 +1205,7 @@ public abstract class GraphPathToTripPlanConverter {
                     roundaboutExit = 0;
                 }
                 /* start a new step */
-                step = createWalkStep(graph, forwardState, requestedLocale);
+                step = createWalkStep(graph, forwardState, firstAngle, requestedLocale);
                 createdNewStep = true;
 
                 steps.add(step);
@@ -1277,13 +1218,13 @@ public abstract class GraphPathToTripPlanConverter {
                     if (idx > 0)
                         roundaboutPreviousStreet = roundaboutPreviousStreet.substring(0, idx - 1);
                 }
-                double thisAngle = DirectionUtils.getFirstAngle(geom);
+                double thisAngle = firstAngle;
                 step.setDirections(lastAngle, thisAngle, edge.isRoundabout());
                 // new step, set distance to length of first edge
                 distance = edge.getDistance();
             } else {
                 /* street name has not changed */
-                double thisAngle = DirectionUtils.getFirstAngle(geom);
+                double thisAngle = firstAngle;
                 RelativeDirection direction = WalkStep.getRelativeDirection(lastAngle, thisAngle,
                         edge.isRoundabout());
                 boolean optionsBefore = backState.multipleOptionsBefore();
@@ -1351,7 +1292,7 @@ public abstract class GraphPathToTripPlanConverter {
 
                     if (shouldGenerateContinue) {
                         // turn to stay on same-named street
-                        step = createWalkStep(graph, forwardState, requestedLocale);
+                        step = createWalkStep(graph, forwardState, firstAngle, requestedLocale);
                         createdNewStep = true;
                         steps.add(step);
                         step.setDirections(lastAngle, thisAngle, false);
@@ -1481,7 +1422,7 @@ public abstract class GraphPathToTripPlanConverter {
         return angleDiff;
     }
 
-    private static WalkStep createWalkStep(Graph graph, State s, Locale wantedLocale) {
+    private static WalkStep createWalkStep(Graph graph, State s, double angle, Locale wantedLocale) {
         Edge en = s.getBackEdge();
         WalkStep step;
         step = new WalkStep();
@@ -1492,7 +1433,7 @@ public abstract class GraphPathToTripPlanConverter {
                 s.getOptions().geoidElevation ? -graph.ellipsoidToGeoidDifference : 0);
         step.bogusName = en.hasBogusName();
         step.addAlerts(graph.streetNotesService.getNotes(s), wantedLocale);
-        step.angle = DirectionUtils.getFirstAngle(s.getBackEdge().getGeometry());
+        step.angle = angle;
         if (s.getBackEdge() instanceof AreaEdge) {
             step.area = true;
         }
@@ -1503,14 +1444,13 @@ public abstract class GraphPathToTripPlanConverter {
         if (!(edge instanceof StreetEdge)) {
             return new ArrayList<P2<Double>>();
         }
-        StreetEdge elevEdge = (StreetEdge) edge;
-        if (elevEdge.getElevationProfile() == null) {
+        PackedCoordinateSequence profile = ((StreetEdge) edge).getElevationProfile();
+        if (profile == null) {
             return new ArrayList<P2<Double>>();
         }
-        ArrayList<P2<Double>> out = new ArrayList<P2<Double>>();
-        Coordinate[] coordArr = elevEdge.getElevationProfile().toCoordinateArray();
-        for (int i = 0; i < coordArr.length; i++) {
-            out.add(new P2<Double>(coordArr[i].x + distanceOffset, coordArr[i].y + heightOffset));
+        ArrayList<P2<Double>> out = new ArrayList<P2<Double>>(profile.size());
+        for (int i = 0; i < profile.size(); i++) {
+            out.add(new P2<Double>(profile.getX(i) + distanceOffset, profile.getY(i) + heightOffset));
         }
         return out;
     }
@@ -0,0 +1,75 @@
+package org.opentripplanner.api.resource;
+
+import org.opentripplanner.analyst.core.IsochroneResult;
+import org.opentripplanner.analyst.request.IsochroneService;
+import org.opentripplanner.api.common.Message;
+import org.opentripplanner.api.common.ParameterException;
+import org.opentripplanner.api.common.RoutingResource;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.standalone.Router;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Isochrones from one origin, computed from a single batch search, and optionally the raster travel time surface
+ * they are contoured from. All routing parameters of the plan endpoint (date, time, mode, maxWalkDistance...) are
+ * accepted as query parameters; the origin is the fromPlace parameter. Isochrone geometries are GeoJSON.
+ */
+@Path("routers/{routerId}/isochrone")
+public class IsochroneResource extends RoutingResource {
+
+    /** The travel time cutoffs in seconds, as repeated parameters. Defaults to 15, 30, 45 and 60 minutes. */
+    @QueryParam("cutoffSec")
+    protected List<Integer> cutoffSec;
+
+    /** The resolution of the sampling grid, in meters. Defaults to 200. */
+    @QueryParam("cellSize")
+    protected Integer cellSize;
+
+    /** Whether to return the travel time surface along with the isochrones. */
+    @QueryParam("surface")
+    protected Boolean surface;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public IsochroneResult getIsochrones() throws ParameterException {
+        RoutingRequest request = super.buildRequest();
+        if (request.from == null || !request.from.hasCoordinate()) {
+            throw new ParameterException(Message.BOGUS_PARAMETER);
+        }
+        List<Integer> cutoffs = new ArrayList<>();
+        if (cutoffSec == null || cutoffSec.isEmpty()) {
+            for (int minutes = 15; minutes <= 60; minutes += 15) {
+                cutoffs.add(minutes * 60);
+            }
+        } else {
+            for (Integer cutoff : cutoffSec) {
+                if (cutoff == null || cutoff <= 0 || cutoff > IsochroneService.MAX_CUTOFF_SECONDS) {
+                    throw new ParameterException(Message.BOGUS_PARAMETER);
+                }
+                if (!cutoffs.contains(cutoff)) {
+                    cutoffs.add(cutoff);
+                }
+            }
+            cutoffs.sort(null);
+        }
+        int cellSizeMeters = cellSize != null ? cellSize : IsochroneService.DEFAULT_CELL_SIZE_METERS;
+        if (cellSizeMeters < IsochroneService.MIN_CELL_SIZE_METERS) {
+            throw new ParameterException(Message.BOGUS_PARAMETER);
+        }
+
+        Router router = otpServer.getRouter(request.routerId);
+        IsochroneResult result = router.graph.getIsochroneService()
+                .compute(request, request.from, cutoffs, cellSizeMeters, surface != null && surface);
+        if (result == null) {
+            throw new ParameterException(Message.LOCATION_NOT_ACCESSIBLE);
+        }
+        return result;
+    }
+}
@@ -19,15 +19,12 @@ import org.opentripplanner.api.model.RouterInfo;
 import org.opentripplanner.api.model.RouterList;
 import org.opentripplanner.graph_builder.GraphBuilder;
 import org.opentripplanner.routing.error.GraphNotFoundException;
-import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.impl.DefaultStreetVertexIndexFactory;
 import org.opentripplanner.routing.impl.MemoryGraphSource;
 import org.opentripplanner.routing.services.GraphService;
 import org.opentripplanner.standalone.CommandLineParameters;
 import org.opentripplanner.standalone.OTPServer;
 import org.opentripplanner.standalone.Router;
-import org.opentripplanner.updater.GraphUpdater;
-import org.opentripplanner.updater.ReadinessBlockingUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,7 +84,10 @@ import static org.opentripplanner.api.resource.ServerInfo.Q;
  * will reload the graphs for all currently registered routerIds from disk.
  * 
  * PUT http://localhost/otp-rest-servlet/ws/routers/paris
- * will load a Graph from a sub-directory called 'paris' and associate it with the routerId 'paris'.
+ * will reload the Graph of the registered routerId 'paris' from disk, swapping it in once it is loaded.
+ * 
+ * GET http://localhost/otp-rest-servlet/ws/routers/paris/reload
+ * will report the progress of the last reload of the 'paris' Graph.
  * 
  * DELETE http://localhost/otp-rest-servlet/ws/routers/paris
  * will release the Paris Graph and de-register the 'paris' routerId.
@@ -135,21 +135,17 @@ public class Routers {
     public Response isReady() {
         boolean isRouterReady = false;
         List<String> waitingUpdaters = new ArrayList<>();
+        List<String> warmUps = new ArrayList<>();
+        boolean warmingUp = false;
         for (String id : otpServer.getRouterIds()) {
             Router router = otpServer.getRouter(id);
             if (router != null) {
                 // Router could have been evicted in the meantime
-                Graph graph = router.graph;
-
                 isRouterReady = true;
-                if (graph.updaterManager != null && graph.updaterManager.getUpdaterList() != null) {
-                    for (GraphUpdater updater : graph.updaterManager.getUpdaterList()) {
-                        if (updater instanceof ReadinessBlockingUpdater) {
-                            if (!((ReadinessBlockingUpdater) updater).isReady()) {
-                                waitingUpdaters.add(((ReadinessBlockingUpdater) updater).getType());
-                            }
-                        }
-                    }
+                waitingUpdaters.addAll(router.getWaitingUpdaters());
+                if (router.warmUp != null) {
+                    warmingUp |= !router.warmUp.isDone();
+                    warmUps.add("'" + id + "' " + router.warmUp.getProgress());
                 }
             }
         }
@@ -165,12 +161,18 @@ public class Routers {
                     .entity("Graph ready, waiting for updaters: " + waitingUpdaters + "\n").type("text/plain")
                     .build());
         }
+        if (warmingUp) {
+            LOG.info("Graph ready, warming up: {}", warmUps);
+            throw new WebApplicationException(Response.status(Status.NOT_FOUND)
+                    .entity("Graph ready, warming up: " + warmUps + "\n").type("text/plain")
+                    .build());
+        }
         if (!flaggedAsReady) {
             flaggedAsReady = true;
             LOG.info("Graph is now ready.");
         }
         return Response.status(Status.OK)
-                .entity("Ready.\n").type("text/plain")
+                .entity(warmUps.isEmpty() ? "Ready.\n" : "Ready, warmed up: " + warmUps + "\n").type("text/plain")
                 .build();
     }
 
@@ -203,33 +205,78 @@ public class Routers {
     }
 
     /** 
-     * Reload the graphs for all registered routerIds from disk.
+     * Reload the graphs for all registered routerIds from disk, one after the other in the background. Each graph
+     * keeps serving requests until its replacement is loaded and warmed up, and is then swapped out without
+     * interrupting the requests using it. The progress is reported by GET /routers/{routerId}/reload. Graphs which
+     * cannot be reloaded, e.g. because they were given in memory, are left as they are.
+     * @return status code 202 once the reloads are started, 409 if none of the graphs can be reloaded.
      */
     @RolesAllowed({ "ROUTERS" })
-    @PUT @Produces({ MediaType.APPLICATION_JSON })
-    public Response reloadGraphs(@QueryParam("path") String path,
-            @QueryParam("preEvict") @DefaultValue("true") boolean preEvict,
-            @QueryParam("force") @DefaultValue("true") boolean force) {
-        LOG.debug("DISABLED - Attempting to reload all graphs");
-        return Response.status(Status.BAD_REQUEST).entity(
-                "This endpoint is not supported any more"
-        ).build();
+    @PUT @Produces({ MediaType.TEXT_PLAIN })
+    public Response reloadGraphs() {
+        GraphService graphService = otpServer.getGraphService();
+        List<String> routerIds = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (String routerId : graphService.getRouterIds()) {
+            if (graphService.canReload(routerId) && graphService.startReload(routerId)) {
+                routerIds.add(routerId);
+            } else {
+                skipped.add(routerId);
+            }
+        }
+        if (routerIds.isEmpty() && !skipped.isEmpty()) {
+            return Response.status(Status.CONFLICT)
+                    .entity("Graphs " + skipped + " cannot be reloaded.\n").type("text/plain")
+                    .build();
+        }
+        return Response.status(Status.ACCEPTED)
+                .entity("Reloading graphs " + routerIds + "."
+                        + (skipped.isEmpty() ? "" : " Graphs " + skipped + " cannot be reloaded.") + "\n")
+                .type("text/plain")
+                .build();
     }
 
     /** 
-     * Load the graph for the specified routerId from disk.
-     * @param preEvict before reloading each graph, evict the existing graph. This will prevent 
-     * memory usage from increasing during the reload, but routing will be unavailable on this 
-     * routerId for the duration of the operation.
+     * Reload the graph of the specified routerId from disk in the background, as for all routers with PUT /routers.
+     * @return status code 202 once the reload is started, 404 if the routerId is not registered, 409 if its graph
+     * cannot be reloaded, e.g. because it was given in memory.
      */
     @RolesAllowed({ "ROUTERS" })
     @PUT @Path("{routerId}") @Produces({ MediaType.TEXT_PLAIN })
-    public Response putGraphId(@PathParam("routerId") String routerId,
-            @QueryParam("preEvict") @DefaultValue("true") boolean preEvict) {
-        LOG.debug("DISABLED - Attempting to load graph '{}' from server's local filesystem.", routerId);
-        return Response.status(Status.BAD_REQUEST).entity(
-                "This endpoint is not supported any more"
-        ).build();
+    public Response putGraphId(@PathParam("routerId") String routerId) {
+        GraphService graphService = otpServer.getGraphService();
+        if (!graphService.getRouterIds().contains(routerId)) {
+            return Response.status(Status.NOT_FOUND)
+                    .entity("Graph id '" + routerId + "' not registered.\n").type("text/plain")
+                    .build();
+        }
+        if (!graphService.canReload(routerId) || !graphService.startReload(routerId)) {
+            return Response.status(Status.CONFLICT)
+                    .entity("Graph id '" + routerId + "' cannot be reloaded.\n").type("text/plain")
+                    .build();
+        }
+        return Response.status(Status.ACCEPTED)
+                .entity("Reloading graph '" + routerId + "'.\n").type("text/plain")
+                .build();
+    }
+
+    /**
+     * Report the progress of the last reload of the specified routerId: QUEUED, LOADING, WARMING_UP, DRAINING, DONE
+     * or FAILED. The router keeps serving requests whatever the status.
+     * @return status code 200 with the status, 404 if the router was never reloaded.
+     */
+    @GET @Path("{routerId}/reload")
+    @Produces({ MediaType.TEXT_PLAIN })
+    public Response getReloadStatus(@PathParam("routerId") String routerId) {
+        GraphService.ReloadStatus status = otpServer.getGraphService().getReloadStatus(routerId);
+        if (status == null) {
+            return Response.status(Status.NOT_FOUND)
+                    .entity("Graph id '" + routerId + "' was not reloaded.\n").type("text/plain")
+                    .build();
+        }
+        return Response.status(Status.OK)
+                .entity(status + "\n").type("text/plain")
+                .build();
     }
 
     /** 
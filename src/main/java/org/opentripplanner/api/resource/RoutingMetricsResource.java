@@ -0,0 +1,34 @@
+package org.opentripplanner.api.resource;
+
+import org.opentripplanner.standalone.OTPServer;
+import org.opentripplanner.standalone.Router;
+import org.opentripplanner.util.monitoring.Histogram;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import java.util.Map;
+
+/**
+ * Report the histograms of the phase timings and counters of the routing requests made to a router, with the
+ * count, mean, usual percentiles and maximum of each. Times are in microseconds.
+ */
+@Path("/routers/{routerId}/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class RoutingMetricsResource {
+
+    Router router;
+
+    public RoutingMetricsResource (@Context OTPServer otpServer, @PathParam("routerId") String routerId) {
+        router = otpServer.getRouter(routerId);
+    }
+
+    @GET
+    public Map<String, Histogram.Summary> getMetrics () {
+        return router.graph.getRoutingMetrics().summarize();
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.opentripplanner.api.resource;
+
+import org.opentripplanner.analyst.core.TravelTimeMatrix;
+import org.opentripplanner.analyst.request.TravelTimeMatrixService;
+import org.opentripplanner.api.common.Message;
+import org.opentripplanner.api.common.ParameterException;
+import org.opentripplanner.api.common.RoutingResource;
+import org.opentripplanner.common.model.GenericLocation;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.standalone.Router;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Travel times and transfer counts from one or more origins to many destinations, computed with one batch search
+ * per origin instead of one /plan request per origin-destination pair. All routing parameters of the plan endpoint
+ * (date, time, mode, maxWalkDistance...) are accepted as query parameters. Origins and destinations are
+ * "lat,lng" strings, either as repeated query parameters or, for large destination sets, in a JSON body.
+ */
+@Path("routers/{routerId}/traveltime")
+public class TravelTimeMatrixResource extends RoutingResource {
+
+    /** The origins of the matrix. If absent, the single fromPlace parameter is used. */
+    @QueryParam("fromPlaces")
+    protected List<String> fromPlaces;
+
+    /** The destinations of the matrix. */
+    @QueryParam("toPlaces")
+    protected List<String> toPlaces;
+
+    /** Destinations further away than this many seconds are reported as unreachable. Defaults to two hours. */
+    @QueryParam("cutoffSec")
+    protected Integer cutoffSec;
+
+    /** Body of a POST request, for point sets too large for a query string. */
+    public static class Points {
+        public List<String> fromPlaces;
+        public List<String> toPlaces;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public TravelTimeMatrix getMatrix() throws ParameterException {
+        return computeMatrix(fromPlaces, toPlaces);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public TravelTimeMatrix postMatrix(Points points) throws ParameterException {
+        return computeMatrix(points.fromPlaces != null ? points.fromPlaces : fromPlaces,
+                points.toPlaces != null ? points.toPlaces : toPlaces);
+    }
+
+    private TravelTimeMatrix computeMatrix(List<String> origins, List<String> destinations)
+            throws ParameterException {
+        RoutingRequest request = super.buildRequest();
+        Router router = otpServer.getRouter(request.routerId);
+
+        List<GenericLocation> originLocations = parseLocations(origins);
+        if (originLocations.isEmpty() && request.from != null && request.from.hasCoordinate()) {
+            originLocations.add(request.from);
+        }
+        List<GenericLocation> destinationLocations = parseLocations(destinations);
+        if (originLocations.isEmpty() || destinationLocations.isEmpty()) {
+            throw new ParameterException(Message.BOGUS_PARAMETER);
+        }
+
+        int maxDuration = cutoffSec != null ? cutoffSec : TravelTimeMatrixService.DEFAULT_MAX_DURATION_SECONDS;
+        return router.travelTimeMatrixService.compute(request, originLocations, destinationLocations, maxDuration);
+    }
+
+    private static List<GenericLocation> parseLocations(List<String> places) {
+        List<GenericLocation> locations = new ArrayList<>();
+        if (places != null) {
+            for (String place : places) {
+                locations.add(GenericLocation.fromOldStyleString(place));
+            }
+        }
+        return locations;
+    }
+}
@@ -201,6 +201,50 @@ public final class CompactLineString implements Serializable {
         return uncompactLineString(x0, y0, x1, y1, DlugoszVarLenIntPacker.unpack(packedCoords), reverse);
     }
 
+    /**
+     * Decode a var-len int packed geometry straight into a sink, giving the same coordinates in the
+     * same order as {@link #uncompackLineString(double, double, double, double, byte[], boolean)}
+     * without building the intermediate int array and LineString.
+     *
+     * @param packedCoords Compacted coordinates, or null for a straight line
+     * @param reverse True if A and B and the compacted geometry is reversed.
+     */
+    public static void appendCoordinates(double xa, double ya, double xb, double yb,
+            byte[] packedCoords, boolean reverse, CoordinateSink sink) {
+        double x0 = reverse ? xb : xa;
+        double y0 = reverse ? yb : ya;
+        double x1 = reverse ? xa : xb;
+        double y1 = reverse ? ya : yb;
+        int oix = (int) Math.round(x0 * FIXED_FLOAT_MULT);
+        int oiy = (int) Math.round(y0 * FIXED_FLOAT_MULT);
+        if (!reverse) {
+            sink.add(x0, y0);
+            DlugoszVarLenIntPacker.Reader deltas = new DlugoszVarLenIntPacker.Reader(packedCoords);
+            while (deltas.hasNext()) {
+                oix += deltas.next();
+                oiy += deltas.next();
+                sink.add(oix / FIXED_FLOAT_MULT, oiy / FIXED_FLOAT_MULT);
+            }
+            sink.add(x1, y1);
+        } else {
+            // The deltas run from B to A: accumulate them, then emit the points backwards.
+            int[] coords = DlugoszVarLenIntPacker.unpack(packedCoords);
+            sink.add(x1, y1);
+            if (coords != null) {
+                for (int i = 0; i < coords.length; i += 2) {
+                    oix += coords[i];
+                    oiy += coords[i + 1];
+                    coords[i] = oix;
+                    coords[i + 1] = oiy;
+                }
+                for (int i = coords.length - 2; i >= 0; i -= 2) {
+                    sink.add(coords[i] / FIXED_FLOAT_MULT, coords[i + 1] / FIXED_FLOAT_MULT);
+                }
+            }
+            sink.add(x0, y0);
+        }
+    }
+
     /**
      * Wrapper for the above method in the case where there are no start/end coordinates provided.
      * 0-coordinates are added and then removed in order for the delta encoding to work correctly.
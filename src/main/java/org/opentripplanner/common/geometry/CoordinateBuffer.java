@@ -0,0 +1,47 @@
+package org.opentripplanner.common.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A growable sequence of coordinates held in primitive arrays. It is meant to be cleared and reused, e.g. for the
+ * geometry of each edge of a path in turn.
+ */
+public class CoordinateBuffer implements CoordinateSink {
+
+    private double[] xs = new double[16];
+
+    private double[] ys = new double[16];
+
+    private int size = 0;
+
+    @Override
+    public void add(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
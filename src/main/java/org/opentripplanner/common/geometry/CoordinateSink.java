@@ -0,0 +1,10 @@
+package org.opentripplanner.common.geometry;
+
+/**
+ * Receives the coordinates of a geometry one at a time, so that geometries stored in a compact form can be decoded
+ * straight into their consumer (a polyline encoder, a coordinate buffer) without building JTS objects.
+ */
+public interface CoordinateSink {
+
+    void add(double x, double y);
+}
@@ -40,6 +40,16 @@ public class DirectionUtils {
         double az = FastMath.toDegrees(FastMath.atan2(dX, dY));
         return az;
     }
+
+    /** Same as {@link #getAzimuth(Coordinate, Coordinate)}, on raw coordinates. */
+    private static double getAzimuth(double ax, double ay, double bx, double by) {
+        double cosLat = FastMath.cos(FastMath.toRadians((ay + by) / 2.0));
+        double dY = (by - ay);
+        double dX = (bx - ax) * cosLat;
+        if (Math.abs(dX) < 1e-10 && Math.abs(dY) < 1e-10)
+            return 180;
+        return FastMath.toDegrees(FastMath.atan2(dX, dY));
+    }
     
     /**
      * Computes the angle of the last segment of a LineString or MultiLineString in radians clockwise from North
@@ -94,4 +104,36 @@ public class DirectionUtils {
         return az * Math.PI / 180;
     }
 
+    /**
+     * Same as {@link #getLastAngle(Geometry)} for a line held in a buffer of at least two points.
+     */
+    public static double getLastAngle(CoordinateBuffer line) {
+        int numPoints = line.size();
+        int i0 = numPoints - 2;
+        int i1 = numPoints - 1;
+        int i = numPoints - 3;
+        int minDistance = 10;  // Meters
+        while (SphericalDistanceLibrary.fastDistance(line.getY(i0), line.getX(i0), line.getY(i1), line.getX(i1))
+                < minDistance && i >= 0) {
+            i0 = i--;
+        }
+        double az = getAzimuth(line.getX(i0), line.getY(i0), line.getX(i1), line.getY(i1));
+        return az * Math.PI / 180;
+    }
+
+    /**
+     * Same as {@link #getFirstAngle(Geometry)} for a line held in a buffer of at least two points.
+     */
+    public static double getFirstAngle(CoordinateBuffer line) {
+        int i1 = 1;
+        int i = 2;
+        int minDistance = 10;  // Meters
+        while (SphericalDistanceLibrary.fastDistance(line.getY(0), line.getX(0), line.getY(i1), line.getX(i1))
+                < minDistance && i < line.size()) {
+            i1 = i++;
+        }
+        double az = getAzimuth(line.getX(0), line.getY(0), line.getX(i1), line.getY(i1));
+        return az * Math.PI / 180;
+    }
+
 }
@@ -14,8 +14,7 @@
 package org.opentripplanner.common.geometry;
 
 import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Variable-length integer encoding. This optimize integer storage when most of the values are
@@ -77,46 +76,64 @@ public class DlugoszVarLenIntPacker {
     public static int[] unpack(byte[] arr) {
         if (arr == null)
             return null;
-        List<Integer> retval = new ArrayList<Integer>(arr.length);
-        int i = 0;
-        while (i < arr.length) {
+        // There are at most as many values as bytes.
+        int[] values = new int[arr.length];
+        int n = 0;
+        Reader reader = new Reader(arr);
+        while (reader.hasNext()) {
+            values[n++] = reader.next();
+        }
+        return n == values.length ? values : Arrays.copyOf(values, n);
+    }
+
+    /**
+     * Reads the values of a packed array one at a time, for consumers that do not need them all at once.
+     */
+    public static class Reader {
+
+        private final byte[] arr;
+
+        private int i = 0;
+
+        public Reader(byte[] arr) {
+            this.arr = arr;
+        }
+
+        public boolean hasNext() {
+            return arr != null && i < arr.length;
+        }
+
+        public int next() {
             int v1 = arr[i] & 0xFF;
             i++;
             if ((v1 & 0x80) == 0x00) {
                 // 0xxx xxxx -> 7 bits value
-                int sv = (v1 & 0x7F) - 64;
-                retval.add(sv);
+                return (v1 & 0x7F) - 64;
             } else if ((v1 & 0xC0) == 0x80) {
                 // 10xx xxxx + 8 -> 14 bits value
                 int sv = ((v1 & 0x3F) << 8) + (arr[i] & 0xFF) - 8192;
                 i++;
-                retval.add(sv);
+                return sv;
             } else if ((v1 & 0xE0) == 0xC0) {
                 // 110 xxxx + 2x8 -> 21 bits value
                 int sv = ((v1 & 0x1F) << 16) + ((arr[i] & 0xFF) << 8) + (arr[i + 1] & 0xFF)
                         - 1048576;
                 i += 2;
-                retval.add(sv);
+                return sv;
             } else if ((v1 & 0xF8) == 0xE0) {
                 // 1110 0xxx + 3x8 -> 27 bits value
                 int sv = ((v1 & 0x1F) << 24) + ((arr[i] & 0xFF) << 16) + ((arr[i + 1] & 0xFF) << 8)
                         + (arr[i + 2] & 0xFF) - 67108864;
                 i += 3;
-                retval.add(sv);
+                return sv;
             } else {
                 // 1110 1xxx + 4x8 -> 35 bits value
                 long sv = (((long) v1 & 0x1F) << 32) + ((arr[i] & 0xFF) << 24)
                         + ((arr[i + 1] & 0xFF) << 16) + ((arr[i + 2] & 0xFF) << 8)
                         + (arr[i + 3] & 0xFF) - 2147483648L;
                 i += 4;
-                retval.add((int) sv);
+                return (int) sv;
             }
         }
-        int[] bufret = new int[retval.size()];
-        i = 0;
-        for (int v : retval) {
-            bufret[i++] = v;
-        }
-        return bufret;
     }
 }
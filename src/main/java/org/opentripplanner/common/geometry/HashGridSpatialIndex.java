@@ -257,6 +257,11 @@ public class HashGridSpatialIndex<T> implements SpatialIndex, Serializable {
         }
     }
 
+    /** @return true if no object is indexed. */
+    public final boolean isEmpty() {
+        return nObjects == 0;
+    }
+
     public String toString() {
         return String
                 .format("HashGridSpatialIndex %f x %f, %d bins allocated, %d objs, %d entries (avg %.2f entries/bin, %.2f entries/object)",
@@ -0,0 +1,85 @@
+package org.opentripplanner.common.geometry;
+
+/**
+ * Position along a Hilbert space-filling curve over a 2^16 x 2^16 grid. Sorting objects by the position of their
+ * grid cell keeps objects that are close in space close in memory, which is what packed spatial indexes and dense
+ * arrays of graph elements want.
+ *
+ * The bit-twiddling is the branch-free algorithm by Fabian "ryg" Giesen, also used by the Flatbush index.
+ */
+public final class HilbertCurve {
+
+    /** The number of cells along each axis of the grid. */
+    public static final int GRID_SIZE = 1 << 16;
+
+    private HilbertCurve() {
+    }
+
+    /**
+     * @param x the column of the cell, in [0, GRID_SIZE)
+     * @param y the row of the cell, in [0, GRID_SIZE)
+     * @return the position of the cell along the curve, in [0, 2^32)
+     */
+    public static long index(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A; b = B; c = C; d = D;
+        A = (a & (a >>> 2)) ^ (b & (b >>> 2));
+        B = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+        C ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+        D ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+        a = A; b = B; c = C; d = D;
+        A = (a & (a >>> 4)) ^ (b & (b >>> 4));
+        B = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+        C ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+        D ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+        a = A; b = B; c = C; d = D;
+        C ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+        D ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = interleave(i0);
+        i1 = interleave(i1);
+
+        return ((i1 << 1) | i0) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the position along the curve of the cell containing (x, y), on a grid spanning the given bounds.
+     */
+    public static long index(double x, double y, double minX, double minY, double maxX, double maxY) {
+        return index(cell(x, minX, maxX), cell(y, minY, maxY));
+    }
+
+    private static int cell(double value, double min, double max) {
+        if (max <= min) {
+            return 0;
+        }
+        int cell = (int) ((value - min) / (max - min) * (GRID_SIZE - 1));
+        return Math.max(0, Math.min(GRID_SIZE - 1, cell));
+    }
+
+    /** Spread the 16 low bits of i over the even bits of the result. */
+    private static int interleave(int i) {
+        i = (i | (i << 8)) & 0x00FF00FF;
+        i = (i | (i << 4)) & 0x0F0F0F0F;
+        i = (i | (i << 2)) & 0x33333333;
+        i = (i | (i << 1)) & 0x55555555;
+        return i;
+    }
+}
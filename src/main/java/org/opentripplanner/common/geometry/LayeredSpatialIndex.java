@@ -0,0 +1,129 @@
+package org.opentripplanner.common.geometry;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A static {@link PackedSpatialIndex} of the objects known when the index is built, with a small mutable
+ * {@link HashGridSpatialIndex} overlay for the objects added afterwards (rental stations and split edges added by
+ * updaters, for instance). Queries look into both layers; objects can only be removed from the overlay.
+ *
+ * As with HashGridSpatialIndex, queries may return overlay objects that do not intersect the query envelope, and
+ * writes must be synchronized by the client. Read operations are thread-safe.
+ *
+ * @param <T> Type of objects to be spatial indexed.
+ */
+public class LayeredSpatialIndex<T> {
+
+    private final PackedSpatialIndex<T> base;
+
+    private final HashGridSpatialIndex<T> overlay = new HashGridSpatialIndex<>();
+
+    public LayeredSpatialIndex(PackedSpatialIndex<T> base) {
+        this.base = base;
+    }
+
+    public void insert(Envelope envelope, T item) {
+        overlay.insert(envelope, item);
+    }
+
+    public void insert(LineString geometry, T item) {
+        overlay.insert(geometry, item);
+    }
+
+    /** @return true if the item was found in the overlay and removed. */
+    public boolean remove(Envelope envelope, T item) {
+        return overlay.remove(envelope, item);
+    }
+
+    /** Visit all objects whose envelope intersects the given one, and maybe a few more from the overlay. */
+    public void query(Envelope envelope, Consumer<? super T> visitor) {
+        base.query(envelope, visitor);
+        if (!overlay.isEmpty()) {
+            overlay.query(envelope).forEach(visitor);
+        }
+    }
+
+    /** @return all objects whose envelope intersects the given one, and maybe a few more from the overlay. */
+    public List<T> query(Envelope envelope) {
+        List<T> result = new ArrayList<>();
+        query(envelope, result::add);
+        return result;
+    }
+
+    /**
+     * Visit objects of both layers by increasing distance to a point.
+     * @see PackedSpatialIndex#nearest(double, double, double, double, ToDoubleFunction,
+     *      PackedSpatialIndex.NearestVisitor)
+     */
+    public void nearest(double x, double y, double xScale, double maxDistance, ToDoubleFunction<? super T> distance,
+            PackedSpatialIndex.NearestVisitor<? super T> visitor) {
+        if (overlay.isEmpty()) {
+            base.nearest(x, y, xScale, maxDistance, distance, visitor);
+            return;
+        }
+        // Sort the few overlay objects within range, then merge them into the ordered visit of the base.
+        Envelope envelope = new Envelope(x, x, y, y);
+        envelope.expandBy(maxDistance / xScale, maxDistance);
+        List<Nearby<T>> nearby = new ArrayList<>();
+        for (T item : overlay.query(envelope)) {
+            double d = distance.applyAsDouble(item);
+            if (d <= maxDistance) {
+                nearby.add(new Nearby<>(item, d));
+            }
+        }
+        nearby.sort((a, b) -> Double.compare(a.distance, b.distance));
+        int[] next = { 0 };
+        boolean[] stopped = { false };
+        base.nearest(x, y, xScale, maxDistance, distance, (item, d) -> {
+            while (next[0] < nearby.size() && nearby.get(next[0]).distance <= d) {
+                Nearby<T> n = nearby.get(next[0]++);
+                if (!visitor.visit(n.item, n.distance)) {
+                    stopped[0] = true;
+                    return false;
+                }
+            }
+            stopped[0] = !visitor.visit(item, d);
+            return !stopped[0];
+        });
+        while (!stopped[0] && next[0] < nearby.size()) {
+            Nearby<T> n = nearby.get(next[0]++);
+            stopped[0] = !visitor.visit(n.item, n.distance);
+        }
+    }
+
+    /** @return the k objects of both layers nearest to a point within maxDistance, by increasing distance. */
+    public List<T> nearest(double x, double y, double xScale, int k, double maxDistance,
+            ToDoubleFunction<? super T> distance) {
+        List<T> result = new ArrayList<>(k);
+        if (k > 0) {
+            nearest(x, y, xScale, maxDistance, distance, (item, d) -> {
+                result.add(item);
+                return result.size() < k;
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LayeredSpatialIndex base: " + base + " -- overlay: " + overlay;
+    }
+
+    private static class Nearby<T> {
+
+        final T item;
+
+        final double distance;
+
+        Nearby(T item, double distance) {
+            this.item = item;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package org.opentripplanner.common.geometry;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An immutable, packed R-tree in the style of Flatbush. Items are sorted along a Hilbert curve and grouped by
+ * NODE_SIZE into nodes, which are grouped the same way up to a single root. The bounding boxes of all items and
+ * nodes are stored level by level in one flat array of doubles, and since the children of a node are contiguous
+ * no child pointers are needed at all.
+ *
+ * Unlike HashGridSpatialIndex, the exact envelope of each item is known so queries return no false positives, an
+ * item is stored only once however large it is, and queries walk the tree without allocating. It also supports
+ * nearest neighbour queries. Items can not be added or removed once the index is built: use a
+ * {@link LayeredSpatialIndex} to add a mutable overlay.
+ *
+ * Read operations are thread-safe.
+ *
+ * @param <T> Type of objects to be spatial indexed.
+ */
+public class PackedSpatialIndex<T> {
+
+    private static final int NODE_SIZE = 16;
+
+    /** The items, in Hilbert order. */
+    private final Object[] items;
+
+    /** minX, minY, maxX, maxY of every item and then of every node, level by level up to the root. */
+    private final double[] boxes;
+
+    /** The index (in boxes / 4) just past the end of each level. Level 0 holds the items. */
+    private final int[] levelEnds;
+
+    private PackedSpatialIndex(Object[] items, double[] boxes, int[] levelEnds) {
+        this.items = items;
+        this.boxes = boxes;
+        this.levelEnds = levelEnds;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /** Visit all items whose envelope intersects the given one. */
+    public void query(Envelope envelope, Consumer<? super T> visitor) {
+        query(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(), visitor);
+    }
+
+    /** Visit all items whose envelope intersects the given bounds. */
+    public void query(double minX, double minY, double maxX, double maxY, Consumer<? super T> visitor) {
+        if (items.length == 0) {
+            return;
+        }
+        int root = levelEnds.length - 1;
+        visit(root, levelEnds[root] - 1, minX, minY, maxX, maxY, visitor);
+    }
+
+    /** @return all items whose envelope intersects the given one. */
+    public List<T> query(Envelope envelope) {
+        List<T> result = new ArrayList<>();
+        query(envelope, result::add);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void visit(int level, int node, double minX, double minY, double maxX, double maxY,
+            Consumer<? super T> visitor) {
+        int b = node * 4;
+        if (boxes[b] > maxX || boxes[b + 1] > maxY || boxes[b + 2] < minX || boxes[b + 3] < minY) {
+            return;
+        }
+        if (level == 0) {
+            visitor.accept((T) items[node]);
+            return;
+        }
+        int end = childrenEnd(level, node);
+        for (int child = childrenStart(level, node); child < end; child++) {
+            visit(level - 1, child, minX, minY, maxX, maxY, visitor);
+        }
+    }
+
+    /**
+     * Visit items by increasing distance to a point, until the visitor returns false or no item is left within
+     * maxDistance. Distances are measured in an equirectangular projection of the coordinates: x differences are
+     * multiplied by xScale (e.g. the cosine of the latitude for geographic coordinates), y differences are not.
+     *
+     * @param distance the exact distance of an item to the point, in the same projection, or positive infinity to
+     *                 skip the item. It must not be less than the distance of the envelope of the item.
+     */
+    @SuppressWarnings("unchecked")
+    public void nearest(double x, double y, double xScale, double maxDistance, ToDoubleFunction<? super T> distance,
+            NearestVisitor<? super T> visitor) {
+        if (items.length == 0) {
+            return;
+        }
+        DistanceQueue queue = new DistanceQueue();
+        int level = levelEnds.length - 1;
+        int node = levelEnds[level] - 1;
+        while (true) {
+            // Queue the children of the node: items with their exact distance, nodes with their envelope distance.
+            int end = childrenEnd(level, node);
+            for (int child = childrenStart(level, node); child < end; child++) {
+                double d = boxDistance(child, x, y, xScale);
+                if (d > maxDistance) {
+                    continue;
+                }
+                if (level == 1) {
+                    d = distance.applyAsDouble((T) items[child]);
+                    if (d > maxDistance) {
+                        continue;
+                    }
+                    queue.push(d, -child - 1);
+                } else {
+                    queue.push(d, child);
+                }
+            }
+            // Report the items that are closer than any node left to explore.
+            while (!queue.isEmpty() && queue.peekValue() < 0) {
+                double d = queue.peekKey();
+                int item = -queue.pop() - 1;
+                if (!visitor.visit((T) items[item], d)) {
+                    return;
+                }
+            }
+            if (queue.isEmpty()) {
+                return;
+            }
+            node = queue.pop();
+            level = levelOf(node);
+        }
+    }
+
+    /**
+     * @return the k items nearest to a point within maxDistance, by increasing distance.
+     * @see #nearest(double, double, double, double, ToDoubleFunction, NearestVisitor)
+     */
+    public List<T> nearest(double x, double y, double xScale, int k, double maxDistance,
+            ToDoubleFunction<? super T> distance) {
+        List<T> result = new ArrayList<>(k);
+        if (k > 0) {
+            nearest(x, y, xScale, maxDistance, distance, (item, d) -> {
+                result.add(item);
+                return result.size() < k;
+            });
+        }
+        return result;
+    }
+
+    private double boxDistance(int node, double x, double y, double xScale) {
+        int b = node * 4;
+        double dx = x < boxes[b] ? boxes[b] - x : x > boxes[b + 2] ? x - boxes[b + 2] : 0;
+        double dy = y < boxes[b + 1] ? boxes[b + 1] - y : y > boxes[b + 3] ? y - boxes[b + 3] : 0;
+        dx *= xScale;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int levelStart(int level) {
+        return level == 0 ? 0 : levelEnds[level - 1];
+    }
+
+    private int levelOf(int node) {
+        int level = 0;
+        while (node >= levelEnds[level]) {
+            level++;
+        }
+        return level;
+    }
+
+    private int childrenStart(int level, int node) {
+        return levelStart(level - 1) + (node - levelStart(level)) * NODE_SIZE;
+    }
+
+    private int childrenEnd(int level, int node) {
+        return Math.min(childrenStart(level, node) + NODE_SIZE, levelEnds[level - 1]);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PackedSpatialIndex %d items, %d levels", items.length, levelEnds.length);
+    }
+
+    public interface NearestVisitor<T> {
+
+        /**
+         * @param distance the distance of the item to the query point
+         * @return true to visit the next nearest item, false to stop.
+         */
+        boolean visit(T item, double distance);
+    }
+
+    /** Collects items and their envelopes, then packs them into an index. */
+    public static class Builder<T> {
+
+        private final List<T> items = new ArrayList<>();
+
+        private double[] boxes = new double[64];
+
+        public Builder<T> add(Envelope envelope, T item) {
+            return add(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(), item);
+        }
+
+        public Builder<T> add(double minX, double minY, double maxX, double maxY, T item) {
+            int b = items.size() * 4;
+            if (b + 4 > boxes.length) {
+                boxes = Arrays.copyOf(boxes, boxes.length * 2);
+            }
+            boxes[b] = minX;
+            boxes[b + 1] = minY;
+            boxes[b + 2] = maxX;
+            boxes[b + 3] = maxY;
+            items.add(item);
+            return this;
+        }
+
+        public PackedSpatialIndex<T> build() {
+            int n = items.size();
+            if (n == 0) {
+                return new PackedSpatialIndex<>(new Object[0], new double[0], new int[] { 0 });
+            }
+
+            // Sort the items by the Hilbert index of the center of their envelope. The low bits of the sort keys
+            // hold the position of the item, which also makes the order deterministic.
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, boxes[i * 4]);
+                minY = Math.min(minY, boxes[i * 4 + 1]);
+                maxX = Math.max(maxX, boxes[i * 4 + 2]);
+                maxY = Math.max(maxY, boxes[i * 4 + 3]);
+            }
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                double x = (boxes[i * 4] + boxes[i * 4 + 2]) / 2;
+                double y = (boxes[i * 4 + 1] + boxes[i * 4 + 3]) / 2;
+                keys[i] = HilbertCurve.index(x, y, minX, minY, maxX, maxY) << 31 | i;
+            }
+            Arrays.sort(keys);
+
+            List<Integer> levelEnds = new ArrayList<>();
+            int count = n;
+            int total = n;
+            levelEnds.add(total);
+            // There is always at least one level of nodes above the items, even for a single item.
+            do {
+                count = (count + NODE_SIZE - 1) / NODE_SIZE;
+                total += count;
+                levelEnds.add(total);
+            } while (count > 1);
+
+            Object[] sortedItems = new Object[n];
+            double[] packed = new double[total * 4];
+            for (int i = 0; i < n; i++) {
+                int from = (int) (keys[i] & Integer.MAX_VALUE);
+                sortedItems[i] = items.get(from);
+                System.arraycopy(boxes, from * 4, packed, i * 4, 4);
+            }
+            int childStart = 0;
+            for (int level = 1; level < levelEnds.size(); level++) {
+                int childEnd = levelEnds.get(level - 1);
+                int node = childEnd;
+                for (int child = childStart; child < childEnd; child += NODE_SIZE, node++) {
+                    int b = node * 4;
+                    packed[b] = packed[b + 1] = Double.POSITIVE_INFINITY;
+                    packed[b + 2] = packed[b + 3] = Double.NEGATIVE_INFINITY;
+                    for (int c = child; c < Math.min(child + NODE_SIZE, childEnd); c++) {
+                        packed[b] = Math.min(packed[b], packed[c * 4]);
+                        packed[b + 1] = Math.min(packed[b + 1], packed[c * 4 + 1]);
+                        packed[b + 2] = Math.max(packed[b + 2], packed[c * 4 + 2]);
+                        packed[b + 3] = Math.max(packed[b + 3], packed[c * 4 + 3]);
+                    }
+                }
+                childStart = childEnd;
+            }
+            int[] ends = new int[levelEnds.size()];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = levelEnds.get(i);
+            }
+            return new PackedSpatialIndex<>(sortedItems, packed, ends);
+        }
+    }
+
+    /** A binary min-heap of int values by double keys. */
+    private static class DistanceQueue {
+
+        private double[] keys = new double[64];
+
+        private int[] values = new int[64];
+
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        int peekValue() {
+            return values[0];
+        }
+
+        int pop() {
+            int top = values[0];
+            size--;
+            if (size > 0) {
+                double key = keys[size];
+                int value = values[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && keys[child + 1] < keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] >= key) {
+                        break;
+                    }
+                    keys[i] = keys[child];
+                    values[i] = values[child];
+                    i = child;
+                }
+                keys[i] = key;
+                values[i] = value;
+            }
+            return top;
+        }
+    }
+}
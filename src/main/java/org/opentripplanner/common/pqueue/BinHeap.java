@@ -37,7 +37,15 @@ public class BinHeap<T> {
         size = 0;
         prio[0] = Double.NEGATIVE_INFINITY;    // set sentinel
     }
-    
+
+    /** A copy of the given queue, which can then be modified independently of it. */
+    public BinHeap(BinHeap<T> other) {
+        this.capacity = other.capacity;
+        this.size = other.size;
+        this.elem = Arrays.copyOf(other.elem, other.elem.length);
+        this.prio = Arrays.copyOf(other.prio, other.prio.length);
+    }
+
     public int size() {
     	return size;
     }
@@ -19,6 +19,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
 import org.opentripplanner.graph_builder.annotation.GraphBuilderAnnotation;
+import org.opentripplanner.graph_builder.annotation.GraphBuilderAnnotationStore;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.standalone.datastore.CompositeDataSource;
@@ -83,11 +84,11 @@ public class AnnotationsToHTML implements GraphBuilderModule {
             if (!deleteReportDirectoryAndContent()) { return; }
 
             //Groups annotations in multimap according to annotation class
-            for (GraphBuilderAnnotation annotation : graph.getBuilderAnnotations()) {
-                //writer.println("<p>" + annotation.getHTMLMessage() + "</p>");
-                // writer.println("<small>" + annotation.getClass().getSimpleName()+"</small>");
-                addAnnotation(annotation);
-
+            try {
+                graph.getBuilderAnnotationStore().forEach(this::addAnnotation);
+            } catch (IOException e) {
+                LOG.error("Failed to read graph builder annotations, HTML report won't be generated!", e);
+                return;
             }
             LOG.info("Creating Annotations log");
 
@@ -189,9 +190,8 @@ public class AnnotationsToHTML implements GraphBuilderModule {
      * All annotations are saved together in multimap where key is annotation classname
      * and values are list of annotations with that class
      */
-    private void addAnnotation(GraphBuilderAnnotation annotation) {
-        String className = annotation.getClass().getSimpleName();
-        annotations.put(className, annotation.getHTMLMessage());
+    private void addAnnotation(GraphBuilderAnnotationStore.Record annotation) {
+        annotations.put(annotation.type, annotation.htmlMessage);
     }
 
     class HTMLWriter {
@@ -2,11 +2,14 @@ package org.opentripplanner.graph_builder;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import org.opentripplanner.graph_builder.annotation.GraphBuilderAnnotationStore;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
+import org.opentripplanner.graph_builder.module.ContractionHierarchyModule;
 import org.opentripplanner.graph_builder.module.DirectTransferAnalyzer;
 import org.opentripplanner.graph_builder.module.DirectTransferGenerator;
 import org.opentripplanner.graph_builder.module.EmbedConfig;
 import org.opentripplanner.graph_builder.module.GtfsModule;
+import org.opentripplanner.graph_builder.module.LandmarkModule;
 import org.opentripplanner.graph_builder.module.NetexModule;
 import org.opentripplanner.graph_builder.module.PruneFloatingIslands;
 import org.opentripplanner.graph_builder.module.StreetLinkerModule;
@@ -21,6 +24,7 @@ import org.opentripplanner.graph_builder.services.ned.ElevationGridCoverageFacto
 import org.opentripplanner.netex.loader.NetexBundle;
 import org.opentripplanner.openstreetmap.impl.BinaryFileBasedOpenStreetMapProviderImpl;
 import org.opentripplanner.openstreetmap.services.OpenStreetMapProvider;
+import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.impl.DefaultStreetVertexIndexFactory;
 import org.opentripplanner.standalone.CommandLineParameters;
@@ -34,7 +38,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -107,6 +115,7 @@ public class GraphBuilder implements Runnable {
                             "Cannot create or write to graph at: " + graphOut.path()
                     );
                 }
+                streamAnnotationsToFile();
             }
 
             // Check all graph builder inputs, and fail fast to avoid waiting until the build
@@ -123,6 +132,7 @@ public class GraphBuilder implements Runnable {
 
             if (serializeGraph) {
                 try {
+                    saveAnnotations();
                     graph.save(getGraphOutputSource());
                 } catch (Exception ex) {
                     throw new IllegalStateException(ex);
@@ -140,6 +150,44 @@ public class GraphBuilder implements Runnable {
         }
     }
 
+    /**
+     * Stream the annotations of the graph being built to a temporary file rather than keeping them in memory, so
+     * they do not hold on to parts of the build that are otherwise released, and are not saved with the graph.
+     */
+    private void streamAnnotationsToFile() {
+        try {
+            File file = File.createTempFile("otp-annotations", ".jsonl");
+            file.deleteOnExit();
+            graph.setBuilderAnnotationStore(new GraphBuilderAnnotationStore(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create graph builder annotations file", e);
+        }
+    }
+
+    /** Copy the annotations file into the build report directory, next to the HTML report if any. */
+    private void saveAnnotations() throws IOException {
+        saveAnnotations(graph, dataStore.getBuildReportDir().entry(GraphBuilderAnnotationStore.FILENAME));
+    }
+
+    /**
+     * Copy the annotations file of the graph to the given target, if they are streamed to a file, and delete it. The
+     * graph then gets an empty in-memory store, as annotations are still added once the graph is built, e.g. by the
+     * real-time updaters when the graph is served right after being built.
+     */
+    static void saveAnnotations(Graph graph, DataSource target) throws IOException {
+        GraphBuilderAnnotationStore annotations = graph.getBuilderAnnotationStore();
+        if (annotations.getFile() == null) {
+            return;
+        }
+        annotations.close();
+        graph.setBuilderAnnotationStore(new GraphBuilderAnnotationStore());
+        try (OutputStream out = target.asOutputStream()) {
+            Files.copy(annotations.getFile().toPath(), out);
+        }
+        LOG.info("{} graph builder annotations written to {}", annotations.size(), target.path());
+        Files.deleteIfExists(annotations.getFile().toPath());
+    }
+
     /**
      * Factory method to create and configure a GraphBuilder with all the appropriate modules to
      * build a graph from the given data source and configuration directory.
@@ -279,6 +327,15 @@ public class GraphBuilder implements Runnable {
                 }
             }
         }
+        // Contraction hierarchies must be built once the street network is final, after all linking.
+        if (builderParams.contractionHierarchies) {
+            graphBuilder.addModule(new ContractionHierarchyModule(
+                    Arrays.asList(TraverseMode.CAR, TraverseMode.BICYCLE)));
+        }
+        if (builderParams.landmarks > 0) {
+            graphBuilder.addModule(new LandmarkModule(
+                    Arrays.asList(TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR), builderParams.landmarks));
+        }
         graphBuilder.addModule(
                 new EmbedConfig(
                         dataStore.graphBuilderParameters(),
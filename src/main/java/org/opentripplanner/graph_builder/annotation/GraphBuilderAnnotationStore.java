@@ -0,0 +1,146 @@
+package org.opentripplanner.graph_builder.annotation;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holds the graph builder annotations of a graph. By default the annotation objects are kept in memory, which is what
+ * tests and in-memory builds (e.g. with the graph visualizer) want. When building a graph to be saved, the annotations
+ * are instead streamed to a JSON lines file as they are produced, one {@link Record} with the type and messages of the
+ * annotation per line, so that the vertices, edges and OSM objects they refer to are not kept alive for the rest of
+ * the build, and the annotations are not serialized with the graph and loaded into every routing server.
+ *
+ * Either way the annotations are read back as records with {@link #forEach(Consumer)}, which is what the summary
+ * logging and the HTML report do. This class is thread-safe.
+ */
+public class GraphBuilderAnnotationStore implements Closeable {
+
+    /** The name of the annotations file saved in the build report directory. */
+    public static final String FILENAME = "annotations.jsonl";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<GraphBuilderAnnotation> annotations;
+
+    private final File file;
+
+    private Writer writer;
+
+    private int size = 0;
+
+    /** Keep the annotations in memory. */
+    public GraphBuilderAnnotationStore() {
+        this.annotations = new ArrayList<>();
+        this.file = null;
+    }
+
+    /** Stream the annotations to the given file, replacing its contents. */
+    public GraphBuilderAnnotationStore(File file) throws IOException {
+        this.annotations = null;
+        this.file = file;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+    public synchronized void add(GraphBuilderAnnotation annotation) {
+        size++;
+        if (annotations != null) {
+            annotations.add(annotation);
+            return;
+        }
+        if (writer == null) {
+            throw new IllegalStateException("Annotation file " + file + " is closed.");
+        }
+        try {
+            writer.write(MAPPER.writeValueAsString(new Record(annotation)));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write annotation to " + file, e);
+        }
+    }
+
+    /** @return the number of annotations added. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** @return the annotation objects, or an empty list if they are streamed to a file. */
+    public synchronized List<GraphBuilderAnnotation> getAnnotations() {
+        return annotations == null ? Collections.emptyList() : Collections.unmodifiableList(annotations);
+    }
+
+    /** @return the file the annotations are streamed to, or null if they are kept in memory. */
+    public File getFile() {
+        return file;
+    }
+
+    /** Visit all the annotations added so far, in order, as records. */
+    public synchronized void forEach(Consumer<Record> visitor) throws IOException {
+        if (annotations != null) {
+            for (GraphBuilderAnnotation annotation : annotations) {
+                visitor.accept(new Record(annotation));
+            }
+            return;
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            read(in, visitor);
+        }
+    }
+
+    /** Visit the records of an annotations file, as written by a store streaming to a file. */
+    public static void read(InputStream in, Consumer<Record> visitor) throws IOException {
+        ObjectReader reader = MAPPER.readerFor(Record.class);
+        try (MappingIterator<Record> records = reader.readValues(in)) {
+            while (records.hasNext()) {
+                visitor.accept(records.next());
+            }
+        }
+    }
+
+    /** Stop streaming to the file, which can then be copied. No more annotations can be added. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /** What is kept of an annotation in the file: its type and messages. */
+    public static class Record {
+
+        /** The simple class name of the annotation. */
+        public String type;
+
+        public String message;
+
+        public String htmlMessage;
+
+        public Record() {
+        }
+
+        public Record(GraphBuilderAnnotation annotation) {
+            this.type = annotation.getClass().getSimpleName();
+            this.message = annotation.getMessage();
+            this.htmlMessage = annotation.getHTMLMessage();
+        }
+    }
+}
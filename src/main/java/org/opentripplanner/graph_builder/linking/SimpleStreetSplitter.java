@@ -2,16 +2,14 @@ package org.opentripplanner.graph_builder.linking;
 
 import com.google.common.collect.Iterables;
 import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.index.SpatialIndex;
 import org.locationtech.jts.linearref.LinearLocation;
 import org.locationtech.jts.linearref.LocationIndexedLine;
-import gnu.trove.map.TObjectDoubleMap;
-import gnu.trove.map.hash.TObjectDoubleHashMap;
 import org.opentripplanner.common.geometry.GeometryUtils;
-import org.opentripplanner.common.geometry.HashGridSpatialIndex;
+import org.opentripplanner.common.geometry.LayeredSpatialIndex;
+import org.opentripplanner.common.geometry.PackedSpatialIndex;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.GenericLocation;
 import org.opentripplanner.common.model.P2;
@@ -54,11 +52,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.ToDoubleFunction;
 
 /**
  * This class links transit stops to streets by splitting the streets (unless the stop is extremely close to the street
@@ -96,9 +93,9 @@ public class SimpleStreetSplitter {
 
     private Graph graph;
 
-    private HashGridSpatialIndex<Edge> idx;
+    private LayeredSpatialIndex<Edge> idx;
 
-    private SpatialIndex transitStopIndex;
+    private LayeredSpatialIndex<TransitStop> transitStopIndex;
 
     private static GeometryFactory geometryFactory = GeometryUtils.getGeometryFactory();
 
@@ -110,27 +107,28 @@ public class SimpleStreetSplitter {
      * Construct a new SimpleStreetSplitter. Be aware that only one SimpleStreetSplitter should be
      * active on a graph at any given time.
      * @param graph
-     * @param hashGridSpatialIndex If not null this index is used instead of creating new one
+     * @param edgeIndex If not null this index is used instead of creating new one
      * @param transitStopIndex Index of all transitStops which is generated in {@link org.opentripplanner.routing.impl.StreetVertexIndexServiceImpl}
      * @param destructiveSplitting If true splitting is permanent (Used when linking transit stops etc.) when false Splitting is only for duration of a request. Since they are made from temporary vertices and edges.
      */
-    public SimpleStreetSplitter(Graph graph, HashGridSpatialIndex<Edge> hashGridSpatialIndex,
-        SpatialIndex transitStopIndex, boolean destructiveSplitting) {
+    public SimpleStreetSplitter(Graph graph, LayeredSpatialIndex<Edge> edgeIndex,
+        LayeredSpatialIndex<TransitStop> transitStopIndex, boolean destructiveSplitting) {
         this.graph = graph;
         this.transitStopIndex = transitStopIndex;
         this.destructiveSplitting = destructiveSplitting;
         this.edgeFactory = new DefaultStreetEdgeFactory();
 
         //We build a spatial index if it isn't provided
-        if (hashGridSpatialIndex == null) {
-            // build a nice private spatial index, since we're adding and removing edges
-            idx = new HashGridSpatialIndex<Edge>();
-
+        if (edgeIndex == null) {
+            // build a nice private spatial index, since we're adding and removing edges. The edges created by
+            // splitting go to its overlay.
+            PackedSpatialIndex.Builder<Edge> builder = PackedSpatialIndex.builder();
             for (StreetEdge se : Iterables.filter(graph.getEdges(), StreetEdge.class)) {
-                idx.insert(se.getGeometry(), se);
+                builder.add(se.getGeometry().getEnvelopeInternal(), se);
             }
+            idx = new LayeredSpatialIndex<>(builder.build());
         } else {
-            idx = hashGridSpatialIndex;
+            idx = edgeIndex;
         }
 
     }
@@ -179,67 +177,42 @@ public class SimpleStreetSplitter {
 
     /** Link this vertex into the graph */
     public boolean link(Vertex vertex, TraverseMode traverseMode, RoutingRequest options) {
-        // find nearby street edges
-        // TODO: we used to use an expanding-envelope search, which is more efficient in
-        // dense areas. but first let's see how inefficient this is. I suspect it's not too
-        // bad and the gains in simplicity are considerable.
         final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(MAX_SEARCH_RADIUS_METERS);
 
-        Envelope env = new Envelope(vertex.getCoordinate());
-
         // Perform a simple local equirectangular projection, so distances are expressed in degrees latitude.
         final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
 
-        // Expand more in the longitude direction than the latitude direction to account for converging meridians.
-        env.expandBy(radiusDeg / xscale, radiusDeg);
-
         final TraverseModeSet traverseModeSet;
         if (traverseMode == TraverseMode.BICYCLE) {
             traverseModeSet = new TraverseModeSet(traverseMode, TraverseMode.WALK);
         } else {
             traverseModeSet = new TraverseModeSet(traverseMode);
         }
-        // We sort the list of candidate edges by distance to the stop
-        // This should remove any issues with things coming out of the spatial index in different orders
-        // Then we link to everything that is within DUPLICATE_WAY_EPSILON_METERS of of the best distance
+        // We visit the candidate edges by distance to the stop, which the index does deterministically.
+        // We link to everything that is within DUPLICATE_WAY_EPSILON_METERS of of the best distance
         // so that we capture back edges and duplicate ways.
-        List<StreetEdge> candidateEdges = idx.query(env).stream()
-            .filter(streetEdge -> streetEdge instanceof  StreetEdge)
-            .map(edge -> (StreetEdge) edge)
-            // note: not filtering by radius here as distance calculation is expensive
-            // we do that below.
-            .filter(edge -> edge.canTraverse(traverseModeSet) &&
-                // only link to edges still in the graph.
-                edge.getToVertex().getIncoming().contains(edge))
-            .collect(Collectors.toList());
-
-        // Make a map of distances to all edges.
-        final TObjectDoubleMap<Edge> distances = new TObjectDoubleHashMap<>();
-
-        for (StreetEdge e : candidateEdges) {
-            distances.put(e, distance(vertex, e, xscale));
-        }
-
-        // sort the list
-        Collections.sort(candidateEdges, (o1, o2) -> {
-            double diff = distances.get(o1) - distances.get(o2);
-            // A Comparator must return an integer but our distances are doubles.
-            if (diff < 0)
-                return -1;
-            if (diff > 0)
-                return 1;
-            return 0;
+        List<Edge> bestEdges = closest(idx, vertex, xscale, radiusDeg, edge -> {
+            if (!(edge instanceof StreetEdge)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            StreetEdge streetEdge = (StreetEdge) edge;
+            // only link to edges still in the graph.
+            if (!streetEdge.canTraverse(traverseModeSet) || !edge.getToVertex().getIncoming().contains(edge)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return distance(vertex, streetEdge, xscale);
         });
 
-        if (!candidateEdges.isEmpty() && vertex instanceof TransitStop) {
-            int distance = (int)SphericalDistanceLibrary.degreesToMeters(distances.get(candidateEdges.get(0)));
+        if (!bestEdges.isEmpty() && vertex instanceof TransitStop) {
+            int distance = (int)SphericalDistanceLibrary.degreesToMeters(
+                    distance(vertex, (StreetEdge) bestEdges.get(0), xscale));
             if (distance > MIN_SNAP_DISTANCE_WARNING) {
                 graph.addBuilderAnnotation(new StopLinkedTooFar((TransitStop)vertex, distance));
             }
         }
 
         // find the closest candidate edges
-        if (candidateEdges.isEmpty() || distances.get(candidateEdges.get(0)) > radiusDeg) {
+        if (bestEdges.isEmpty()) {
             //We only link to stops if we are searching for origin/destination and for that we need transitStopIndex
             if (destructiveSplitting || transitStopIndex == null) {
                 return false;
@@ -247,41 +220,12 @@ public class SimpleStreetSplitter {
             LOG.debug("No street edge was found for {}", vertex);
             //we search for closest stops (since this is only used in origin/destination linking if no edges were found)
             //in same way as closest edges are found
-            List<TransitStop> candidateStops = new ArrayList<>();
-            transitStopIndex.query(env).forEach(candidateStop -> candidateStops.add((TransitStop) candidateStop));
-
-            final TObjectDoubleMap<Vertex> stopDistances = new TObjectDoubleHashMap<>();
-
-            for (TransitStop t : candidateStops) {
-                stopDistances.put(t, distance(vertex, t, xscale));
-            }
-
-            Collections.sort(candidateStops, (o1, o2) -> {
-                    double diff = stopDistances.get(o1) - stopDistances.get(o2);
-                    if (diff < 0) {
-                        return -1;
-                    }
-                    if (diff > 0) {
-                        return 1;
-                    }
-                    return 0;
-            });
-            if (candidateStops.isEmpty() || stopDistances.get(candidateStops.get(0)) > radiusDeg) {
+            List<TransitStop> bestStops = closest(transitStopIndex, vertex, xscale, radiusDeg,
+                    stop -> distance(vertex, stop, xscale));
+            if (bestStops.isEmpty()) {
                 LOG.debug("Stops aren't close either!");
                 return false;
             } else {
-                List<TransitStop> bestStops = new ArrayList<>();
-                // Add stops until there is a break of epsilon meters.
-                // we do this to enforce determinism. if there are a lot of stops that are all extremely close to each other,
-                // we want to be sure that we deterministically link to the same ones every time. Any hard cutoff means things can
-                // fall just inside or beyond the cutoff depending on floating-point operations.
-                int i = 0;
-                do {
-                    bestStops.add(candidateStops.get(i++));
-                } while (i < candidateStops.size() &&
-                    stopDistances.get(candidateStops.get(i)) - stopDistances
-                        .get(candidateStops.get(i - 1)) < DUPLICATE_WAY_EPSILON_DEGREES);
-
                 for (TransitStop stop: bestStops) {
                     LOG.debug("Linking vertex to stop: {}", stop.getName());
                     makeTemporaryEdges((TemporaryStreetLocation)vertex, stop);
@@ -289,29 +233,40 @@ public class SimpleStreetSplitter {
                 return true;
             }
         } else {
-
-            // find the best edges
-            List<StreetEdge> bestEdges = new ArrayList<>();
-
-            // add edges until there is a break of epsilon meters.
-            // we do this to enforce determinism. if there are a lot of edges that are all extremely close to each other,
-            // we want to be sure that we deterministically link to the same ones every time. Any hard cutoff means things can
-            // fall just inside or beyond the cutoff depending on floating-point operations.
-            int i = 0;
-            do {
-                bestEdges.add(candidateEdges.get(i++));
-            } while (i < candidateEdges.size() &&
-                distances.get(candidateEdges.get(i)) - distances
-                    .get(candidateEdges.get(i - 1)) < DUPLICATE_WAY_EPSILON_DEGREES);
-
-            for (StreetEdge edge : bestEdges) {
-                link(vertex, edge, xscale, options);
+            for (Edge edge : bestEdges) {
+                link(vertex, (StreetEdge) edge, xscale, options);
             }
 
             return true;
         }
     }
 
+    /**
+     * Find the items of an index closest to a vertex, within the given radius.
+     *
+     * We add items until there is a break of epsilon meters. we do this to enforce determinism. if there are a lot of
+     * items that are all extremely close to each other, we want to be sure that we deterministically link to the same
+     * ones every time. Any hard cutoff means things can fall just inside or beyond the cutoff depending on
+     * floating-point operations.
+     *
+     * @param distance the projected distance of an item to the vertex, or positive infinity to ignore the item
+     * @return the closest items by increasing distance
+     */
+    private static <T> List<T> closest(LayeredSpatialIndex<T> index, Vertex vertex, double xscale, double radiusDeg,
+            ToDoubleFunction<? super T> distance) {
+        List<T> closest = new ArrayList<>();
+        double[] previous = new double[1];
+        index.nearest(vertex.getLon(), vertex.getLat(), xscale, radiusDeg, distance, (item, d) -> {
+            if (!closest.isEmpty() && d - previous[0] >= DUPLICATE_WAY_EPSILON_DEGREES) {
+                return false;
+            }
+            closest.add(item);
+            previous[0] = d;
+            return true;
+        });
+        return closest;
+    }
+
     // Link to all vertices in area/platform
     private void linkTransitToAreaVertices(Vertex splitterVertex, AreaEdgeList area) {
         List<Vertex> vertices = new ArrayList<>();
@@ -523,16 +478,42 @@ public class SimpleStreetSplitter {
 
     /** projected distance from stop to edge, in latitude degrees */
     private static double distance (Vertex tstop, StreetEdge edge, double xscale) {
-        // Despite the fact that we want to use a fast somewhat inaccurate projection, still use JTS library tools
-        // for the actual distance calculations.
-        LineString transformed = equirectangularProject(edge.getGeometry(), xscale);
-        return transformed.distance(geometryFactory.createPoint(new Coordinate(tstop.getLon() * xscale, tstop.getLat())));
+        // Measure the distance to each segment in the fast somewhat inaccurate projection, without building a
+        // projected copy of the geometry: this is called for every candidate edge of every linked point.
+        CoordinateSequence coordinates = edge.getGeometry().getCoordinateSequence();
+        double px = tstop.getLon() * xscale;
+        double py = tstop.getLat();
+        double ax = coordinates.getX(0) * xscale;
+        double ay = coordinates.getY(0);
+        double best = Math.hypot(px - ax, py - ay);
+        for (int i = 1; i < coordinates.size(); i++) {
+            double bx = coordinates.getX(i) * xscale;
+            double by = coordinates.getY(i);
+            best = Math.min(best, segmentDistance(px, py, ax, ay, bx, by));
+            ax = bx;
+            ay = by;
+        }
+        return best;
+    }
+
+    /** distance from point p to segment ab */
+    private static double segmentDistance (double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length2 = dx * dx + dy * dy;
+        double r = length2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / length2;
+        if (r <= 0) {
+            return Math.hypot(px - ax, py - ay);
+        }
+        if (r >= 1) {
+            return Math.hypot(px - bx, py - by);
+        }
+        return Math.hypot(px - (ax + r * dx), py - (ay + r * dy));
     }
 
     /** projected distance from stop to another stop, in latitude degrees */
     private static double distance (Vertex tstop, Vertex tstop2, double xscale) {
-        // use JTS internal tools wherever possible
-        return new Coordinate(tstop.getLon() * xscale, tstop.getLat()).distance(new Coordinate(tstop2.getLon() * xscale, tstop2.getLat()));
+        return Math.hypot((tstop.getLon() - tstop2.getLon()) * xscale, tstop.getLat() - tstop2.getLat());
     }
 
     /** project this linestring to an equirectangular projection */
@@ -0,0 +1,52 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchy;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchyBuilder;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Builds street contraction hierarchies for the given single-mode profiles (typically CAR and BICYCLE) and stores
+ * them in the graph, so that street-only requests with default parameters can be answered without A*. This must
+ * run after all modules that modify the street network, including the linking of stops and bike rental stations.
+ */
+public class ContractionHierarchyModule implements GraphBuilderModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContractionHierarchyModule.class);
+
+    private final List<TraverseMode> modes;
+
+    public ContractionHierarchyModule(List<TraverseMode> modes) {
+        this.modes = modes;
+    }
+
+    @Override
+    public void buildGraph(Graph graph, HashMap<Class<?>, Object> extra) {
+        if (!graph.hasStreets) {
+            LOG.info("No street network in graph, skipping contraction hierarchies.");
+            return;
+        }
+        for (TraverseMode mode : modes) {
+            ContractionHierarchyBuilder builder =
+                    new ContractionHierarchyBuilder(StreetCostProfile.defaultRequest(mode));
+            ContractionHierarchy ch = builder.build(graph, mode);
+            graph.putContractionHierarchy(ch);
+        }
+    }
+
+    @Override
+    public void checkInputs() {
+        for (TraverseMode mode : modes) {
+            if (mode != TraverseMode.CAR && mode != TraverseMode.BICYCLE && mode != TraverseMode.WALK) {
+                throw new IllegalArgumentException("Contraction hierarchies are only supported for street modes.");
+            }
+        }
+    }
+}
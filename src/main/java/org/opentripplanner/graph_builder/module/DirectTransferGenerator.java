@@ -16,20 +16,30 @@ package org.opentripplanner.graph_builder.module;
 import com.google.common.collect.Iterables;
 import org.opentripplanner.graph_builder.annotation.StopNotLinkedForTransfers;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.routing.algorithm.BoundedWalkSearch;
 import org.opentripplanner.routing.edgetype.PathwayEdge;
 import org.opentripplanner.routing.edgetype.SimpleTransfer;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.GraphIndex;
+import org.opentripplanner.routing.graph.GraphLayout;
+import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.vertextype.TransitStop;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link org.opentripplanner.graph_builder.services.GraphBuilderModule} module that links up the stops of a transit network among themselves. This is necessary for
@@ -44,6 +54,9 @@ public class DirectTransferGenerator implements GraphBuilderModule {
 
     private static Logger LOG = LoggerFactory.getLogger(DirectTransferGenerator.class);
 
+    /** The number of stops, consecutive along the Hilbert curve, searched from by one thread at a time. */
+    private static final int CLUSTER_SIZE = 256;
+
     final double radiusMeters;
 
     public List<String> provides() {
@@ -71,16 +84,24 @@ public class DirectTransferGenerator implements GraphBuilderModule {
             LOG.info("Creating direct transfer edges between stops using straight line distance (not streets)...");
         }
 
-        int nTransfersTotal = 0;
-        int nLinkableStops = 0;
-
+        List<TransitStop> stops = new ArrayList<>();
         for (TransitStop ts0 : Iterables.filter(graph.getVertices(), TransitStop.class)) {
-
             /* Skip stops that are entrances to stations or whose entrances are coded separately */
-            if (!ts0.isStreetLinkable()) continue;
-            if (++nLinkableStops % 1000 == 0) {
-                LOG.info("Linked {} stops", nLinkableStops);
-            }
+            if (ts0.isStreetLinkable()) stops.add(ts0);
+        }
+        int nLinkableStops = stops.size();
+
+        /* Number the vertices along a Hilbert curve, so the searches can keep their states in arrays. Stops that are
+           close in number are close in space: taken in this order, consecutive stops form spatial clusters whose
+           searches go over mostly the same streets. */
+        int nVertices = GraphLayout.layOut(graph);
+        stops.sort(Comparator.comparingInt(Vertex::getIndex));
+        List<Set<NearbyStopFinder.StopAtDistance>> nearbyStops = findNearbyStops(nearbyStopFinder, stops, nVertices);
+
+        /* Create the transfers once all searches are done, as they modify the graph the searches go over. */
+        int nTransfersTotal = 0;
+        for (int i = 0; i < stops.size(); i++) {
+            TransitStop ts0 = stops.get(i);
             LOG.debug("Linking stop '{}' {}", ts0.getStop(), ts0);
 
             /* Determine the set of stops that are already reachable via other pathways or transfers */
@@ -96,7 +117,7 @@ public class DirectTransferGenerator implements GraphBuilderModule {
 
             /* Make transfers to each nearby stop that is the closest stop on some trip pattern. */
             int n = 0;
-            for (NearbyStopFinder.StopAtDistance sd : nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0)) {
+            for (NearbyStopFinder.StopAtDistance sd : nearbyStops.get(i)) {
                 /* Skip the origin stop, loop transfers are not needed. */
                 if (sd.tstop == ts0 || pathwayDestinations.contains(sd.tstop)) continue;
                 new SimpleTransfer(ts0, sd.tstop, sd.dist, sd.geom, sd.edges);
@@ -112,6 +133,49 @@ public class DirectTransferGenerator implements GraphBuilderModule {
         graph.hasDirectTransfers = true;
     }
 
+    /**
+     * Find the closest stop on each nearby pattern for every given stop. The stops are split into clusters of
+     * consecutive stops, which are handed to a pool of threads. Each thread reuses one bounded search for all the
+     * stops it handles.
+     * @return the nearby stops of each stop, in the same order as the stops.
+     */
+    private List<Set<NearbyStopFinder.StopAtDistance>> findNearbyStops(NearbyStopFinder nearbyStopFinder,
+            List<TransitStop> stops, int nVertices) {
+        ThreadLocal<BoundedWalkSearch> searches =
+                ThreadLocal.withInitial(() -> nearbyStopFinder.newBoundedWalkSearch(nVertices));
+        AtomicInteger nSearched = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<List<Set<NearbyStopFinder.StopAtDistance>>>> clusters = new ArrayList<>();
+            for (int start = 0; start < stops.size(); start += CLUSTER_SIZE) {
+                List<TransitStop> cluster = stops.subList(start, Math.min(start + CLUSTER_SIZE, stops.size()));
+                clusters.add(executor.submit(() -> {
+                    List<Set<NearbyStopFinder.StopAtDistance>> result = new ArrayList<>(cluster.size());
+                    for (TransitStop ts0 : cluster) {
+                        List<NearbyStopFinder.StopAtDistance> nearby = nearbyStopFinder.useStreets
+                                ? nearbyStopFinder.findNearbyStopsViaStreets(searches.get(), ts0)
+                                : nearbyStopFinder.findNearbyStopsEuclidean(ts0);
+                        result.add(nearbyStopFinder.closestStopsOnPatterns(nearby));
+                        int n = nSearched.incrementAndGet();
+                        if (n % 1000 == 0) {
+                            LOG.info("Found nearby stops of {} stops", n);
+                        }
+                    }
+                    return result;
+                }));
+            }
+            List<Set<NearbyStopFinder.StopAtDistance>> nearbyStops = new ArrayList<>(stops.size());
+            for (Future<List<Set<NearbyStopFinder.StopAtDistance>>> cluster : clusters) {
+                nearbyStops.addAll(cluster.get());
+            }
+            return nearbyStops;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Failed to find the stops near each stop.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public void checkInputs() {
         // No inputs
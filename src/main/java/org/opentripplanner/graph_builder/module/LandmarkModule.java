@@ -0,0 +1,57 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.algorithm.landmarks.LandmarkSet;
+import org.opentripplanner.routing.algorithm.landmarks.LandmarkSetBuilder;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Selects landmarks and precomputes the street path weights to and from them for the given single-mode profiles,
+ * for use by the LandmarkRemainingWeightHeuristic. Like the contraction hierarchies, this must run after all modules
+ * that modify the street network.
+ */
+public class LandmarkModule implements GraphBuilderModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LandmarkModule.class);
+
+    private final List<TraverseMode> modes;
+
+    private final int nLandmarks;
+
+    public LandmarkModule(List<TraverseMode> modes, int nLandmarks) {
+        this.modes = modes;
+        this.nLandmarks = nLandmarks;
+    }
+
+    @Override
+    public void buildGraph(Graph graph, HashMap<Class<?>, Object> extra) {
+        if (!graph.hasStreets) {
+            LOG.info("No street network in graph, skipping landmarks.");
+            return;
+        }
+        for (TraverseMode mode : modes) {
+            LandmarkSetBuilder builder = new LandmarkSetBuilder(StreetCostProfile.defaultRequest(mode));
+            LandmarkSet landmarks = builder.build(graph, mode, nLandmarks);
+            graph.putLandmarkSet(landmarks);
+        }
+    }
+
+    @Override
+    public void checkInputs() {
+        if (nLandmarks <= 0) {
+            throw new IllegalArgumentException("The number of landmarks must be positive.");
+        }
+        for (TraverseMode mode : modes) {
+            if (mode != TraverseMode.CAR && mode != TraverseMode.BICYCLE && mode != TraverseMode.WALK) {
+                throw new IllegalArgumentException("Landmarks are only supported for street modes.");
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.opentripplanner.common.MinMap;
 import org.opentripplanner.common.geometry.GeometryUtils;
 import org.opentripplanner.common.geometry.PackedCoordinateSequence;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.routing.algorithm.BoundedWalkSearch;
 import org.opentripplanner.routing.algorithm.EarliestArrivalSearch;
 import org.opentripplanner.routing.core.RoutingRequest;
 import org.opentripplanner.routing.core.State;
@@ -86,12 +87,20 @@ public class NearbyStopFinder {
      * origin vertex.
      */
     public Set<StopAtDistance> findNearbyStopsConsideringPatterns (Vertex vertex) {
+        /* Iterate over nearby stops via the street network or using straight-line distance, depending on the graph. */
+        return closestStopsOnPatterns(findNearbyStops(vertex));
+    }
+
+    /**
+     * Among the given nearby stops, keep the unique stops that are the closest stop on some trip pattern.
+     * This only reads the graph index, so it can be called from several threads at once.
+     */
+    public Set<StopAtDistance> closestStopsOnPatterns (Iterable<StopAtDistance> nearbyStops) {
 
         /* Track the closest stop on each pattern passing nearby. */
         MinMap<TripPattern, StopAtDistance> closestStopForPattern = new MinMap<TripPattern, StopAtDistance>();
 
-        /* Iterate over nearby stops via the street network or using straight-line distance, depending on the graph. */
-        for (NearbyStopFinder.StopAtDistance stopAtDistance : findNearbyStops(vertex)) {
+        for (NearbyStopFinder.StopAtDistance stopAtDistance : nearbyStops) {
             /* Filter out destination stops that are already reachable via pathways or transfers. */
             // FIXME why is the above comment relevant here? how does the next line achieve this?
             TransitStop ts1 = stopAtDistance.tstop;
@@ -152,6 +161,32 @@ public class NearbyStopFinder {
 
     }
 
+    /**
+     * Return all stops within a certain radius of the given vertex, using network distance along streets, with a
+     * search that is reused from one call to the next. This is much cheaper than findNearbyStopsViaStreets when
+     * searching from many vertices, and several searches can run in parallel.
+     * If the origin vertex is a TransitStop, the result will include it.
+     */
+    public List<StopAtDistance> findNearbyStopsViaStreets (BoundedWalkSearch search, Vertex originVertex) {
+        search.search(originVertex);
+        List<StopAtDistance> stopsFound = Lists.newArrayList();
+        search.forEachReached(state -> {
+            Vertex targetVertex = state.getVertex();
+            if (targetVertex != originVertex && targetVertex instanceof TransitStop) {
+                stopsFound.add(stopAtDistanceForState(state));
+            }
+        });
+        if (originVertex instanceof TransitStop) {
+            stopsFound.add(new StopAtDistance((TransitStop)originVertex, 0));
+        }
+        return stopsFound;
+    }
+
+    /** Create a search for findNearbyStopsViaStreets, bounded by the radius of this finder. */
+    public BoundedWalkSearch newBoundedWalkSearch (int nVertices) {
+        return new BoundedWalkSearch(graph, nVertices, earliestArrivalSearch.maxDuration);
+    }
+
     /**
      * Return all stops within a certain radius of the given vertex, using straight-line distance independent of streets.
      * If the origin vertex is a TransitStop, the result will include it.
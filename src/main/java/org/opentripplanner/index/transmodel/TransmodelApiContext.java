@@ -6,7 +6,7 @@ public class TransmodelApiContext {
         public final Router router;
         public final String clientName;
 
-        TransmodelApiContext(Router router, String clientName) {
+        public TransmodelApiContext(Router router, String clientName) {
                 this.router = router;
                 this.clientName = clientName;
         }
@@ -15,11 +15,15 @@ public class TransmodelGraphIndexFactory {
 
     private static Map<String, TransmodelGraphIndex> indexPerRouterId = new HashMap<>();
 
-    public static TransmodelGraphIndex getTransmodelGraphIndexForRouter(Router router) {
+    /** The router each index was made for, as a reloaded router gets the same id. */
+    private static Map<String, Router> routerPerRouterId = new HashMap<>();
+
+    public static synchronized TransmodelGraphIndex getTransmodelGraphIndexForRouter(Router router) {
         TransmodelGraphIndex graphIndex = indexPerRouterId.get(router.id);
-        if (graphIndex == null) {
+        if (graphIndex == null || routerPerRouterId.get(router.id) != router) {
             graphIndex = new TransmodelGraphIndex(router);
             indexPerRouterId.put(router.id, graphIndex);
+            routerPerRouterId.put(router.id, router);
         }
         return graphIndex;
     }
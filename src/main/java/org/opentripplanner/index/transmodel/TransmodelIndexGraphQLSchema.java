@@ -1018,6 +1018,12 @@ public class TransmodelIndexGraphQLSchema {
                         .type(Scalars.GraphQLBoolean)
                         .defaultValue(defaultRoutingRequest.compactLegsByReversedSearch)
                         .build())
+                .argument(GraphQLArgument.newArgument()
+                        .name("useRaptor")
+                        .description("Whether to use the round-based RAPTOR search instead of A* for depart-after transit searches. Experimental argument.")
+                        .type(Scalars.GraphQLBoolean)
+                        .defaultValue(defaultRoutingRequest.useRaptor)
+                        .build())
                 .argument(GraphQLArgument.newArgument()
                         .name("reverseOptimizeOnTheFly")
                         .description("For debugging only.")
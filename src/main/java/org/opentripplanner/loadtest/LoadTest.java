@@ -0,0 +1,246 @@
+package org.opentripplanner.loadtest;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.opentripplanner.routing.impl.GraphScanner;
+import org.opentripplanner.routing.services.GraphService;
+import org.opentripplanner.standalone.CommandLineParameters;
+import org.opentripplanner.standalone.GrizzlyServer;
+import org.opentripplanner.standalone.OTPServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a corpus of trip plan and Transmodel GraphQL requests (see {@link LoadTestRequest}) against an OTP server,
+ * and reports the latency percentiles, error rates and throughput of each endpoint.
+ *
+ * The server is either one already running, given by the URL of a router, or started in this JVM on the graph of a
+ * router in a graph directory, which is waited for until it reports ready. The requests are sent in the order of the
+ * corpus, cycling through it, either as fast as a given number of concurrent clients can (closed loop), or at a
+ * given rate (open loop). At a given rate, latencies are measured from the time each request was due to be sent
+ * rather than from when it was actually sent, so that a server falling behind shows in the percentiles instead of
+ * slowing down the test. The first requests can be left out of the figures as a warm-up.
+ *
+ * For example:
+ * <pre>
+ * java -cp otp.jar org.opentripplanner.loadtest.LoadTest --graphs /var/otp/graphs --router default \
+ *     --corpus requests.jsonl --concurrency 8 --requests 10000 --warmUp 1000 --out run.json --baseline previous.json
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    @Parameter(names = { "--help" }, description = "Print this help message and exit", help = true)
+    private boolean help;
+
+    @Parameter(names = { "--corpus" }, description = "JSON lines file of the requests to replay", required = true)
+    private File corpus;
+
+    @Parameter(names = { "--url" }, description = "URL of the router of a running server, "
+            + "e.g. http://localhost:8080/otp/routers/default")
+    private String url;
+
+    @Parameter(names = { "--graphs" }, description = "Start a server in this JVM on the graphs of this directory")
+    private File graphDirectory;
+
+    @Parameter(names = { "--router" }, description = "The router to start and test, with --graphs")
+    private String routerId = "default";
+
+    @Parameter(names = { "--concurrency" }, description = "Number of concurrent clients")
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = { "--rate" }, description = "Requests per second, 0 to send them as fast as possible")
+    private double rate = 0;
+
+    @Parameter(names = { "--requests" }, description = "Number of requests measured, by default the corpus size")
+    private int nRequests = 0;
+
+    @Parameter(names = { "--warmUp" }, description = "Number of requests sent before those measured")
+    private int nWarmUp = 0;
+
+    @Parameter(names = { "--timeout" }, description = "Request timeout in seconds")
+    private int timeoutSeconds = 60;
+
+    @Parameter(names = { "--out" }, description = "Write the results as JSON to this file")
+    private File out;
+
+    @Parameter(names = { "--baseline" }, description = "Compare the results to those of a previous run")
+    private File baseline;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        JCommander jc = new JCommander(loadTest);
+        try {
+            jc.parse(args);
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+            jc.usage();
+            System.exit(1);
+        }
+        if (loadTest.help || (loadTest.url == null) == (loadTest.graphDirectory == null)) {
+            System.out.println("Give either the --url of a running server or the --graphs to start one.");
+            jc.usage();
+            System.exit(loadTest.help ? 0 : 1);
+        }
+        loadTest.run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        List<LoadTestRequest> requests = LoadTestRequest.read(corpus.toPath());
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests in " + corpus);
+        }
+        if (nRequests <= 0) {
+            nRequests = requests.size();
+        }
+        String routerUrl = url != null ? url : startServer();
+
+        if (nWarmUp > 0) {
+            LOG.info("Warming up with {} requests.", nWarmUp);
+            replay(requests, routerUrl, 0, nWarmUp, null);
+        }
+        LOG.info("Sending {} requests with {} clients{}.", nRequests, concurrency,
+                rate > 0 ? " at " + rate + " requests per second" : "");
+        LoadTestReport report = new LoadTestReport();
+        long start = System.nanoTime();
+        replay(requests, routerUrl, nWarmUp, nRequests, report);
+        LoadTestReport.Result result = report.getResult(getSettings(requests), System.nanoTime() - start);
+
+        LoadTestReport.print(result, System.out);
+        if (out != null) {
+            LoadTestReport.write(result, out);
+        }
+        if (baseline != null) {
+            LoadTestReport.compare(LoadTestReport.read(baseline), result, System.out);
+        }
+    }
+
+    /** The settings the results depend on, to check that runs being compared were made the same way. */
+    private Map<String, String> getSettings(List<LoadTestRequest> requests) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("corpus", corpus.getName());
+        settings.put("corpusSize", Integer.toString(requests.size()));
+        settings.put("server", url != null ? url : "in-process " + routerId);
+        settings.put("concurrency", Integer.toString(concurrency));
+        settings.put("rate", Double.toString(rate));
+        settings.put("requests", Integer.toString(nRequests));
+        settings.put("warmUp", Integer.toString(nWarmUp));
+        settings.put("cores", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        settings.put("java", System.getProperty("java.version"));
+        return settings;
+    }
+
+    /**
+     * Send the requests numbered from first (included) to first + n (excluded), cycling through the corpus, and
+     * record them in the report if there is one.
+     */
+    private void replay(List<LoadTestRequest> requests, String routerUrl, int first, int n, LoadTestReport report)
+            throws InterruptedException {
+        Duration timeout = Duration.ofSeconds(timeoutSeconds);
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < n) {
+                    LoadTestRequest request = requests.get((first + i) % requests.size());
+                    long sent = System.nanoTime();
+                    if (rate > 0) {
+                        // Measure from when the request was due, to account for the server falling behind.
+                        sent = start + (long) (i / rate * 1e9);
+                        long wait = sent - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    boolean error = !send(request, routerUrl, timeout);
+                    if (report != null) {
+                        report.record(request.endpoint, System.nanoTime() - sent, error);
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return whether the request succeeded. */
+    private boolean send(LoadTestRequest request, String routerUrl, Duration timeout) {
+        try {
+            HttpResponse<String> response = client.send(request.toHttpRequest(routerUrl, timeout),
+                    HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 && !request.isError(response.body());
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Start a server on the graph of the router in this JVM, and wait until it is ready. */
+    private String startServer() throws IOException, InterruptedException {
+        CommandLineParameters params = new CommandLineParameters();
+        params.graphDirectory = graphDirectory;
+        params.routerIds = Collections.singletonList(routerId);
+        params.bindAddress = "127.0.0.1";
+        params.port = freePort();
+        params.securePort = freePort();
+        params.server = true;
+        params.insecure = true;
+
+        GraphService graphService = new GraphService();
+        GraphScanner graphScanner = new GraphScanner(graphService, graphDirectory);
+        graphScanner.autoRegister = params.routerIds;
+        graphScanner.defaultRouterId = routerId;
+        graphScanner.startup();
+        OTPServer otpServer = new OTPServer(params, graphService);
+        Thread server = new Thread(() -> new GrizzlyServer(params, otpServer).run(), "load-test-server");
+        server.setDaemon(true);
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + params.port + "/otp/routers";
+        HttpRequest ready = HttpRequest.newBuilder(URI.create(baseUrl + "/ready")).GET().build();
+        while (true) {
+            try {
+                if (client.send(ready, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    break;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(500);
+        }
+        LOG.info("Server on graph '{}' ready.", routerId);
+        return baseUrl + "/" + routerId;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
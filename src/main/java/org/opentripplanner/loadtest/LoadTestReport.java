@@ -0,0 +1,164 @@
+package org.opentripplanner.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.opentripplanner.util.monitoring.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The outcome of a load test: for each endpoint the latency percentiles, error counts and throughput. It is written
+ * as JSON with the settings of the run, so that runs can be compared with
+ * {@link #compare(Result, Result, PrintStream)}.
+ */
+public class LoadTestReport {
+
+    /** Latencies are recorded in microseconds within 1/128 of their value. */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<LoadTestRequest.Endpoint, Stats> stats = new EnumMap<>(LoadTestRequest.Endpoint.class);
+
+    public LoadTestReport() {
+        for (LoadTestRequest.Endpoint endpoint : LoadTestRequest.Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+    }
+
+    /** Record a request. Thread-safe. */
+    public void record(LoadTestRequest.Endpoint endpoint, long latencyNanos, boolean error) {
+        Stats s = stats.get(endpoint);
+        s.latencies.record(latencyNanos / 1000);
+        if (error) {
+            s.errors.increment();
+        }
+    }
+
+    /** @param settings how the test was run, e.g. the corpus, concurrency and rate */
+    public Result getResult(Map<String, String> settings, long durationNanos) {
+        Result result = new Result();
+        result.settings = settings;
+        result.durationSeconds = durationNanos / 1e9;
+        stats.forEach((endpoint, s) -> {
+            long count = s.latencies.getCount();
+            if (count == 0) {
+                return;
+            }
+            EndpointResult r = new EndpointResult();
+            r.requests = count;
+            r.errors = s.errors.sum();
+            r.errorRate = (double) r.errors / count;
+            r.throughput = count / result.durationSeconds;
+            r.meanMillis = s.latencies.getMean() / 1000;
+            for (double percentile : PERCENTILES) {
+                r.percentilesMillis.put("p" + percentileName(percentile),
+                        s.latencies.getPercentile(percentile) / 1000.0);
+            }
+            r.percentilesMillis.put("max", s.latencies.getMax() / 1000.0);
+            result.endpoints.put(endpoint.name(), r);
+        });
+        return result;
+    }
+
+    private static String percentileName(double percentile) {
+        String name = Double.toString(percentile * 100);
+        return name.endsWith(".0") ? name.substring(0, name.length() - 2) : name;
+    }
+
+    public static void write(Result result, File file) throws IOException {
+        MAPPER.writeValue(file, result);
+    }
+
+    public static Result read(File file) throws IOException {
+        return MAPPER.readValue(file, Result.class);
+    }
+
+    public static void print(Result result, PrintStream out) {
+        out.printf("%-8s %9s %7s %9s %9s", "endpoint", "requests", "errors", "req/s", "mean ms");
+        for (String percentile : percentileNames()) {
+            out.printf(" %9s", percentile);
+        }
+        out.println();
+        result.endpoints.forEach((endpoint, r) -> {
+            out.printf("%-8s %9d %6.2f%% %9.1f %9.1f", endpoint, r.requests, r.errorRate * 100, r.throughput,
+                    r.meanMillis);
+            for (String percentile : percentileNames()) {
+                out.printf(" %9.1f", r.percentilesMillis.get(percentile));
+            }
+            out.println();
+        });
+    }
+
+    /** Print the relative change of each figure from a baseline run to this one. */
+    public static void compare(Result baseline, Result result, PrintStream out) {
+        if (!baseline.settings.equals(result.settings)) {
+            out.println("Warning: the runs have different settings, " + baseline.settings + " vs " + result.settings);
+        }
+        result.endpoints.forEach((endpoint, r) -> {
+            EndpointResult b = baseline.endpoints.get(endpoint);
+            if (b == null) {
+                return;
+            }
+            out.printf("%-8s req/s %s, errors %s", endpoint, change(b.throughput, r.throughput),
+                    change(b.errorRate, r.errorRate));
+            for (String percentile : percentileNames()) {
+                out.printf(", %s %s", percentile,
+                        change(b.percentilesMillis.get(percentile), r.percentilesMillis.get(percentile)));
+            }
+            out.println();
+        });
+    }
+
+    private static String change(Double baseline, Double value) {
+        if (baseline == null || value == null) {
+            return "n/a";
+        }
+        if (baseline == 0) {
+            return value == 0 ? "+0.0%" : "n/a";
+        }
+        return String.format("%+.1f%%", (value - baseline) / baseline * 100);
+    }
+
+    private static List<String> percentileNames() {
+        List<String> names = new ArrayList<>();
+        for (double percentile : PERCENTILES) {
+            names.add("p" + percentileName(percentile));
+        }
+        names.add("max");
+        return names;
+    }
+
+    private static class Stats {
+        final Histogram latencies = new Histogram(SUB_BUCKET_BITS);
+        final LongAdder errors = new LongAdder();
+    }
+
+    /** What is written to the report file. */
+    public static class Result {
+        public Map<String, String> settings = new LinkedHashMap<>();
+        public double durationSeconds;
+        public Map<String, EndpointResult> endpoints = new LinkedHashMap<>();
+    }
+
+    public static class EndpointResult {
+        public long requests;
+        public long errors;
+        public double errorRate;
+        /** Requests per second. */
+        public double throughput;
+        public double meanMillis;
+        /** p50, p90, p99, p99.9 and max. */
+        public Map<String, Double> percentilesMillis = new LinkedHashMap<>();
+    }
+}
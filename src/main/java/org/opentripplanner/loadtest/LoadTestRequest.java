@@ -0,0 +1,120 @@
+package org.opentripplanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One request of a load test corpus, read from a JSON line. A line is either a trip plan request, given by the query
+ * parameters of the plan endpoint:
+ * <pre>
+ * { "plan" : { "fromPlace" : "59.91,10.75", "toPlace" : "59.93,10.80", "time" : "08:30", "mode" : "WALK,TRANSIT" } }
+ * </pre>
+ * or a Transmodel GraphQL request, as posted to the GraphQL endpoint:
+ * <pre>
+ * { "query" : "query($id: String!) { quay(id: $id) { name } }", "variables" : { "id" : "NSR:Quay:1" } }
+ * </pre>
+ */
+public class LoadTestRequest {
+
+    public enum Endpoint { PLAN, GRAPHQL }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public final Endpoint endpoint;
+
+    /** The query string of a plan request, or the JSON body of a GraphQL request. */
+    private final String content;
+
+    private LoadTestRequest(Endpoint endpoint, String content) {
+        this.endpoint = endpoint;
+        this.content = content;
+    }
+
+    /** @throws IllegalArgumentException if the line is neither a plan nor a GraphQL request. */
+    public static LoadTestRequest parse(String line) throws IOException {
+        JsonNode node = MAPPER.readTree(line);
+        if (node.has("plan")) {
+            StringBuilder query = new StringBuilder();
+            Iterator<Map.Entry<String, JsonNode>> parameters = node.get("plan").fields();
+            while (parameters.hasNext()) {
+                Map.Entry<String, JsonNode> parameter = parameters.next();
+                if (query.length() > 0) {
+                    query.append('&');
+                }
+                query.append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8));
+                query.append('=');
+                query.append(URLEncoder.encode(parameter.getValue().asText(), StandardCharsets.UTF_8));
+            }
+            return new LoadTestRequest(Endpoint.PLAN, query.toString());
+        }
+        if (node.has("query")) {
+            ObjectNode body = MAPPER.createObjectNode();
+            body.set("query", node.get("query"));
+            if (node.has("variables")) {
+                body.set("variables", node.get("variables"));
+            }
+            if (node.has("operationName")) {
+                body.set("operationName", node.get("operationName"));
+            }
+            return new LoadTestRequest(Endpoint.GRAPHQL, MAPPER.writeValueAsString(body));
+        }
+        throw new IllegalArgumentException("Neither a plan nor a GraphQL request: " + line);
+    }
+
+    /** Read a corpus, one request per line, skipping blank lines. */
+    public static List<LoadTestRequest> read(Path corpus) throws IOException {
+        List<LoadTestRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    requests.add(parse(line));
+                }
+            }
+        }
+        return requests;
+    }
+
+    /** @param routerUrl the URL of the router, e.g. http://localhost:8080/otp/routers/default */
+    public HttpRequest toHttpRequest(String routerUrl, Duration timeout) {
+        if (endpoint == Endpoint.PLAN) {
+            return HttpRequest.newBuilder(URI.create(routerUrl + "/plan?" + content))
+                    .timeout(timeout)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(routerUrl + "/transmodel/index/graphql"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("ET-Client-Name", "otp-load-test")
+                .POST(HttpRequest.BodyPublishers.ofString(content))
+                .build();
+    }
+
+    /**
+     * @return whether the response body reports an error: a GraphQL error, or a plan error other than not finding
+     * any path, which is a normal outcome of a trip plan.
+     */
+    public boolean isError(String body) {
+        if (endpoint == Endpoint.GRAPHQL) {
+            return body.contains("\"errors\"");
+        }
+        return body.contains("\"error\"") && !body.contains("PATH_NOT_FOUND") && !body.contains("NO_TRANSIT_TIMES");
+    }
+}
@@ -90,16 +90,29 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class NetexLoader {
     private static final Logger LOG = LoggerFactory.getLogger(NetexModule.class);
 
     private NetexBundle netexBundle;
 
-    private Unmarshaller unmarshaller;
+    private JAXBContext jaxbContext;
+
+    /** Unmarshallers are not thread safe, so each parsing thread has its own. */
+    private ThreadLocal<Unmarshaller> unmarshaller;
+
+    /** Parses the independent files of a group in parallel, or null if files are parsed one at a time. */
+    private ExecutorService parseExecutor;
 
     private NetexMapper otpMapper;
 
@@ -114,7 +127,8 @@ public class NetexLoader {
 
     public OtpTransitBuilder loadBundle() throws Exception {
         LOG.info("Loading bundle " + netexBundle.getFilename());
-        this.unmarshaller = createUnmarshaller();
+        this.jaxbContext = JAXBContext.newInstance(PublicationDeliveryStructure.class);
+        this.unmarshaller = ThreadLocal.withInitial(this::createUnmarshaller);
         OtpTransitBuilder transitBuilder = new OtpTransitBuilder();
 
         this.otpMapper = new NetexMapper(
@@ -125,7 +139,21 @@ public class NetexLoader {
                 addBuilderAnnotation
         );
 
-        loadDao();
+        int parseThreads = netexBundle.netexParameters.parseThreads;
+        if (parseThreads > 1) {
+            this.parseExecutor = Executors.newFixedThreadPool(parseThreads, r -> {
+                Thread thread = new Thread(r, "netex-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        try {
+            loadDao();
+        } finally {
+            if (parseExecutor != null) {
+                parseExecutor.shutdownNow();
+            }
+        }
 
         return transitBuilder;
     }
@@ -154,13 +182,8 @@ public class NetexLoader {
                 loadFiles("shared group file", group.sharedEntries());
                 mapCurrentNetexEntitiesIntoOtpTransitObjects();
 
-                for (DataSource entry : group.independentEntries()) {
-                    newNetexDaoScope(() -> {
-                        // Load each independent file in group
-                        loadFile("group file", entry);
-                        mapCurrentNetexEntitiesIntoOtpTransitObjects();
-                    });
-                }
+                // Load each independent file in group
+                loadIndependentFiles("group file", group.independentEntries());
             });
         }
         mapCurrentNetexComplexRelationsIntoOtpTransitObjects();
@@ -184,9 +207,50 @@ public class NetexLoader {
         otpMapper.mapNetexToOtpComplexRelations(currentNetexDao());
     }
 
-    private Unmarshaller createUnmarshaller() throws Exception {
-        JAXBContext jaxbContext = JAXBContext.newInstance(PublicationDeliveryStructure.class);
-        return jaxbContext.createUnmarshaller();
+    private Unmarshaller createUnmarshaller() {
+        try {
+            return jaxbContext.createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load each of the given files in a DAO scope of its own and map it, in the given order. The files are
+     * unmarshalled ahead on the parse threads, at most two per thread, which is the expensive part of loading a
+     * file. Putting the entities into the DAO and mapping them is done on this thread in file order, so the result
+     * is the same as when the files are loaded one at a time.
+     */
+    private void loadIndependentFiles(String description, Collection<DataSource> entries) {
+        int parseAhead = parseExecutor == null ? 0 : 2 * netexBundle.netexParameters.parseThreads;
+        Iterator<DataSource> toParse = entries.iterator();
+        Deque<Future<PublicationDeliveryStructure>> parsing = new ArrayDeque<>();
+        for (DataSource entry : entries) {
+            while (parsing.size() < parseAhead && toParse.hasNext()) {
+                // Read the file on this thread, since not all data sources can be read concurrently.
+                byte[] bytesArray = toParse.next().asBytes();
+                parsing.addLast(parseExecutor.submit(() -> parseXmlDoc(bytesArray)));
+            }
+            LOG.info("Loading {}: {}", description, entry.name());
+            PublicationDeliveryStructure document = parseExecutor == null
+                    ? parseFile(entry)
+                    : awaitDocument(parsing.removeFirst());
+            newNetexDaoScope(() -> {
+                loadDocument(document);
+                mapCurrentNetexEntitiesIntoOtpTransitObjects();
+            });
+        }
+    }
+
+    private PublicationDeliveryStructure awaitDocument(Future<PublicationDeliveryStructure> document) {
+        try {
+            return document.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
     }
 
     private void loadFiles(String fileDescription, Iterable<DataSource> entries) {
@@ -204,41 +268,46 @@ public class NetexLoader {
     }
 
     private void loadFile(String description, DataSource entry) {
+        LOG.info("Loading {}: {}", description, entry.name());
+        loadDocument(parseFile(entry));
+    }
+
+    private PublicationDeliveryStructure parseFile(DataSource entry) {
         try {
-            LOG.info("Loading {}: {}", description, entry.name());
-            byte[] bytesArray = entry.asBytes();
-
-            PublicationDeliveryStructure value = parseXmlDoc(bytesArray);
-            List<JAXBElement<? extends Common_VersionFrameStructure>> compositeFrameOrCommonFrames = value
-                    .getDataObjects().getCompositeFrameOrCommonFrame();
-            for (JAXBElement frame : compositeFrameOrCommonFrames) {
-
-                if (frame.getValue() instanceof CompositeFrame) {
-                    CompositeFrame cf = (CompositeFrame) frame.getValue();
-                    VersionFrameDefaultsStructure frameDefaults = cf.getFrameDefaults();
-                    String timeZone = "GMT";
-                    if (frameDefaults != null && frameDefaults.getDefaultLocale() != null
-                            && frameDefaults.getDefaultLocale().getTimeZone() != null) {
-                        timeZone = frameDefaults.getDefaultLocale().getTimeZone();
-                    }
+            return parseXmlDoc(entry.asBytes());
+        } catch (JAXBException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
 
-                    currentNetexDao().setTimeZone(timeZone);
+    private void loadDocument(PublicationDeliveryStructure value) {
+        List<JAXBElement<? extends Common_VersionFrameStructure>> compositeFrameOrCommonFrames = value
+                .getDataObjects().getCompositeFrameOrCommonFrame();
+        for (JAXBElement frame : compositeFrameOrCommonFrames) {
+
+            if (frame.getValue() instanceof CompositeFrame) {
+                CompositeFrame cf = (CompositeFrame) frame.getValue();
+                VersionFrameDefaultsStructure frameDefaults = cf.getFrameDefaults();
+                String timeZone = "GMT";
+                if (frameDefaults != null && frameDefaults.getDefaultLocale() != null
+                        && frameDefaults.getDefaultLocale().getTimeZone() != null) {
+                    timeZone = frameDefaults.getDefaultLocale().getTimeZone();
+                }
 
-                    List<JAXBElement<? extends Common_VersionFrameStructure>> commonFrames = cf
-                            .getFrames().getCommonFrame();
-                    for (JAXBElement commonFrame : commonFrames) {
-                        loadSiteFrames(commonFrame);
-                        loadResourceFrames(commonFrame);
-                        loadServiceCalendarFrames(commonFrame);
-                        loadTimeTableFrames(commonFrame);
-                        loadServiceFrames(commonFrame);
-                    }
-                } else if (frame.getValue() instanceof SiteFrame) {
-                    loadSiteFrames(frame);
+                currentNetexDao().setTimeZone(timeZone);
+
+                List<JAXBElement<? extends Common_VersionFrameStructure>> commonFrames = cf
+                        .getFrames().getCommonFrame();
+                for (JAXBElement commonFrame : commonFrames) {
+                    loadSiteFrames(commonFrame);
+                    loadResourceFrames(commonFrame);
+                    loadServiceCalendarFrames(commonFrame);
+                    loadTimeTableFrames(commonFrame);
+                    loadServiceFrames(commonFrame);
                 }
+            } else if (frame.getValue() instanceof SiteFrame) {
+                loadSiteFrames(frame);
             }
-        } catch (JAXBException e) {
-            throw new RuntimeException(e.getMessage(), e);
         }
     }
 
@@ -246,7 +315,7 @@ public class NetexLoader {
         JAXBElement<PublicationDeliveryStructure> root;
         ByteArrayInputStream stream = new ByteArrayInputStream(bytesArray);
         //noinspection unchecked
-        root = (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(stream);
+        root = (JAXBElement<PublicationDeliveryStructure>) unmarshaller.get().unmarshal(stream);
 
         return root.getValue();
     }
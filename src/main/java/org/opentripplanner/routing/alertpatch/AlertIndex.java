@@ -0,0 +1,205 @@
+package org.opentripplanner.routing.alertpatch;
+
+import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.routing.edgetype.TripPattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An immutable snapshot of the alert patches, indexed on the entities they apply to in the same way as
+ * {@link org.opentripplanner.routing.impl.AlertPatchServiceImpl} does, for decorating itineraries. A new index is
+ * built and published by the alert patch service every time its patches change, so readers never lock, and looking
+ * up an entity that has no alerts only costs a map lookup.
+ *
+ * The patches of each entity are sorted on the start of the interval covering all their time periods, so that those
+ * not displayed during a given time window can be skipped without checking each of their time periods.
+ */
+public final class AlertIndex {
+
+    public static final AlertIndex EMPTY = new AlertIndex(Collections.emptyList());
+
+    private final int size;
+
+    private final Map<AgencyAndId, Patches> byStop = new HashMap<>();
+
+    private final Map<AgencyAndId, Patches> byRoute = new HashMap<>();
+
+    private final Map<AgencyAndId, Patches> byTrip = new HashMap<>();
+
+    private final Map<String, Patches> byAgency = new HashMap<>();
+
+    private final Map<String, Patches> byTripPattern = new HashMap<>();
+
+    /** Patches for a route (outer key: stop) or a trip at a given stop, without making a key object per lookup. */
+    private final Map<AgencyAndId, Map<AgencyAndId, Patches>> byStopAndRoute = new HashMap<>();
+
+    private final Map<AgencyAndId, Map<AgencyAndId, Patches>> byStopAndTrip = new HashMap<>();
+
+    public AlertIndex(Collection<AlertPatch> alertPatches) {
+        Map<AgencyAndId, List<AlertPatch>> stops = new HashMap<>();
+        Map<AgencyAndId, List<AlertPatch>> routes = new HashMap<>();
+        Map<AgencyAndId, List<AlertPatch>> trips = new HashMap<>();
+        Map<String, List<AlertPatch>> agencies = new HashMap<>();
+        Map<String, List<AlertPatch>> tripPatterns = new HashMap<>();
+        Map<AgencyAndId, Map<AgencyAndId, List<AlertPatch>>> stopsAndRoutes = new HashMap<>();
+        Map<AgencyAndId, Map<AgencyAndId, List<AlertPatch>>> stopsAndTrips = new HashMap<>();
+        for (AlertPatch alertPatch : alertPatches) {
+            AgencyAndId stop = alertPatch.getStop();
+            AgencyAndId route = alertPatch.getRoute();
+            AgencyAndId trip = alertPatch.getTrip();
+            if (stop != null && trip != null) {
+                add(stopsAndTrips.computeIfAbsent(stop, k -> new HashMap<>()), trip, alertPatch);
+            } else if (stop != null && route != null) {
+                add(stopsAndRoutes.computeIfAbsent(stop, k -> new HashMap<>()), route, alertPatch);
+            } else {
+                if (stop != null) {
+                    add(stops, stop, alertPatch);
+                }
+                if (route != null) {
+                    add(routes, route, alertPatch);
+                }
+                if (trip != null) {
+                    add(trips, trip, alertPatch);
+                }
+            }
+            String agency = alertPatch.getAgency();
+            if (agency != null && !agency.isEmpty()) {
+                add(agencies, agency, alertPatch);
+            }
+            for (TripPattern pattern : alertPatch.getTripPatterns()) {
+                add(tripPatterns, pattern.code, alertPatch);
+            }
+        }
+        this.size = alertPatches.size();
+        freeze(stops, byStop);
+        freeze(routes, byRoute);
+        freeze(trips, byTrip);
+        freeze(agencies, byAgency);
+        freeze(tripPatterns, byTripPattern);
+        stopsAndRoutes.forEach((stop, patches) -> freeze(patches, byStopAndRoute.computeIfAbsent(stop, k -> new HashMap<>())));
+        stopsAndTrips.forEach((stop, patches) -> freeze(patches, byStopAndTrip.computeIfAbsent(stop, k -> new HashMap<>())));
+    }
+
+    private static <K> void add(Map<K, List<AlertPatch>> map, K key, AlertPatch alertPatch) {
+        map.computeIfAbsent(key, k -> new ArrayList<>()).add(alertPatch);
+    }
+
+    private static <K> void freeze(Map<K, List<AlertPatch>> lists, Map<K, Patches> target) {
+        lists.forEach((key, patches) -> target.put(key, new Patches(patches)));
+    }
+
+    /** @return true if there are no alert patches at all, in which case nothing needs to be looked up. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* The lookups below return null if there are no patches for the entity. */
+
+    public Patches getStopPatches(AgencyAndId stop) {
+        return byStop.get(stop);
+    }
+
+    public Patches getRoutePatches(AgencyAndId route) {
+        return byRoute.get(route);
+    }
+
+    public Patches getTripPatches(AgencyAndId trip) {
+        return byTrip.get(trip);
+    }
+
+    public Patches getAgencyPatches(String agency) {
+        return byAgency.get(agency);
+    }
+
+    public Patches getTripPatternPatches(TripPattern pattern) {
+        return byTripPattern.get(pattern.code);
+    }
+
+    public Patches getStopAndRoutePatches(AgencyAndId stop, AgencyAndId route) {
+        return get(byStopAndRoute, stop, route);
+    }
+
+    public Patches getStopAndTripPatches(AgencyAndId stop, AgencyAndId trip) {
+        return get(byStopAndTrip, stop, trip);
+    }
+
+    private static Patches get(Map<AgencyAndId, Map<AgencyAndId, Patches>> map, AgencyAndId stop, AgencyAndId other) {
+        Map<AgencyAndId, Patches> patches = map.get(stop);
+        return patches == null ? null : patches.get(other);
+    }
+
+    /**
+     * The patches of one entity, sorted on the start of the interval covering all their time periods. The interval
+     * of a patch without time periods is empty, as such a patch is never displayed.
+     */
+    public static final class Patches {
+
+        private final AlertPatch[] patches;
+
+        private final long[] starts;
+
+        private final long[] ends;
+
+        Patches(List<AlertPatch> alertPatches) {
+            int n = alertPatches.size();
+            long[] unsortedStarts = new long[n];
+            long[] unsortedEnds = new long[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                long start = Long.MAX_VALUE;
+                long end = Long.MIN_VALUE;
+                for (TimePeriod period : alertPatches.get(i).getTimePeriods()) {
+                    start = Math.min(start, period.startTime);
+                    end = Math.max(end, period.endTime);
+                }
+                unsortedStarts[i] = start;
+                unsortedEnds[i] = end;
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> unsortedStarts[i]));
+            patches = new AlertPatch[n];
+            starts = new long[n];
+            ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                patches[i] = alertPatches.get(order[i]);
+                starts[i] = unsortedStarts[order[i]];
+                ends[i] = unsortedEnds[order[i]];
+            }
+        }
+
+        public int size() {
+            return patches.length;
+        }
+
+        /**
+         * Visit the patches displayed during the given time window, as defined by
+         * {@link AlertPatch#displayDuring(long, long)}.
+         */
+        public void forEachDisplayedDuring(long startTimeSeconds, long endTimeSeconds, Consumer<AlertPatch> visitor) {
+            for (int i = 0; i < patches.length && starts[i] <= endTimeSeconds; i++) {
+                if (startTimeSeconds < ends[i] && patches[i].displayDuring(startTimeSeconds, endTimeSeconds)) {
+                    visitor.accept(patches[i]);
+                }
+            }
+        }
+
+        /** Visit all patches, whatever their time periods. */
+        public void forEach(Consumer<AlertPatch> visitor) {
+            for (AlertPatch patch : patches) {
+                visitor.accept(patch);
+            }
+        }
+    }
+}
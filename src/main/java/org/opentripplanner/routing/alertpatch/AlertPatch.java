@@ -289,6 +289,11 @@ public class AlertPatch implements Serializable {
         os.defaultWriteObject();
     }
 
+    /** Package-private so that it does not show up in the API: only the alert index needs it. */
+    List<TimePeriod> getTimePeriods() {
+        return timePeriods == null ? Collections.emptyList() : timePeriods;
+    }
+
     public void setTimePeriods(List<TimePeriod> periods) {
         timePeriods = periods;
     }
@@ -28,6 +28,8 @@ import org.opentripplanner.routing.spt.ShortestPathTree;
 import org.opentripplanner.util.DateUtils;
 import org.opentripplanner.util.monitoring.MonitoringStore;
 import org.opentripplanner.util.monitoring.MonitoringStoreFactory;
+import org.opentripplanner.util.monitoring.RoutingCounter;
+import org.opentripplanner.util.monitoring.RoutingPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,6 +70,7 @@ public class AStar {
         RemainingWeightHeuristic heuristic;
         public RoutingContext rctx;
         public int nVisited;
+        public int nEnqueued;
         public List<State> targetAcceptedStates;
         public RunStatus status;
         private RoutingRequest options;
@@ -121,7 +124,9 @@ public class AStar {
         // Since initial states can be multiple, heuristic cannot depend on the initial state.
         // Initializing the bidirectional heuristic is a pretty complicated operation that involves searching through
         // the streets around the origin and destination.
+        long heuristicStart = System.nanoTime();
         runState.heuristic.initialize(runState.options, abortTime);
+        runState.rctx.instrumentation.addTime(RoutingPhase.HEURISTIC_INITIALIZATION, heuristicStart);
         if (abortTime < Long.MAX_VALUE  && System.currentTimeMillis() > abortTime) {
             LOG.warn("Timeout during initialization of goal direction heuristic.");
             options.rctx.debugOutput.timedOut = true;
@@ -137,6 +142,7 @@ public class AStar {
         initialSize = (int) Math.ceil(2 * (Math.sqrt((double) initialSize + 1)));
         runState.pq = new BinHeap<>(initialSize);
         runState.nVisited = 0;
+        runState.nEnqueued = 0;
         runState.targetAcceptedStates = Lists.newArrayList();
         
         if (addToQueue) {
@@ -234,6 +240,7 @@ public class AStar {
                         traverseVisitor.visitEnqueue(v);
                     //LOG.info("u.w={} v.w={} h={}", runState.u.weight, v.weight, remaining_w);
                     runState.pq.insert(v, estimate);
+                    runState.nEnqueued += 1;
                 } 
             }
         }
@@ -244,6 +251,12 @@ public class AStar {
     void runSearch(long abortTime){
         /* the core of the A* algorithm */
         while (!runState.pq.empty()) { // Until the priority queue is empty:
+            /*
+             * Terminate if the search was aborted from another thread, e.g. because its result is no longer needed.
+             */
+            if (runState.options.rctx.aborted) {
+                break;
+            }
             /*
              * Terminate based on timeout?
              */
@@ -304,6 +317,9 @@ public class AStar {
             }
 
         }
+        // Counted locally and added once, to keep the instrumentation out of the inner loop.
+        runState.rctx.instrumentation.add(RoutingCounter.STATES_VISITED, runState.nVisited);
+        runState.rctx.instrumentation.add(RoutingCounter.STATES_ENQUEUED, runState.nEnqueued);
     }
 
     /** @return the shortest path, or null if none is found */
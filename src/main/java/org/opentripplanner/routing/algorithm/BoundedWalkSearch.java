@@ -0,0 +1,128 @@
+package org.opentripplanner.routing.algorithm;
+
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.GraphLayout;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.util.function.Consumer;
+
+/**
+ * An earliest arrival walk search bounded in duration, meant to be run many times in a row from different origins,
+ * e.g. from every stop when generating transfers. Unlike {@link EarliestArrivalSearch}, it does not build a new
+ * routing request, routing context and shortest path tree for every search: the request and context are made once,
+ * and the best state at each vertex is kept in an array indexed on the vertex numbers given by {@link GraphLayout},
+ * which is cleared by only resetting the entries the previous search touched.
+ *
+ * Only one state is kept per vertex, the one arriving first. This is what the earliest arrival dominance function
+ * does for walk searches, apart from turn restrictions, which are not considered to make states incomparable here.
+ *
+ * The graph must have been laid out, and not have gained vertices since. An instance is not thread-safe: use one per
+ * thread, with as many threads as needed.
+ */
+public class BoundedWalkSearch {
+
+    private final Graph graph;
+
+    private final int maxDurationSeconds;
+
+    private final State[] bestStates;
+
+    /** The indexes of the vertices reached by the last search, in the order they were first reached. */
+    private final int[] reached;
+
+    private int nReached = 0;
+
+    private final BinHeap<State> queue = new BinHeap<>();
+
+    private RoutingRequest options;
+
+    /**
+     * @param nVertices the number of vertices laid out, as returned by {@link GraphLayout#layOut(Graph)}
+     * @param maxDurationSeconds the search does not go further than this from its origin
+     */
+    public BoundedWalkSearch(Graph graph, int nVertices, int maxDurationSeconds) {
+        this.graph = graph;
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.bestStates = new State[nVertices];
+        this.reached = new int[nVertices];
+    }
+
+    /** Search from the given vertex, replacing the results of the previous search. */
+    public void search(Vertex origin) {
+        for (int i = 0; i < nReached; i++) {
+            bestStates[reached[i]] = null;
+        }
+        nReached = 0;
+        queue.reset();
+
+        if (options == null) {
+            options = new RoutingRequest(TraverseMode.WALK);
+            options.clampInitialWait = 0;
+            // As in EarliestArrivalSearch, resource limiting is not valid in an earliest arrival search.
+            options.maxTransfers = Integer.MAX_VALUE;
+            options.setMaxWalkDistance(Double.MAX_VALUE);
+            options.setRoutingContext(graph, origin, null);
+            options.worstTime = options.dateTime + maxDurationSeconds;
+        }
+        State initialState = new State(origin, options);
+        if (improves(initialState)) {
+            queue.insert(initialState, initialState.getActiveTime());
+        }
+        while (!queue.empty()) {
+            State u = queue.extract_min();
+            if (bestStates[index(u.getVertex())] != u) {
+                // A better state was found for this vertex after this one was queued.
+                continue;
+            }
+            for (Edge edge : u.getVertex().getOutgoing()) {
+                for (State v = edge.traverse(u); v != null; v = v.getNextResult()) {
+                    if (v.getTimeSeconds() > options.worstTime) {
+                        continue;
+                    }
+                    if (improves(v)) {
+                        queue.insert(v, v.getActiveTime());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Visit the best state at each vertex reached by the last search, including the origin. */
+    public void forEachReached(Consumer<State> visitor) {
+        for (int i = 0; i < nReached; i++) {
+            visitor.accept(bestStates[reached[i]]);
+        }
+    }
+
+    /** @return the best state at the given vertex in the last search, or null if it was not reached. */
+    public State getState(Vertex vertex) {
+        int index = vertex.getIndex();
+        return index >= 0 && index < bestStates.length ? bestStates[index] : null;
+    }
+
+    /** Keep the state if it is the first to reach its vertex, or reaches it earlier than the best one so far. */
+    private boolean improves(State state) {
+        int index = index(state.getVertex());
+        State best = bestStates[index];
+        if (best == null) {
+            reached[nReached++] = index;
+        } else if (best.getElapsedTimeSeconds() <= state.getElapsedTimeSeconds()) {
+            return false;
+        }
+        bestStates[index] = state;
+        return true;
+    }
+
+    private int index(Vertex vertex) {
+        int index = vertex.getIndex();
+        if (index < 0 || index >= bestStates.length) {
+            throw new IllegalStateException("Vertex " + vertex + " was not numbered when the graph was laid out.");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,61 @@
+package org.opentripplanner.routing.algorithm;
+
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Edge;
+
+import java.util.Locale;
+
+/**
+ * Helpers for data precomputed over the street network for a fixed cost profile (contraction hierarchies, landmark
+ * distances). Such data can only be used for requests with the same profile as the one it was built with.
+ */
+public abstract class StreetCostProfile {
+
+    /** The default request for a single mode, for which street data is precomputed at graph build time. */
+    public static RoutingRequest defaultRequest(TraverseMode mode) {
+        RoutingRequest options = new RoutingRequest(mode);
+        // Traffic-dependent speeds are only known per request, so they cannot be part of precomputed data.
+        options.useTraffic = false;
+        return options;
+    }
+
+    /**
+     * @return true if the edge weights of this request depend on nothing but its profile, i.e. it is a street-only
+     * request with a single mode, without mode changes (parking, rental) or traffic-dependent speeds.
+     */
+    public static boolean isFixed(RoutingRequest options) {
+        if (options.modes.isTransit() || options.modes.getModes().size() != 1) {
+            return false;
+        }
+        if (options.parkAndRide || options.kissAndRide || options.rideAndKiss || options.bikeParkAndRide
+                || options.allowBikeRental) {
+            return false;
+        }
+        return !(options.useTraffic && options.rctx != null && options.rctx.streetSpeedSnapshot != null);
+    }
+
+    /**
+     * A summary of all the request parameters that influence the weight of street edges.
+     */
+    public static String of(RoutingRequest options) {
+        return String.format(Locale.ROOT, "modes=%s optimize=%s wheelchair=%b maxSlope=%f speeds=%f/%f/%f " +
+                        "reluctances=%f/%f/%f triangle=%f/%f/%f excludeWalking=%b",
+                options.modes, options.optimize, options.wheelchairAccessible, options.maxSlope,
+                options.walkSpeed, options.bikeSpeed, options.carSpeed,
+                options.walkReluctance, options.stairsReluctance, options.walkOnStreetReluctance,
+                options.triangleTimeFactor, options.triangleSlopeFactor, options.triangleSafetyFactor,
+                options.excludeWalking);
+    }
+
+    /**
+     * The weight of traversing a single edge in a depart-after search, without any turn cost. This is never more
+     * than the weight the same edge adds within a real search with the same profile.
+     * @return the weight, or -1 if the edge cannot be traversed.
+     */
+    public static double edgeWeight(Edge edge, RoutingRequest options) {
+        State s1 = edge.traverse(new State(edge.getFromVertex(), options));
+        return s1 == null ? -1 : s1.getWeight();
+    }
+}
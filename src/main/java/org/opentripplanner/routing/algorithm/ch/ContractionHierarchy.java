@@ -0,0 +1,145 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.MavenVersion;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.io.Serializable;
+
+/**
+ * A contraction hierarchy over the street network for one fixed cost profile (a non-transit mode with the default
+ * routing parameters). Every street vertex has a rank, and the edge set contains the original street edges plus
+ * shortcut edges that each replace a path of two edges through a lower-ranked vertex. A shortest path can then be
+ * found with a bidirectional search that only ever goes up in rank, which settles a tiny fraction of the vertices
+ * that A* would visit.
+ *
+ * The hierarchy is stored with the graph. It does not hold references to vertices or edges, which may be replaced
+ * when the graph is modified after it is built (e.g. when bike rental stations are linked), but only vertex labels
+ * and primitive arrays. Vertices are resolved lazily against the graph, and edges are looked up again between
+ * consecutive vertices when a path is unpacked.
+ *
+ * The edge weights are those of traversing each edge on its own, so they do not include turn costs or time-dependent
+ * speeds. The final path is traversed again with the actual request, which adds these back.
+ */
+public class ContractionHierarchy implements Serializable {
+
+    private static final long serialVersionUID = MavenVersion.VERSION.getUID();
+
+    /** The mode this hierarchy was built for. */
+    public final TraverseMode mode;
+
+    /** The cost profile this hierarchy was built for, see {@link StreetCostProfile}. */
+    public final String profile;
+
+    final String[] vertexLabels;
+
+    final int[] rank;
+
+    /* Edges, original or shortcut, indexed by edge number. */
+
+    final int[] edgeFrom;
+
+    final int[] edgeTo;
+
+    final double[] edgeWeight;
+
+    /** For shortcuts, the edge from the start vertex to the contracted vertex. -1 for original edges. */
+    final int[] edgeFirstChild;
+
+    /** For shortcuts, the edge from the contracted vertex to the end vertex. -1 for original edges. */
+    final int[] edgeSecondChild;
+
+    /* Upward graph in compressed form: the edges of vertex v are found at indexes [index[v], index[v + 1]). */
+
+    /** Outgoing edges towards a higher-ranked vertex, used by the forward search. */
+    final int[] upOutIndex;
+
+    final int[] upOutEdges;
+
+    /** Incoming edges from a higher-ranked vertex, used by the backward search. */
+    final int[] upInIndex;
+
+    final int[] upInEdges;
+
+    private transient Vertex[] vertices;
+
+    private transient TObjectIntMap<Vertex> indexForVertex;
+
+    ContractionHierarchy(TraverseMode mode, String profile, String[] vertexLabels, int[] rank, int[] edgeFrom,
+            int[] edgeTo, double[] edgeWeight, int[] edgeFirstChild, int[] edgeSecondChild) {
+        this.mode = mode;
+        this.profile = profile;
+        this.vertexLabels = vertexLabels;
+        this.rank = rank;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeWeight = edgeWeight;
+        this.edgeFirstChild = edgeFirstChild;
+        this.edgeSecondChild = edgeSecondChild;
+
+        int nVertices = vertexLabels.length;
+        upOutIndex = new int[nVertices + 1];
+        upInIndex = new int[nVertices + 1];
+        for (int e = 0; e < edgeFrom.length; e++) {
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+                upOutIndex[edgeFrom[e] + 1]++;
+            } else {
+                upInIndex[edgeTo[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < nVertices; v++) {
+            upOutIndex[v + 1] += upOutIndex[v];
+            upInIndex[v + 1] += upInIndex[v];
+        }
+        upOutEdges = new int[upOutIndex[nVertices]];
+        upInEdges = new int[upInIndex[nVertices]];
+        int[] outFill = new int[nVertices];
+        int[] inFill = new int[nVertices];
+        for (int e = 0; e < edgeFrom.length; e++) {
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+                int v = edgeFrom[e];
+                upOutEdges[upOutIndex[v] + outFill[v]++] = e;
+            } else {
+                int v = edgeTo[e];
+                upInEdges[upInIndex[v] + inFill[v]++] = e;
+            }
+        }
+    }
+
+    public int getVertexCount() {
+        return vertexLabels.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeFrom.length;
+    }
+
+    /** @return the index of the given vertex in this hierarchy, or -1 if it is not part of it. */
+    public int indexOf(Vertex vertex) {
+        return indexForVertex.get(vertex);
+    }
+
+    /** @return the graph vertex with the given index, or null if it has been removed from the graph. */
+    public Vertex getVertex(int index) {
+        return vertices[index];
+    }
+
+    /** Look up the vertices of this hierarchy in the graph. This must be done before the hierarchy is used. */
+    public synchronized void resolve(Graph graph) {
+        if (vertices != null) return;
+        Vertex[] resolved = new Vertex[vertexLabels.length];
+        TObjectIntMap<Vertex> index = new TObjectIntHashMap<>(vertexLabels.length, 0.5f, -1);
+        for (int v = 0; v < vertexLabels.length; v++) {
+            resolved[v] = graph.getVertex(vertexLabels[v]);
+            if (resolved[v] != null) {
+                index.put(resolved[v], v);
+            }
+        }
+        indexForVertex = index;
+        vertices = resolved;
+    }
+}
@@ -0,0 +1,261 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a ContractionHierarchy over the street vertices of a graph. Vertices are contracted one by one in order of
+ * their edge difference (shortcuts added minus edges removed, plus the number of already contracted neighbors, which
+ * spreads the contraction evenly over the graph). Priorities are updated lazily: a vertex taken from the queue is
+ * only contracted if its recomputed priority is still the lowest.
+ *
+ * A shortcut u -> x is added when contracting v only if no witness path from u to x avoiding v is at most as long
+ * as u -> v -> x. The witness searches are limited in the number of settled vertices, which may add a few
+ * unnecessary shortcuts but never makes the hierarchy incorrect.
+ */
+public class ContractionHierarchyBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContractionHierarchyBuilder.class);
+
+    private static final int WITNESS_SETTLED_LIMIT = 500;
+
+    private final RoutingRequest options;
+
+    private final List<Vertex> vertices = new ArrayList<>();
+
+    private final TObjectIntMap<Vertex> indexForVertex = new TObjectIntHashMap<>(1000, 0.5f, -1);
+
+    private final TIntArrayList edgeFrom = new TIntArrayList();
+
+    private final TIntArrayList edgeTo = new TIntArrayList();
+
+    private final TDoubleArrayList edgeWeight = new TDoubleArrayList();
+
+    private final TIntArrayList edgeFirstChild = new TIntArrayList();
+
+    private final TIntArrayList edgeSecondChild = new TIntArrayList();
+
+    private TIntArrayList[] outEdges;
+
+    private TIntArrayList[] inEdges;
+
+    private boolean[] contracted;
+
+    private int[] contractedNeighbors;
+
+    private double[] witnessWeight;
+
+    private final TIntArrayList witnessTouched = new TIntArrayList();
+
+    private final BinHeap<Integer> witnessQueue = new BinHeap<>();
+
+    /**
+     * @param options the request whose street costs are used, normally the default request for a single mode (see
+     *                StreetCostProfile.defaultRequest). Its profile is recorded in the hierarchy.
+     */
+    public ContractionHierarchyBuilder(RoutingRequest options) {
+        this.options = options;
+    }
+
+    public ContractionHierarchy build(Graph graph, TraverseMode mode) {
+        long startTime = System.currentTimeMillis();
+        loadStreetNetwork(graph);
+        int nVertices = vertices.size();
+        int nOriginalEdges = edgeFrom.size();
+        LOG.info("Contracting {} street vertices and {} edges for {}.", nVertices, nOriginalEdges, mode);
+
+        contracted = new boolean[nVertices];
+        contractedNeighbors = new int[nVertices];
+        witnessWeight = new double[nVertices];
+        Arrays.fill(witnessWeight, Double.POSITIVE_INFINITY);
+        int[] rank = new int[nVertices];
+
+        BinHeap<Integer> queue = new BinHeap<>(nVertices);
+        for (int v = 0; v < nVertices; v++) {
+            queue.insert(v, priority(v));
+        }
+        int nextRank = 0;
+        while (!queue.empty()) {
+            int v = queue.extract_min();
+            double priority = priority(v);
+            if (!queue.empty() && priority > queue.peek_min_key()) {
+                queue.insert(v, priority);
+                continue;
+            }
+            contract(v, false);
+            contracted[v] = true;
+            rank[v] = nextRank++;
+            for (int i = 0; i < inEdges[v].size(); i++) {
+                contractedNeighbors[edgeFrom.get(inEdges[v].get(i))]++;
+            }
+            for (int i = 0; i < outEdges[v].size(); i++) {
+                contractedNeighbors[edgeTo.get(outEdges[v].get(i))]++;
+            }
+            if (nextRank % 100000 == 0) {
+                LOG.info("Contracted {} of {} vertices, {} shortcuts so far.", nextRank, nVertices,
+                        edgeFrom.size() - nOriginalEdges);
+            }
+        }
+
+        String[] labels = new String[nVertices];
+        for (int v = 0; v < nVertices; v++) {
+            labels[v] = vertices.get(v).getLabel();
+        }
+        ContractionHierarchy ch = new ContractionHierarchy(mode, StreetCostProfile.of(options), labels,
+                rank, edgeFrom.toArray(), edgeTo.toArray(), edgeWeight.toArray(), edgeFirstChild.toArray(),
+                edgeSecondChild.toArray());
+        LOG.info("Built {} contraction hierarchy with {} shortcuts in {} sec.", mode,
+                edgeFrom.size() - nOriginalEdges, (System.currentTimeMillis() - startTime) / 1000);
+        return ch;
+    }
+
+    /**
+     * Collect all permanent street vertices, and the edges between them that can be traversed with the profile. Of
+     * several parallel edges between the same vertices only the cheapest is kept.
+     */
+    private void loadStreetNetwork(Graph graph) {
+        for (Vertex v : graph.getVertices()) {
+            if (v instanceof StreetVertex && !(v instanceof TemporaryVertex)) {
+                indexForVertex.put(v, vertices.size());
+                vertices.add(v);
+            }
+        }
+        outEdges = new TIntArrayList[vertices.size()];
+        inEdges = new TIntArrayList[vertices.size()];
+        for (int v = 0; v < vertices.size(); v++) {
+            outEdges[v] = new TIntArrayList(4);
+            inEdges[v] = new TIntArrayList(4);
+        }
+        TLongIntMap edgeForPair = new TLongIntHashMap(vertices.size() * 3, 0.5f, -1, -1);
+        for (int from = 0; from < vertices.size(); from++) {
+            for (Edge edge : vertices.get(from).getOutgoing()) {
+                int to = indexForVertex.get(edge.getToVertex());
+                if (to < 0 || to == from) continue;
+                double weight = StreetCostProfile.edgeWeight(edge, options);
+                if (weight < 0) continue;
+                long pair = ((long) from << 32) | to;
+                int existing = edgeForPair.get(pair);
+                if (existing < 0) {
+                    edgeForPair.put(pair, addEdge(from, to, weight, -1, -1));
+                } else if (weight < edgeWeight.get(existing)) {
+                    edgeWeight.set(existing, weight);
+                }
+            }
+        }
+    }
+
+    private int addEdge(int from, int to, double weight, int firstChild, int secondChild) {
+        int e = edgeFrom.size();
+        edgeFrom.add(from);
+        edgeTo.add(to);
+        edgeWeight.add(weight);
+        edgeFirstChild.add(firstChild);
+        edgeSecondChild.add(secondChild);
+        outEdges[from].add(e);
+        inEdges[to].add(e);
+        return e;
+    }
+
+    /** The edge difference of contracting v now, plus the number of its neighbors that are already contracted. */
+    private double priority(int v) {
+        int removedEdges = 0;
+        for (int i = 0; i < inEdges[v].size(); i++) {
+            if (!contracted[edgeFrom.get(inEdges[v].get(i))]) removedEdges++;
+        }
+        for (int i = 0; i < outEdges[v].size(); i++) {
+            if (!contracted[edgeTo.get(outEdges[v].get(i))]) removedEdges++;
+        }
+        return contract(v, true) - removedEdges + contractedNeighbors[v];
+    }
+
+    /**
+     * Add the shortcuts needed to remove v from the remaining graph.
+     * @param simulate if true, only count the shortcuts without adding them
+     * @return the number of shortcuts
+     */
+    private int contract(int v, boolean simulate) {
+        int shortcuts = 0;
+        TIntArrayList in = inEdges[v];
+        TIntArrayList out = outEdges[v];
+        for (int i = 0; i < in.size(); i++) {
+            int inEdge = in.get(i);
+            int u = edgeFrom.get(inEdge);
+            if (contracted[u]) continue;
+            double maxWeight = -1;
+            for (int j = 0; j < out.size(); j++) {
+                int x = edgeTo.get(out.get(j));
+                if (contracted[x] || x == u) continue;
+                maxWeight = Math.max(maxWeight, edgeWeight.get(inEdge) + edgeWeight.get(out.get(j)));
+            }
+            if (maxWeight < 0) continue;
+            witnessSearch(u, v, maxWeight);
+            for (int j = 0; j < out.size(); j++) {
+                int outEdge = out.get(j);
+                int x = edgeTo.get(outEdge);
+                if (contracted[x] || x == u) continue;
+                double weight = edgeWeight.get(inEdge) + edgeWeight.get(outEdge);
+                if (witnessWeight[x] <= weight) continue;
+                shortcuts++;
+                // The shortcut is a witness for any other path from u to x through v.
+                if (witnessWeight[x] == Double.POSITIVE_INFINITY) witnessTouched.add(x);
+                witnessWeight[x] = weight;
+                if (!simulate) {
+                    addEdge(u, x, weight, inEdge, outEdge);
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /** Dijkstra search from source in the remaining graph without the vertex being contracted. */
+    private void witnessSearch(int source, int excluded, double maxWeight) {
+        for (int i = 0; i < witnessTouched.size(); i++) {
+            witnessWeight[witnessTouched.get(i)] = Double.POSITIVE_INFINITY;
+        }
+        witnessTouched.resetQuick();
+        BinHeap<Integer> queue = witnessQueue;
+        queue.reset();
+        witnessWeight[source] = 0;
+        witnessTouched.add(source);
+        queue.insert(source, 0);
+        int settled = 0;
+        while (!queue.empty() && settled < WITNESS_SETTLED_LIMIT) {
+            double weight = queue.peek_min_key();
+            int v = queue.extract_min();
+            if (weight > witnessWeight[v]) continue;
+            if (weight > maxWeight) break;
+            settled++;
+            TIntArrayList out = outEdges[v];
+            for (int i = 0; i < out.size(); i++) {
+                int e = out.get(i);
+                int w = edgeTo.get(e);
+                if (contracted[w] || w == excluded) continue;
+                double newWeight = weight + edgeWeight.get(e);
+                if (newWeight < witnessWeight[w]) {
+                    if (witnessWeight[w] == Double.POSITIVE_INFINITY) witnessTouched.add(w);
+                    witnessWeight[w] = newWeight;
+                    queue.insert(w, newWeight);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.strategies.RemainingWeightHeuristic;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+
+/**
+ * A goal direction heuristic estimating the remaining weight from a vertex as its exact distance to the target in a
+ * ContractionHierarchy. The hierarchy leaves out turn costs, which are never negative, so this is a lower bound of
+ * the remaining weight of a request with the profile of the hierarchy. It is only off by the turn costs of the
+ * remaining path, so A* settles little more than the vertices on and right around the best path.
+ *
+ * The search space of the target, i.e. all vertices reachable from it going up in rank, is explored once when the
+ * heuristic is created. The estimate for a vertex is found by a search going up in rank from it that meets this
+ * space, and is cached. Temporary vertices, which are not part of the hierarchy, get a zero estimate.
+ */
+public class ContractionHierarchyHeuristic implements RemainingWeightHeuristic {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Subtracted from every estimate to absorb rounding, as edges may have been split since the hierarchy was built. */
+    private static final double ROUNDING_SLACK = 1;
+
+    private final ContractionHierarchy ch;
+
+    /** Whether the target is the origin of the trip, i.e. the estimates are distances from the target. */
+    private final boolean fromTarget;
+
+    /** The distance between the target and each vertex of its upward search space. */
+    private final TIntDoubleMap targetSpace = new TIntDoubleHashMap();
+
+    private final TIntDoubleMap estimates = new TIntDoubleHashMap();
+
+    /**
+     * @param targetAccess the weights between the target and the hierarchy vertices through which it is reached
+     *                     (or left, if fromTarget), which must include all such vertices.
+     * @param fromTarget true for arrive-by searches, whose target is the origin of the trip
+     */
+    ContractionHierarchyHeuristic(ContractionHierarchy ch, TIntDoubleMap targetAccess, boolean fromTarget) {
+        this.ch = ch;
+        this.fromTarget = fromTarget;
+        BinHeap<Integer> queue = new BinHeap<>();
+        for (int v : targetAccess.keys()) {
+            targetSpace.put(v, targetAccess.get(v));
+            queue.insert(v, targetAccess.get(v));
+        }
+        // The paths towards the target end with edges going down in rank, found by going up from the target.
+        int[] index = fromTarget ? ch.upOutIndex : ch.upInIndex;
+        int[] edges = fromTarget ? ch.upOutEdges : ch.upInEdges;
+        while (!queue.empty()) {
+            double weight = queue.peek_min_key();
+            int v = queue.extract_min();
+            if (weight > targetSpace.get(v)) continue;
+            for (int i = index[v]; i < index[v + 1]; i++) {
+                int e = edges[i];
+                int w = fromTarget ? ch.edgeTo[e] : ch.edgeFrom[e];
+                double newWeight = weight + ch.edgeWeight[e];
+                if (!targetSpace.containsKey(w) || newWeight < targetSpace.get(w)) {
+                    targetSpace.put(w, newWeight);
+                    queue.insert(w, newWeight);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void initialize(RoutingRequest options, long abortTime) {}
+
+    @Override
+    public double estimateRemainingWeight(State s) {
+        int v = ch.indexOf(s.getVertex());
+        if (v < 0) {
+            return 0;
+        }
+        if (!estimates.containsKey(v)) {
+            estimates.put(v, Math.max(0, distanceToTarget(v) - ROUNDING_SLACK));
+        }
+        return estimates.get(v);
+    }
+
+    /**
+     * Search up in rank from v, towards the target space, until no better meeting vertex can be found.
+     * @return the distance, or zero if the target cannot be reached
+     */
+    private double distanceToTarget(int source) {
+        TIntDoubleMap weights = new TIntDoubleHashMap();
+        BinHeap<Integer> queue = new BinHeap<>();
+        weights.put(source, 0);
+        queue.insert(source, 0);
+        int[] index = fromTarget ? ch.upInIndex : ch.upOutIndex;
+        int[] edges = fromTarget ? ch.upInEdges : ch.upOutEdges;
+        double best = Double.POSITIVE_INFINITY;
+        while (!queue.empty() && queue.peek_min_key() < best) {
+            double weight = queue.peek_min_key();
+            int v = queue.extract_min();
+            if (weight > weights.get(v)) continue;
+            if (targetSpace.containsKey(v)) {
+                best = Math.min(best, weight + targetSpace.get(v));
+            }
+            for (int i = index[v]; i < index[v + 1]; i++) {
+                int e = edges[i];
+                int w = fromTarget ? ch.edgeFrom[e] : ch.edgeTo[e];
+                double newWeight = weight + ch.edgeWeight[e];
+                if (!weights.containsKey(w) || newWeight < weights.get(w)) {
+                    weights.put(w, newWeight);
+                    queue.insert(w, newWeight);
+                }
+            }
+        }
+        // The graph may have been modified since the hierarchy was built, so unreachable is not taken for granted.
+        return best == Double.POSITIVE_INFINITY ? 0 : best;
+    }
+
+    @Override
+    public void reset() {}
+
+    @Override
+    public void doSomeWork() {}
+}
@@ -0,0 +1,333 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.algorithm.strategies.RemainingWeightHeuristic;
+import org.opentripplanner.routing.core.RoutingContext;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.util.monitoring.RoutingCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point-to-point street routing with a ContractionHierarchy. This only handles the requests the hierarchy was built
+ * for: a single non-transit mode, the default cost parameters and no traffic-dependent speeds. For any other request
+ * no path is returned and the caller is expected to fall back to A*.
+ *
+ * The hierarchy weights leave out turn costs, so the path found is only known to be the one A* would find when it
+ * incurs no turn cost: turn costs are never negative, so the weight in the hierarchy is a lower bound of the weight of
+ * any path. Otherwise the request is answered by an A* search whose heuristic is the distance in the hierarchy (see
+ * {@link ContractionHierarchyHeuristic}), which is only off by turn costs and keeps the search close to the path.
+ *
+ * The origin and destination are usually temporary vertices splitting a street edge. They are connected to the
+ * hierarchy with a small search over the temporary edges, after which a bidirectional search that only goes up in
+ * rank is run. The shortcuts of the resulting path are unpacked, and the path is traversed edge by edge with the
+ * request to produce an ordinary GraphPath, with the usual turn costs, times and walk distances. A path that cannot
+ * be traversed with the request, e.g. because of a turn restriction, is also searched with the heuristic.
+ */
+public class ContractionHierarchyRouter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContractionHierarchyRouter.class);
+
+    /** Upper bound on the number of vertices explored to connect the origin and destination to the hierarchy. */
+    private static final int MAX_ACCESS_VERTICES = 100;
+
+    /** Rounding allowed between the weight of a path in the hierarchy and its weight in the graph. */
+    private static final double WEIGHT_TOLERANCE = 1e-6;
+
+    private final Graph graph;
+
+    public ContractionHierarchyRouter(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param options a request with its routing context already set
+     * @return the path found with the hierarchy, or null if A* must be used instead
+     */
+    public GraphPath getPath(RoutingRequest options) {
+        ContractionHierarchy ch = findHierarchy(options);
+        if (ch == null) {
+            return null;
+        }
+        ch.resolve(graph);
+        long startTime = System.currentTimeMillis();
+
+        // Edge weights are computed forward in time whatever the direction of the request.
+        RoutingRequest weightOptions = options.clone();
+        weightOptions.setArriveBy(false);
+        Vertex fromVertex = options.rctx.fromVertex;
+        Vertex toVertex = options.rctx.toVertex;
+        Access origin = connect(ch, weightOptions, fromVertex, toVertex, false);
+        Access destination = connect(ch, weightOptions, toVertex, fromVertex, true);
+        if (!origin.complete || !destination.complete) {
+            // A cut-off connection search may have missed the best path.
+            return null;
+        }
+
+        /* Bidirectional search in the upward graphs. */
+        TIntDoubleMap forwardWeight = new TIntDoubleHashMap();
+        TIntDoubleMap backwardWeight = new TIntDoubleHashMap();
+        TIntIntMap forwardParent = new TIntIntHashMap();
+        TIntIntMap backwardParent = new TIntIntHashMap();
+        BinHeap<Integer> forwardQueue = new BinHeap<>();
+        BinHeap<Integer> backwardQueue = new BinHeap<>();
+        for (int v : origin.weights.keys()) {
+            forwardWeight.put(v, origin.weights.get(v));
+            forwardParent.put(v, -1);
+            forwardQueue.insert(v, origin.weights.get(v));
+        }
+        for (int v : destination.weights.keys()) {
+            backwardWeight.put(v, destination.weights.get(v));
+            backwardParent.put(v, -1);
+            backwardQueue.insert(v, destination.weights.get(v));
+        }
+        double bestWeight = origin.directWeight;
+        int meetingVertex = -1;
+        while (!forwardQueue.empty() || !backwardQueue.empty()) {
+            double forwardMin = forwardQueue.empty() ? Double.POSITIVE_INFINITY : forwardQueue.peek_min_key();
+            double backwardMin = backwardQueue.empty() ? Double.POSITIVE_INFINITY : backwardQueue.peek_min_key();
+            if (Math.min(forwardMin, backwardMin) >= bestWeight) {
+                break;
+            }
+            boolean forward = forwardMin <= backwardMin;
+            BinHeap<Integer> queue = forward ? forwardQueue : backwardQueue;
+            TIntDoubleMap weights = forward ? forwardWeight : backwardWeight;
+            TIntDoubleMap otherWeights = forward ? backwardWeight : forwardWeight;
+            TIntIntMap parents = forward ? forwardParent : backwardParent;
+            double weight = queue.peek_min_key();
+            int v = queue.extract_min();
+            if (weight > weights.get(v)) continue;
+            if (otherWeights.containsKey(v) && weight + otherWeights.get(v) < bestWeight) {
+                bestWeight = weight + otherWeights.get(v);
+                meetingVertex = v;
+            }
+            int[] index = forward ? ch.upOutIndex : ch.upInIndex;
+            int[] edges = forward ? ch.upOutEdges : ch.upInEdges;
+            for (int i = index[v]; i < index[v + 1]; i++) {
+                int e = edges[i];
+                int w = forward ? ch.edgeTo[e] : ch.edgeFrom[e];
+                double newWeight = weight + ch.edgeWeight[e];
+                if (!weights.containsKey(w) || newWeight < weights.get(w)) {
+                    weights.put(w, newWeight);
+                    parents.put(w, e);
+                    queue.insert(w, newWeight);
+                }
+            }
+        }
+
+        List<Edge> path;
+        if (meetingVertex < 0) {
+            if (origin.directEdges == null) {
+                LOG.debug("No path found in the contraction hierarchy.");
+                return null;
+            }
+            path = origin.directEdges;
+        } else {
+            /* Collect the hierarchy edges on both sides of the meeting vertex, and unpack them. */
+            TIntArrayList chEdges = new TIntArrayList();
+            int first = meetingVertex;
+            for (int e = forwardParent.get(first); e >= 0; e = forwardParent.get(first)) {
+                chEdges.add(e);
+                first = ch.edgeFrom[e];
+            }
+            chEdges.reverse();
+            int last = meetingVertex;
+            for (int e = backwardParent.get(last); e >= 0; e = backwardParent.get(last)) {
+                chEdges.add(e);
+                last = ch.edgeTo[e];
+            }
+            path = new ArrayList<>(origin.edges.get(first));
+            for (int i = 0; i < chEdges.size() && path != null; i++) {
+                if (!unpack(ch, weightOptions, chEdges.get(i), path)) {
+                    path = null;
+                }
+            }
+            if (path != null) {
+                path.addAll(destination.edges.get(last));
+            }
+        }
+        GraphPath graphPath = path == null ? null : traverse(options, path);
+        if (graphPath != null && graphPath.getWeight() <= bestWeight * (1 + WEIGHT_TOLERANCE) + WEIGHT_TOLERANCE) {
+            options.rctx.instrumentation.increment(RoutingCounter.CONTRACTION_HIERARCHY_PATHS);
+            LOG.debug("Contraction hierarchy search took {} msec.", System.currentTimeMillis() - startTime);
+            return graphPath;
+        }
+        // The path pays turn costs, so a better one may exist, or it cannot be traversed with the actual request.
+        LOG.debug("Contraction hierarchy path is {}, searching with the hierarchy as heuristic.",
+                graphPath == null ? "not traversable" : "not provably optimal");
+        return search(options, ch, origin, destination, graphPath);
+    }
+
+    /**
+     * An A* search using the distances in the hierarchy as remaining weight heuristic.
+     * @param bound a path already found, which the search does not need to do better than
+     */
+    private static GraphPath search(RoutingRequest options, ContractionHierarchy ch, Access origin,
+            Access destination, GraphPath bound) {
+        RoutingRequest searchOptions = options.clone();
+        if (bound != null) {
+            searchOptions.maxWeight = Math.min(options.maxWeight, bound.getWeight());
+        }
+        RoutingContext rctx = options.rctx;
+        RemainingWeightHeuristic heuristic = rctx.remainingWeightHeuristic;
+        rctx.remainingWeightHeuristic = options.arriveBy ?
+                new ContractionHierarchyHeuristic(ch, origin.weights, true) :
+                new ContractionHierarchyHeuristic(ch, destination.weights, false);
+        try {
+            GraphPath path = new AStar().getShortestPathTree(searchOptions).getPath(rctx.target, false);
+            return path == null ? bound : path;
+        } finally {
+            rctx.remainingWeightHeuristic = heuristic;
+        }
+    }
+
+    /**
+     * @return the hierarchy stored in the graph for the mode of this request, if the request can be answered with it.
+     */
+    public ContractionHierarchy findHierarchy(RoutingRequest options) {
+        if (!StreetCostProfile.isFixed(options)) {
+            return null;
+        }
+        if (options.rctx.fromVertex == null || options.rctx.toVertex == null) {
+            return null;
+        }
+        ContractionHierarchy ch = graph.getContractionHierarchy(options.modes.getModes().get(0));
+        if (ch == null || !ch.profile.equals(StreetCostProfile.of(options))) {
+            return null;
+        }
+        return ch;
+    }
+
+    /** The hierarchy vertices reached from the origin, or from which the destination is reached. */
+    private static class Access {
+
+        TIntDoubleMap weights = new TIntDoubleHashMap();
+
+        /** For each hierarchy vertex, the graph edges between it and the origin or destination, in forward order. */
+        TIntObjectMap<List<Edge>> edges = new TIntObjectHashMap<>();
+
+        /** Whether the search went through all the vertices it could reach before entering the hierarchy. */
+        boolean complete;
+
+        /** A path to the other end of the request that does not enter the hierarchy, if any. */
+        List<Edge> directEdges;
+
+        double directWeight = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * A small Dijkstra search from the given vertex (or towards it if backward) that stops at hierarchy vertices.
+     */
+    private static Access connect(ContractionHierarchy ch, RoutingRequest weightOptions, Vertex start, Vertex other,
+            boolean backward) {
+        Access access = new Access();
+        Map<Vertex, Double> weights = new HashMap<>();
+        Map<Vertex, Edge> parents = new HashMap<>();
+        BinHeap<Vertex> queue = new BinHeap<>();
+        weights.put(start, 0.0);
+        queue.insert(start, 0);
+        int explored = 0;
+        while (!queue.empty() && explored < MAX_ACCESS_VERTICES) {
+            double weight = queue.peek_min_key();
+            Vertex v = queue.extract_min();
+            if (weight > weights.get(v)) continue;
+            explored++;
+            int index = ch.indexOf(v);
+            if (index >= 0 || v == other) {
+                List<Edge> edges = new ArrayList<>();
+                for (Edge e = parents.get(v); e != null; e = parents.get(backward ? e.getToVertex() : e.getFromVertex())) {
+                    edges.add(e);
+                }
+                if (!backward) {
+                    Collections.reverse(edges);
+                }
+                if (index >= 0) {
+                    access.weights.put(index, weight);
+                    access.edges.put(index, edges);
+                } else {
+                    access.directEdges = edges;
+                    access.directWeight = weight;
+                }
+                continue;
+            }
+            for (Edge e : backward ? v.getIncoming() : v.getOutgoing()) {
+                double edgeWeight = StreetCostProfile.edgeWeight(e, weightOptions);
+                if (edgeWeight < 0) continue;
+                Vertex w = backward ? e.getFromVertex() : e.getToVertex();
+                double newWeight = weight + edgeWeight;
+                Double existing = weights.get(w);
+                if (existing == null || newWeight < existing) {
+                    weights.put(w, newWeight);
+                    parents.put(w, e);
+                    queue.insert(w, newWeight);
+                }
+            }
+        }
+        access.complete = queue.empty();
+        return access;
+    }
+
+    /**
+     * Append the graph edges of a hierarchy edge to the path, replacing shortcuts by the edges they stand for.
+     * @return false if an edge no longer exists in the graph
+     */
+    private static boolean unpack(ContractionHierarchy ch, RoutingRequest weightOptions, int chEdge,
+            List<Edge> path) {
+        if (ch.edgeFirstChild[chEdge] >= 0) {
+            return unpack(ch, weightOptions, ch.edgeFirstChild[chEdge], path)
+                    && unpack(ch, weightOptions, ch.edgeSecondChild[chEdge], path);
+        }
+        Vertex from = ch.getVertex(ch.edgeFrom[chEdge]);
+        Vertex to = ch.getVertex(ch.edgeTo[chEdge]);
+        if (from == null || to == null) {
+            return false;
+        }
+        Edge best = null;
+        double bestWeight = Double.POSITIVE_INFINITY;
+        for (Edge e : from.getOutgoing()) {
+            if (e.getToVertex() != to) continue;
+            double weight = StreetCostProfile.edgeWeight(e, weightOptions);
+            if (weight >= 0 && weight < bestWeight) {
+                best = e;
+                bestWeight = weight;
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        path.add(best);
+        return true;
+    }
+
+    /** Traverse the edges with the request, backward for arrive-by requests. */
+    private static GraphPath traverse(RoutingRequest options, List<Edge> edges) {
+        State state = new State(options);
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(options.arriveBy ? edges.size() - 1 - i : i);
+            state = edge.traverse(state);
+            if (state == null) return null;
+        }
+        if (!state.isFinal() || state.getVertex() != options.rctx.target) return null;
+        return new GraphPath(state, true);
+    }
+}
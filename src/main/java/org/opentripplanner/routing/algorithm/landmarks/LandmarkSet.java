@@ -0,0 +1,87 @@
+package org.opentripplanner.routing.algorithm.landmarks;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.MavenVersion;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.io.Serializable;
+
+/**
+ * Shortest path weights between a few landmark vertices and every street vertex, for one fixed cost profile. By the
+ * triangle inequality, d(L, t) - d(L, v) and d(v, L) - d(t, L) are lower bounds on the weight d(v, t) of any path
+ * from v to t, which makes a much tighter A* heuristic than the Euclidean distance on winding street networks.
+ *
+ * The weights are computed without turn costs, so they never exceed the weights found by a search with the same
+ * profile. Like the ContractionHierarchy, this only stores vertex labels and resolves them lazily against the graph.
+ */
+public class LandmarkSet implements Serializable {
+
+    private static final long serialVersionUID = MavenVersion.VERSION.getUID();
+
+    /** The mode these landmarks were computed for. */
+    public final TraverseMode mode;
+
+    /** The cost profile these landmarks were computed for, see {@link StreetCostProfile}. */
+    public final String profile;
+
+    final String[] vertexLabels;
+
+    /** The vertex index of each landmark. */
+    final int[] landmarks;
+
+    /** For each landmark, the weight of the path from the landmark to each vertex, or infinity if there is none. */
+    final float[][] fromLandmark;
+
+    /** For each landmark, the weight of the path from each vertex to the landmark, or infinity if there is none. */
+    final float[][] toLandmark;
+
+    private transient TObjectIntMap<Vertex> indexForVertex;
+
+    LandmarkSet(TraverseMode mode, String profile, String[] vertexLabels, int[] landmarks, float[][] fromLandmark,
+            float[][] toLandmark) {
+        this.mode = mode;
+        this.profile = profile;
+        this.vertexLabels = vertexLabels;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    public String getLandmarkLabel(int landmark) {
+        return vertexLabels[landmarks[landmark]];
+    }
+
+    /** @return the index of the given vertex in this set, or -1 if it is not part of it. */
+    public int indexOf(Vertex vertex) {
+        return indexForVertex.get(vertex);
+    }
+
+    public float getWeightFromLandmark(int landmark, int vertex) {
+        return fromLandmark[landmark][vertex];
+    }
+
+    public float getWeightToLandmark(int landmark, int vertex) {
+        return toLandmark[landmark][vertex];
+    }
+
+    /** Look up the vertices of this set in the graph. This must be done before the set is used. */
+    public synchronized void resolve(Graph graph) {
+        if (indexForVertex != null) return;
+        TObjectIntMap<Vertex> index = new TObjectIntHashMap<>(vertexLabels.length, 0.5f, -1);
+        for (int v = 0; v < vertexLabels.length; v++) {
+            Vertex vertex = graph.getVertex(vertexLabels[v]);
+            if (vertex != null) {
+                index.put(vertex, v);
+            }
+        }
+        indexForVertex = index;
+    }
+}
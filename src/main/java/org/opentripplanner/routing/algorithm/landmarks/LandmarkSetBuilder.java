@@ -0,0 +1,193 @@
+package org.opentripplanner.routing.algorithm.landmarks;
+
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects landmarks on the street network and computes the weights of the shortest paths from and to each of them.
+ * Landmarks are chosen with the farthest-first method: each new landmark is the vertex whose distance to the nearest
+ * landmark already chosen is the largest. This places them on the edges of the network, where they give the best
+ * bounds for most origin-destination pairs.
+ */
+public class LandmarkSetBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LandmarkSetBuilder.class);
+
+    private final RoutingRequest options;
+
+    private final List<Vertex> vertices = new ArrayList<>();
+
+    /* The street network in compressed form, forward and backward. */
+
+    private int[] outIndex;
+
+    private int[] outTarget;
+
+    private float[] outWeight;
+
+    private int[] inIndex;
+
+    private int[] inSource;
+
+    private float[] inWeight;
+
+    /**
+     * @param options the request whose street costs are used, normally the default request for a single mode (see
+     *                StreetCostProfile.defaultRequest). Its profile is recorded in the landmark set.
+     */
+    public LandmarkSetBuilder(RoutingRequest options) {
+        this.options = options;
+    }
+
+    public LandmarkSet build(Graph graph, TraverseMode mode, int nLandmarks) {
+        long startTime = System.currentTimeMillis();
+        loadStreetNetwork(graph);
+        int nVertices = vertices.size();
+        LOG.info("Selecting {} landmarks among {} street vertices for {}.", nLandmarks, nVertices, mode);
+
+        int[] landmarks = new int[Math.min(nLandmarks, nVertices)];
+        float[][] fromLandmark = new float[landmarks.length][];
+        float[][] toLandmark = new float[landmarks.length][];
+        if (landmarks.length > 0) {
+            // Start from the vertex farthest away from an arbitrary one.
+            float[] minWeight = dijkstra(0, true);
+            for (int l = 0; l < landmarks.length; l++) {
+                int farthest = 0;
+                for (int v = 1; v < nVertices; v++) {
+                    if (minWeight[v] != Float.POSITIVE_INFINITY && minWeight[v] > minWeight[farthest]) {
+                        farthest = v;
+                    }
+                }
+                landmarks[l] = farthest;
+                fromLandmark[l] = dijkstra(farthest, true);
+                toLandmark[l] = dijkstra(farthest, false);
+                if (l == 0) {
+                    minWeight = fromLandmark[0].clone();
+                } else {
+                    for (int v = 0; v < nVertices; v++) {
+                        minWeight[v] = Math.min(minWeight[v], fromLandmark[l][v]);
+                    }
+                }
+                LOG.debug("Landmark {} is {}.", l, vertices.get(farthest).getLabel());
+            }
+        }
+
+        String[] labels = new String[nVertices];
+        for (int v = 0; v < nVertices; v++) {
+            labels[v] = vertices.get(v).getLabel();
+        }
+        LOG.info("Computed {} landmarks for {} in {} sec.", landmarks.length, mode,
+                (System.currentTimeMillis() - startTime) / 1000);
+        return new LandmarkSet(mode, StreetCostProfile.of(options), labels, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Collect all permanent street vertices, and the edges between them that can be traversed with the profile. Of
+     * several parallel edges between the same vertices only the cheapest is kept.
+     */
+    private void loadStreetNetwork(Graph graph) {
+        TObjectIntMap<Vertex> indexForVertex = new TObjectIntHashMap<>(1000, 0.5f, -1);
+        for (Vertex v : graph.getVertices()) {
+            if (v instanceof StreetVertex && !(v instanceof TemporaryVertex)) {
+                indexForVertex.put(v, vertices.size());
+                vertices.add(v);
+            }
+        }
+        int nVertices = vertices.size();
+        TIntArrayList edgeFrom = new TIntArrayList();
+        TIntArrayList edgeTo = new TIntArrayList();
+        TFloatArrayList edgeWeight = new TFloatArrayList();
+        TLongIntMap edgeForPair = new TLongIntHashMap(nVertices * 3, 0.5f, -1, -1);
+        for (int from = 0; from < nVertices; from++) {
+            for (Edge edge : vertices.get(from).getOutgoing()) {
+                int to = indexForVertex.get(edge.getToVertex());
+                if (to < 0 || to == from) continue;
+                double weight = StreetCostProfile.edgeWeight(edge, options);
+                if (weight < 0) continue;
+                long pair = ((long) from << 32) | to;
+                int existing = edgeForPair.get(pair);
+                if (existing < 0) {
+                    edgeForPair.put(pair, edgeFrom.size());
+                    edgeFrom.add(from);
+                    edgeTo.add(to);
+                    edgeWeight.add((float) weight);
+                } else if (weight < edgeWeight.get(existing)) {
+                    edgeWeight.set(existing, (float) weight);
+                }
+            }
+        }
+        int nEdges = edgeFrom.size();
+        outIndex = new int[nVertices + 1];
+        inIndex = new int[nVertices + 1];
+        for (int e = 0; e < nEdges; e++) {
+            outIndex[edgeFrom.get(e) + 1]++;
+            inIndex[edgeTo.get(e) + 1]++;
+        }
+        for (int v = 0; v < nVertices; v++) {
+            outIndex[v + 1] += outIndex[v];
+            inIndex[v + 1] += inIndex[v];
+        }
+        outTarget = new int[nEdges];
+        outWeight = new float[nEdges];
+        inSource = new int[nEdges];
+        inWeight = new float[nEdges];
+        int[] outFill = new int[nVertices];
+        int[] inFill = new int[nVertices];
+        for (int e = 0; e < nEdges; e++) {
+            int from = edgeFrom.get(e);
+            int to = edgeTo.get(e);
+            int o = outIndex[from] + outFill[from]++;
+            outTarget[o] = to;
+            outWeight[o] = edgeWeight.get(e);
+            int i = inIndex[to] + inFill[to]++;
+            inSource[i] = from;
+            inWeight[i] = edgeWeight.get(e);
+        }
+    }
+
+    /** The weights of the shortest paths from (forward) or to (backward) the given vertex. */
+    private float[] dijkstra(int source, boolean forward) {
+        int[] index = forward ? outIndex : inIndex;
+        int[] neighbors = forward ? outTarget : inSource;
+        float[] weights = forward ? outWeight : inWeight;
+        float[] result = new float[vertices.size()];
+        Arrays.fill(result, Float.POSITIVE_INFINITY);
+        boolean[] closed = new boolean[vertices.size()];
+        BinHeap<Integer> queue = new BinHeap<>();
+        result[source] = 0;
+        queue.insert(source, 0);
+        while (!queue.empty()) {
+            int v = queue.extract_min();
+            if (closed[v]) continue;
+            closed[v] = true;
+            for (int i = index[v]; i < index[v + 1]; i++) {
+                int w = neighbors[i];
+                float weight = result[v] + weights[i];
+                if (weight < result[w]) {
+                    result[w] = weight;
+                    queue.insert(w, weight);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+package org.opentripplanner.routing.algorithm.raptor;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.edgetype.SimpleTransfer;
+import org.opentripplanner.routing.edgetype.TripPattern;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.GraphIndex;
+import org.opentripplanner.routing.vertextype.TransitStop;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Array-based view of the transit network used by the RAPTOR search. Every TransitStop and every TripPattern gets a
+ * dense integer index, so that the search can keep its per-stop state in plain int arrays instead of maps keyed on
+ * vertices. The timetables themselves are not copied: they are resolved per request through
+ * TripPattern.getUpdatedTimetable so that realtime updates are taken into account.
+ *
+ * This is built from the GraphIndex and is immutable afterwards. Patterns added later by realtime updaters (trips
+ * with a modified stop pattern) and flexible patterns are not part of it and are only reachable with the A* search.
+ */
+public class RaptorData {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RaptorData.class);
+
+    public final TransitStop[] stops;
+
+    public final TripPattern[] patterns;
+
+    /** For each pattern, the stop index of each position along the pattern. */
+    public final int[][] patternStops;
+
+    /** For each stop, the indexes of the patterns passing through it. */
+    public final int[][] patternsForStop;
+
+    /** For each stop, the target stop index of each SimpleTransfer leaving it. */
+    public final int[][] transferTargets;
+
+    /** For each stop, the walk distance in meters of each SimpleTransfer leaving it, parallel to transferTargets. */
+    public final double[][] transferDistances;
+
+    private final TObjectIntMap<TransitStop> indexForStop;
+
+    public RaptorData(GraphIndex index) {
+        long startTime = System.currentTimeMillis();
+
+        /* Sort stops and patterns by id so that indexes, and thus tie-breaking in the search, are deterministic. */
+        List<TransitStop> stopList = new ArrayList<>(index.stopVertexForStop.values());
+        stopList.sort(Comparator.comparing(TransitStop::getLabel));
+        stops = stopList.toArray(new TransitStop[0]);
+        indexForStop = new TObjectIntHashMap<>(stops.length, 0.5f, -1);
+        for (int s = 0; s < stops.length; s++) {
+            indexForStop.put(stops[s], s);
+        }
+
+        List<String> patternIds = new ArrayList<>(index.patternForId.keySet());
+        patternIds.sort(Comparator.naturalOrder());
+        List<TripPattern> patternList = new ArrayList<>();
+        for (String patternId : patternIds) {
+            TripPattern pattern = index.patternForId.get(patternId);
+            if (!pattern.hasFlexService()) {
+                patternList.add(pattern);
+            }
+        }
+        patterns = patternList.toArray(new TripPattern[0]);
+
+        patternStops = new int[patterns.length][];
+        TIntArrayList[] patternsForStopLists = new TIntArrayList[stops.length];
+        for (int p = 0; p < patterns.length; p++) {
+            Stop[] patternStopObjects = patterns[p].stopPattern.stops;
+            patternStops[p] = new int[patternStopObjects.length];
+            for (int i = 0; i < patternStopObjects.length; i++) {
+                TransitStop stopVertex = index.stopVertexForStop.get(patternStopObjects[i]);
+                int s = stopVertex == null ? -1 : indexForStop.get(stopVertex);
+                patternStops[p][i] = s;
+                if (s < 0) continue;
+                if (patternsForStopLists[s] == null) {
+                    patternsForStopLists[s] = new TIntArrayList(4);
+                }
+                if (!patternsForStopLists[s].contains(p)) {
+                    patternsForStopLists[s].add(p);
+                }
+            }
+        }
+
+        patternsForStop = new int[stops.length][];
+        transferTargets = new int[stops.length][];
+        transferDistances = new double[stops.length][];
+        int nTransfers = 0;
+        for (int s = 0; s < stops.length; s++) {
+            patternsForStop[s] = patternsForStopLists[s] == null ? new int[0] : patternsForStopLists[s].toArray();
+            TIntArrayList targets = new TIntArrayList();
+            List<Double> distances = new ArrayList<>();
+            for (Edge edge : stops[s].getOutgoing()) {
+                if (edge instanceof SimpleTransfer) {
+                    int target = indexForStop.get(edge.getToVertex());
+                    if (target < 0) continue;
+                    targets.add(target);
+                    distances.add(edge.getDistance());
+                }
+            }
+            transferTargets[s] = targets.toArray();
+            transferDistances[s] = new double[distances.size()];
+            for (int t = 0; t < distances.size(); t++) {
+                transferDistances[s][t] = distances.get(t);
+            }
+            nTransfers += transferTargets[s].length;
+        }
+        LOG.info("Built RAPTOR data with {} stops, {} patterns and {} transfers in {} msec.",
+                stops.length, patterns.length, nTransfers, System.currentTimeMillis() - startTime);
+    }
+
+    /** @return the index of the given stop, or -1 if it is not part of the transit network. */
+    public int indexOf(TransitStop stop) {
+        return indexForStop.get(stop);
+    }
+}
@@ -0,0 +1,51 @@
+package org.opentripplanner.routing.algorithm.raptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One result of a RAPTOR search: the sequence of transit rides (and the transfers between them) from an access stop
+ * to an egress stop. All stops and patterns are referenced by their RaptorData index. The journey only fixes the
+ * structure of the trip; the exact trips and times are determined again when it is turned into a GraphPath.
+ */
+public class RaptorJourney {
+
+    /** A single ride on a pattern, optionally preceded by a walking transfer from another stop. */
+    public static class Leg {
+
+        public final int pattern;
+
+        /** Position along the pattern where the ride starts. */
+        public final int boardPosition;
+
+        /** Position along the pattern where the ride ends. */
+        public final int alightPosition;
+
+        /** The stop from which we walked to the boarding stop of this leg, or -1 if there was no walking transfer. */
+        public int transferFromStop = -1;
+
+        public Leg(int pattern, int boardPosition, int alightPosition) {
+            this.pattern = pattern;
+            this.boardPosition = boardPosition;
+            this.alightPosition = alightPosition;
+        }
+    }
+
+    public final List<Leg> legs = new ArrayList<>();
+
+    public int accessStop;
+
+    public int egressStop;
+
+    /** Arrival at the destination in seconds after the departure time of the search, including egress. */
+    public int arrivalTime;
+
+    public int getNumberOfTransfers() {
+        return legs.size() - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RaptorJourney: %d rides, arriving after %d seconds", legs.size(), arrivalTime);
+    }
+}
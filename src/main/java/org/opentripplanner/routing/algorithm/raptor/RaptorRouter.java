@@ -0,0 +1,238 @@
+package org.opentripplanner.routing.algorithm.raptor;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.edgetype.PreAlightEdge;
+import org.opentripplanner.routing.edgetype.PreBoardEdge;
+import org.opentripplanner.routing.edgetype.SimpleTransfer;
+import org.opentripplanner.routing.edgetype.TripPattern;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.TransitStop;
+import org.opentripplanner.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Point-to-point transit routing with RaptorSearch. The street parts of the trip are found with two bounded batch
+ * searches on the street network, one forward from the origin (access) and one backward from the destination (egress),
+ * which are done once per request. The transit part is then searched with RAPTOR at successive departure times
+ * until enough itineraries are found.
+ *
+ * The RAPTOR journeys are finally turned into ordinary GraphPaths by traversing the corresponding edges (board, hop,
+ * dwell, alight, transfer and street edges) from the origin, so that the rest of OTP (itinerary generation, fares,
+ * realtime decoration) sees exactly the same kind of paths as those produced by A*. This also applies all the rules
+ * that the RAPTOR search does not model, such as transfer tables. Journeys that do not survive this are dropped.
+ */
+public class RaptorRouter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RaptorRouter.class);
+
+    /** Upper bound for the duration of the access and egress street searches. */
+    private static final int MAX_ACCESS_EGRESS_SECONDS = 60 * 60;
+
+    /** Upper bound for the duration of the transit search when the request does not set maxHours. */
+    private static final int DEFAULT_MAX_DURATION_SECONDS = 60 * 60 * 24;
+
+    /** Upper bound on the number of rounds, whatever the request allows. */
+    private static final int MAX_RIDES = 10;
+
+    /** The departure time of the next search is shifted this much after the departure of the previous itinerary. */
+    private static final int DEPARTURE_TIME_STEP_SECONDS = 60;
+
+    private final Graph graph;
+
+    private final RaptorData data;
+
+    public RaptorRouter(Graph graph) {
+        this.graph = graph;
+        this.data = graph.getRaptorData();
+    }
+
+    /**
+     * @param options a depart-after transit request, with its routing context already set
+     * @param timeoutSeconds relative timeout for the whole search
+     */
+    public List<GraphPath> getPaths(RoutingRequest options, double timeoutSeconds) {
+        long abortTime = DateUtils.absoluteTimeout(timeoutSeconds);
+        Vertex fromVertex = options.rctx.fromVertex;
+        Vertex toVertex = options.rctx.toVertex;
+
+        ShortestPathTree accessSpt = streetSearch(options, false, timeoutSeconds);
+        ShortestPathTree egressSpt = streetSearch(options, true, timeoutSeconds);
+        if (accessSpt == null || egressSpt == null) {
+            options.rctx.debugOutput.timedOut = true;
+            return new ArrayList<>();
+        }
+
+        TIntIntMap accessTimes = new TIntIntHashMap();
+        TIntObjectMap<State> accessStates = new TIntObjectHashMap<>();
+        TIntIntMap egressTimes = new TIntIntHashMap();
+        TIntObjectMap<State> egressStates = new TIntObjectHashMap<>();
+        for (int s = 0; s < data.stops.length; s++) {
+            State access = getEarliestState(accessSpt, data.stops[s]);
+            if (access != null) {
+                accessTimes.put(s, (int) access.getElapsedTimeSeconds());
+                accessStates.put(s, access);
+            }
+            State egress = getEarliestState(egressSpt, data.stops[s]);
+            if (egress != null) {
+                egressTimes.put(s, (int) egress.getElapsedTimeSeconds());
+                egressStates.put(s, egress);
+            }
+        }
+        LOG.debug("RAPTOR access to {} stops, egress from {} stops", accessTimes.size(), egressTimes.size());
+
+        List<GraphPath> paths = new ArrayList<>();
+        Set<List<AgencyAndId>> tripSequences = new HashSet<>();
+
+        /* A path on the streets only, if the destination is within reach of the access search. */
+        if (!options.onlyTransitTrips) {
+            State direct = getEarliestState(accessSpt, toVertex);
+            if (direct != null) {
+                GraphPath path = traverse(options, new GraphPath(direct, false).edges);
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+        }
+
+        int maxDuration = options.maxHours < Double.MAX_VALUE ?
+                (int) Math.min(DEFAULT_MAX_DURATION_SECONDS, options.maxHours * 60 * 60) : DEFAULT_MAX_DURATION_SECONDS;
+        int maxRides = Math.min(MAX_RIDES, Math.max(1, options.maxTransfers + 1));
+        long departureTime = options.dateTime;
+        while (paths.size() < options.numItineraries) {
+            if (System.currentTimeMillis() > abortTime) {
+                options.rctx.debugOutput.timedOut = true;
+                break;
+            }
+            RoutingRequest iterationOptions = options.clone();
+            iterationOptions.dateTime = departureTime;
+            List<RaptorJourney> journeys = new RaptorSearch(data, iterationOptions, maxDuration, maxRides)
+                    .route(accessTimes, egressTimes);
+            if (journeys.isEmpty()) {
+                break;
+            }
+            long nextDepartureTime = Long.MAX_VALUE;
+            for (RaptorJourney journey : journeys) {
+                GraphPath path = materialize(iterationOptions, journey, accessStates.get(journey.accessStop),
+                        egressStates.get(journey.egressStop));
+                if (path == null) {
+                    LOG.debug("Dropping {}, it could not be traversed on the graph.", journey);
+                    continue;
+                }
+                nextDepartureTime = Math.min(nextDepartureTime, path.getStartTime());
+                if (tripSequences.add(path.getTrips())) {
+                    paths.add(path);
+                }
+            }
+            if (nextDepartureTime == Long.MAX_VALUE) {
+                break;
+            }
+            departureTime = Math.max(departureTime, nextDepartureTime) + DEPARTURE_TIME_STEP_SECONDS;
+        }
+        return paths;
+    }
+
+    /**
+     * A bounded batch search on the street network only, from the origin or (backward) from the destination of the
+     * request. The existing routing context vertices are reused so that nothing is linked twice.
+     */
+    private ShortestPathTree streetSearch(RoutingRequest options, boolean egress, double timeoutSeconds) {
+        RoutingRequest streetOptions = options.clone();
+        streetOptions.batch = true;
+        streetOptions.modes = options.modes.getNonTransitSet();
+        streetOptions.setArriveBy(egress);
+        streetOptions.setRoutingContext(graph, options.rctx.fromVertex, options.rctx.toVertex);
+        streetOptions.rctx.debugOutput = options.rctx.debugOutput;
+        streetOptions.rctx.instrumentation = options.rctx.instrumentation;
+        streetOptions.worstTime = egress ?
+                options.dateTime - MAX_ACCESS_EGRESS_SECONDS : options.dateTime + MAX_ACCESS_EGRESS_SECONDS;
+        return new AStar().getShortestPathTree(streetOptions, timeoutSeconds);
+    }
+
+    /**
+     * Build the complete edge sequence of a journey and traverse it with the original request, yielding a normal
+     * GraphPath.
+     */
+    private GraphPath materialize(RoutingRequest options, RaptorJourney journey, State accessState,
+            State egressState) {
+        List<Edge> edges = new ArrayList<>(new GraphPath(accessState, false).edges);
+        for (RaptorJourney.Leg leg : journey.legs) {
+            TripPattern pattern = data.patterns[leg.pattern];
+            TransitStop boardStop = data.stops[data.patternStops[leg.pattern][leg.boardPosition]];
+            TransitStop alightStop = data.stops[data.patternStops[leg.pattern][leg.alightPosition]];
+            if (leg.transferFromStop >= 0) {
+                Edge transfer = findEdge(data.stops[leg.transferFromStop], boardStop, SimpleTransfer.class);
+                if (transfer == null) return null;
+                edges.add(transfer);
+            }
+            Edge preBoard = findEdge(boardStop, boardStop.departVertex, PreBoardEdge.class);
+            Edge preAlight = findEdge(alightStop.arriveVertex, alightStop, PreAlightEdge.class);
+            if (preBoard == null || preAlight == null) return null;
+            edges.add(preBoard);
+            edges.add(pattern.boardEdges[leg.boardPosition]);
+            for (int i = leg.boardPosition; i < leg.alightPosition; i++) {
+                if (i > leg.boardPosition) {
+                    edges.add(pattern.dwellEdges[i]);
+                }
+                edges.add(pattern.hopEdges[i]);
+            }
+            edges.add(pattern.alightEdges[leg.alightPosition]);
+            edges.add(preAlight);
+        }
+        /* The egress states come from a backward search, so following back edges gives them in forward order. */
+        for (State state = egressState; state.getBackEdge() != null; state = state.getBackState()) {
+            edges.add(state.getBackEdge());
+        }
+        return traverse(options, edges);
+    }
+
+    private static GraphPath traverse(RoutingRequest options, List<Edge> edges) {
+        State state = new State(options);
+        for (Edge edge : edges) {
+            if (edge == null) return null;
+            state = edge.traverse(state);
+            if (state == null) return null;
+        }
+        if (!state.isFinal()) return null;
+        return new GraphPath(state, true);
+    }
+
+    private static Edge findEdge(Vertex from, Vertex to, Class<? extends Edge> type) {
+        for (Edge edge : from.getOutgoing()) {
+            if (type.isInstance(edge) && edge.getToVertex() == to) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    private static State getEarliestState(ShortestPathTree spt, Vertex vertex) {
+        List<State> states = spt.getStates(vertex);
+        if (states == null) {
+            return null;
+        }
+        State earliest = null;
+        for (State s : states) {
+            if (s.isFinal() && (earliest == null || s.getElapsedTimeSeconds() < earliest.getElapsedTimeSeconds())) {
+                earliest = s;
+            }
+        }
+        return earliest;
+    }
+}
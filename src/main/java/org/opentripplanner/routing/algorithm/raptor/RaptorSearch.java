@@ -0,0 +1,388 @@
+package org.opentripplanner.routing.algorithm.raptor;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.map.TIntIntMap;
+import org.opentripplanner.model.Route;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.ServiceDay;
+import org.opentripplanner.routing.edgetype.Timetable;
+import org.opentripplanner.routing.edgetype.TripPattern;
+import org.opentripplanner.routing.request.BannedStopSet;
+import org.opentripplanner.routing.trippattern.FrequencyEntry;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A round-based public transit search (RAPTOR, Delling, Pajor and Werneck 2012) over the array representation in
+ * RaptorData. Round k finds the earliest arrival at every stop using exactly k transit rides, so the destination
+ * arrivals of successive rounds form the Pareto set on arrival time and number of transfers. No State objects are
+ * created: all search state lives in int arrays indexed on round and stop.
+ *
+ * Times are in seconds relative to the departure time of the request. The search handles depart-after requests only.
+ * Stop-to-stop transfer rules from the TransferTable are not applied here; they are enforced when the journeys are
+ * materialized as GraphPaths by traversing the actual edges.
+ *
+ * One instance should be used for a single search.
+ */
+public class RaptorSearch {
+
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final int NONE = -1;
+
+    private final RaptorData data;
+
+    private final RoutingRequest options;
+
+    private final List<ServiceDay> serviceDays;
+
+    private final long departureTime;
+
+    private final int maxDuration;
+
+    private final int maxRides;
+
+    /* Per round and stop: arrival by riding a vehicle, and arrival by a walking transfer (or access, in round 0). */
+    private final int[][] transitArrival;
+    private final int[][] transferArrival;
+
+    /* Per round and stop: how the transit arrival was reached. */
+    private final int[][] labelPattern;
+    private final int[][] labelBoardPosition;
+    private final int[][] labelAlightPosition;
+    private final int[][] labelBoardRound;
+
+    /* Per round and stop: the origin stop of the transfer arrival. */
+    private final int[][] labelTransferFrom;
+
+    /* The best arrival at each stop over all rounds so far, and the round in which it was found. */
+    private final int[] bestArrival;
+    private final int[] bestArrivalRound;
+
+    /* Reused across rounds: the first position at which each pattern must be scanned, or NONE. */
+    private final int[] patternFirstPosition;
+
+    /*
+     * Output of findTrip, held in fields to avoid allocating a result object for every boarding. For a frequency-based
+     * trip, foundTrip is the template trip of the frequency entry and foundOffset includes the shift from the template
+     * to the vehicle found, so no shifted copy of the template is made.
+     */
+    private TripTimes foundTrip;
+    private long foundOffset;
+
+    public RaptorSearch(RaptorData data, RoutingRequest options, int maxDuration, int maxRides) {
+        this.data = data;
+        this.options = options;
+        this.serviceDays = options.rctx.serviceDays;
+        this.departureTime = options.dateTime;
+        this.maxDuration = maxDuration;
+        this.maxRides = maxRides;
+        int nStops = data.stops.length;
+        transitArrival = newArray(maxRides + 1, nStops, UNREACHED);
+        transferArrival = newArray(maxRides + 1, nStops, UNREACHED);
+        labelPattern = newArray(maxRides + 1, nStops, NONE);
+        labelBoardPosition = newArray(maxRides + 1, nStops, NONE);
+        labelAlightPosition = newArray(maxRides + 1, nStops, NONE);
+        labelBoardRound = newArray(maxRides + 1, nStops, NONE);
+        labelTransferFrom = newArray(maxRides + 1, nStops, NONE);
+        bestArrival = new int[nStops];
+        Arrays.fill(bestArrival, UNREACHED);
+        bestArrivalRound = new int[nStops];
+        Arrays.fill(bestArrivalRound, NONE);
+        patternFirstPosition = new int[data.patterns.length];
+        Arrays.fill(patternFirstPosition, NONE);
+    }
+
+    /**
+     * @param accessTimes seconds needed to reach each stop index from the origin
+     * @param egressTimes seconds needed to reach the destination from each stop index
+     * @return the Pareto-optimal journeys on arrival time and number of rides, ordered by increasing number of rides
+     */
+    public List<RaptorJourney> route(TIntIntMap accessTimes, TIntIntMap egressTimes) {
+        List<RaptorJourney> journeys = new ArrayList<>();
+        BitSet marked = new BitSet(data.stops.length);
+        for (TIntIntIterator it = accessTimes.iterator(); it.hasNext(); ) {
+            it.advance();
+            int stop = it.key();
+            int time = it.value();
+            if (time < maxDuration && time < bestArrival[stop]) {
+                transferArrival[0][stop] = time;
+                bestArrival[stop] = time;
+                bestArrivalRound[stop] = 0;
+                marked.set(stop);
+            }
+        }
+
+        int bestDestination = UNREACHED;
+        BitSet improved = new BitSet(data.stops.length);
+        for (int round = 1; round <= maxRides && !marked.isEmpty(); round++) {
+            int[] previousBest = bestArrival.clone();
+            int[] previousBestRound = bestArrivalRound.clone();
+
+            /* Collect the patterns serving any stop improved in the previous round. */
+            BitSet patternsToScan = new BitSet(data.patterns.length);
+            for (int s = marked.nextSetBit(0); s >= 0; s = marked.nextSetBit(s + 1)) {
+                for (int p : data.patternsForStop[s]) {
+                    int[] stops = data.patternStops[p];
+                    for (int i = 0; i < stops.length; i++) {
+                        if (stops[i] == s) {
+                            if (patternFirstPosition[p] == NONE || i < patternFirstPosition[p]) {
+                                patternFirstPosition[p] = i;
+                            }
+                            break;
+                        }
+                    }
+                    patternsToScan.set(p);
+                }
+            }
+            marked.clear();
+            improved.clear();
+
+            for (int p = patternsToScan.nextSetBit(0); p >= 0; p = patternsToScan.nextSetBit(p + 1)) {
+                scanPattern(round, p, patternFirstPosition[p], previousBest, previousBestRound, bestDestination,
+                        improved);
+                patternFirstPosition[p] = NONE;
+            }
+
+            /* Check whether the destination can be reached from the stops improved in this round. */
+            int egressStop = NONE;
+            for (int s = improved.nextSetBit(0); s >= 0; s = improved.nextSetBit(s + 1)) {
+                if (egressTimes.containsKey(s)) {
+                    int arrival = transitArrival[round][s] + egressTimes.get(s);
+                    if (arrival < bestDestination) {
+                        bestDestination = arrival;
+                        egressStop = s;
+                    }
+                }
+            }
+
+            /* Relax the walking transfers from the stops improved in this round. */
+            for (int s = improved.nextSetBit(0); s >= 0; s = improved.nextSetBit(s + 1)) {
+                marked.set(s);
+                int[] targets = data.transferTargets[s];
+                double[] distances = data.transferDistances[s];
+                for (int t = 0; t < targets.length; t++) {
+                    if (distances[t] > options.getMaxTransferWalkDistance()) continue;
+                    int target = targets[t];
+                    int arrival = transitArrival[round][s] + (int) Math.ceil(distances[t] / options.walkSpeed);
+                    if (arrival < bestArrival[target] && arrival < bestDestination && arrival < maxDuration) {
+                        transferArrival[round][target] = arrival;
+                        labelTransferFrom[round][target] = s;
+                        bestArrival[target] = arrival;
+                        bestArrivalRound[target] = round;
+                        marked.set(target);
+                    }
+                }
+            }
+
+            if (egressStop != NONE) {
+                journeys.add(reconstruct(round, egressStop, bestDestination));
+            }
+        }
+        return journeys;
+    }
+
+    private void scanPattern(int round, int p, int firstPosition, int[] previousBest, int[] previousBestRound,
+            int bestDestination, BitSet improved) {
+        TripPattern pattern = data.patterns[p];
+        if (!patternUsable(pattern)) return;
+        int[] stops = data.patternStops[p];
+        int boardTime = options.getBoardTime(pattern.route.getTransportSubmode());
+        int alightTime = options.getAlightTime(pattern.route.getTransportSubmode());
+
+        TripTimes trip = null;
+        long tripOffset = 0;
+        int boardPosition = NONE;
+        int boardRound = NONE;
+        for (int i = firstPosition; i < stops.length; i++) {
+            int s = stops[i];
+            if (s == NONE) continue;
+
+            /* Alight from the current trip. */
+            if (trip != null && pattern.canAlight(i) && stopUsable(pattern, i)) {
+                int scheduledArrival = trip.getArrivalTime(i);
+                if (scheduledArrival >= 0) {
+                    int arrival = (int) (tripOffset + scheduledArrival) + alightTime + options.alightSlack;
+                    if (arrival < bestArrival[s] && arrival < bestDestination && arrival < maxDuration) {
+                        transitArrival[round][s] = arrival;
+                        labelPattern[round][s] = p;
+                        labelBoardPosition[round][s] = boardPosition;
+                        labelAlightPosition[round][s] = i;
+                        labelBoardRound[round][s] = boardRound;
+                        bestArrival[s] = arrival;
+                        bestArrivalRound[s] = round;
+                        improved.set(s);
+                    }
+                }
+            }
+
+            /* Board, or switch to an earlier trip, if this stop was reached in a previous round. */
+            if (previousBest[s] != UNREACHED && pattern.canBoard(i) && pattern.boardEdges[i] != null
+                    && stopUsable(pattern, i) && lastPattern(previousBestRound[s], s) != p) {
+                int slack = previousBestRound[s] == 0 ?
+                        options.boardSlack : Math.max(0, options.transferSlack - options.alightSlack);
+                int earliestDeparture = previousBest[s] + slack + boardTime;
+                if (trip == null || earliestDeparture <= (int) (tripOffset + trip.getDepartureTime(i))) {
+                    if (findTrip(pattern, i, earliestDeparture)) {
+                        if (trip == null ||
+                                foundOffset + foundTrip.getDepartureTime(i) < tripOffset + trip.getDepartureTime(i)) {
+                            trip = foundTrip;
+                            tripOffset = foundOffset;
+                            boardPosition = i;
+                            boardRound = previousBestRound[s];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the pattern last ridden to reach the stop in the given round, or NONE in round 0. Like
+     * TransitBoardAlight, the search does not board the pattern it has just left, even after a walking transfer.
+     */
+    private int lastPattern(int round, int stop) {
+        if (round == 0) return NONE;
+        if (transferArrival[round][stop] < transitArrival[round][stop]) {
+            stop = labelTransferFrom[round][stop];
+        }
+        return labelPattern[round][stop];
+    }
+
+    /**
+     * Find the earliest trip on the pattern departing from the given position at or after the given time, over all
+     * service days relevant to the request. The result is left in foundTrip and foundOffset, the offset being the
+     * start of the trip's service day relative to the departure time of the search.
+     *
+     * The trips of each timetable are sorted on their departure from the position, so the first usable trip found by
+     * a binary search for the earliest departure is the earliest trip of that service day.
+     */
+    private boolean findTrip(TripPattern pattern, int position, int earliestDeparture) {
+        foundTrip = null;
+        long bestDeparture = Long.MAX_VALUE;
+        for (ServiceDay serviceDay : serviceDays) {
+            if (pattern.getServices() != null && !serviceDay.anyServiceRunning(pattern.getServices())) continue;
+            Timetable timetable = pattern.getUpdatedTimetable(options, serviceDay);
+            long offset = serviceDay.time(0) - departureTime;
+            int earliest = (int) (earliestDeparture - offset);
+            TripTimes[] trips = timetable.getTripsByDeparture(position);
+            int[] departures = timetable.getSortedDepartureTimes(position);
+            for (int i = firstDepartureAtOrAfter(departures, Math.max(0, earliest)); i < trips.length; i++) {
+                if (offset + departures[i] >= bestDeparture) break;
+                if (tripUsable(trips[i], serviceDay, position)) {
+                    bestDeparture = offset + departures[i];
+                    foundTrip = trips[i];
+                    foundOffset = offset;
+                    break;
+                }
+            }
+            for (FrequencyEntry frequency : timetable.frequencyEntries) {
+                // Like TripTimes.timeShiftClone, only frequency entries without real-time delays are used.
+                if (!frequency.tripTimes.isScheduled()) continue;
+                if (!tripUsable(frequency.tripTimes, serviceDay, position)) continue;
+                int departure = frequency.nextDepartureTime(position, earliest);
+                if (departure < 0) continue;
+                if (offset + departure < bestDeparture) {
+                    bestDeparture = offset + departure;
+                    foundTrip = frequency.tripTimes;
+                    foundOffset = offset + departure - frequency.tripTimes.getDepartureTime(position);
+                }
+            }
+        }
+        return foundTrip != null;
+    }
+
+    /** @return the index of the first of the ascending departures that is at or after the given time. */
+    private static int firstDepartureAtOrAfter(int[] departures, int time) {
+        int low = 0;
+        int high = departures.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean patternUsable(TripPattern pattern) {
+        if (!options.modes.contains(pattern.mode)) return false;
+        Route route = pattern.route;
+        if (options.routeIsBanned(route)) return false;
+        if (!options.useEligibilityServices && route.hasEligibilityRestricted()
+                && route.getEligibilityRestricted() == 1) {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean stopUsable(TripPattern pattern, int position) {
+        if (options.wheelchairAccessible && !pattern.wheelchairAccessible(position)) return false;
+        if (!options.bannedStops.isEmpty() && options.bannedStops.matches(pattern.getStop(position))) return false;
+        if (!options.bannedStopsHard.isEmpty() && options.bannedStopsHard.matches(pattern.getStop(position))) {
+            return false;
+        }
+        return true;
+    }
+
+    /** The same per-trip restrictions as Timetable.getNextTrip and TripTimes.tripAcceptable, without a State. */
+    private boolean tripUsable(TripTimes tt, ServiceDay serviceDay, int position) {
+        if (tt.isCanceled()) return false;
+        if (tt.getNumStops() <= position) return false;
+        if (!serviceDay.serviceRunning(tt.serviceCode)) return false;
+        Trip trip = tt.trip;
+        if (options.tripIsBanned(trip)) return false;
+        BannedStopSet banned = options.bannedTrips.get(trip.getId());
+        if (banned != null && banned.contains(position)) return false;
+        if (options.wheelchairAccessible && trip.getWheelchairAccessible() == 2) return false;
+        if (!options.includePlannedCancellations &&
+                (Trip.ServiceAlteration.cancellation.equals(trip.getServiceAlteration()) ||
+                        Trip.ServiceAlteration.replaced.equals(trip.getServiceAlteration()))) {
+            return false;
+        }
+        return true;
+    }
+
+    /** Follow the labels back from the transit arrival at the egress stop in the given round. */
+    private RaptorJourney reconstruct(int round, int egressStop, int arrivalTime) {
+        RaptorJourney journey = new RaptorJourney();
+        journey.egressStop = egressStop;
+        journey.arrivalTime = arrivalTime;
+        int stop = egressStop;
+        boolean viaTransfer = false;
+        while (round > 0) {
+            if (viaTransfer) {
+                int from = labelTransferFrom[round][stop];
+                journey.legs.get(0).transferFromStop = from;
+                stop = from;
+            }
+            int p = labelPattern[round][stop];
+            RaptorJourney.Leg leg = new RaptorJourney.Leg(p, labelBoardPosition[round][stop],
+                    labelAlightPosition[round][stop]);
+            journey.legs.add(0, leg);
+            int boardRound = labelBoardRound[round][stop];
+            stop = data.patternStops[p][leg.boardPosition];
+            round = boardRound;
+            viaTransfer = round > 0 && transferArrival[round][stop] < transitArrival[round][stop];
+        }
+        journey.accessStop = stop;
+        return journey;
+    }
+
+    private static int[][] newArray(int rounds, int stops, int initialValue) {
+        int[][] array = new int[rounds][stops];
+        if (initialValue != 0) {
+            for (int[] row : array) {
+                Arrays.fill(row, initialValue);
+            }
+        }
+        return array;
+    }
+}
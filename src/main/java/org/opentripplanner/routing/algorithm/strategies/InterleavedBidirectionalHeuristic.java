@@ -27,7 +27,9 @@ import org.opentripplanner.routing.location.StreetLocation;
 import org.opentripplanner.routing.spt.DominanceFunction;
 import org.opentripplanner.routing.spt.ShortestPathTree;
 import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
 import org.opentripplanner.routing.vertextype.TransitStop;
+import org.opentripplanner.util.monitoring.RoutingCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -101,12 +103,32 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
     // True when the entire transit network has been explored by the reverse search.
     boolean finished = false;
 
+    // Shares the reverse search from the target with later requests, or null.
+    private final InterleavedBidirectionalHeuristicCache cache;
+
+    // The key of the reverse search in the cache, or null if it is not shared.
+    private String cacheKey;
+
+    // When the reverse search was taken from the cache, the weights of the temporary vertices around the target of
+    // this request, which are not part of it.
+    TObjectDoubleMap<Vertex> targetAccessWeights;
+
     public InterleavedBidirectionalHeuristic() {
         this(8);
     }
 
     public InterleavedBidirectionalHeuristic(final int heuristicStepsPerMainStep) {
+        this(heuristicStepsPerMainStep, null);
+    }
+
+    /**
+     * @param cache if not null, the reverse search from the target is taken from this cache when possible, and can be
+     *              stored in it with {@link #storeInCache()} once the main search is done.
+     */
+    public InterleavedBidirectionalHeuristic(final int heuristicStepsPerMainStep,
+            InterleavedBidirectionalHeuristicCache cache) {
         HEURISTIC_STEPS_PER_MAIN_STEP = heuristicStepsPerMainStep;
+        this.cache = cache;
     }
 
     /**
@@ -126,7 +148,12 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
         long start = System.currentTimeMillis();
         this.target = target;
         this.routingRequest = request;
+        // The key depends on the walk limits, which are changed below.
+        cacheKey = cache == null ? null : InterleavedBidirectionalHeuristicCache.key(request);
         transitQueue = new BinHeap<>();
+        maxWeightSeen = 0;
+        finished = false;
+        targetAccessWeights = null;
         // Forward street search first, mark street vertices around the origin so H evaluates to 0
         TObjectDoubleMap<Vertex> forwardStreetSearchResults = streetSearch(request, false, abortTime);
         if (forwardStreetSearchResults == null) {
@@ -134,9 +161,19 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
         }
         preTransitVertices = forwardStreetSearchResults.keySet();
         LOG.debug("end forward street search {} ms", System.currentTimeMillis() - start);
-        postBoardingWeights = streetSearch(request, true, abortTime);
-        if (postBoardingWeights == null) {
-            return; // Search timed out
+        InterleavedBidirectionalHeuristicCache.Table cached = cacheKey == null ? null : cache.get(cacheKey);
+        if (cached != null) {
+            LOG.debug("Reusing the reverse search of an earlier request with the same target.");
+            postBoardingWeights = cached.postBoardingWeights;
+            transitQueue = cached.transitQueue;
+            maxWeightSeen = cached.maxWeightSeen;
+            finished = cached.finished;
+            targetAccessWeights = targetAccessSearch(request);
+        } else {
+            postBoardingWeights = streetSearch(request, true, abortTime);
+            if (postBoardingWeights == null) {
+                return; // Search timed out
+            }
         }
         LOG.debug("end backward street search {} ms", System.currentTimeMillis() - start);
         // once street searches are done, raise the limits to max
@@ -167,7 +204,11 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
             // The main search is on the streets, not on transit.
             if (s.isEverBoarded()) {
                 // If we have already ridden transit we must be near the destination. If not the map returns INF.
-                return postBoardingWeights.get(v);
+                double h = postBoardingWeights.get(v);
+                if (h == Double.POSITIVE_INFINITY && targetAccessWeights != null) {
+                    h = targetAccessWeights.get(v);
+                }
+                return h;
             } else {
                 // We have not boarded transit yet. We have no idea what the weight to the target is so return zero.
                 // We could also use a Euclidean heuristic here.
@@ -193,6 +234,46 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
     @Override
     public void reset() { }
 
+    /**
+     * Make the reverse search from the target available to later requests with the same target and parameters. This
+     * must only be called once the main search is done, since the search results are not copied.
+     */
+    public void storeInCache() {
+        if (cacheKey == null || postBoardingWeights == null || targetAccessWeights != null && finished) {
+            // Nothing to share, or a complete search that is already shared.
+            return;
+        }
+        cache.put(cacheKey, new InterleavedBidirectionalHeuristicCache.Table(postBoardingWeights, transitQueue,
+                maxWeightSeen, finished));
+    }
+
+    /**
+     * The weights of the temporary vertices between the target and the permanent street vertices, found with the
+     * same reverse traversal as in streetSearch. A cached reverse search only knows the temporary vertices of the
+     * request it was made for.
+     */
+    private TObjectDoubleMap<Vertex> targetAccessSearch(RoutingRequest rr) {
+        rr = rr.clone();
+        rr.setArriveBy(!rr.arriveBy);
+        TObjectDoubleMap<Vertex> vertices = new TObjectDoubleHashMap<>(10, 0.5f, Double.POSITIVE_INFINITY);
+        BinHeap<State> pq = new BinHeap<>();
+        pq.insert(new State(rr.rctx.target, rr), 0);
+        while (!pq.empty()) {
+            State s = pq.extract_min();
+            Vertex v = s.getVertex();
+            if (vertices.containsKey(v)) continue;
+            vertices.put(v, (int) s.getWeight());
+            if (!(v instanceof TemporaryVertex)) continue;
+            for (Edge e : rr.arriveBy ? v.getIncoming() : v.getOutgoing()) {
+                State s1 = e.traverse(s);
+                if (s1 != null) {
+                    pq.insert(s1, s1.getWeight());
+                }
+            }
+        }
+        return vertices;
+    }
+
     /**
      * Move backward N steps through the transit network.
      * This improves the heuristic's knowledge of the transit network as seen from the target,
@@ -201,6 +282,7 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
     @Override
     public void doSomeWork() {
         if (finished) return;
+        int steps = 0;
         for (int i = 0; i < HEURISTIC_STEPS_PER_MAIN_STEP; ++i) {
             if (transitQueue.empty()) {
                 finished = true;
@@ -221,6 +303,7 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
                 // The vertex was already closed. This time it necessarily has a higher weight, so skip it.
                 continue;
             }
+            steps++;
             // This search is proceeding backward relative to the main search.
             // When the main search is arriveBy the heuristic search looks at OUTgoing edges.
             for (Edge e : routingRequest.arriveBy ? u.getOutgoing() : u.getIncoming()) {
@@ -248,6 +331,7 @@ public class InterleavedBidirectionalHeuristic implements RemainingWeightHeurist
                 }
             }
         }
+        routingRequest.rctx.instrumentation.add(RoutingCounter.HEURISTIC_STEPS, steps);
     }
 
     /**
@@ -0,0 +1,147 @@
+package org.opentripplanner.routing.algorithm.strategies;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import gnu.trove.map.TObjectDoubleMap;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.ServiceDay;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the target-dependent part of InterleavedBidirectionalHeuristic (the street search around the target and the
+ * progress of the reverse search through the transit network) between requests, so that later requests to the same
+ * destination start with a warm heuristic. Traffic tends to be concentrated on a few destinations such as hubs or
+ * airports, which makes this worthwhile.
+ *
+ * Entries are keyed by the target and every request parameter the reverse search depends on. A search receives a
+ * private copy of the cached tables, since it keeps extending them, and stores them back when it is done if they are
+ * more complete than the cached ones. Completed tables are no longer modified and are shared without copying.
+ *
+ * The cache is held by the graph, so it is dropped when a new graph is loaded. It must also be cleared when transit
+ * edges are added to the graph (e.g. by realtime updates adding trip patterns), since the cached bounds would then no
+ * longer be admissible.
+ */
+public class InterleavedBidirectionalHeuristicCache {
+
+    /** Upper bound on the total number of vertex weights kept in the cache, a few hundred megabytes. */
+    private static final long MAX_VERTEX_WEIGHTS = 5000000;
+
+    private static final long EXPIRE_AFTER_MINUTES = 10;
+
+    private final Cache<String, Table> tables = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_VERTEX_WEIGHTS)
+            .weigher((String key, Table table) -> table.postBoardingWeights.size())
+            .expireAfterWrite(EXPIRE_AFTER_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /** The state of the reverse search from one target. */
+    static class Table {
+
+        final TObjectDoubleMap<Vertex> postBoardingWeights;
+
+        final BinHeap<Vertex> transitQueue;
+
+        final double maxWeightSeen;
+
+        final boolean finished;
+
+        Table(TObjectDoubleMap<Vertex> postBoardingWeights, BinHeap<Vertex> transitQueue, double maxWeightSeen,
+                boolean finished) {
+            this.postBoardingWeights = postBoardingWeights;
+            this.transitQueue = transitQueue;
+            this.maxWeightSeen = maxWeightSeen;
+            this.finished = finished;
+        }
+
+        /** @return a copy that can be extended by a search, or this table itself if it is complete. */
+        Table copy() {
+            if (finished) {
+                return this;
+            }
+            TObjectDoubleMap<Vertex> weights = new TObjectDoubleHashMap<>(postBoardingWeights.size(), 0.5f,
+                    Double.POSITIVE_INFINITY);
+            weights.putAll(postBoardingWeights);
+            return new Table(weights, new BinHeap<>(transitQueue), maxWeightSeen, false);
+        }
+
+        boolean isMoreCompleteThan(Table other) {
+            return !other.finished && (finished || maxWeightSeen > other.maxWeightSeen);
+        }
+    }
+
+    /**
+     * @return the key of the tables for this request, or null if they must not be shared with other requests. This
+     * must be called before the heuristic is initialized, since the initialization modifies the request.
+     */
+    static String key(RoutingRequest options) {
+        if (!isCacheable(options)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        Vertex target = options.rctx.target;
+        if (target instanceof TemporaryVertex) {
+            // A new temporary vertex is created for every request, but it is linked the same way for the same place.
+            key.append(String.format(Locale.ROOT, "%s %.7f,%.7f", target.getClass().getSimpleName(),
+                    target.getLat(), target.getLon()));
+        } else {
+            key.append(target.getLabel());
+        }
+        key.append(String.format(Locale.ROOT, " arriveBy=%b maxWalk=%f/%f softWalkLimiting=%b boardCost=%d ",
+                options.arriveBy, options.maxWalkDistance, options.maxPreTransitWalkDistance,
+                options.softWalkLimiting, options.getBoardCostLowerBound()));
+        key.append(StreetCostProfile.of(options));
+        // Patterns that do not run on these days are left out of the reverse search.
+        for (ServiceDay sd : options.rctx.serviceDays) {
+            key.append(' ').append(sd.getServiceDate().getAsString());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Requests that change the network seen by the reverse search are not cached: route or agency filters, which
+     * would make the bounds inadmissible for other requests, mode changes such as park and ride, and flexible
+     * transit, which adds temporary transit edges for the request.
+     */
+    private static boolean isCacheable(RoutingRequest options) {
+        if (options.rctx == null || options.rctx.target == null || options.rctx.serviceDays == null) {
+            return false;
+        }
+        if (options.parkAndRide || options.kissAndRide || options.rideAndKiss || options.bikeParkAndRide
+                || options.allowBikeRental) {
+            return false;
+        }
+        if (options.rctx.graph.useFlexService && options.useFlexService) {
+            return false;
+        }
+        return options.bannedAgencies.isEmpty() && options.whiteListedAgencies.isEmpty()
+                && options.bannedRoutes.isEmpty() && options.whiteListedRoutes.isEmpty();
+    }
+
+    /** @return tables for the given key that the caller may extend, or null if there are none. */
+    Table get(String key) {
+        Table table = tables.getIfPresent(key);
+        return table == null ? null : table.copy();
+    }
+
+    /** Offer tables that are no longer modified by the search that produced them. */
+    void put(String key, Table table) {
+        tables.asMap().merge(key, table, (existing, offered) -> offered.isMoreCompleteThan(existing) ? offered
+                : existing);
+    }
+
+    /** Drop all tables, to be called when transit edges are added to or removed from the graph. */
+    public void clear() {
+        tables.invalidateAll();
+    }
+
+    public long size() {
+        return tables.size();
+    }
+}
@@ -0,0 +1,186 @@
+package org.opentripplanner.routing.algorithm.strategies;
+
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.algorithm.landmarks.LandmarkSet;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A goal direction heuristic for street-only searches, using precomputed path weights to and from landmarks
+ * (the ALT method). For a forward search towards target t, the remaining weight from v is at least
+ * max over all landmarks L of d(L, t) - d(L, v) and d(v, L) - d(t, L). This bound is admissible and consistent
+ * as long as the request has the same cost profile as the landmarks, which is checked in {@link #forRequest}.
+ *
+ * The target is usually a temporary vertex that is not part of the landmark set. Its bounds are then derived from
+ * the nearby permanent vertices through which it is entered or left. Temporary vertices around the origin get a
+ * zero estimate.
+ */
+public class LandmarkRemainingWeightHeuristic implements RemainingWeightHeuristic {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Upper bound on the number of vertices explored to connect a temporary target to the landmark set. */
+    private static final int MAX_ACCESS_VERTICES = 100;
+
+    /** Subtracted from every estimate to absorb the rounding of the weights stored as floats. */
+    private static final double ROUNDING_SLACK = 1;
+
+    private final LandmarkSet landmarks;
+
+    private boolean arriveBy;
+
+    /* Bounds on the weights between each landmark and the target. Infinite when unknown or unreachable. */
+
+    private double[] lowerFromLandmark;
+
+    private double[] upperFromLandmark;
+
+    private double[] lowerToLandmark;
+
+    private double[] upperToLandmark;
+
+    public LandmarkRemainingWeightHeuristic(LandmarkSet landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * @return a landmark heuristic for the given request if the graph has landmarks for its profile, or null.
+     */
+    public static LandmarkRemainingWeightHeuristic forRequest(Graph graph, RoutingRequest options) {
+        if (!StreetCostProfile.isFixed(options)) {
+            return null;
+        }
+        LandmarkSet landmarks = graph.getLandmarkSet(options.modes.getModes().get(0));
+        if (landmarks == null || !landmarks.profile.equals(StreetCostProfile.of(options))) {
+            return null;
+        }
+        return new LandmarkRemainingWeightHeuristic(landmarks);
+    }
+
+    @Override
+    public void initialize(RoutingRequest options, long abortTime) {
+        landmarks.resolve(options.rctx.graph);
+        arriveBy = options.arriveBy;
+        int nLandmarks = landmarks.getLandmarkCount();
+        lowerFromLandmark = new double[nLandmarks];
+        upperFromLandmark = new double[nLandmarks];
+        lowerToLandmark = new double[nLandmarks];
+        upperToLandmark = new double[nLandmarks];
+
+        Vertex target = options.rctx.target;
+        int targetIndex = landmarks.indexOf(target);
+        if (targetIndex >= 0) {
+            for (int l = 0; l < nLandmarks; l++) {
+                lowerFromLandmark[l] = upperFromLandmark[l] = landmarks.getWeightFromLandmark(l, targetIndex);
+                lowerToLandmark[l] = upperToLandmark[l] = landmarks.getWeightToLandmark(l, targetIndex);
+            }
+            return;
+        }
+        // Any path between a landmark and the target goes through one of the permanent vertices around it.
+        RoutingRequest weightOptions = options.clone();
+        weightOptions.setArriveBy(false);
+        TIntDoubleMap entries = connect(weightOptions, target, true);
+        TIntDoubleMap exits = connect(weightOptions, target, false);
+        for (int l = 0; l < nLandmarks; l++) {
+            lowerFromLandmark[l] = upperFromLandmark[l] = Double.POSITIVE_INFINITY;
+            lowerToLandmark[l] = upperToLandmark[l] = Double.POSITIVE_INFINITY;
+            if (entries != null) {
+                for (int v : entries.keys()) {
+                    double weight = landmarks.getWeightFromLandmark(l, v);
+                    lowerFromLandmark[l] = Math.min(lowerFromLandmark[l], weight);
+                    upperFromLandmark[l] = Math.min(upperFromLandmark[l], weight + entries.get(v));
+                }
+            }
+            if (exits != null) {
+                for (int v : exits.keys()) {
+                    double weight = landmarks.getWeightToLandmark(l, v);
+                    lowerToLandmark[l] = Math.min(lowerToLandmark[l], weight);
+                    upperToLandmark[l] = Math.min(upperToLandmark[l], weight + exits.get(v));
+                }
+            }
+        }
+    }
+
+    @Override
+    public double estimateRemainingWeight(State s) {
+        int v = landmarks.indexOf(s.getVertex());
+        if (v < 0) {
+            return 0;
+        }
+        double estimate = 0;
+        for (int l = 0; l < lowerFromLandmark.length; l++) {
+            double fromLandmark = landmarks.getWeightFromLandmark(l, v);
+            double toLandmark = landmarks.getWeightToLandmark(l, v);
+            if (arriveBy) {
+                // Remaining weight is that of the path from the target (the origin of the trip) to v.
+                estimate = Math.max(estimate, bound(fromLandmark, upperFromLandmark[l]));
+                estimate = Math.max(estimate, bound(lowerToLandmark[l], toLandmark));
+            } else {
+                estimate = Math.max(estimate, bound(lowerFromLandmark[l], fromLandmark));
+                estimate = Math.max(estimate, bound(toLandmark, upperToLandmark[l]));
+            }
+        }
+        return Math.max(0, estimate - ROUNDING_SLACK);
+    }
+
+    /** The difference of two weights, or zero when either of them is unknown. */
+    private static double bound(double a, double b) {
+        if (a == Double.POSITIVE_INFINITY || b == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        return a - b;
+    }
+
+    /**
+     * A small Dijkstra search over temporary vertices from the given vertex (or towards it if backward), that stops
+     * at vertices of the landmark set.
+     * @return the weight between the given vertex and each landmark set vertex reached, or null if the search was
+     * cut off before all of them were found
+     */
+    private TIntDoubleMap connect(RoutingRequest weightOptions, Vertex start, boolean backward) {
+        TIntDoubleMap result = new TIntDoubleHashMap();
+        Map<Vertex, Double> weights = new HashMap<>();
+        BinHeap<Vertex> queue = new BinHeap<>();
+        weights.put(start, 0.0);
+        queue.insert(start, 0);
+        int explored = 0;
+        while (!queue.empty() && explored < MAX_ACCESS_VERTICES) {
+            double weight = queue.peek_min_key();
+            Vertex v = queue.extract_min();
+            if (weight > weights.get(v)) continue;
+            explored++;
+            int index = landmarks.indexOf(v);
+            if (index >= 0) {
+                result.put(index, weight);
+                continue;
+            }
+            for (Edge e : backward ? v.getIncoming() : v.getOutgoing()) {
+                double edgeWeight = StreetCostProfile.edgeWeight(e, weightOptions);
+                if (edgeWeight < 0) continue;
+                Vertex w = backward ? e.getFromVertex() : e.getToVertex();
+                Double existing = weights.get(w);
+                if (existing == null || weight + edgeWeight < existing) {
+                    weights.put(w, weight + edgeWeight);
+                    queue.insert(w, weight + edgeWeight);
+                }
+            }
+        }
+        return queue.empty() ? result : null;
+    }
+
+    @Override
+    public void reset() {}
+
+    @Override
+    public void doSomeWork() {}
+
+}
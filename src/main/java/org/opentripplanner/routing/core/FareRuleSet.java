@@ -60,6 +60,10 @@ public class FareRuleSet implements Serializable {
     public void addContains(String containsId) {
         contains.add(containsId);
     }
+
+    public Set<String> getContains() {
+        return contains;
+    }
     
     public void addRoute(AgencyAndId route) {
         routes.add(route);
@@ -30,6 +30,8 @@ import org.opentripplanner.routing.vertextype.TransitStop;
 import org.opentripplanner.traffic.StreetSpeedSnapshot;
 import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.opentripplanner.util.NonLocalizedString;
+import org.opentripplanner.util.monitoring.RoutingInstrumentation;
+import org.opentripplanner.util.monitoring.RoutingPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -108,8 +110,17 @@ public class RoutingContext implements Cloneable {
     /** An object that accumulates profiling and debugging info for inclusion in the response. */
     public DebugOutput debugOutput = new DebugOutput();
 
-    /** Indicates that the search timed out or was otherwise aborted. */
-    public boolean aborted;
+    /**
+     * Phase timings and counters of the request. Sub-requests made on behalf of the request share the instrumentation
+     * of the main request.
+     */
+    public RoutingInstrumentation instrumentation = new RoutingInstrumentation();
+
+    /**
+     * Indicates that the search timed out or was otherwise aborted. Setting it from another thread stops a running
+     * search.
+     */
+    public volatile boolean aborted;
 
     /** Indicates that a maximum slope constraint was specified but was removed during routing to produce a result. */
     public boolean slopeRestrictionRemoved = false;
@@ -230,6 +241,7 @@ public class RoutingContext implements Cloneable {
 
         Edge fromBackEdge = null;
         Edge toBackEdge = null;
+        long linkingStart = System.nanoTime();
         if (findPlaces) {
             if (opt.batch) {
                 // batch mode: find an OSM vertex, don't split
@@ -264,6 +276,7 @@ public class RoutingContext implements Cloneable {
             fromVertex = from;
             toVertex = to;
         }
+        instrumentation.addTime(RoutingPhase.STREET_LINKING, linkingStart);
 
         // If the from and to vertices are generated and lie on some of the same edges, we need to wire them
         // up along those edges so that we don't get odd circuitous routes for really short trips.
@@ -502,6 +502,25 @@ public class RoutingRequest implements Cloneable, Serializable {
      */
     public boolean compactLegsByReversedSearch = false;
 
+    /**
+     * When true, transit searches without flexible services are done with the round-based RAPTOR search instead of
+     * A* over the transit edges. Arrive-by searches always use A*.
+     */
+    public boolean useRaptor = false;
+
+    /**
+     * When true, street-only requests are answered with the contraction hierarchy stored in the graph if there is one
+     * for the request mode and parameters, otherwise A* is used. When the path found in the hierarchy pays turn costs
+     * it cannot be shown to be the best one, and A* is used with the hierarchy as its goal direction heuristic.
+     */
+    public boolean useContractionHierarchy = false;
+
+    /**
+     * When true, the legs between intermediate places are searched concurrently, at predicted times, rather than one
+     * after the other. The itineraries are the same, only found sooner.
+     */
+    public boolean parallelIntermediatePlaces = false;
+
     /**
      * If true, cost turns as they would be in a country where driving occurs on the right; otherwise, cost them as they would be in a country where
      * driving occurs on the left.
@@ -541,6 +560,12 @@ public class RoutingRequest implements Cloneable, Serializable {
      */
     public boolean disableRemainingWeightHeuristic = false;
 
+    /**
+     * If true, the phase timings and counters of the search are included in the debug output of the response.
+     * They are always recorded in the metrics of the router.
+     */
+    public boolean showInstrumentation = false;
+
     /**
      * Extra penalty added for flag-stop boarding/alighting
      */
@@ -50,6 +50,9 @@ public class State implements Cloneable {
     /* StateData contains data which is unlikely to change as often */
     public StateData stateData;
 
+    /* The transit part of the state, shared with the states before it until a transit field changes */
+    TransitStateData transit = TransitStateData.EMPTY;
+
     // how far have we walked
     // TODO(flamholz): this is a very confusing name as it actually applies to all non-transit modes.
     // we should DEFINITELY rename this variable and the associated methods.
@@ -58,10 +61,13 @@ public class State implements Cloneable {
     // The time traveled pre-transit, for park and ride or kiss and ride searches
     int preTransitTime;
 
-    // track the states of all path parsers -- probably changes frequently
-    protected int[] pathParserStates;
+    // The mode that was used to traverse the backEdge
+    TraverseMode backMode;
+
+    boolean backWalkingBike;
 
-    int callAndRideTime = 0;
+    // Set to true upon transition from a normal street to a no-through-traffic street.
+    boolean enteredNoThroughTrafficArea;
 
     private static final Logger LOG = LoggerFactory.getLogger(State.class);
 
@@ -134,7 +140,6 @@ public class State implements Cloneable {
         this.walkDistance = 0;
         this.preTransitTime = 0;
         this.time = timeSeconds * 1000;
-        stateData.routeSequence = new AgencyAndId[0];
     }
 
     /**
@@ -204,7 +209,7 @@ public class State implements Cloneable {
     }
 
     public TripTimes getTripTimes() {
-        return stateData.tripTimes;
+        return transit.tripTimes;
     }
 
     /** 
@@ -218,7 +223,7 @@ public class State implements Cloneable {
     public long getActiveTime () {
         long clampInitialWait = stateData.opt.clampInitialWait;
 
-        long initialWait = stateData.initialWaitTime;
+        long initialWait = transit.initialWaitTime;
 
         // only subtract up the clamp value
         if (clampInitialWait >= 0 && initialWait > clampInitialWait)
@@ -236,23 +241,23 @@ public class State implements Cloneable {
     }
 
     public AgencyAndId getTripId() {
-        return stateData.tripId;
+        return transit.tripId;
     }
 
     public Trip getPreviousTrip() {
-        return stateData.previousTrip;
+        return transit.previousTrip;
     }
     
     public String getZone() {
-        return stateData.zone;
+        return transit.zone;
     }
 
     public AgencyAndId getRoute() {
-        return stateData.route;
+        return transit.route;
     }
 
     public int getNumBoardings() {
-        return stateData.numBoardings;
+        return transit.numBoardings;
     }
 
 
@@ -261,7 +266,7 @@ public class State implements Cloneable {
      * transit vehicle
      */
     public boolean isEverBoarded() {
-        return stateData.everBoarded;
+        return transit.everBoarded;
     }
 
     public boolean isBikeRenting() {
@@ -307,11 +312,11 @@ public class State implements Cloneable {
     }
 
     public Stop getPreviousStop() {
-        return stateData.previousStop;
+        return transit.previousStop;
     }
 
     public long getLastAlightedTimeSeconds() {
-        return stateData.lastAlightedTime;
+        return transit.lastAlightedTime;
     }
 
     public double getWalkDistance() {
@@ -323,7 +328,7 @@ public class State implements Cloneable {
     }
 
     public int getCallAndRideTime() {
-        return callAndRideTime;
+        return transit.callAndRideTime;
     }
 
     public Vertex getVertex() {
@@ -331,7 +336,7 @@ public class State implements Cloneable {
     }
 
     public int getLastNextArrivalDelta () {
-        return stateData.lastNextArrivalDelta;
+        return transit.lastNextArrivalDelta;
     }
 
     public double getWeight() {
@@ -380,11 +385,11 @@ public class State implements Cloneable {
     }
     
     public TraverseMode getBackMode () {
-        return stateData.backMode;
+        return backMode;
     }
     
     public boolean isBackWalkingBike () {
-        return stateData.backWalkingBike;
+        return backWalkingBike;
     }
 
     /**
@@ -395,7 +400,7 @@ public class State implements Cloneable {
         // This can happen when stop_headsign says different things at two trips on the same 
         // pattern and at the same stop.
         if (backEdge instanceof TablePatternEdge) {
-            return stateData.tripTimes.getHeadsign(((TablePatternEdge)backEdge).getStopIndex());
+            return transit.tripTimes.getHeadsign(((TablePatternEdge)backEdge).getStopIndex());
         }
         else {
             return backEdge.getDirection();
@@ -408,7 +413,7 @@ public class State implements Cloneable {
      */
     public Trip getBackTrip () {
         if (backEdge instanceof TablePatternEdge || backEdge instanceof PatternInterlineDwell) {
-            return stateData.tripTimes.trip;
+            return transit.tripTimes.trip;
         } else {
             return backEdge != null ? backEdge.getTrip() : null;
         }
@@ -492,8 +497,10 @@ public class State implements Cloneable {
         // We no longer compensate for schedule slack (minTransferTime) here.
         // It is distributed symmetrically over all preboard and prealight edges.
         State newState = new State(this.vertex, getTimeSeconds(), stateData.opt.reversedClone());
-        newState.stateData.tripTimes = stateData.tripTimes;
-        newState.stateData.initialWaitTime = stateData.initialWaitTime;
+        TransitStateData reversedTransit = TransitStateData.EMPTY.clone();
+        reversedTransit.tripTimes = transit.tripTimes;
+        reversedTransit.initialWaitTime = transit.initialWaitTime;
+        newState.transit = reversedTransit;
         // TODO Check if those two lines are needed:
         newState.stateData.usingRentedBike = stateData.usingRentedBike;
         newState.stateData.carParked = stateData.carParked;
@@ -517,8 +524,8 @@ public class State implements Cloneable {
 
     // symmetric prefix check
     public boolean routeSequencePrefix (State that) {
-        AgencyAndId[] rs0 = this.stateData.routeSequence;
-        AgencyAndId[] rs1 = that.stateData.routeSequence;
+        AgencyAndId[] rs0 = this.transit.routeSequence;
+        AgencyAndId[] rs1 = that.transit.routeSequence;
         if (rs0 == rs1)
             return true;
         int n = rs0.length < rs1.length ? rs0.length : rs1.length;
@@ -530,8 +537,8 @@ public class State implements Cloneable {
 
     // symmetric subset check
     public boolean routeSequenceSubsetSymmetric (State that) {
-        AgencyAndId[] rs0 = this.stateData.routeSequence;
-        AgencyAndId[] rs1 = that.stateData.routeSequence;
+        AgencyAndId[] rs0 = this.transit.routeSequence;
+        AgencyAndId[] rs1 = that.transit.routeSequence;
         if (rs0 == rs1)
             return true;
         AgencyAndId[] shorter, longer;
@@ -558,8 +565,8 @@ public class State implements Cloneable {
 
     // subset check: is this a subset of that?
     public boolean routeSequenceSubset (State that) {
-        AgencyAndId[] rs0 = this.stateData.routeSequence;
-        AgencyAndId[] rs1 = that.stateData.routeSequence;
+        AgencyAndId[] rs0 = this.transit.routeSequence;
+        AgencyAndId[] rs1 = that.transit.routeSequence;
         if (rs0 == rs1) return true;
         if (rs0.length > rs1.length) return false;
         /* bad complexity, but these are tiny arrays */
@@ -581,11 +588,11 @@ public class State implements Cloneable {
     }
 
     public double getWalkSinceLastTransit() {
-        return walkDistance - stateData.lastTransitWalk;
+        return walkDistance - transit.lastTransitWalk;
     }
 
     public double getWalkAtLastTransit() {
-        return stateData.lastTransitWalk;
+        return transit.lastTransitWalk;
     }
 
     public boolean multipleOptionsBefore() {
@@ -633,27 +640,17 @@ public class State implements Cloneable {
         return foundAlternatePaths;
     }
     
-    public String getPathParserStates() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("( ");
-        for (int i : pathParserStates) {
-            sb.append(String.format("%02d ", i));
-        }
-        sb.append(")");
-        return sb.toString();
-    }
-
     /** @return the last TripPattern used in this path (which is set when leaving the vehicle). */
     public TripPattern getLastPattern() {
-        return stateData.lastPattern;
+        return transit.lastPattern;
     }
 
     public boolean isLastBoardAlightDeviated() {
-        return stateData.isLastBoardAlightDeviated;
+        return transit.isLastBoardAlightDeviated;
     }
 
     public ServiceDay getServiceDay() {
-        return stateData.serviceDay;
+        return transit.serviceDay;
     }
 
     public Set<String> getBikeRentalNetworks() {
@@ -677,7 +674,7 @@ public class State implements Cloneable {
         State orig = this;
         State unoptimized = orig;
         State ret = orig.reversedClone();
-        long newInitialWaitTime = this.stateData.initialWaitTime;
+        long newInitialWaitTime = this.transit.initialWaitTime;
 
         Edge edge = null;
 
@@ -700,7 +697,7 @@ public class State implements Cloneable {
                     ) {
 
                     ret = ((TransitBoardAlight) edge).traverse(ret, orig.getBackState().getTimeSeconds());
-                    newInitialWaitTime = ret.stateData.initialWaitTime;
+                    newInitialWaitTime = ret.transit.initialWaitTime;
                 } else {
                     ret = edge.traverse(ret);
                 }
@@ -796,18 +793,14 @@ public class State implements Cloneable {
             if (getTimeSeconds() != reversed.getTimeSeconds())
                 LOG.warn("Times do not match");
             if (Math.abs(getWeight() - reversed.getWeight()) > 1
-                    && newInitialWaitTime == stateData.initialWaitTime)
+                    && newInitialWaitTime == transit.initialWaitTime)
                 LOG.warn("Weight is changed (before: " + getWeight() + ", after: "
                         + reversed.getWeight() + "), initial wait times " + "constant at "
                         + newInitialWaitTime);
-            if (newInitialWaitTime != reversed.stateData.initialWaitTime)
+            if (newInitialWaitTime != reversed.transit.initialWaitTime)
                 LOG.warn("Initial wait time not propagated: is "
-                        + reversed.stateData.initialWaitTime + ", should be " + newInitialWaitTime);
+                        + reversed.transit.initialWaitTime + ", should be " + newInitialWaitTime);
 
-            // copy the path parser states so this path is not thrown out going forward
-//            reversed.pathParserStates = 
-//                    Arrays.copyOf(this.pathParserStates, this.pathParserStates.length, newLength);
-            
             // copy things that didn't get copied
             reversed.initializeFieldsFrom(this);
             return reversed;
@@ -835,13 +828,17 @@ public class State implements Cloneable {
      * @param o The other state to initialize things from.
      */
     private void initializeFieldsFrom (State o) {
-        StateData currentStateData = this.stateData;
+        long initialWaitTime = this.transit.initialWaitTime;
         
         // easier to clone and copy back, plus more future proof
         this.stateData = o.stateData.clone();
-        this.stateData.initialWaitTime = currentStateData.initialWaitTime;
+        this.transit = o.transit.clone();
+        this.transit.initialWaitTime = initialWaitTime;
         // this will get re-set on the next alight (or board in a reverse search)
-        this.stateData.lastNextArrivalDelta = -1;
+        this.transit.lastNextArrivalDelta = -1;
+        this.backMode = o.backMode;
+        this.backWalkingBike = o.backWalkingBike;
+        this.enteredNoThroughTrafficArea = o.enteredNoThroughTrafficArea;
     }
 
     public boolean getReverseOptimizing () {
@@ -849,11 +846,11 @@ public class State implements Cloneable {
     }
 
     public double getOptimizedElapsedTimeSeconds() {
-        return getElapsedTimeSeconds() - stateData.initialWaitTime;
+        return getElapsedTimeSeconds() - transit.initialWaitTime;
     }
 
     public boolean hasEnteredNoThruTrafficArea() {
-        return stateData.enteredNoThroughTrafficArea;
+        return enteredNoThroughTrafficArea;
     }
 
 }
\ No newline at end of file
@@ -43,6 +43,8 @@ public class StateEditor {
 
     private boolean extensionsModified = false;
 
+    private boolean transitDataCloned = false;
+
     private boolean spawned = false;
 
     private boolean defectiveTraversal = false;
@@ -247,34 +249,30 @@ public class StateEditor {
             defectiveTraversal = true;
             return;
         }
-        child.callAndRideTime += seconds;
+        transitData().callAndRideTime += seconds;
     }
 
     public void incrementNumBoardings() {
-        cloneStateDataAsNeeded();
-        child.stateData.numBoardings++;
+        transitData().numBoardings++;
         setEverBoarded(true);
     }
 
     /* Basic Setters */
 
     public void setTripTimes(TripTimes tripTimes) {
-        cloneStateDataAsNeeded();
-        child.stateData.tripTimes = tripTimes;
+        transitData().tripTimes = tripTimes;
     }
 
     public void setTripId(AgencyAndId tripId) {
-        cloneStateDataAsNeeded();
-        child.stateData.tripId = tripId;
+        transitData().tripId = tripId;
     }
 
     public void setPreviousTrip(Trip previousTrip) {
-        cloneStateDataAsNeeded();
-        child.stateData.previousTrip = previousTrip;
+        transitData().previousTrip = previousTrip;
     }
 
     public void setEnteredNoThroughTrafficArea() {
-        child.stateData.enteredNoThroughTrafficArea = true;
+        child.enteredNoThroughTrafficArea = true;
     }
     
     /**
@@ -282,24 +280,15 @@ public class StateEditor {
      * This happens in Analyst.
      */
     public void setInitialWaitTimeSeconds(long initialWaitTimeSeconds) {
-        cloneStateDataAsNeeded();
-        child.stateData.initialWaitTime = initialWaitTimeSeconds;
+        transitData().initialWaitTime = initialWaitTimeSeconds;
     }
     
     public void setBackMode(TraverseMode mode) {
-        if (mode == child.stateData.backMode)
-            return;
-        
-        cloneStateDataAsNeeded();
-        child.stateData.backMode = mode;
+        child.backMode = mode;
     }
 
     public void setBackWalkingBike (boolean walkingBike) {
-        if (walkingBike == child.stateData.backWalkingBike)
-            return;
-        
-        cloneStateDataAsNeeded();
-        child.stateData.backWalkingBike = walkingBike;
+        child.backWalkingBike = walkingBike;
     }
 
     /** 
@@ -307,8 +296,7 @@ public class StateEditor {
      * the planner used and the arrival of the trip after that.
      */
     public void setLastNextArrivalDelta (int lastNextArrivalDelta) {
-        cloneStateDataAsNeeded();
-        child.stateData.lastNextArrivalDelta = lastNextArrivalDelta;
+        transitData().lastNextArrivalDelta = lastNextArrivalDelta;
     }
 
     public void setWalkDistance(double walkDistance) {
@@ -321,39 +309,34 @@ public class StateEditor {
 
     public void setZone(String zone) {
         if (zone == null) {
-            if (child.stateData.zone != null) {
-                cloneStateDataAsNeeded();
-                child.stateData.zone = zone;
+            if (child.transit.zone != null) {
+                transitData().zone = zone;
             }
-        } else if (!zone.equals(child.stateData.zone)) {
-            cloneStateDataAsNeeded();
-            child.stateData.zone = zone;
+        } else if (!zone.equals(child.transit.zone)) {
+            transitData().zone = zone;
         }
     }
 
     public void setRoute(AgencyAndId routeId) {
-        cloneStateDataAsNeeded();
-        child.stateData.route = routeId;
+        TransitStateData transit = transitData();
+        transit.route = routeId;
         // unlike tripId, routeId is not set to null when alighting
         // but do a null check anyway
         if (routeId != null) {
-            AgencyAndId[] oldRouteSequence = child.stateData.routeSequence;
+            AgencyAndId[] oldRouteSequence = transit.routeSequence;
             //LOG.debug("old route seq {}", Arrays.asList(oldRouteSequence));
             int oldLength = oldRouteSequence.length;
-            child.stateData.routeSequence = Arrays.copyOf(oldRouteSequence, oldLength + 1);
-            child.stateData.routeSequence[oldLength] = routeId;
-            //LOG.debug("new route seq {}", Arrays.asList(child.stateData.routeSequence)); // array will be interpreted as varargs
+            transit.routeSequence = Arrays.copyOf(oldRouteSequence, oldLength + 1);
+            transit.routeSequence[oldLength] = routeId;
         }
     }
 
     public void setNumBoardings(int numBoardings) {
-        cloneStateDataAsNeeded();
-        child.stateData.numBoardings = numBoardings;
+        transitData().numBoardings = numBoardings;
     }
 
     public void setEverBoarded(boolean everBoarded) {
-        cloneStateDataAsNeeded();
-        child.stateData.everBoarded = true;
+        transitData().everBoarded = true;
     }
 
     public void setBikeRenting(boolean bikeRenting) {
@@ -392,13 +375,11 @@ public class StateEditor {
     }
 
     public void setPreviousStop(Stop previousStop) {
-        cloneStateDataAsNeeded();
-        child.stateData.previousStop = previousStop;
+        transitData().previousStop = previousStop;
     }
 
     public void setLastAlightedTimeSeconds(long lastAlightedTimeSeconds) {
-        cloneStateDataAsNeeded();
-        child.stateData.lastAlightedTime = lastAlightedTimeSeconds;
+        transitData().lastAlightedTime = lastAlightedTimeSeconds;
     }
 
     public void setTimeSeconds(long seconds) {
@@ -417,14 +398,14 @@ public class StateEditor {
      * @param state
      */
     public void setFromState(State state) {
-        cloneStateDataAsNeeded();
-        child.stateData.route = state.stateData.route;
-        child.stateData.tripTimes = state.stateData.tripTimes;
-        child.stateData.tripId = state.stateData.tripId;
-        child.stateData.serviceDay = state.stateData.serviceDay;
-        child.stateData.previousTrip = state.stateData.previousTrip;
-        child.stateData.previousStop = state.stateData.previousStop;
-        child.stateData.zone = state.stateData.zone;
+        TransitStateData transit = transitData();
+        transit.route = state.transit.route;
+        transit.tripTimes = state.transit.tripTimes;
+        transit.tripId = state.transit.tripId;
+        transit.serviceDay = state.transit.serviceDay;
+        transit.previousTrip = state.transit.previousTrip;
+        transit.previousStop = state.transit.previousStop;
+        transit.zone = state.transit.zone;
         child.stateData.extensions = state.stateData.extensions;
         child.stateData.usingRentedBike = state.stateData.usingRentedBike;
         child.stateData.carParked = state.stateData.carParked;
@@ -518,20 +499,30 @@ public class StateEditor {
             child.stateData = child.stateData.clone();
     }
 
+    /**
+     * To be called before modifying anything in the transit part of the child's state. The transit data is shared
+     * with earlier states (or is the shared empty instance), so it is copied the first time it is modified. It is
+     * held by the state itself, so the rest of the state data stays shared.
+     */
+    private TransitStateData transitData() {
+        if (!transitDataCloned) {
+            child.transit = child.transit.clone();
+            transitDataCloned = true;
+        }
+        return child.transit;
+    }
+
     public void alightTransit() {
-        cloneStateDataAsNeeded();
-        child.stateData.lastTransitWalk = child.getWalkDistance();
+        transitData().lastTransitWalk = child.getWalkDistance();
     }
 
     public void setLastPattern(TripPattern pattern) {
-        cloneStateDataAsNeeded();
-        child.stateData.lastPattern = pattern;
+        transitData().lastPattern = pattern;
     }
 
 
     public void setIsLastBoardAlightDeviated(boolean isLastBoardAlightDeviated) {
-        cloneStateDataAsNeeded();
-        child.stateData.isLastBoardAlightDeviated = isLastBoardAlightDeviated;
+        transitData().isLastBoardAlightDeviated = isLastBoardAlightDeviated;
     }
 
     public void setOptions(RoutingRequest options) {
@@ -540,8 +531,7 @@ public class StateEditor {
     }
 
     public void setServiceDay(ServiceDay day) {
-        cloneStateDataAsNeeded();
-        child.stateData.serviceDay = day;
+        transitData().serviceDay = day;
     }
 
     public void setBikeRentalNetwork(Set<String> networks) {
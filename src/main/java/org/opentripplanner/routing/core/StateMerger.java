@@ -8,25 +8,36 @@ package org.opentripplanner.routing.core;
 public class StateMerger {
 
 
-    public static StateData merge(StateData firstState, StateData nextState) {
+    /**
+     * Give the last state of a path the state data of the first state of the path joined to it, keeping the transit
+     * data and back mode of the former if it has boarded.
+     */
+    public static void merge(State firstState, State nextState) {
 
-        StateData merged = nextState.clone();
-        if (firstState.everBoarded) {
-            merged.tripTimes = firstState.tripTimes;
-            merged.tripId = firstState.tripId;
-            merged.everBoarded = firstState.everBoarded;
-            merged.numBoardings = firstState.numBoardings;
-            merged.previousTrip = firstState.previousTrip;
-            merged.lastAlightedTime = firstState.lastAlightedTime;
-            merged.lastPattern = firstState.lastPattern;
-            merged.zone = firstState.zone;
-            merged.route = firstState.route;
-            merged.previousStop = firstState.previousStop;
-            merged.routeSequence = firstState.routeSequence;
-            merged.serviceDay = firstState.serviceDay;
-            merged.backMode = firstState.backMode;
+        boolean boarded = firstState.transit.everBoarded;
+        TransitStateData transit = nextState.transit;
+        if (boarded) {
+            transit = nextState.transit.clone();
+            transit.tripTimes = firstState.transit.tripTimes;
+            transit.tripId = firstState.transit.tripId;
+            transit.everBoarded = firstState.transit.everBoarded;
+            transit.numBoardings = firstState.transit.numBoardings;
+            transit.previousTrip = firstState.transit.previousTrip;
+            transit.lastAlightedTime = firstState.transit.lastAlightedTime;
+            transit.lastPattern = firstState.transit.lastPattern;
+            transit.zone = firstState.transit.zone;
+            transit.route = firstState.transit.route;
+            transit.previousStop = firstState.transit.previousStop;
+            transit.routeSequence = firstState.transit.routeSequence;
+            transit.serviceDay = firstState.transit.serviceDay;
         }
-        return merged;
+        firstState.stateData = nextState.stateData.clone();
+        firstState.transit = transit;
+        if (!boarded) {
+            firstState.backMode = nextState.backMode;
+        }
+        firstState.backWalkingBike = nextState.backWalkingBike;
+        firstState.enteredNoThroughTrafficArea = nextState.enteredNoThroughTrafficArea;
     }
 
 
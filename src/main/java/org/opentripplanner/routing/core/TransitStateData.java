@@ -0,0 +1,72 @@
+package org.opentripplanner.routing.core;
+
+import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.routing.edgetype.TripPattern;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+/**
+ * The components of search state that only change when riding transit. A single empty instance is shared by all
+ * states that have not boarded yet, and each instance is shared by all the states following it until the next
+ * transit event. Instances are never modified once a state referencing them has been made: StateEditor copies
+ * them before the first change.
+ */
+class TransitStateData implements Cloneable {
+
+    static final TransitStateData EMPTY = new TransitStateData();
+
+    // which trip index inside a pattern
+    TripTimes tripTimes;
+
+    AgencyAndId tripId;
+
+    Trip previousTrip;
+
+    double lastTransitWalk = 0;
+
+    String zone;
+
+    AgencyAndId route;
+
+    int numBoardings;
+
+    boolean everBoarded;
+
+    Stop previousStop;
+
+    long lastAlightedTime;
+
+    AgencyAndId[] routeSequence = new AgencyAndId[0];
+
+    TripPattern lastPattern;
+
+    boolean isLastBoardAlightDeviated = false;
+
+    ServiceDay serviceDay;
+
+    /**
+     * This is the wait time at the beginning of the trip (or at the end of the trip for
+     * reverse searches). In Analyst anyhow, this is is subtracted from total trip length of each
+     * final State in lieu of reverse optimization. It is initially set to zero so that it will be
+     * ineffectual on a search that does not ever board a transit vehicle.
+     */
+    long initialWaitTime = 0;
+
+    /**
+     * This is the time between the trip that was taken at the previous stop and the next trip
+     * that could have been taken. It is used to determine if a path needs reverse-optimization.
+     */
+    int lastNextArrivalDelta;
+
+    // The time spent in call-and-ride (flexible transit) vehicles
+    int callAndRideTime = 0;
+
+    protected TransitStateData clone() {
+        try {
+            return (TransitStateData) super.clone();
+        } catch (CloneNotSupportedException e1) {
+            throw new IllegalStateException("This is not happening");
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.opentripplanner.common.model.P2;
 import org.opentripplanner.routing.core.*;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SharedStreetData;
 import org.opentripplanner.routing.util.ElevationUtils;
 import org.opentripplanner.routing.vertextype.BarrierVertex;
 import org.opentripplanner.routing.vertextype.IntersectionVertex;
@@ -680,6 +681,16 @@ public class StreetEdge extends Edge implements Cloneable {
 		return CompactLineString.uncompackLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), compactGeometry, isBack());
 	}
 
+	@Override
+	public void appendCoordinates(CoordinateSink sink) {
+		CompactLineString.appendCoordinates(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), compactGeometry, isBack(), sink);
+	}
+
+	@Override
+	public void appendDisplayCoordinates(CoordinateSink sink) {
+		appendCoordinates(sink);
+	}
+
 	private void setGeometry(LineString geometry) {
 		this.compactGeometry = CompactLineString.compackLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), isBack() ? (LineString)geometry.reverse() : geometry, isBack());
 	}
@@ -692,6 +703,12 @@ public class StreetEdge extends Edge implements Cloneable {
 	    }
 	}
 
+	/** Use the geometry and name already loaded with another graph, if any. */
+	public void shareData(SharedStreetData shared) {
+	    compactGeometry = shared.share(compactGeometry);
+	    name = shared.share(name);
+	}
+
 	public boolean isWheelchairAccessible() {
 		return BitSetUtils.get(flags, WHEELCHAIR_ACCESSIBLE_FLAG_INDEX);
 	}
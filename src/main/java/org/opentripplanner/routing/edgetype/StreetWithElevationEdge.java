@@ -15,6 +15,7 @@ package org.opentripplanner.routing.edgetype;
 
 import org.opentripplanner.common.geometry.CompactElevationProfile;
 import org.opentripplanner.common.geometry.PackedCoordinateSequence;
+import org.opentripplanner.routing.graph.SharedStreetData;
 import org.opentripplanner.routing.util.ElevationUtils;
 import org.opentripplanner.routing.util.SlopeCosts;
 import org.opentripplanner.routing.vertextype.StreetVertex;
@@ -81,6 +82,12 @@ public class StreetWithElevationEdge extends StreetEdge {
         return costs.flattened;
     }
 
+    @Override
+    public void shareData(SharedStreetData shared) {
+        super.shareData(shared);
+        packedElevationProfile = shared.share(packedElevationProfile);
+    }
+
     @Override
     public PackedCoordinateSequence getElevationProfile() {
         return CompactElevationProfile.uncompactElevationProfileWithRegularSamples(
@@ -33,17 +33,15 @@ import org.opentripplanner.routing.graph.GraphIndex;
 import org.opentripplanner.routing.trippattern.FrequencyEntry;
 import org.opentripplanner.routing.trippattern.RealTimeState;
 import org.opentripplanner.routing.trippattern.TripTimes;
+import org.opentripplanner.updater.siri.EstimatedJourney;
+import org.opentripplanner.updater.siri.EstimatedJourneyCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.org.siri.siri20.ArrivalBoardingActivityEnumeration;
 import uk.org.siri.siri20.CallStatusEnumeration;
 import uk.org.siri.siri20.DepartureBoardingActivityEnumeration;
-import uk.org.siri.siri20.EstimatedCall;
-import uk.org.siri.siri20.EstimatedVehicleJourney;
 import uk.org.siri.siri20.MonitoredCallStructure;
 import uk.org.siri.siri20.MonitoredVehicleJourneyStructure;
-import uk.org.siri.siri20.NaturalLanguageStringStructure;
-import uk.org.siri.siri20.RecordedCall;
 import uk.org.siri.siri20.VehicleActivityStructure;
 
 import javax.xml.datatype.Duration;
@@ -52,6 +50,7 @@ import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -110,6 +109,12 @@ public class Timetable implements Serializable {
      */
     private transient int minTime, maxTime;
 
+    /**
+     * For each stop, the trips stopping there sorted on their departure from it. Built on first use by departure
+     * searches that binary-search the trips, and rebuilt whenever the trips of this timetable change.
+     */
+    private transient volatile DepartureIndex departureIndex;
+
     /**
      * Construct an empty Timetable.
      */
@@ -373,6 +378,7 @@ public class Timetable implements Serializable {
      * actions to compact the data structure such as trimming and deduplicating arrays.
      */
     public void finish() {
+        departureIndex = null;
         int nStops = pattern.stopPattern.size;
         int nHops = nStops - 1;
         /* Find lower bounds on dwell and running times at each stop. */
@@ -475,9 +481,67 @@ public class Timetable implements Serializable {
      * @return old trip times of trip
      */
     public TripTimes setTripTimes(int tripIndex, TripTimes tt) {
+        departureIndex = null;
         return tripTimes.set(tripIndex, tt);
     }
 
+    /**
+     * @return the trips of this timetable that stop at the given stop, sorted on their departure time from it. Trips
+     * with the same departure time keep their order in tripTimes. Frequency entries are not included.
+     */
+    public TripTimes[] getTripsByDeparture(int stopIndex) {
+        return getDepartureIndex().trips[stopIndex];
+    }
+
+    /**
+     * @return the departure times from the given stop of the trips returned by getTripsByDeparture, in the same
+     * (ascending) order.
+     */
+    public int[] getSortedDepartureTimes(int stopIndex) {
+        return getDepartureIndex().departures[stopIndex];
+    }
+
+    /**
+     * The index is dropped by the methods changing the trips. Some callers add or remove trips through the tripTimes
+     * list directly, so an index built for a different number of trips is rebuilt as well.
+     */
+    private DepartureIndex getDepartureIndex() {
+        DepartureIndex index = departureIndex;
+        if (index == null || index.nTrips != tripTimes.size()) {
+            index = new DepartureIndex(tripTimes.toArray(new TripTimes[0]), pattern.stopPattern.size);
+            departureIndex = index;
+        }
+        return index;
+    }
+
+    private static class DepartureIndex {
+
+        final int nTrips;
+
+        final TripTimes[][] trips;
+
+        final int[][] departures;
+
+        DepartureIndex(TripTimes[] allTrips, int nStops) {
+            nTrips = allTrips.length;
+            trips = new TripTimes[nStops][];
+            departures = new int[nStops][];
+            for (int s = 0; s < nStops; s++) {
+                final int stop = s;
+                // Object sorts are stable, so equal departures keep the order of the trips.
+                TripTimes[] stopping = Arrays.stream(allTrips)
+                        .filter(tt -> tt.getNumStops() > stop)
+                        .sorted(Comparator.comparingInt(tt -> tt.getDepartureTime(stop)))
+                        .toArray(TripTimes[]::new);
+                trips[s] = stopping;
+                departures[s] = new int[stopping.length];
+                for (int i = 0; i < stopping.length; i++) {
+                    departures[s][i] = stopping[i].getDepartureTime(s);
+                }
+            }
+        }
+    }
+
     /**
      * Apply the TripUpdate to the appropriate TripTimes from this Timetable. The existing TripTimes
      * must not be modified directly because they may be shared with the underlying
@@ -663,7 +727,7 @@ public class Timetable implements Serializable {
      * with the id specified in the trip descriptor of the TripUpdate; null if something
      * went wrong
      */
-    public TripTimes createUpdatedTripTimes(final Graph graph, EstimatedVehicleJourney journey, TimeZone timeZone, AgencyAndId tripId) {
+    public TripTimes createUpdatedTripTimes(final Graph graph, EstimatedJourney journey, TimeZone timeZone, AgencyAndId tripId) {
         if (journey == null) {
             return null;
         }
@@ -677,21 +741,13 @@ public class Timetable implements Serializable {
         final TripTimes existingTripTimes = getTripTimes(tripIndex);
         TripTimes oldTimes = new TripTimes(existingTripTimes);
 
-        EstimatedVehicleJourney.EstimatedCalls journeyEstimatedCalls = journey.getEstimatedCalls();
-        EstimatedVehicleJourney.RecordedCalls journeyRecordedCalls = journey.getRecordedCalls();
+        List<EstimatedJourneyCall> estimatedCalls = journey.getEstimatedCalls();
+        List<EstimatedJourneyCall> recordedCalls = journey.getRecordedCalls();
 
-        if (journeyEstimatedCalls == null) {
+        if (estimatedCalls.isEmpty()) {
             return null;
         }
 
-        List<EstimatedCall> estimatedCalls = journeyEstimatedCalls.getEstimatedCalls();
-        List<RecordedCall> recordedCalls;
-        if (journeyRecordedCalls != null) {
-            recordedCalls = journeyRecordedCalls.getRecordedCalls();
-        } else {
-            recordedCalls = new ArrayList<>();
-        }
-
         boolean stopPatternChanged = false;
 
         Stop[] modifiedStops = pattern.stopPattern.stops;
@@ -711,7 +767,7 @@ public class Timetable implements Serializable {
         ZonedDateTime departureDate = null;
         Set<Object> alreadyVisited = new HashSet<>();
 
-        boolean isJourneyPredictionInaccurate =  (journey.isPredictionInaccurate() != null && journey.isPredictionInaccurate());
+        boolean isJourneyPredictionInaccurate = journey.isPredictionInaccurate();
 
         int departureFromPreviousStop = 0;
         int lastArrivalDelay = 0;
@@ -719,15 +775,15 @@ public class Timetable implements Serializable {
         for (Stop stop : modifiedStops) {
             boolean foundMatch = false;
 
-            for (RecordedCall recordedCall : recordedCalls) {
+            for (EstimatedJourneyCall recordedCall : recordedCalls) {
                 if (alreadyVisited.contains(recordedCall)) {
                     continue;
                 }
                 //Current stop is being updated
-                foundMatch = stop.getId().getId().equals(recordedCall.getStopPointRef().getValue());
+                foundMatch = stop.getId().getId().equals(recordedCall.getStopPointRef());
 
                 if (!foundMatch && stop.getParentStation() != null) {
-                    Stop alternativeStop = graph.index.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), recordedCall.getStopPointRef().getValue()));
+                    Stop alternativeStop = graph.index.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), recordedCall.getStopPointRef()));
                     if (alternativeStop != null && stop.getParentStation().equals(alternativeStop.getParentStation())) {
                         foundMatch = true;
                         stopPatternChanged = true;
@@ -795,15 +851,15 @@ public class Timetable implements Serializable {
                 }
             }
             if (!foundMatch) {
-                for (EstimatedCall estimatedCall : estimatedCalls) {
+                for (EstimatedJourneyCall estimatedCall : estimatedCalls) {
                     if (alreadyVisited.contains(estimatedCall)) {
                         continue;
                     }
                     //Current stop is being updated
-                    foundMatch = stop.getId().getId().equals(estimatedCall.getStopPointRef().getValue());
+                    foundMatch = stop.getId().getId().equals(estimatedCall.getStopPointRef());
 
                     if (!foundMatch && stop.getParentStation() != null) {
-                        Stop alternativeStop = graph.index.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), estimatedCall.getStopPointRef().getValue()));
+                        Stop alternativeStop = graph.index.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), estimatedCall.getStopPointRef()));
                         if (alternativeStop != null && stop.getParentStation().equals(alternativeStop.getParentStation())) {
                             foundMatch = true;
                             stopPatternChanged = true;
@@ -822,7 +878,7 @@ public class Timetable implements Serializable {
                             newTimes.setCancelledStop(callCounter, estimatedCall.isCancellation());
                         }
 
-                        boolean isCallPredictionInaccurate = estimatedCall.isPredictionInaccurate() != null && estimatedCall.isPredictionInaccurate();
+                        boolean isCallPredictionInaccurate = estimatedCall.isPredictionInaccurate();
 
                         // Set flag for inaccurate prediction if either call OR journey has inaccurate-flag set.
                         newTimes.setPredictionInaccurate(callCounter, (isJourneyPredictionInaccurate | isCallPredictionInaccurate));
@@ -919,7 +975,7 @@ public class Timetable implements Serializable {
         }
 
         if (!newTimes.timesIncreasing()) {
-            LOG.info("TripTimes are non-increasing after applying SIRI delay propagation - LineRef {}, TripId {}.", journey.getLineRef().getValue(), tripId);
+            LOG.info("TripTimes are non-increasing after applying SIRI delay propagation - LineRef {}, TripId {}.", journey.getLineRef(), tripId);
             return null;
         }
 
@@ -942,27 +998,18 @@ public class Timetable implements Serializable {
      * with the id specified in the trip descriptor of the TripUpdate; null if something
      * went wrong
      */
-    public List<Stop> createModifiedStops(EstimatedVehicleJourney journey, GraphIndex graphIndex) {
+    public List<Stop> createModifiedStops(EstimatedJourney journey, GraphIndex graphIndex) {
         if (journey == null) {
             return null;
         }
 
-        EstimatedVehicleJourney.EstimatedCalls journeyEstimatedCalls = journey.getEstimatedCalls();
-        EstimatedVehicleJourney.RecordedCalls journeyRecordedCalls = journey.getRecordedCalls();
+        List<EstimatedJourneyCall> estimatedCalls = journey.getEstimatedCalls();
+        List<EstimatedJourneyCall> recordedCalls = journey.getRecordedCalls();
 
-        if (journeyEstimatedCalls == null) {
+        if (estimatedCalls.isEmpty()) {
             return null;
         }
 
-        List<EstimatedCall> estimatedCalls = journeyEstimatedCalls.getEstimatedCalls();
-
-        List<RecordedCall> recordedCalls;
-        if (journeyRecordedCalls != null) {
-            recordedCalls = journeyRecordedCalls.getRecordedCalls();
-        } else {
-            recordedCalls = new ArrayList<>();
-        }
-
         //Get all scheduled stops
         Stop[] stops = pattern.stopPattern.stops;
 
@@ -975,15 +1022,15 @@ public class Timetable implements Serializable {
 
             boolean foundMatch = false;
             if (i < recordedCalls.size()) {
-                for (RecordedCall recordedCall : recordedCalls) {
+                for (EstimatedJourneyCall recordedCall : recordedCalls) {
                     if (alreadyVisited.contains(recordedCall)) {
                         continue;
                     }
                     //Current stop is being updated
-                    boolean stopsMatchById = stop.getId().getId().equals(recordedCall.getStopPointRef().getValue());
+                    boolean stopsMatchById = stop.getId().getId().equals(recordedCall.getStopPointRef());
 
                     if (!stopsMatchById && stop.getParentStation() != null) {
-                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), recordedCall.getStopPointRef().getValue()));
+                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), recordedCall.getStopPointRef()));
                         if (alternativeStop != null && stop.getParentStation().equals(alternativeStop.getParentStation())) {
                             stopsMatchById = true;
                             stop = alternativeStop;
@@ -998,17 +1045,17 @@ public class Timetable implements Serializable {
                     }
                 }
             } else {
-                for (EstimatedCall estimatedCall : estimatedCalls) {
+                for (EstimatedJourneyCall estimatedCall : estimatedCalls) {
 
                     if (alreadyVisited.contains(estimatedCall)) {
                         continue;
                     }
 
                     //Current stop is being updated
-                    boolean stopsMatchById = stop.getId().getId().equals(estimatedCall.getStopPointRef().getValue());
+                    boolean stopsMatchById = stop.getId().getId().equals(estimatedCall.getStopPointRef());
 
                     if (!stopsMatchById && stop.getParentStation() != null) {
-                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), estimatedCall.getStopPointRef().getValue()));
+                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), estimatedCall.getStopPointRef()));
                         if (alternativeStop != null && stop.getParentStation().equals(alternativeStop.getParentStation())) {
                             stopsMatchById = true;
                             stop = alternativeStop;
@@ -1044,22 +1091,18 @@ public class Timetable implements Serializable {
      * with the id specified in the trip descriptor of the TripUpdate; null if something
      * went wrong
      */
-    public List<StopTime> createModifiedStopTimes(TripTimes oldTimes, EstimatedVehicleJourney journey, Trip trip, GraphIndex graphIndex) {
+    public List<StopTime> createModifiedStopTimes(TripTimes oldTimes, EstimatedJourney journey, Trip trip, GraphIndex graphIndex) {
         if (journey == null) {
             return null;
         }
 
-        EstimatedVehicleJourney.EstimatedCalls journeyCalls = journey.getEstimatedCalls();
+        List<EstimatedJourneyCall> estimatedCalls = journey.getEstimatedCalls();
+        List<EstimatedJourneyCall> recordedCalls = journey.getRecordedCalls();
 
-        if (journeyCalls == null) {
+        if (estimatedCalls.isEmpty()) {
             return null;
         }
 
-        EstimatedVehicleJourney.RecordedCalls recordedCallsList = journey.getRecordedCalls();
-
-        List<EstimatedCall> estimatedCalls = journeyCalls.getEstimatedCalls();
-        List<RecordedCall> recordedCalls = recordedCallsList != null ? recordedCallsList.getRecordedCalls():new ArrayList<>();
-
         List<Stop> stops = createModifiedStops(journey, graphIndex);
 
         List<StopTime> modifiedStops = new ArrayList<>();
@@ -1086,7 +1129,7 @@ public class Timetable implements Serializable {
 
             boolean foundMatch = false;
             if (i < recordedCalls.size()) {
-                for (RecordedCall recordedCall : recordedCalls) {
+                for (EstimatedJourneyCall recordedCall : recordedCalls) {
                     if (alreadyVisited.contains(recordedCall)) {
                         continue;
                     }
@@ -1095,10 +1138,10 @@ public class Timetable implements Serializable {
                     }
 
                     //Current stop is being updated
-                    boolean stopsMatchById = stop.getId().getId().equals(recordedCall.getStopPointRef().getValue());
+                    boolean stopsMatchById = stop.getId().getId().equals(recordedCall.getStopPointRef());
 
                     if (!stopsMatchById && stop.getParentStation() != null) {
-                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), recordedCall.getStopPointRef().getValue()));
+                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), recordedCall.getStopPointRef()));
                         if (alternativeStop != null && stop.getParentStation().equals(alternativeStop.getParentStation())) {
                             stopsMatchById = true;
                             stopTime.setStop(alternativeStop);
@@ -1120,7 +1163,7 @@ public class Timetable implements Serializable {
                     }
                 }
             } else  {
-                for (EstimatedCall estimatedCall : estimatedCalls) {
+                for (EstimatedJourneyCall estimatedCall : estimatedCalls) {
                     if (alreadyVisited.contains(estimatedCall)) {
                         continue;
                     }
@@ -1129,10 +1172,10 @@ public class Timetable implements Serializable {
                     }
 
                     //Current stop is being updated
-                    boolean stopsMatchById = stop.getId().getId().equals(estimatedCall.getStopPointRef().getValue());
+                    boolean stopsMatchById = stop.getId().getId().equals(estimatedCall.getStopPointRef());
 
                     if (!stopsMatchById && stop.getParentStation() != null) {
-                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), estimatedCall.getStopPointRef().getValue()));
+                        Stop alternativeStop = graphIndex.stopForId.get(new AgencyAndId(stop.getId().getAgencyId(), estimatedCall.getStopPointRef()));
                         if (alternativeStop != null && stop.getParentStation().equals(alternativeStop.getParentStation())) {
                             stopsMatchById = true;
                             stopTime.setStop(alternativeStop);
@@ -1167,9 +1210,8 @@ public class Timetable implements Serializable {
                             stopTime.setPickupType(PICKDROP_NONE);
                         }
 
-                        if (estimatedCall.getDestinationDisplaies() != null && !estimatedCall.getDestinationDisplaies().isEmpty()) {
-                            NaturalLanguageStringStructure destinationDisplay = estimatedCall.getDestinationDisplaies().get(0);
-                            stopTime.setStopHeadsign(destinationDisplay.getValue());
+                        if (estimatedCall.getDestinationDisplay() != null) {
+                            stopTime.setStopHeadsign(estimatedCall.getDestinationDisplay());
                         }
 
                         modifiedStops.add(stopTime);
@@ -1313,6 +1355,7 @@ public class Timetable implements Serializable {
      * Here we don't know if it's a scheduled trip or a realtime-added trip.
      */
     public void addTripTimes(TripTimes tt) {
+        departureIndex = null;
         tripTimes.add(tt);
     }
 
@@ -17,6 +17,7 @@ import java.util.*;
 import java.util.Map.Entry;
 
 import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.trippattern.InternPool;
 import org.opentripplanner.routing.trippattern.TripTimes;
 import org.opentripplanner.model.Trip;
 
@@ -137,6 +138,13 @@ public class TimetableSnapshot {
      */
     private Set<Timetable> dirtyTimetables = new HashSet<Timetable>();
 
+    /** If set, the real-time arrays of updated trip times are shared through this pool with identical ones. */
+    private InternPool internPool;
+
+    public void setInternPool(InternPool internPool) {
+        this.internPool = internPool;
+    }
+
     /**
      * Returns an updated timetable for the specified pattern if one is available in this snapshot,
      * or the originally scheduled timetable if there are no updates in this snapshot.
@@ -268,6 +276,10 @@ public class TimetableSnapshot {
             dirty = true;
         }
         
+        if (internPool != null) {
+            updatedTripTimes.internRealTimeArrays(internPool);
+        }
+
         // Assume all trips in a pattern are from the same feed, which should be the case.
         // Find trip index
         int tripIndex = tt.getTripIndex(updatedTripTimes.trip.getId());
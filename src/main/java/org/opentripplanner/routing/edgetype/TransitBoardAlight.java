@@ -34,6 +34,7 @@ import org.opentripplanner.routing.trippattern.TripTimes;
 import org.opentripplanner.routing.vertextype.PatternStopVertex;
 import org.opentripplanner.routing.vertextype.TransitStopArrive;
 import org.opentripplanner.routing.vertextype.TransitStopDepart;
+import org.opentripplanner.util.monitoring.RoutingCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -289,6 +290,7 @@ public class TransitBoardAlight extends TablePatternEdge implements OnboardEdge
                 // However, experiments seem to show very little measurable improvement here (due to cache locality?)
                 // if ( ! timetable.temporallyViable(sd, s0.getTimeSeconds(), bestWait, boarding)) continue;
                 /* Find the next or prev departure depending on final boolean parameter. */
+                rctx.instrumentation.increment(RoutingCounter.TIMETABLE_LOOKUPS);
                 TripTimes tripTimes = getNextTrip(s0, sd, timetable);
                 if (tripTimes != null) {
                     /* Wait is relative to departures on board and arrivals on alight. */
@@ -13,9 +13,11 @@
 
 package org.opentripplanner.routing.graph;
 
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.LineString;
 import org.opentripplanner.model.Trip;
 import org.opentripplanner.common.MavenVersion;
+import org.opentripplanner.common.geometry.CoordinateSink;
 import org.opentripplanner.routing.core.RoutingRequest;
 import org.opentripplanner.routing.core.State;
 
@@ -38,6 +40,9 @@ public abstract class Edge implements Serializable {
 
     protected Vertex tov;
 
+    /** Dense number of this edge, see {@link GraphLayout}. Vertex.NO_INDEX for edges added afterwards. */
+    private transient int index = Vertex.NO_INDEX;
+
     protected Edge(Vertex v1, Vertex v2) {
         if (v1 == null || v2 == null) {
             String err = String.format("%s constructed with null vertex : %s %s", this.getClass(),
@@ -57,6 +62,15 @@ public abstract class Edge implements Serializable {
     public Vertex getToVertex() {
         return tov;
     }
+
+    /** @return the dense number of this edge in its graph, or Vertex.NO_INDEX if it has none. */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
     
     /**
      * Returns true if this edge is partial - overriden by subclasses.
@@ -185,6 +199,29 @@ public abstract class Edge implements Serializable {
         return getGeometry();
     }
 
+    /**
+     * Add the points of the geometry of this edge, if any, to the sink. Edges whose geometry is stored in a compact
+     * form override this to decode it without building a LineString.
+     */
+    public void appendCoordinates(CoordinateSink sink) {
+        appendCoordinates(getGeometry(), sink);
+    }
+
+    /** Add the points of the display geometry of this edge, if any, to the sink. */
+    public void appendDisplayCoordinates(CoordinateSink sink) {
+        appendCoordinates(getDisplayGeometry(), sink);
+    }
+
+    private static void appendCoordinates(LineString geometry, CoordinateSink sink) {
+        if (geometry == null) {
+            return;
+        }
+        CoordinateSequence coordinates = geometry.getCoordinateSequence();
+        for (int i = 0; i < coordinates.size(); i++) {
+            sink.add(coordinates.getX(i), coordinates.getY(i));
+        }
+    }
+
     /**
      * Returns the azimuth of this edge from head to tail.
      * 
@@ -203,6 +240,7 @@ public abstract class Edge implements Serializable {
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        index = Vertex.NO_INDEX;
         // edge lists are transient, reconstruct them
         fromv.addOutgoing(this);
         tov.addIncoming(this);
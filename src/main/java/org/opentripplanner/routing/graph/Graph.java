@@ -42,12 +42,14 @@ import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Polygon;
 import org.objenesis.strategy.SerializingInstantiatorStrategy;
+import org.opentripplanner.analyst.request.IsochroneService;
 import org.opentripplanner.analyst.request.SampleFactory;
 import org.opentripplanner.calendar.impl.CalendarServiceImpl;
 import org.opentripplanner.common.MavenVersion;
 import org.opentripplanner.common.TurnRestriction;
 import org.opentripplanner.common.geometry.GraphUtils;
 import org.opentripplanner.graph_builder.annotation.GraphBuilderAnnotation;
+import org.opentripplanner.graph_builder.annotation.GraphBuilderAnnotationStore;
 import org.opentripplanner.graph_builder.annotation.NoFutureDates;
 import org.opentripplanner.graph_builder.linking.SynchronisedSimpleStreetSplitter;
 import org.opentripplanner.kryo.HashBiMapSerializer;
@@ -63,6 +65,10 @@ import org.opentripplanner.model.TransmodelTransportSubmode;
 import org.opentripplanner.model.calendar.CalendarServiceData;
 import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchy;
+import org.opentripplanner.routing.algorithm.landmarks.LandmarkSet;
+import org.opentripplanner.routing.algorithm.strategies.InterleavedBidirectionalHeuristicCache;
+import org.opentripplanner.routing.algorithm.raptor.RaptorData;
 import org.opentripplanner.routing.core.TransferTable;
 import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.edgetype.EdgeWithCleanup;
@@ -74,6 +80,7 @@ import org.opentripplanner.routing.services.StreetVertexIndexFactory;
 import org.opentripplanner.routing.services.StreetVertexIndexService;
 import org.opentripplanner.routing.services.notes.StreetNotesService;
 import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.InternPool;
 import org.opentripplanner.routing.vertextype.PatternArriveVertex;
 import org.opentripplanner.routing.vertextype.TemporaryVertex;
 import org.opentripplanner.routing.vertextype.TransitStop;
@@ -83,6 +90,7 @@ import org.opentripplanner.updater.GraphUpdaterConfigurator;
 import org.opentripplanner.updater.GraphUpdaterManager;
 import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.opentripplanner.util.WorldEnvelope;
+import org.opentripplanner.util.monitoring.RoutingMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -93,6 +101,7 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
@@ -106,6 +115,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.prefs.Preferences;
 /**
  * A graph is really just one or more indexes into a set of vertexes. It used to keep edgelists for each vertex, but those are in the vertex now.
@@ -123,7 +133,13 @@ public class Graph implements Serializable, AddBuilderAnnotation {
     // TODO Remove this field, use Router.routerId ?
     public String routerId;
 
-    private final Map<Edge, Set<AlertPatch>> alertPatches = new HashMap<Edge, Set<AlertPatch>>(0);
+    private static final AlertPatch[] NO_ALERT_PATCHES = new AlertPatch[0];
+
+    /**
+     * The alert patches on each edge, as arrays that are replaced rather than modified so that they can be read
+     * without locking or copying while routing. Writers synchronize on the map.
+     */
+    private final Map<Edge, AlertPatch[]> alertPatches = new ConcurrentHashMap<>();
 
     private final Map<Edge, List<TurnRestriction>> turnRestrictions = Maps.newHashMap();
 
@@ -175,8 +191,28 @@ public class Graph implements Serializable, AddBuilderAnnotation {
 
     private transient SampleFactory sampleFactory;
 
+    private transient RaptorData raptorData;
+
+    private transient InterleavedBidirectionalHeuristicCache heuristicCache;
+
+    private transient IsochroneService isochroneService;
+
+    private transient RoutingMetrics routingMetrics;
+
+    /** The next free vertex number once the graph has been laid out by {@link GraphLayout}, null before. */
+    private transient AtomicInteger nextVertexIndex;
+
+    /** Street contraction hierarchies built for single-mode routing, if enabled at graph build time. */
+    private Map<TraverseMode, ContractionHierarchy> contractionHierarchies = new HashMap<>();
+
+    /** Landmark weights for the goal direction heuristic of street searches, if enabled at graph build time. */
+    private Map<TraverseMode, LandmarkSet> landmarkSets = new HashMap<>();
+
     public final transient Deduplicator deduplicator = new Deduplicator();
 
+    /** Long-lived, thread-safe intern pool for real-time data and street names. */
+    public final transient InternPool internPool = new InternPool();
+
     /**
      * Map from GTFS ServiceIds to integers close to 0. Allows using BitSets instead of Set<Object>.
      * An empty Map is created before the Graph is built to allow registering IDs from multiple feeds.   
@@ -185,7 +221,8 @@ public class Graph implements Serializable, AddBuilderAnnotation {
 
     public transient TimetableSnapshotSource timetableSnapshotSource = null;
 
-    private List<GraphBuilderAnnotation> graphBuilderAnnotations = new LinkedList<GraphBuilderAnnotation>(); // initialize for tests
+    /** Not serialized: when building a graph to save, the annotations are streamed to a separate report file. */
+    private transient GraphBuilderAnnotationStore graphBuilderAnnotations = new GraphBuilderAnnotationStore();
 
     private Map<String, Collection<Agency>> agenciesForFeedId = new HashMap<>();
 
@@ -301,6 +338,9 @@ public class Graph implements Serializable, AddBuilderAnnotation {
             );
         }
 
+        if (nextVertexIndex != null) {
+            v.setIndex(nextVertexIndex.getAndIncrement());
+        }
         Vertex old = vertices.put(v.getLabel(), v);
         if (old != null) {
             if (old == v)
@@ -331,9 +371,7 @@ public class Graph implements Serializable, AddBuilderAnnotation {
      */
     public void removeEdge(Edge e) {
         if (e != null) {
-            synchronized (alertPatches) {   // This synchronization is somewhat silly because this
-                alertPatches.remove(e);     // method isn't thread-safe anyway, but it is consistent
-            }
+            alertPatches.remove(e);
 
             turnRestrictions.remove(e);
             streetNotesService.removeStaticNotes(e);
@@ -395,16 +433,13 @@ public class Graph implements Serializable, AddBuilderAnnotation {
     public void addAlertPatch(Edge edge, AlertPatch alertPatch) {
         if (edge == null || alertPatch == null) return;
         synchronized (alertPatches) {
-            Set<AlertPatch> alertPatches = this.alertPatches.get(edge);
-            if (alertPatches == null) {
-                this.alertPatches.put(edge, Collections.singleton(alertPatch));
-            } else if (alertPatches instanceof HashSet) {
-                alertPatches.add(alertPatch);
-            } else {
-                alertPatches = new HashSet<AlertPatch>(alertPatches);
-                if (alertPatches.add(alertPatch)) {
-                    this.alertPatches.put(edge, alertPatches);
-                }
+            AlertPatch[] patches = alertPatches.get(edge);
+            if (patches == null) {
+                alertPatches.put(edge, new AlertPatch[] { alertPatch });
+            } else if (!Arrays.asList(patches).contains(alertPatch)) {
+                patches = Arrays.copyOf(patches, patches.length + 1);
+                patches[patches.length - 1] = alertPatch;
+                alertPatches.put(edge, patches);
             }
         }
     }
@@ -418,32 +453,34 @@ public class Graph implements Serializable, AddBuilderAnnotation {
     public void removeAlertPatch(Edge edge, AlertPatch alertPatch) {
         if (edge == null || alertPatch == null) return;
         synchronized (alertPatches) {
-            Set<AlertPatch> alertPatches = this.alertPatches.get(edge);
-            if (alertPatches != null && alertPatches.contains(alertPatch)) {
-                if (alertPatches.size() < 2) {
-                    this.alertPatches.remove(edge);
+            AlertPatch[] patches = alertPatches.get(edge);
+            int i = patches == null ? -1 : Arrays.asList(patches).indexOf(alertPatch);
+            if (i >= 0) {
+                if (patches.length < 2) {
+                    alertPatches.remove(edge);
                 } else {
-                    alertPatches.remove(alertPatch);
+                    AlertPatch[] remaining = new AlertPatch[patches.length - 1];
+                    System.arraycopy(patches, 0, remaining, 0, i);
+                    System.arraycopy(patches, i + 1, remaining, i, remaining.length - i);
+                    alertPatches.put(edge, remaining);
                 }
             }
         }
     }
 
     /**
-     * Get the {@link AlertPatch} {@link Set} that belongs to an {@link Edge} and build a new array.
+     * Get the {@link AlertPatch}es that belong to an {@link Edge}, without locking or allocating.
      * @param edge
-     * @return The {@link AlertPatch} array that belongs to the {@link Edge}
+     * @return The {@link AlertPatch} array that belongs to the {@link Edge}, which must not be modified
      */
     public AlertPatch[] getAlertPatches(Edge edge) {
         if (edge != null) {
-            synchronized (alertPatches) {
-                Set<AlertPatch> alertPatches = this.alertPatches.get(edge);
-                if (alertPatches != null) {
-                    return alertPatches.toArray(new AlertPatch[alertPatches.size()]);
-                }
+            AlertPatch[] patches = alertPatches.get(edge);
+            if (patches != null) {
+                return patches;
             }
         }
-        return new AlertPatch[0];
+        return NO_ALERT_PATCHES;
     }
 
     /**
@@ -640,22 +677,30 @@ public class Graph implements Serializable, AddBuilderAnnotation {
     }
 
     /**
-     * Add a graph builder annotation to this graph's list of graph builder annotations. The return value of this method is the annotation's message,
-     * which allows for a single-line idiom that creates, registers, and logs a new graph builder annotation:
-     * log.warning(graph.addBuilderAnnotation(new SomeKindOfAnnotation(param1, param2)));
-     * 
-     * If the graphBuilderAnnotations field of this graph is null, the annotation is not actually saved, but the message is still returned. This
-     * allows annotation registration to be turned off, saving memory and disk space when the user is not interested in annotations.
+     * Add a graph builder annotation to this graph's graph builder annotations, and log its message.
+     * The annotations are kept in memory, or streamed to a file if {@link #setBuilderAnnotationStore} was called.
      */
     public void addBuilderAnnotation(GraphBuilderAnnotation gba) {
         GRAPH_BUILDER_ANNOTATION_LOG.info(gba.getMessage());
-        if (this.graphBuilderAnnotations != null) {
-            this.graphBuilderAnnotations.add(gba);
-        }
+        getBuilderAnnotationStore().add(gba);
     }
 
+    /** @return the annotation objects, or an empty list if the annotations are streamed to a file. */
     public List<GraphBuilderAnnotation> getBuilderAnnotations() {
-        return this.graphBuilderAnnotations;
+        return getBuilderAnnotationStore().getAnnotations();
+    }
+
+    public GraphBuilderAnnotationStore getBuilderAnnotationStore() {
+        // The annotations are not serialized, a loaded graph may not have a store yet.
+        if (graphBuilderAnnotations == null) {
+            graphBuilderAnnotations = new GraphBuilderAnnotationStore();
+        }
+        return graphBuilderAnnotations;
+    }
+
+    /** Replace the store of the graph builder annotations, e.g. to stream them to a file before building. */
+    public void setBuilderAnnotationStore(GraphBuilderAnnotationStore store) {
+        this.graphBuilderAnnotations = store;
     }
 
     /**
@@ -689,6 +734,12 @@ public class Graph implements Serializable, AddBuilderAnnotation {
      * TODO: do we really need a factory for different street vertex indexes?
      */
     public void index (StreetVertexIndexFactory indexFactory) {
+        LOG.info("Laying out vertices and edges.");
+        nextVertexIndex = new AtomicInteger(GraphLayout.layOut(this));
+        LOG.info("Interning street names.");
+        for (StreetEdge edge : getStreetEdges()) {
+            edge.setName(internPool.intern(edge.getRawName()));
+        }
         LOG.info("Building street index.");
         streetIndex = indexFactory.newIndex(this);
         LOG.info("Rebuilding edge and vertex indices.");
@@ -701,6 +752,7 @@ public class Graph implements Serializable, AddBuilderAnnotation {
         }
         // TODO: Move this ^ stuff into the graph index
         this.index = new GraphIndex(this);
+        this.raptorData = null;
         if (useFlexService ) {
             this.flexIndex = new FlexIndex();
             flexIndex.init(this);
@@ -945,15 +997,15 @@ public class Graph implements Serializable, AddBuilderAnnotation {
     }
 
     public void summarizeBuilderAnnotations() {
-        List<GraphBuilderAnnotation> gbas = this.graphBuilderAnnotations;
-        Multiset<Class<? extends GraphBuilderAnnotation>> classes = HashMultiset.create();
+        Multiset<String> types = HashMultiset.create();
         LOG.info("Summary (number of each type of annotation):");
-        for (GraphBuilderAnnotation gba : gbas)
-            classes.add(gba.getClass());
-        for (Multiset.Entry<Class<? extends GraphBuilderAnnotation>> e : classes.entrySet()) {
-            String name = e.getElement().getSimpleName();
-            int count = e.getCount();
-            LOG.info("  - {}: {}", name, count);
+        try {
+            getBuilderAnnotationStore().forEach(record -> types.add(record.type));
+        } catch (IOException e) {
+            LOG.error("Could not read the graph builder annotations", e);
+        }
+        for (Multiset.Entry<String> e : types.entrySet()) {
+            LOG.info("  - {}: {}", e.getElement(), e.getCount());
         }
     }
 
@@ -1014,6 +1066,60 @@ public class Graph implements Serializable, AddBuilderAnnotation {
 
         return this.sampleFactory;
     }
+
+    /** Lazy-init the array-based transit data used by the RAPTOR search, from the current GraphIndex. */
+    public synchronized RaptorData getRaptorData() {
+        if (this.raptorData == null)
+            this.raptorData = new RaptorData(this.index);
+
+        return this.raptorData;
+    }
+
+    /** Lazy-init the cache of transit heuristic searches shared between requests to the same destination. */
+    public synchronized InterleavedBidirectionalHeuristicCache getHeuristicCache() {
+        if (this.heuristicCache == null)
+            this.heuristicCache = new InterleavedBidirectionalHeuristicCache();
+
+        return this.heuristicCache;
+    }
+
+    /** Lazy-init the isochrone service, which caches recent isochrones for this graph. */
+    public synchronized IsochroneService getIsochroneService() {
+        if (this.isochroneService == null)
+            this.isochroneService = new IsochroneService(this);
+
+        return this.isochroneService;
+    }
+
+    /** Lazy-init the histograms of the phase timings and counters of the routing requests made on this graph. */
+    public synchronized RoutingMetrics getRoutingMetrics() {
+        if (this.routingMetrics == null)
+            this.routingMetrics = new RoutingMetrics();
+
+        return this.routingMetrics;
+    }
+
+    /** Forget the requests recorded so far, e.g. those made to warm up the graph. */
+    public synchronized void resetRoutingMetrics() {
+        this.routingMetrics = null;
+    }
+
+    public ContractionHierarchy getContractionHierarchy(TraverseMode mode) {
+        return contractionHierarchies.get(mode);
+    }
+
+    public void putContractionHierarchy(ContractionHierarchy contractionHierarchy) {
+        contractionHierarchies.put(contractionHierarchy.mode, contractionHierarchy);
+    }
+
+    public LandmarkSet getLandmarkSet(TraverseMode mode) {
+        return landmarkSets.get(mode);
+    }
+
+    public void putLandmarkSet(LandmarkSet landmarkSet) {
+        landmarkSets.put(landmarkSet.mode, landmarkSet);
+    }
+
     /**
      * Calculates Transit center from median of coordinates of all transitStops if graph
      * has transit. If it doesn't it isn't calculated. (mean walue of min, max latitude and longitudes are used)
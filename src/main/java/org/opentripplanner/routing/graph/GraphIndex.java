@@ -32,6 +32,7 @@ import org.opentripplanner.model.Route;
 import org.opentripplanner.model.Stop;
 import org.opentripplanner.model.Trip;
 import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.alertpatch.AlertIndex;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
 import org.opentripplanner.routing.algorithm.AStar;
 import org.opentripplanner.routing.algorithm.ExtendedTraverseVisitor;
@@ -134,6 +135,9 @@ public class GraphIndex {
     /* Full-text search extensions */
     public LuceneIndex luceneIndex;
 
+    /* Walk distances to the places around street vertices, for the nearest queries */
+    private WalkNeighbourhoods walkNeighbourhoods;
+
     /* This is a workaround, and should probably eventually be removed. */
     public Graph graph;
 
@@ -250,6 +254,19 @@ public class GraphIndex {
     /* TODO: an almost similar function exists in ProfileRouter, combine these.
     *  Should these live in a separate class? */
     public List<StopAndDistance> findClosestStopsByWalking(double lat, double lon, int radius) {
+        WalkNeighbourhoods neighbourhoods = getWalkNeighbourhoods();
+        if (radius <= neighbourhoods.getRadius()) {
+            List<WalkNeighbourhoods.PlaceAtDistance> places = neighbourhoods.findPlaces(lat, lon, radius);
+            if (places != null) {
+                List<StopAndDistance> stops = new ArrayList<>();
+                for (WalkNeighbourhoods.PlaceAtDistance place : places) {
+                    if (place.vertex instanceof TransitStop) {
+                        stops.add(new StopAndDistance(((TransitStop) place.vertex).getStop(), place.distance));
+                    }
+                }
+                return stops;
+            }
+        }
         // Make a normal OTP routing request so we can traverse edges and use GenericAStar
         // TODO make a function that builds normal routing requests from profile requests
         RoutingRequest rr = new RoutingRequest(TraverseMode.WALK);
@@ -282,6 +299,24 @@ public class GraphIndex {
             List<String> filterByBikeParks,
             List<String> filterByCarParks,
             boolean filterByInUse) {
+        WalkNeighbourhoods neighbourhoods = getWalkNeighbourhoods();
+        if (maxDistance <= neighbourhoods.getRadius()) {
+            List<WalkNeighbourhoods.PlaceAtDistance> places = neighbourhoods.findPlaces(lat, lon, maxDistance);
+            if (places != null) {
+                PlaceFinderTraverseVisitor visitor = new PlaceFinderTraverseVisitor(filterByModes, filterByPlaceTypes,
+                        filterByStops, filterByRoutes, filterByBikeRentalStations, filterByBikeParks, filterByCarParks,
+                        filterByInUse);
+                // Places come by increasing distance, so the places found are sorted and the first ones are kept.
+                for (WalkNeighbourhoods.PlaceAtDistance place : places) {
+                    if (visitor.placesFound.size() >= maxResults) {
+                        break;
+                    }
+                    visitor.visitPlace(place.vertex, place.distance);
+                }
+                List<PlaceAndDistance> results = visitor.placesFound;
+                return results.subList(0, min(results.size(), maxResults));
+            }
+        }
         RoutingRequest rr = new RoutingRequest(TraverseMode.WALK);
         rr.allowBikeRental = true;
         //rr.bikeParkAndRide = true;
@@ -355,6 +390,28 @@ public class GraphIndex {
         }
     }
 
+    /**
+     * The walk neighbourhoods of street vertices used by the nearest queries, created on first use. They are
+     * computed lazily, one street vertex at a time, as the queries need them.
+     */
+    public WalkNeighbourhoods getWalkNeighbourhoods() {
+        synchronized (this) {
+            if (walkNeighbourhoods == null) {
+                walkNeighbourhoods = new WalkNeighbourhoods(graph, WalkNeighbourhoods.DEFAULT_RADIUS_METERS);
+            }
+            return walkNeighbourhoods;
+        }
+    }
+
+    /** Forget the walk neighbourhoods after places were added to or removed from the street network. */
+    public void invalidateWalkNeighbourhoods() {
+        synchronized (this) {
+            if (walkNeighbourhoods != null) {
+                walkNeighbourhoods.invalidate();
+            }
+        }
+    }
+
     public static class StopAndDistance {
         public Stop stop;
         public int distance;
@@ -487,8 +544,9 @@ public class GraphIndex {
         @Override public void visitEnqueue(State state) {
         }
         @Override public void visitVertex(State state) {
-            Vertex vertex = state.getVertex();
-            int distance = (int)state.getWalkDistance();
+            visitPlace(state.getVertex(), (int)state.getWalkDistance());
+        }
+        void visitPlace(Vertex vertex, int distance) {
             if (vertex instanceof TransitStop) {
                 visitStop(((TransitStop)vertex).getStop(), distance);
             } else if (vertex instanceof BikeRentalStationVertex) {
@@ -995,6 +1053,11 @@ public class GraphIndex {
         return getSiriAlertPatchService().getAllAlertPatches();
     }
 
+    /** @return the current alert patches indexed for decorating itineraries, see {@link AlertIndex}. */
+    public AlertIndex getAlertIndex() {
+        return getSiriAlertPatchService().getAlertIndex();
+    }
+
     public Collection<AlertPatch> getAlertsForRoute(Route route) {
         return getSiriAlertPatchService().getRoutePatches(route.getId());
     }
@@ -0,0 +1,64 @@
+package org.opentripplanner.routing.graph;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.util.I18NString;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shares the immutable payload of street edges between the graphs loaded by a {@link
+ * org.opentripplanner.routing.services.GraphService}. Routers serving the same region are usually built on the same
+ * OSM extract, so each deserialized graph holds its own copy of the same geometries, elevation profiles and names.
+ * Once a graph is loaded, its street edges are made to point to the instances already held by the other graphs.
+ *
+ * The street vertices and edges themselves stay per graph: linking the transit stops and the temporary vertices of
+ * requests adds edges to the street vertices, so a street network cannot be shared between graphs as such.
+ *
+ * Entries are held weakly, so they go away with the last graph using them when a router is evicted or reloaded.
+ * Arrays are keyed on a 128-bit hash of their contents (the arrays themselves would keep the entries alive), and are
+ * compared in full before being shared. This class is thread-safe.
+ */
+public class SharedStreetData {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final Cache<HashCode, byte[]> arrays = CacheBuilder.newBuilder().weakValues().build();
+
+    private final Interner<I18NString> names = Interners.newWeakInterner();
+
+    /**
+     * Make the street edges of the given graph use the geometries, elevation profiles and names already loaded with
+     * other graphs. This must be done before the graph serves requests.
+     */
+    public void share(Graph graph) {
+        for (StreetEdge edge : graph.getStreetEdges()) {
+            edge.shareData(this);
+        }
+    }
+
+    /** @return an array equal to the given one, which must not be modified once shared. */
+    public byte[] share(byte[] array) {
+        if (array == null) return null;
+        byte[] shared;
+        try {
+            shared = arrays.get(HASH.hashBytes(array), () -> array);
+        } catch (ExecutionException e) {
+            return array; // Cannot happen, the loader does not throw.
+        }
+        // Do not trust the hash alone, a collision would corrupt a street.
+        return shared == array || Arrays.equals(shared, array) ? shared : array;
+    }
+
+    /** The I18NString implementations must define equals and hashCode by value. */
+    public I18NString share(I18NString name) {
+        return name == null ? null : names.intern(name);
+    }
+}
@@ -57,6 +57,14 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     private transient Edge[] outgoing = new Edge[0];
 
+    /**
+     * Dense number of this vertex in the graph, in the locality-preserving order set by {@link GraphLayout}.
+     * NO_INDEX for temporary vertices and vertices of graphs that were not laid out.
+     */
+    private transient int index = NO_INDEX;
+
+    public static final int NO_INDEX = -1;
+
 
     /* CONSTRUCTORS */
 
@@ -177,6 +185,21 @@ public abstract class Vertex implements Serializable, Cloneable {
         }
     }
 
+    /**
+     * Replace the edge lists with fresh copies sorted in the given order. The copies are allocated one after the
+     * other, so that the lists of vertices laid out in sequence end up next to each other in memory.
+     */
+    void sortEdges(Comparator<Edge> order) {
+        synchronized (this) {
+            Edge[] sortedOutgoing = outgoing.clone();
+            Arrays.sort(sortedOutgoing, order);
+            outgoing = sortedOutgoing;
+            Edge[] sortedIncoming = incoming.clone();
+            Arrays.sort(sortedIncoming, order);
+            incoming = sortedIncoming;
+        }
+    }
+
     /**
      * Get a collection containing all the edges leading from this vertex to other vertices.
      * There is probably some overhead to creating the wrapper ArrayList objects, but this
@@ -238,6 +261,16 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     /* FIELD ACCESSOR METHODS : READ ONLY */
 
+    /** @return the dense number of this vertex in its graph, or NO_INDEX if it has none. */
+    @XmlTransient
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * Every vertex has a label which is globally unique.
      * Implementation detail: The method must be <b>final</b>, because it is used indirectly by
@@ -274,6 +307,7 @@ public abstract class Vertex implements Serializable, Cloneable {
         in.defaultReadObject();
         this.incoming = new Edge[0];
         this.outgoing = new Edge[0];
+        this.index = NO_INDEX;
     }
 
     /* UTILITY METHODS FOR SEARCHING, GRAPH BUILDING, AND GENERATING WALKSTEPS */
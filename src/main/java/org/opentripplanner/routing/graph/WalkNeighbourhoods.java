@@ -0,0 +1,299 @@
+package org.opentripplanner.routing.graph;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.algorithm.ExtendedTraverseVisitor;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.vertextype.BikeParkVertex;
+import org.opentripplanner.routing.vertextype.BikeRentalStationVertex;
+import org.opentripplanner.routing.vertextype.ParkAndRideVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The walk distances from street vertices to the places around them (transit stops, bike rental stations, bike parks
+ * and car parks) within a fixed radius, so that the "nearest places" and "stops by radius" queries do not need to
+ * link a temporary vertex into the graph and run a walk search on every call.
+ *
+ * The neighbourhood of a street vertex is computed with a walk search the first time it is needed and kept in a
+ * bounded cache. A query then only looks up the street edge nearest to the point and merges the neighbourhoods of
+ * its two ends. Filtering the places (by mode, type, id, or whether they are in use) is left to the caller, and is
+ * done at query time against the current state of the graph. The cache must be invalidated when places are added to
+ * or removed from the street network, as the bike rental, bike park and car park updaters do.
+ *
+ * This class is thread-safe.
+ */
+public class WalkNeighbourhoods {
+
+    /** The default radius of the neighbourhoods, which is also the default maximum distance of the nearest query. */
+    public static final int DEFAULT_RADIUS_METERS = 2000;
+
+    /** A point further than this from any walkable street is not considered to be in any neighbourhood. */
+    private static final double MAX_LINK_DISTANCE_METERS = 500;
+
+    private static final int MAX_CACHED_NEIGHBOURHOODS = 20_000;
+
+    /** Maximum duration of the search computing one neighbourhood, in seconds. */
+    private static final double SEARCH_TIMEOUT_SECONDS = 5;
+
+    private static final TraverseModeSet WALK = new TraverseModeSet(TraverseMode.WALK);
+
+    private final Graph graph;
+
+    private final int radiusMeters;
+
+    private final LoadingCache<Vertex, Neighbourhood> neighbourhoods;
+
+    public WalkNeighbourhoods(Graph graph, int radiusMeters) {
+        this.graph = graph;
+        this.radiusMeters = radiusMeters;
+        this.neighbourhoods = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_NEIGHBOURHOODS)
+                .build(new CacheLoader<Vertex, Neighbourhood>() {
+                    @Override
+                    public Neighbourhood load(Vertex vertex) {
+                        return computeNeighbourhood(vertex);
+                    }
+                });
+    }
+
+    /** @return the maximum walk distance of the places in the neighbourhoods, in meters. */
+    public int getRadius() {
+        return radiusMeters;
+    }
+
+    /** Forget all neighbourhoods, e.g. after places were added to or removed from the street network. */
+    public void invalidate() {
+        neighbourhoods.invalidateAll();
+    }
+
+    /** @return the places within the radius of the given street vertex, by increasing walk distance. */
+    public Neighbourhood getNeighbourhood(Vertex vertex) {
+        Neighbourhood neighbourhood = neighbourhoods.getUnchecked(vertex);
+        if (!neighbourhood.complete) {
+            // A search that timed out may have missed places, so it is used once but computed again next time.
+            neighbourhoods.invalidate(vertex);
+        }
+        return neighbourhood;
+    }
+
+    /**
+     * Find the places within walking distance of a point, going through the nearest walkable street.
+     * @param maxDistance in meters, no more than the radius of the neighbourhoods
+     * @return the places by increasing walk distance, or null if the point is not close to any walkable street.
+     */
+    public List<PlaceAtDistance> findPlaces(double lat, double lon, int maxDistance) {
+        if (maxDistance > radiusMeters) {
+            throw new IllegalArgumentException("Distance " + maxDistance + " exceeds neighbourhood radius " + radiusMeters);
+        }
+        if (graph.streetIndex == null) {
+            return null;
+        }
+        StreetEdge edge = null;
+        double[] best = null;
+        double xscale = Math.cos(Math.toRadians(lat));
+        Envelope envelope = new Envelope(lon, lon, lat, lat);
+        envelope.expandBy(SphericalDistanceLibrary.metersToLonDegrees(MAX_LINK_DISTANCE_METERS, lat),
+                SphericalDistanceLibrary.metersToDegrees(MAX_LINK_DISTANCE_METERS));
+        for (Edge candidate : graph.streetIndex.getEdgesForEnvelope(envelope)) {
+            if (!(candidate instanceof StreetEdge) || !((StreetEdge) candidate).canTraverse(WALK)) {
+                continue;
+            }
+            double[] projection = project(lat, lon, xscale, (StreetEdge) candidate);
+            if (best == null || projection[0] < best[0]) {
+                edge = (StreetEdge) candidate;
+                best = projection;
+            }
+        }
+        if (edge == null || SphericalDistanceLibrary.degreesToMeters(best[0]) > MAX_LINK_DISTANCE_METERS) {
+            return null;
+        }
+        // Walk to both ends of the nearest edge, assuming it can be walked in both directions as pedestrians can.
+        double linkDistance = SphericalDistanceLibrary.degreesToMeters(best[0]);
+        TObjectIntMap<Vertex> distances = new TObjectIntHashMap<>(16, 0.5f, Integer.MAX_VALUE);
+        addPlaces(distances, edge.getFromVertex(), linkDistance + best[1] * edge.getDistance(), maxDistance);
+        addPlaces(distances, edge.getToVertex(), linkDistance + (1 - best[1]) * edge.getDistance(), maxDistance);
+
+        List<PlaceAtDistance> places = new ArrayList<>(distances.size());
+        distances.forEachEntry((vertex, distance) -> places.add(new PlaceAtDistance(vertex, distance)));
+        places.sort(Comparator.comparingInt(place -> place.distance));
+        return places;
+    }
+
+    private void addPlaces(TObjectIntMap<Vertex> distances, Vertex vertex, double offset, int maxDistance) {
+        Neighbourhood neighbourhood = getNeighbourhood(vertex);
+        for (int i = 0; i < neighbourhood.places.length; i++) {
+            int distance = (int) (offset + neighbourhood.distances[i]);
+            if (distance > maxDistance) {
+                // The distances of a neighbourhood are sorted.
+                break;
+            }
+            Vertex place = neighbourhood.places[i];
+            if (distance < distances.get(place)) {
+                distances.put(place, distance);
+            }
+        }
+    }
+
+    /**
+     * @return the distance from the point to the edge in latitude degrees and the fraction of the edge length before
+     *         the nearest point, measured in a local equirectangular projection.
+     */
+    private static double[] project(double lat, double lon, double xscale, StreetEdge edge) {
+        CoordinateSequence coordinates = edge.getGeometry().getCoordinateSequence();
+        double px = lon * xscale;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        double bestAlong = 0;
+        double length = 0;
+        double ax = coordinates.getX(0) * xscale;
+        double ay = coordinates.getY(0);
+        for (int i = 1; i < coordinates.size(); i++) {
+            double bx = coordinates.getX(i) * xscale;
+            double by = coordinates.getY(i);
+            double dx = bx - ax;
+            double dy = by - ay;
+            double segmentLength = Math.sqrt(dx * dx + dy * dy);
+            double t = segmentLength == 0 ? 0 : ((px - ax) * dx + (lat - ay) * dy) / (segmentLength * segmentLength);
+            t = Math.max(0, Math.min(1, t));
+            double distance = Math.hypot(ax + t * dx - px, ay + t * dy - lat);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestAlong = length + t * segmentLength;
+            }
+            length += segmentLength;
+            ax = bx;
+            ay = by;
+        }
+        return new double[] { bestDistance, length == 0 ? 0 : bestAlong / length };
+    }
+
+    /** Run a walk search from a street vertex, recording the first (shortest) walk distance to each place. */
+    private Neighbourhood computeNeighbourhood(Vertex origin) {
+        RoutingRequest rr = new RoutingRequest(TraverseMode.WALK);
+        rr.batch = true;
+        rr.walkSpeed = 1;
+        rr.dominanceFunction = new DominanceFunction.LeastWalk();
+        // As in the walk searches this replaces, time stands for distance to bound the search.
+        rr.worstTime = rr.dateTime + radiusMeters;
+        rr.setRoutingContext(graph, origin, null);
+        NeighbourhoodVisitor visitor = new NeighbourhoodVisitor();
+        AStar astar = new AStar();
+        astar.setTraverseVisitor(visitor);
+        boolean complete;
+        try {
+            astar.getShortestPathTree(rr, SEARCH_TIMEOUT_SECONDS);
+            complete = !rr.rctx.aborted;
+        } finally {
+            rr.cleanup();
+        }
+        List<PlaceAtDistance> places = new ArrayList<>(visitor.distances.size());
+        visitor.distances.forEachEntry((vertex, distance) -> {
+            if (distance <= radiusMeters) {
+                places.add(new PlaceAtDistance(vertex, distance));
+            }
+            return true;
+        });
+        places.sort(Comparator.comparingInt(place -> place.distance));
+        return new Neighbourhood(places, complete);
+    }
+
+    /** @return true if the vertex is one of the places the nearest queries look for. */
+    static boolean isPlace(Vertex vertex) {
+        return vertex instanceof TransitStop || vertex instanceof BikeRentalStationVertex
+                || vertex instanceof BikeParkVertex || vertex instanceof ParkAndRideVertex;
+    }
+
+    /** The places around a street vertex, as parallel arrays sorted by increasing walk distance. */
+    public static class Neighbourhood {
+
+        final Vertex[] places;
+
+        final int[] distances;
+
+        /** False if the search was cut off before reaching the radius, so that some places may be missing. */
+        final boolean complete;
+
+        Neighbourhood(List<PlaceAtDistance> sortedPlaces, boolean complete) {
+            this.complete = complete;
+            places = new Vertex[sortedPlaces.size()];
+            distances = new int[sortedPlaces.size()];
+            for (int i = 0; i < places.length; i++) {
+                places[i] = sortedPlaces.get(i).vertex;
+                distances[i] = sortedPlaces.get(i).distance;
+            }
+        }
+
+        public int size() {
+            return places.length;
+        }
+    }
+
+    public static class PlaceAtDistance {
+
+        public final Vertex vertex;
+
+        /** The walk distance in meters. */
+        public final int distance;
+
+        public PlaceAtDistance(Vertex vertex, int distance) {
+            this.vertex = vertex;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Records the walk distance to the places reached by the search. Transit stops can be walked through, so they are
+     * recorded when visited. Bike rental stations, bike parks and car parks can only be entered with the right
+     * options (renting, parking), so they are recorded when the search is about to traverse a link to them.
+     */
+    private static class NeighbourhoodVisitor implements ExtendedTraverseVisitor {
+
+        final TObjectIntMap<Vertex> distances = new TObjectIntHashMap<>(64, 0.5f, Integer.MAX_VALUE);
+
+        @Override
+        public void preVisitEdge(Edge edge, State state) {
+            Vertex target = edge.getToVertex();
+            if (!(target instanceof TransitStop) && isPlace(target) && state.getVertex() instanceof StreetVertex) {
+                record(target, state);
+            }
+        }
+
+        @Override
+        public void visitVertex(State state) {
+            if (state.getVertex() instanceof TransitStop) {
+                record(state.getVertex(), state);
+            }
+        }
+
+        @Override
+        public void visitEdge(Edge edge, State state) {
+        }
+
+        @Override
+        public void visitEnqueue(State state) {
+        }
+
+        private void record(Vertex place, State state) {
+            int distance = (int) state.getWalkDistance();
+            if (distance < distances.get(place)) {
+                distances.put(place, distance);
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ package org.opentripplanner.routing.impl;
 
 import org.opentripplanner.model.AgencyAndId;
 import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.alertpatch.AlertIndex;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
 import org.opentripplanner.routing.edgetype.TripPattern;
 import org.opentripplanner.routing.graph.Graph;
@@ -37,6 +38,9 @@ public class AlertPatchServiceImpl implements AlertPatchService {
     private Map<String, Set<AlertPatch>> patchesByAgency = new ConcurrentHashMap<>();
     private Map<String, Set<AlertPatch>> patchesByTripPattern = new ConcurrentHashMap<>();
 
+    /** Rebuilt from the patches after every change, and published as a whole for readers decorating itineraries. */
+    private volatile AlertIndex alertIndex = AlertIndex.EMPTY;
+
     public AlertPatchServiceImpl(Graph graph) {
         this.graph = graph;
     }
@@ -133,15 +137,30 @@ public class AlertPatchServiceImpl implements AlertPatchService {
         return result;
     }
 
+    @Override
+    public AlertIndex getAlertIndex() {
+        return alertIndex;
+    }
+
+    private void publishAlertIndex() {
+        alertIndex = new AlertIndex(alertPatches.values());
+    }
+
     @Override
     public synchronized void applyAll(Set<AlertPatch> alertPatches) {
         for (AlertPatch alertPatch : alertPatches) {
-            apply(alertPatch);
+            applyWithoutPublishing(alertPatch);
         }
+        publishAlertIndex();
     }
 
     @Override
     public synchronized void apply(AlertPatch alertPatch) {
+        applyWithoutPublishing(alertPatch);
+        publishAlertIndex();
+    }
+
+    private void applyWithoutPublishing(AlertPatch alertPatch) {
         if (alertPatches.containsKey(alertPatch.getId())) {
             expire(alertPatches.get(alertPatch.getId()));
         }
@@ -203,7 +222,7 @@ public class AlertPatchServiceImpl implements AlertPatchService {
 
 
     @Override
-    public void expire(Set<String> purge) {
+    public synchronized void expire(Set<String> purge) {
         for (String patchId : purge) {
             if (alertPatches.containsKey(patchId)) {
                 expire(alertPatches.get(patchId));
@@ -211,18 +230,20 @@ public class AlertPatchServiceImpl implements AlertPatchService {
         }
 
         alertPatches.keySet().removeAll(purge);
+        publishAlertIndex();
     }
 
     @Override
-    public void expireAll() {
+    public synchronized void expireAll() {
         for (AlertPatch alertPatch : alertPatches.values()) {
             expire(alertPatch);
         }
         alertPatches.clear();
+        publishAlertIndex();
     }
 
     @Override
-    public void expireAllExcept(Set<String> retain) {
+    public synchronized void expireAllExcept(Set<String> retain) {
         ArrayList<String> toRemove = new ArrayList<String>();
 
         for (Entry<String, AlertPatch> entry : alertPatches.entrySet()) {
@@ -233,6 +254,7 @@ public class AlertPatchServiceImpl implements AlertPatchService {
             }
         }
         alertPatches.keySet().removeAll(toRemove);
+        publishAlertIndex();
     }
 
     private void expire(AlertPatch alertPatch) {
@@ -268,7 +290,7 @@ public class AlertPatchServiceImpl implements AlertPatchService {
         List<TripPattern> tripPatterns = alertPatch.getTripPatterns();
         if (tripPatterns != null) {
             for (TripPattern pattern : tripPatterns) {
-                removeAlertPatch(patchesByTripPattern.get(pattern), alertPatch);
+                removeAlertPatch(patchesByTripPattern.get(pattern.code), alertPatch);
             }
         }
         alertPatch.remove(graph);
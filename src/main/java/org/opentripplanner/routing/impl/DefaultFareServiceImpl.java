@@ -25,6 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.TIntList;
 import org.opentripplanner.model.AgencyAndId;
 import org.opentripplanner.model.FareAttribute;
 import org.opentripplanner.model.Stop;
@@ -161,15 +165,29 @@ public class DefaultFareServiceImpl implements FareService, Serializable {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultFareServiceImpl.class);
 
+    /** Upper bound on the number of ride sequences whose best fare is remembered. */
+    private static final int MAX_CACHED_FARES = 10000;
+
     /** For each fare type (regular, student, etc...) the collection of rules that apply. */
     protected Map<FareType, Collection<FareRuleSet>> fareRulesPerType;
 
+    /** An index of the rules of each fare type. It is not serialized, but rebuilt when first needed. */
+    private transient volatile Map<FareType, FareRuleIndex> ruleIndexes;
+
+    /**
+     * The best fare of recently priced ride sequences, shared by all requests. The same sequences come back often:
+     * the itineraries of a plan tend to share legs, and every sub-sequence of an itinerary is priced.
+     */
+    private transient volatile Cache<List<Object>, FareAndId> bestFares;
+
     public DefaultFareServiceImpl() {
         fareRulesPerType = new HashMap<>();
     }
 
-    public void addFareRules(FareType fareType, Collection<FareRuleSet> fareRules) {
+    public synchronized void addFareRules(FareType fareType, Collection<FareRuleSet> fareRules) {
         fareRulesPerType.put(fareType, new ArrayList<>(fareRules));
+        ruleIndexes = null;
+        bestFares = null;
     }
 
     protected List<Ride> createRides(GraphPath path) {
@@ -375,13 +393,43 @@ public class DefaultFareServiceImpl implements FareService, Serializable {
             transfersUsed += 1;
         }
         
-        FareAttribute bestAttribute = null;
-        float bestFare = Float.POSITIVE_INFINITY;
         long tripTime = lastRideStartTime - startTime;
         long journeyTime = lastRideEndTime - startTime;
-        	
-        // find the best fare that matches this set of rides
-        for (FareRuleSet ruleSet : fareRules) {
+
+        FareRuleIndex index = getRuleIndex(fareType, fareRules);
+        if (index == null) {
+            // Rules this service was not built with, e.g. a subset chosen by a subclass.
+            return findBestFareAndId(fareType, rides, fareRules.toArray(new FareRuleSet[0]), null, feedId,
+                    agencies, startZone, endZone, zones, routes, trips, transfersUsed, tripTime, journeyTime);
+        }
+        List<Object> key = Arrays.asList(fareType, feedId, agencies, startZone, endZone, zones, routes, trips,
+                transfersUsed, tripTime, journeyTime);
+        Cache<List<Object>, FareAndId> cache = getBestFares();
+        FareAndId best = cache.getIfPresent(key);
+        if (best == null) {
+            best = findBestFareAndId(fareType, rides, index.rules, index.candidates(firstRide, startZone, zones),
+                    feedId, agencies, startZone, endZone, zones, routes, trips, transfersUsed, tripTime, journeyTime);
+            cache.put(key, best);
+        }
+        return best;
+    }
+
+    /**
+     * Find the cheapest of the given rules that matches a set of rides. Of several rules with the same fare, the
+     * first one wins.
+     * @param candidates the indexes of the rules to test, or null to test all rules
+     */
+    private FareAndId findBestFareAndId(FareType fareType, List<Ride> rides, FareRuleSet[] fareRules,
+            TIntList candidates, String feedId, Set<String> agencies, String startZone, String endZone,
+            Set<String> zones, Set<AgencyAndId> routes, Set<AgencyAndId> trips, int transfersUsed, long tripTime,
+            long journeyTime) {
+        int bestRule = -1;
+        float bestFare = Float.POSITIVE_INFINITY;
+        TIntIterator it = candidates == null ? null : candidates.iterator();
+        int n = candidates == null ? fareRules.length : candidates.size();
+        for (int c = 0; c < n; c++) {
+            int i = it == null ? c : it.next();
+            FareRuleSet ruleSet = fareRules[i];
             FareAttribute attribute = ruleSet.getFareAttribute();
             // fares also don't really have an agency id, they will have the per-feed default id
             // check only if the fare is not mapped to an agency
@@ -404,18 +452,53 @@ public class DefaultFareServiceImpl implements FareService, Serializable {
                     continue;
                 }
                 float newFare = getFarePrice(attribute, fareType);
-                if (newFare < bestFare) {
-                    bestAttribute = attribute;
+                if (newFare < bestFare || (newFare == bestFare && newFare < Float.POSITIVE_INFINITY && i < bestRule)) {
+                    bestRule = i;
                     bestFare = newFare;
                 }
             }
         }
+        FareAttribute bestAttribute = bestRule < 0 ? null : fareRules[bestRule].getFareAttribute();
         LOG.debug("{} best for {}", bestAttribute, rides);
         if (bestFare == Float.POSITIVE_INFINITY) {
             LOG.debug("No fare for a ride sequence: {}", rides);
         }
         return new FareAndId(bestFare, bestAttribute == null ? null : bestAttribute.getId());
     }
+
+    /** @return the index of the given rules, or null if they are not the rules of that fare type. */
+    private FareRuleIndex getRuleIndex(FareType fareType, Collection<FareRuleSet> fareRules) {
+        Map<FareType, FareRuleIndex> indexes = ruleIndexes;
+        if (indexes == null) {
+            indexes = buildRuleIndexes();
+        }
+        FareRuleIndex index = indexes.get(fareType);
+        return index != null && index.ruleSets == fareRules ? index : null;
+    }
+
+    private synchronized Map<FareType, FareRuleIndex> buildRuleIndexes() {
+        if (ruleIndexes == null) {
+            Map<FareType, FareRuleIndex> indexes = new HashMap<>();
+            for (Map.Entry<FareType, Collection<FareRuleSet>> kv : fareRulesPerType.entrySet()) {
+                indexes.put(kv.getKey(), new FareRuleIndex(kv.getValue()));
+            }
+            ruleIndexes = indexes;
+        }
+        return ruleIndexes;
+    }
+
+    private Cache<List<Object>, FareAndId> getBestFares() {
+        Cache<List<Object>, FareAndId> cache = bestFares;
+        if (cache == null) {
+            synchronized (this) {
+                if (bestFares == null) {
+                    bestFares = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_FARES).build();
+                }
+                cache = bestFares;
+            }
+        }
+        return cache;
+    }
     
     private float getFarePrice(FareAttribute fare, FareType type) {
     	switch(type) {
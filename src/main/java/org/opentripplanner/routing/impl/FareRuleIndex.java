@@ -0,0 +1,96 @@
+package org.opentripplanner.routing.impl;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import org.opentripplanner.common.model.P2;
+import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.routing.core.FareRuleSet;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes the fare rule sets of one fare type by the restriction that is most selective, so that a ride sequence is
+ * only tested against the rule sets it can possibly match instead of against all of them.
+ *
+ * A rule set restricted to some routes can only match if it allows the route of the first ride, and likewise for
+ * trips. A rule set with origin-destination pairs can only match if one of them starts in the start zone of the
+ * sequence (or, as FareRuleSet.matches() also accepts, a pair without origin ends there). A rule set with a
+ * contains restriction can only match the exact same set of zones. Rule sets without any of these restrictions are
+ * always candidates. The candidates are still fully checked with FareRuleSet.matches().
+ */
+class FareRuleIndex {
+
+    /** The indexed collection, to check that a caller asks about the rules this index was built for. */
+    final Collection<FareRuleSet> ruleSets;
+
+    /** The rule sets in iteration order of the indexed collection, which is used to break ties. */
+    final FareRuleSet[] rules;
+
+    private final Map<AgencyAndId, TIntList> byRoute = new HashMap<>();
+
+    private final Map<AgencyAndId, TIntList> byTrip = new HashMap<>();
+
+    private final Map<String, TIntList> byStartZone = new HashMap<>();
+
+    private final Map<Set<String>, TIntList> byZones = new HashMap<>();
+
+    /** All rule sets indexed by start zone, for sequences that start outside any zone. */
+    private final TIntList originDestinationRules = new TIntArrayList();
+
+    private final TIntList unrestrictedRules = new TIntArrayList();
+
+    FareRuleIndex(Collection<FareRuleSet> ruleSets) {
+        this.ruleSets = ruleSets;
+        this.rules = ruleSets.toArray(new FareRuleSet[0]);
+        for (int i = 0; i < rules.length; i++) {
+            FareRuleSet rule = rules[i];
+            if (!rule.getRoutes().isEmpty()) {
+                for (AgencyAndId route : rule.getRoutes()) {
+                    add(byRoute, route, i);
+                }
+            } else if (!rule.getTrips().isEmpty()) {
+                for (AgencyAndId trip : rule.getTrips()) {
+                    add(byTrip, trip, i);
+                }
+            } else if (!rule.getOriginDestinations().isEmpty()) {
+                for (P2<String> od : rule.getOriginDestinations()) {
+                    add(byStartZone, od.first != null ? od.first : od.second, i);
+                }
+                originDestinationRules.add(i);
+            } else if (!rule.getContains().isEmpty()) {
+                add(byZones, rule.getContains(), i);
+            } else {
+                unrestrictedRules.add(i);
+            }
+        }
+    }
+
+    /**
+     * @return the indexes in {@link #rules} of the rule sets that may match a ride sequence, each at most once and
+     *         in no particular order.
+     */
+    TIntList candidates(Ride firstRide, String startZone, Set<String> zones) {
+        TIntList candidates = new TIntArrayList(unrestrictedRules);
+        addAll(candidates, byRoute.get(firstRide.route));
+        addAll(candidates, byTrip.get(firstRide.trip));
+        addAll(candidates, startZone == null ? originDestinationRules : byStartZone.get(startZone));
+        addAll(candidates, byZones.get(zones));
+        return candidates;
+    }
+
+    private static <K> void add(Map<K, TIntList> index, K key, int rule) {
+        TIntList rules = index.computeIfAbsent(key, k -> new TIntArrayList(1));
+        if (!rules.contains(rule)) {
+            rules.add(rule);
+        }
+    }
+
+    private static void addAll(TIntList candidates, TIntList rules) {
+        if (rules != null) {
+            candidates.addAll(rules);
+        }
+    }
+}
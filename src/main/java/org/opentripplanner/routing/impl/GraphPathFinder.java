@@ -13,18 +13,23 @@
 
 package org.opentripplanner.routing.impl;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.opentripplanner.model.AgencyAndId;
 import org.opentripplanner.api.resource.DebugOutput;
 import org.opentripplanner.common.model.GenericLocation;
 import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.algorithm.ch.ContractionHierarchyRouter;
+import org.opentripplanner.routing.algorithm.raptor.RaptorRouter;
 import org.opentripplanner.routing.algorithm.strategies.EuclideanRemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.strategies.InterleavedBidirectionalHeuristic;
+import org.opentripplanner.routing.algorithm.strategies.LandmarkRemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.strategies.RemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.strategies.TrivialRemainingWeightHeuristic;
 import org.opentripplanner.routing.core.RoutingRequest;
 import org.opentripplanner.routing.core.State;
-import org.opentripplanner.routing.core.StateData;
 import org.opentripplanner.routing.core.StateMerger;
 import org.opentripplanner.routing.edgetype.LegSwitchingEdge;
 import org.opentripplanner.routing.edgetype.TransitBoardAlight;
@@ -38,10 +43,16 @@ import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.spt.DominanceFunction;
 import org.opentripplanner.routing.spt.GraphPath;
 import org.opentripplanner.standalone.Router;
+import org.opentripplanner.util.monitoring.RoutingInstrumentation;
+import org.opentripplanner.util.monitoring.RoutingPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.stream.Collectors;
 
 /**
@@ -71,6 +82,21 @@ public class GraphPathFinder {
     private static final double DEFAULT_MAX_WALK = 2000;
     private static final double CLAMP_MAX_WALK = 15000;
 
+    /**
+     * Runs the searches of the legs between intermediate places that are searched ahead of time, when the legs are
+     * searched in parallel. It is shared by all requests, but a request never waits for it: the leg a request needs
+     * next is searched in the request thread if it has not started yet, so a saturated executor only costs speed.
+     */
+    private static final ExecutorService LEG_SEARCH_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("leg-search-%d").setDaemon(true).build());
+
+    /**
+     * The maximum number of legs a request searches ahead of time at once, so that a request with many intermediate
+     * places does not fill the queue of the shared executor with speculative searches that other requests wait behind.
+     */
+    private static final int MAX_LEG_SEARCHES_AHEAD = 2;
+
     Router router;
 
     public GraphPathFinder(Router router) {
@@ -120,10 +146,15 @@ public class GraphPathFinder {
             // Only use the BiDi heuristic for transit. It is not very useful for on-street modes.
             // heuristic = new InterleavedBidirectionalHeuristic(options.rctx.graph);
             // Use a simplistic heuristic until BiDi heuristic is improved, see #2153
-            heuristic = new InterleavedBidirectionalHeuristic(options.heuristicStepsPerMainStep);
+            heuristic = new InterleavedBidirectionalHeuristic(options.heuristicStepsPerMainStep,
+                    router.graph.getHeuristicCache());
             reversedSearchHeuristic = new InterleavedBidirectionalHeuristic(options.heuristicStepsPerMainStep);
         } else {
-            heuristic = new EuclideanRemainingWeightHeuristic();
+            // Landmarks give a much tighter bound than the straight-line distance, when built for this profile.
+            heuristic = LandmarkRemainingWeightHeuristic.forRequest(router.graph, options);
+            if (heuristic == null) {
+                heuristic = new EuclideanRemainingWeightHeuristic();
+            }
             reversedSearchHeuristic = new EuclideanRemainingWeightHeuristic();
         }
         options.rctx.remainingWeightHeuristic = heuristic;
@@ -137,7 +168,25 @@ public class GraphPathFinder {
          * This would cause long distance mode to do unbounded street searches and consider the whole graph walkable. */
         if (options.maxWalkDistance == Double.MAX_VALUE) options.maxWalkDistance = DEFAULT_MAX_WALK;
         if (options.maxWalkDistance > CLAMP_MAX_WALK) options.maxWalkDistance = CLAMP_MAX_WALK;
-        if (options.modes.isTransit() && router.graph.useFlexService && options.useFlexService) {
+        if (options.useContractionHierarchy && !options.modes.isTransit()) {
+            // Falls back to A* below when the hierarchy does not match the request or yields no path.
+            GraphPath path = new ContractionHierarchyRouter(router.graph).getPath(options);
+            if (path != null && path.getDuration() < options.maxHours * 60 * 60) {
+                return Lists.newArrayList(path);
+            }
+        }
+        boolean useFlex = options.modes.isTransit() && router.graph.useFlexService && options.useFlexService;
+        if (options.useRaptor && options.modes.isTransit() && !options.arriveBy && !useFlex) {
+            // The round-based search replaces the whole A* / trip banning loop below.
+            long raptorStart = System.nanoTime();
+            List<GraphPath> paths = new RaptorRouter(router.graph).getPaths(options, router.totalTimeout);
+            options.rctx.instrumentation.addTime(RoutingPhase.MAIN_SEARCH, raptorStart);
+            paths.removeIf(path -> path.getDuration() >= options.maxHours * 60 * 60);
+            Collections.sort(paths, new PathComparator(options.arriveBy));
+            return paths;
+        }
+        if (useFlex) {
+            long flexStart = System.nanoTime();
             // create temporary flex stops/hops (just once even if we run multiple searches)
             FlagStopGraphModifier svc1 = new FlagStopGraphModifier(router.graph);
             DeviatedRouteGraphModifier svc2 = new DeviatedRouteGraphModifier(router.graph);
@@ -149,6 +198,7 @@ public class GraphPathFinder {
             if (options.useReservationServices) {
                 svc2.createBackwardHops(options);
             }
+            options.rctx.instrumentation.addTime(RoutingPhase.FLEX_GRAPH_MODIFICATION, flexStart);
         }
         long searchBeginTime = System.currentTimeMillis();
         LOG.debug("BEGIN SEARCH");
@@ -171,7 +221,9 @@ public class GraphPathFinder {
                 break;
             }
             // Don't dig through the SPT object, just ask the A star algorithm for the states that reached the target.
+            long searchStart = System.nanoTime();
             aStar.getShortestPathTree(options, timeout);
+            options.rctx.instrumentation.addTime(RoutingPhase.MAIN_SEARCH, searchStart);
 
             if (options.rctx.aborted) {
                 break; // Search timed out or was gracefully aborted for some other reason.
@@ -183,12 +235,14 @@ public class GraphPathFinder {
 
             // Do a full reversed search to compact the legs
             if(options.compactLegsByReversedSearch) {
+                long reverseStart = System.nanoTime();
                 try {
                     // Add two extra seconds to make sure the reverse search doesn't time out.
                     newPaths = compactLegsByReversedSearch(aStar, originalReq, options, newPaths, timeout + 2, reversedSearchHeuristic);
                 } catch (Exception e) {
                     LOG.warn("CompactLegsByReversedSearch failed on request: " + originalReq.toString(), e);
                 }
+                options.rctx.instrumentation.addTime(RoutingPhase.REVERSE_SEARCH, reverseStart);
             }
             // Find all trips used in this path and ban them for the remaining searches
             for (GraphPath path : newPaths) {
@@ -225,6 +279,10 @@ public class GraphPathFinder {
             LOG.debug("we have {} paths", paths.size());
         }
         LOG.debug("END SEARCH ({} msec)", System.currentTimeMillis() - searchBeginTime);
+        if (heuristic instanceof InterleavedBidirectionalHeuristic) {
+            // Later requests to the same destination can continue from where this search left off.
+            ((InterleavedBidirectionalHeuristic) heuristic).storeInCache();
+        }
         Collections.sort(paths, new PathComparator(options.arriveBy));
         return paths;
     }
@@ -261,7 +319,7 @@ public class GraphPathFinder {
         List<GraphPath> reversedPaths = new ArrayList<>();
         for(GraphPath newPath : newPaths){
             State targetAcceptedState = options.arriveBy ? newPath.states.getLast().reverse() : newPath.states.getLast();
-            if(targetAcceptedState.stateData.getNumBooardings() < 2) {
+            if(targetAcceptedState.getNumBoardings() < 2) {
                 reversedPaths.add(newPath);
                 continue;
             }
@@ -339,9 +397,9 @@ public class GraphPathFinder {
                     // Joining two paths require compatible stateData between last state in first path and first state in last path.
                     // kissAndRide / rideAndKiss searches are typically not compatible at this stage as only one of the parts allow car at this point
                     // Copy data from first state in last path to last state in first path, but adjusting for the fact that the first path has boarded while the last path has not
-                    StateData startStateOfSecondPathData = concatenatedPaths.get(1).states.getFirst().stateData;
+                    State startStateOfSecondPath = concatenatedPaths.get(1).states.getFirst();
                     State endStateOfFirstPath = concatenatedPaths.get(0).states.getLast();
-                    endStateOfFirstPath.stateData = StateMerger.merge(endStateOfFirstPath.stateData, startStateOfSecondPathData);
+                    StateMerger.merge(endStateOfFirstPath, startStateOfSecondPath);
 
                     GraphPath joinedPath = joinPaths(concatenatedPaths, false);
 
@@ -393,6 +451,8 @@ public class GraphPathFinder {
         reversedOptions.setRoutingContext(router.graph, fromVertex, toVertex);
         reversedOptions.dominanceFunction = new DominanceFunction.MinimumWeight();
         reversedOptions.rctx.remainingWeightHeuristic = remainingWeightHeuristic;
+        // The reversed searches count towards the work done for the original request.
+        reversedOptions.rctx.instrumentation = options.rctx.instrumentation;
         reversedOptions.longDistance = true;
         reversedOptions.bannedTrips = options.bannedTrips;
 
@@ -419,6 +479,7 @@ public class GraphPathFinder {
         // Any code that changes them should be performing the copy!
 
         List<GraphPath> paths = null;
+        long startTime = System.nanoTime();
         try {
             paths = getGraphPathsConsideringIntermediates(request);
             if (paths == null && request.wheelchairAccessible) {
@@ -433,6 +494,13 @@ public class GraphPathFinder {
         } catch (VertexNotFoundException e) {
             LOG.info("Vertex not found: " + request.from + " : " + request.to);
             throw e;
+        } finally {
+            if (request.rctx != null) {
+                router.graph.getRoutingMetrics().record(request.rctx.instrumentation, System.nanoTime() - startTime);
+                if (request.showInstrumentation) {
+                    request.rctx.debugOutput.instrumentation = request.rctx.instrumentation;
+                }
+            }
         }
 
         // Detect and report that most obnoxious of bugs: path reversal asymmetry.
@@ -484,10 +552,15 @@ public class GraphPathFinder {
             List<GenericLocation> places = Lists.newArrayList(request.from);
             places.addAll(request.intermediatePlaces);
             places.add(request.to);
+            // The graph visualizer is not thread-safe.
+            if (request.parallelIntermediatePlaces && router.graphVisualizer == null) {
+                return getGraphPathsOfLegsInParallel(request, places);
+            }
             long time = request.dateTime;
 
             List <GraphPath> completePaths = new ArrayList<>();
             DebugOutput debugOutput = null;
+            RoutingInstrumentation instrumentation = null;
 
             Vertex[] fromVertices = new Vertex[places.size()];
             Vertex[] toVertices = new Vertex[places.size()];
@@ -528,12 +601,14 @@ public class GraphPathFinder {
                     } else {// Store the debug info accumulator
                         debugOutput = intermediateRequest.rctx.debugOutput;
                     }
+                    instrumentation = shareInstrumentation(intermediateRequest, instrumentation);
 
                     List<GraphPath> partialPaths = getPaths(intermediateRequest);
                     if (partialPaths.size() == 0) {
                         if (completePaths.size() == 0) {
                             request.setRoutingContext(router.graph);
                             request.rctx.debugOutput = debugOutput;
+                            shareInstrumentation(request, instrumentation);
                             return partialPaths;
                         }
                         break OUTER;
@@ -558,12 +633,263 @@ public class GraphPathFinder {
             }
             request.setRoutingContext(router.graph);
             request.rctx.debugOutput = debugOutput;
+            shareInstrumentation(request, instrumentation);
             return completePaths;
         } else {
             return getPaths(request);
         }
     }
 
+    /**
+     * Same as the sequential case of {@link #getGraphPathsConsideringIntermediates(RoutingRequest)}, with the same
+     * results, but searching the legs of an itinerary concurrently.
+     *
+     * A leg is searched at the time the previous one arrives (departs when arriving by), so it is searched ahead of
+     * time at a predicted time, and the result is only used if the prediction turns out to be exactly the time the
+     * sequential search would use. With transit predictions hit often: the arrival of a leg is that of the vehicle
+     * it rides, which does not change when the leg starts a bit later. The leg needed next is searched in the request
+     * thread, unless it is already searched in the background, while up to {@link #MAX_LEG_SEARCHES_AHEAD} of the
+     * following legs are searched in the background at times predicted from the searches done so far. Whenever the
+     * time of a leg is mispredicted, it is searched at its exact time. The latency is about that of the slowest legs
+     * when predictions hit, and that of the sequential search when none do.
+     */
+    private List<GraphPath> getGraphPathsOfLegsInParallel(RoutingRequest request, List<GenericLocation> places) {
+        int nLegs = places.size() - 1;
+        long time = request.dateTime;
+
+        List<GraphPath> completePaths = new ArrayList<>();
+        DebugOutput debugOutput = null;
+        RoutingInstrumentation instrumentation = null;
+
+        Vertex[] fromVertices = new Vertex[places.size()];
+        Vertex[] toVertices = new Vertex[places.size()];
+
+        // The searches of each leg by time, in the order the legs are searched, and those of the previous itinerary.
+        List<Map<Long, LegSearch>> searches = new ArrayList<>();
+        LegSearch[] previous = new LegSearch[nLegs];
+        try {
+            OUTER: for (int i = 0; i < request.numItineraries; i++) {
+                searches.clear();
+                for (int leg = 0; leg < nLegs; leg++) {
+                    searches.add(new HashMap<>());
+                }
+                List<GraphPath> paths = new ArrayList<>();
+                for (int leg = 0; leg < nLegs; leg++) {
+                    LegSearch search = searches.get(leg).get(time);
+                    if (search == null) {
+                        search = createLegSearch(request, places, leg, time, fromVertices, toVertices);
+                        searches.get(leg).put(time, search);
+                    }
+                    // Search the following legs ahead of time while this one is searched, up to the limit.
+                    long predicted = time;
+                    for (int next = leg + 1; next < nLegs; next++) {
+                        if (countSearchesAhead(searches, search) >= MAX_LEG_SEARCHES_AHEAD) {
+                            break;
+                        }
+                        predicted = predictNextTime(request, searches.get(next - 1).values(), previous[next - 1],
+                                predicted);
+                        if (!searches.get(next).containsKey(predicted)) {
+                            LegSearch ahead = createLegSearch(request, places, next, predicted, fromVertices,
+                                    toVertices);
+                            LEG_SEARCH_EXECUTOR.execute(ahead.paths);
+                            searches.get(next).put(predicted, ahead);
+                        }
+                    }
+                    List<GraphPath> partialPaths = search.getPaths();
+                    if (debugOutput != null) {
+                        debugOutput.addAll(search.request.rctx.debugOutput);
+                    } else {
+                        debugOutput = search.request.rctx.debugOutput;
+                    }
+                    instrumentation = shareInstrumentation(search.request, instrumentation);
+                    previous[leg] = search;
+
+                    if (partialPaths.size() == 0) {
+                        if (completePaths.size() == 0) {
+                            request.setRoutingContext(router.graph);
+                            request.rctx.debugOutput = debugOutput;
+                            shareInstrumentation(request, instrumentation);
+                            return partialPaths;
+                        }
+                        break OUTER;
+                    }
+
+                    GraphPath path = partialPaths.get(0);
+                    paths.add(path);
+                    time = (request.arriveBy
+                        ? path.getStartTime() - request.transferSlack
+                        : path.getEndTime() + request.transferSlack);
+                }
+                if (request.arriveBy) {
+                    Collections.reverse(paths);
+                }
+                GraphPath joinedPath = joinPaths(paths, true);
+                time = (request.arriveBy
+                    ? joinedPath.getEndTime() - 60
+                    : joinedPath.getStartTime() + 60);
+                completePaths.add(joinedPath);
+                cancel(searches);
+            }
+        } finally {
+            cancel(searches);
+        }
+        request.setRoutingContext(router.graph);
+        request.rctx.debugOutput = debugOutput;
+        shareInstrumentation(request, instrumentation);
+        return completePaths;
+    }
+
+    /**
+     * Prepare the search of a leg, which is run in the background if it is executed, and otherwise by the first call
+     * to {@link LegSearch#getPaths()}. Its routing context is made in the calling thread, so that each place is linked
+     * once, like in the sequential search, and all searches of a leg use the same vertices.
+     * @param leg the index of the leg in the order the legs are searched
+     */
+    private LegSearch createLegSearch(RoutingRequest request, List<GenericLocation> places, int leg, long time,
+            Vertex[] fromVertices, Vertex[] toVertices) {
+        int placeIndex = request.arriveBy ? places.size() - 1 - leg : leg + 1;
+        RoutingRequest legRequest = request.clone();
+        legRequest.setNumItineraries(1);
+        legRequest.dateTime = time;
+        legRequest.from = places.get(placeIndex - 1);
+        legRequest.to = places.get(placeIndex);
+        legRequest.rctx = null;
+
+        if (fromVertices[placeIndex - 1] != null && toVertices[placeIndex] != null) {
+            legRequest.setRoutingContext(router.graph, fromVertices[placeIndex - 1], toVertices[placeIndex]);
+        } else {
+            legRequest.setRoutingContext(router.graph);
+        }
+        if (fromVertices[placeIndex - 1] == null) {
+            fromVertices[placeIndex - 1] = legRequest.rctx.fromVertex;
+        }
+        if (toVertices[placeIndex] == null) {
+            toVertices[placeIndex] = legRequest.rctx.toVertex;
+        }
+        return new LegSearch(legRequest, new FutureTask<>(() -> getPaths(legRequest)));
+    }
+
+    /**
+     * @return the number of searches of this request which are waiting in the executor or running in it, leaving out
+     * the one this request needs now, which is run or waited for in the request thread.
+     */
+    private static int countSearchesAhead(List<Map<Long, LegSearch>> searches, LegSearch current) {
+        int count = 0;
+        for (Map<Long, LegSearch> legSearches : searches) {
+            for (LegSearch search : legSearches.values()) {
+                if (search != current && !search.paths.isDone()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Predict the time the leg after the given one will be searched at, from the finished searches of the given leg.
+     * The one closest to the predicted time of the leg is used: if its path can still be taken at that time, it is
+     * assumed to be the path found, otherwise the path is assumed to be shifted by the difference in time.
+     * @param searches the searches of the leg in this itinerary
+     * @param previous the search of the leg used in the previous itinerary, if any
+     */
+    private static long predictNextTime(RoutingRequest request, Collection<LegSearch> searches, LegSearch previous,
+            long time) {
+        GraphPath closest = null;
+        long closestTime = 0;
+        for (LegSearch search : Iterables.concat(searches, Collections.singleton(previous))) {
+            GraphPath path = search == null ? null : search.getFinishedPath();
+            if (path != null && (closest == null || Math.abs(search.time - time) < Math.abs(closestTime - time))) {
+                closest = path;
+                closestTime = search.time;
+            }
+        }
+        if (closest == null) {
+            return time;
+        }
+        if (request.arriveBy) {
+            long shift = closest.getEndTime() <= time ? 0 : time - closestTime;
+            return closest.getStartTime() + shift - request.transferSlack;
+        }
+        long shift = closest.getStartTime() >= time ? 0 : time - closestTime;
+        return closest.getEndTime() + shift + request.transferSlack;
+    }
+
+    /**
+     * Stop the searches which are not finished, as their results are no longer needed. Those already running are
+     * aborted rather than interrupted, so that they leave the executor as soon as A* notices.
+     */
+    private static void cancel(List<Map<Long, LegSearch>> searches) {
+        for (Map<Long, LegSearch> legSearches : searches) {
+            for (LegSearch search : legSearches.values()) {
+                if (!search.paths.isDone()) {
+                    search.request.rctx.aborted = true;
+                    search.paths.cancel(false);
+                }
+            }
+        }
+    }
+
+    /** The search of a leg between intermediate places, at a given time. */
+    private static class LegSearch {
+
+        final RoutingRequest request;
+
+        final long time;
+
+        final FutureTask<List<GraphPath>> paths;
+
+        LegSearch(RoutingRequest request, FutureTask<List<GraphPath>> paths) {
+            this.request = request;
+            this.time = request.dateTime;
+            this.paths = paths;
+        }
+
+        /**
+         * Run the search in the calling thread if it has not started yet, otherwise wait for it to finish. Throws
+         * what it threw.
+         */
+        List<GraphPath> getPaths() {
+            try {
+                // Does nothing if the search is already running in the executor or is done.
+                paths.run();
+                return paths.get();
+            } catch (ExecutionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        /** @return the path found if the search has finished and found one, without waiting. */
+        GraphPath getFinishedPath() {
+            if (!paths.isDone() || paths.isCancelled()) {
+                return null;
+            }
+            try {
+                List<GraphPath> result = paths.get();
+                return result == null || result.isEmpty() ? null : result.get(0);
+            } catch (ExecutionException | InterruptedException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Make the routing context of a sub-request use the given instrumentation, keeping the street linking time of
+     * its own. Returns the instrumentation now in use, which is the sub-request's own if none was given.
+     */
+    private static RoutingInstrumentation shareInstrumentation(RoutingRequest request,
+            RoutingInstrumentation instrumentation) {
+        if (instrumentation == null) {
+            return request.rctx.instrumentation;
+        }
+        instrumentation.addAll(request.rctx.instrumentation);
+        request.rctx.instrumentation = instrumentation;
+        return instrumentation;
+    }
+
     private static GraphPath joinPaths(List<GraphPath> paths, Boolean addLegsSwitchingEdges) {
         State lastState = paths.get(0).states.getLast();
         GraphPath newPath = new GraphPath(lastState, false);
@@ -70,7 +70,7 @@ public class GraphScanner {
             LOG.info("Graph files will be sought in paths relative to {}", basePath);
             for (String routerId : routerIds) {
                 InputStreamGraphSource graphSource = InputStreamGraphSource.newFileGraphSource(
-                        routerId, getBasePath(routerId));
+                        routerId, getBasePath(routerId), graphService.getSharedStreetData());
                 graphService.registerGraph(routerId, graphSource);
             }
         } else {
@@ -15,6 +15,7 @@ package org.opentripplanner.routing.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SharedStreetData;
 import org.opentripplanner.routing.services.GraphSource;
 import org.opentripplanner.standalone.Router;
 import org.opentripplanner.standalone.datastore.DataSource;
@@ -26,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.function.Consumer;
 
 
 /**
@@ -40,20 +42,35 @@ public class InputStreamGraphSource implements GraphSource {
      * we expect graph last modification time to be updated at at least that frequency. If not, you
      * can either increase this value, or use an atomic move when copying the file.
      * */
-    private Router router;
+    private volatile Router router;
 
     private String routerId;
 
     private OtpDataStore store;
 
+    /** Street data shared with the graphs of the other routers, or null not to share it. */
+    private SharedStreetData sharedStreetData;
+
     /**
      * @return A GraphSource loading graph from the file system under a base path.
      */
     public static InputStreamGraphSource newFileGraphSource(String routerId, File path) {
-        return new InputStreamGraphSource(
+        return newFileGraphSource(routerId, path, null);
+    }
+
+    /**
+     * @return A GraphSource loading graph from the file system under a base path, sharing the street data of the
+     * loaded graph with the other graphs using the given instance.
+     */
+    public static InputStreamGraphSource newFileGraphSource(
+            String routerId, File path, SharedStreetData sharedStreetData
+    ) {
+        InputStreamGraphSource graphSource = new InputStreamGraphSource(
                 routerId,
                 new DataStoreConfig(path).open()
         );
+        graphSource.sharedStreetData = sharedStreetData;
+        return graphSource;
     }
 
     private InputStreamGraphSource(String routerId, OtpDataStore store) {
@@ -78,6 +95,36 @@ public class InputStreamGraphSource implements GraphSource {
         }
     }
 
+    @Override
+    public boolean canReload() {
+        return true;
+    }
+
+    /**
+     * The new graph is streamed in and started up while the current one keeps serving requests. Its street data is
+     * shared with the graph being replaced, so only one copy of the geometries, elevation profiles and names is kept
+     * once the new graph is loaded.
+     */
+    @Override
+    public Router reload(Consumer<Router> warmUp) {
+        // We synchronize on 'this' to prevent multiple reloads from being called at the same time
+        synchronized (this) {
+            Router newRouter = loadGraph();
+            if (newRouter == null) {
+                throw new IllegalStateException("No graph could be loaded for router '" + routerId + "'.");
+            }
+            try {
+                warmUp.accept(newRouter);
+            } catch (RuntimeException e) {
+                newRouter.shutdown();
+                throw e;
+            }
+            Router oldRouter = router;
+            router = newRouter;
+            return oldRouter;
+        }
+    }
+
     /**
      * Do the actual operation of graph loading. Load configuration if present, and startup the
      * router with the help of the router lifecycle manager.
@@ -101,6 +148,10 @@ public class InputStreamGraphSource implements GraphSource {
             }
 
             newGraph.routerId = (routerId);
+            if (sharedStreetData != null) {
+                LOG.info("Sharing street data of graph '{}' with the other graphs.", routerId);
+                sharedStreetData.share(newGraph);
+            }
         } catch (IOException e) {
             LOG.warn("Graph file is not readable for routerId '{}': {}", routerId, graph.path(), e);
             return null;
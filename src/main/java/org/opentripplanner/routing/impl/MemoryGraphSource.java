@@ -14,6 +14,7 @@
 package org.opentripplanner.routing.impl;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.node.NullNode;
 import org.opentripplanner.routing.graph.Graph;
@@ -61,4 +62,15 @@ public class MemoryGraphSource implements GraphSource {
             LOG.error("Can't startup graph: error with embed config (" + router.graph.routerConfig + ")", e);
         }
     }
+
+    /** The graph was given in memory, there is nothing to load it again from. */
+    @Override
+    public boolean canReload() {
+        return false;
+    }
+
+    @Override
+    public Router reload(Consumer<Router> warmUp) {
+        throw new UnsupportedOperationException("An in-memory graph cannot be reloaded.");
+    }
 }
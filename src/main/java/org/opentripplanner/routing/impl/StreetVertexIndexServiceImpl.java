@@ -16,12 +16,11 @@ package org.opentripplanner.routing.impl;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.index.SpatialIndex;
-import org.locationtech.jts.index.strtree.STRtree;
 import org.opentripplanner.analyst.core.Sample;
 import org.opentripplanner.analyst.request.SampleFactory;
 import org.opentripplanner.common.geometry.GeometryUtils;
-import org.opentripplanner.common.geometry.HashGridSpatialIndex;
+import org.opentripplanner.common.geometry.LayeredSpatialIndex;
+import org.opentripplanner.common.geometry.PackedSpatialIndex;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.GenericLocation;
 import org.opentripplanner.common.model.P2;
@@ -49,12 +48,14 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 /**
  * Indexes all edges and transit vertices of the graph spatially. Has a variety of query methods
  * used during network linking and trip planning.
+ *
+ * The edges and vertices of the graph are packed into static indexes when this service is created;
+ * vertices added later on (e.g. by the bike rental updater) go to a small mutable overlay.
  * 
  * Creates a TemporaryStreetLocation representing a location on a street that's not at an
  * intersection, based on input latitude and longitude. Instantiating this class is expensive,
@@ -67,10 +68,10 @@ public class StreetVertexIndexServiceImpl implements StreetVertexIndexService {
     /**
      * Contains only instances of {@link StreetEdge}
      */
-    private SpatialIndex edgeTree;
-    private SpatialIndex transitStopTree;
-    private SpatialIndex verticesTree;
-    private SpatialIndex bikeRentalStationTree;
+    private LayeredSpatialIndex<Edge> edgeTree;
+    private LayeredSpatialIndex<TransitStop> transitStopTree;
+    private LayeredSpatialIndex<Vertex> verticesTree;
+    private LayeredSpatialIndex<BikeRentalStationVertex> bikeRentalStationTree;
 
     // If a point is within MAX_CORNER_DISTANCE, it is treated as at the corner.
     private static final double MAX_CORNER_DISTANCE_METERS = 10;
@@ -80,32 +81,9 @@ public class StreetVertexIndexServiceImpl implements StreetVertexIndexService {
     private SimpleStreetSplitter simpleStreetSplitter;
 
     public StreetVertexIndexServiceImpl(Graph graph) {
-        this(graph, true);
-    }
-
-    public StreetVertexIndexServiceImpl(Graph graph, boolean hashGrid) {
         this.graph = graph;
-        if (hashGrid) {
-            edgeTree = new HashGridSpatialIndex<>();
-            transitStopTree = new HashGridSpatialIndex<>();
-            verticesTree = new HashGridSpatialIndex<>();
-            bikeRentalStationTree = new HashGridSpatialIndex<>();
-        } else {
-            edgeTree = new STRtree();
-            transitStopTree = new STRtree();
-            verticesTree = new STRtree();
-            bikeRentalStationTree = new STRtree();
-        }
         postSetup();
-        if (!hashGrid) {
-            ((STRtree) edgeTree).build();
-            ((STRtree) transitStopTree).build();
-            simpleStreetSplitter = new SimpleStreetSplitter(this.graph, null, null, false);
-        } else {
-            simpleStreetSplitter = new SimpleStreetSplitter(this.graph,
-                (HashGridSpatialIndex<Edge>) edgeTree, transitStopTree, false);
-        }
-
+        simpleStreetSplitter = new SimpleStreetSplitter(this.graph, edgeTree, transitStopTree, false);
     }
 
     /**
@@ -201,18 +179,16 @@ public class StreetVertexIndexServiceImpl implements StreetVertexIndexService {
         return GeometryUtils.splitGeometryAtPoint(geometry, nearestPoint);
     }
 
-    @SuppressWarnings("rawtypes")
     private void postSetup() {
+        PackedSpatialIndex.Builder<Edge> edges = PackedSpatialIndex.builder();
+        PackedSpatialIndex.Builder<TransitStop> transitStops = PackedSpatialIndex.builder();
+        PackedSpatialIndex.Builder<Vertex> vertices = PackedSpatialIndex.builder();
+        PackedSpatialIndex.Builder<BikeRentalStationVertex> bikeRentalStations = PackedSpatialIndex.builder();
         for (Vertex gv : graph.getVertices()) {
-            Vertex v = gv;
             /*
              * We add all edges with geometry, skipping transit, filtering them out after. We do not
              * index transit edges as we do not need them and some GTFS do not have shape data, so
-             * long straight lines between 2 faraway stations will wreck performance on a hash grid
-             * spatial index.
-             * 
-             * If one need to store transit edges in the index, we could improve the hash grid
-             * rasterizing splitting long segments.
+             * long straight lines between 2 faraway stations would only enlarge the nodes of the index.
              */
             for (Edge e : gv.getOutgoing()) {
                 if (e instanceof PatternEdge || e instanceof SimpleTransfer)
@@ -221,14 +197,21 @@ public class StreetVertexIndexServiceImpl implements StreetVertexIndexService {
                 if (geometry == null) {
                     continue;
                 }
-                Envelope env = geometry.getEnvelopeInternal();
-                if (edgeTree instanceof HashGridSpatialIndex)
-                    ((HashGridSpatialIndex)edgeTree).insert(geometry, e);
-                else
-                    edgeTree.insert(env, e);
+                edges.add(geometry.getEnvelopeInternal(), e);
+            }
+            Envelope env = new Envelope(gv.getCoordinate());
+            if (gv instanceof TransitStop) {
+                transitStops.add(env, (TransitStop) gv);
             }
-            addToSpatialIndex(v);
+            if (gv instanceof BikeRentalStationVertex) {
+                bikeRentalStations.add(env, (BikeRentalStationVertex) gv);
+            }
+            vertices.add(env, gv);
         }
+        edgeTree = new LayeredSpatialIndex<>(edges.build());
+        transitStopTree = new LayeredSpatialIndex<>(transitStops.build());
+        verticesTree = new LayeredSpatialIndex<>(vertices.build());
+        bikeRentalStationTree = new LayeredSpatialIndex<>(bikeRentalStations.build());
     }
 
     /**
@@ -239,78 +222,64 @@ public class StreetVertexIndexServiceImpl implements StreetVertexIndexService {
         Envelope env = new Envelope(coordinate);
         env.expandBy(SphericalDistanceLibrary.metersToLonDegrees(radius, coordinate.y),
                 SphericalDistanceLibrary.metersToDegrees(radius));
-        List<TransitStop> nearby = getTransitStopForEnvelope(env);
         List<TransitStop> results = new ArrayList<TransitStop>();
-        for (TransitStop v : nearby) {
+        transitStopTree.query(env, v -> {
             if (SphericalDistanceLibrary.distance(v.getCoordinate(), coordinate) <= radius) {
                 results.add(v);
             }
-        }
+        });
         return results;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public List<Vertex> getVerticesForEnvelope(Envelope envelope) {
-        List<Vertex> vertices = verticesTree.query(envelope);
-        // Here we assume vertices list modifiable
-        for (Iterator<Vertex> iv = vertices.iterator(); iv.hasNext();) {
-            Vertex v = iv.next();
-            if (!envelope.contains(new Coordinate(v.getLon(), v.getLat())))
-                iv.remove();
-        }
+        List<Vertex> vertices = new ArrayList<>();
+        verticesTree.query(envelope, v -> {
+            if (envelope.contains(v.getLon(), v.getLat()))
+                vertices.add(v);
+        });
         return vertices;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Collection<Edge> getEdgesForEnvelope(Envelope envelope) {
-        List<Edge> edges = edgeTree.query(envelope);
-        for (Iterator<Edge> ie = edges.iterator(); ie.hasNext();) {
-            Edge e = ie.next();
-            Envelope eenv = e.getGeometry().getEnvelopeInternal();
-            //Envelope eenv = e.getEnvelope();
-            if (!envelope.intersects(eenv))
-                ie.remove();
-        }
+        List<Edge> edges = new ArrayList<>();
+        edgeTree.query(envelope, e -> {
+            if (envelope.intersects(e.getGeometry().getEnvelopeInternal()))
+                edges.add(e);
+        });
         return edges;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public List<TransitStop> getTransitStopForEnvelope(Envelope envelope) {
-        List<TransitStop> transitStops = transitStopTree.query(envelope);
-        for (Iterator<TransitStop> its = transitStops.iterator(); its.hasNext();) {
-            TransitStop ts = its.next();
-            if (!envelope.intersects(new Coordinate(ts.getLon(), ts.getLat())))
-                its.remove();
-        }
+        List<TransitStop> transitStops = new ArrayList<>();
+        transitStopTree.query(envelope, ts -> {
+            if (envelope.intersects(ts.getLon(), ts.getLat()))
+                transitStops.add(ts);
+        });
         return transitStops;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public List<BikeRentalStationVertex> getBikeRentalStationForEnvelope(Envelope envelope) {
-        List<BikeRentalStationVertex> bikeParks = bikeRentalStationTree.query(envelope);
-        for (Iterator<BikeRentalStationVertex> its = bikeParks.iterator(); its.hasNext();) {
-            BikeRentalStationVertex ts = its.next();
-            if (!envelope.intersects(new Coordinate(ts.getLon(), ts.getLat())))
-                its.remove();
-        }
-        return bikeParks;
+        List<BikeRentalStationVertex> bikeRentalStations = new ArrayList<>();
+        bikeRentalStationTree.query(envelope, bs -> {
+            if (envelope.intersects(bs.getLon(), bs.getLat()))
+                bikeRentalStations.add(bs);
+        });
+        return bikeRentalStations;
     }
 
     @Override
     public void addToSpatialIndex(Vertex v) {
+        Envelope env = new Envelope(v.getCoordinate());
         if (v instanceof TransitStop) {
-            Envelope env = new Envelope(v.getCoordinate());
-            transitStopTree.insert(env, v);
+            transitStopTree.insert(env, (TransitStop) v);
         }
         if (v instanceof BikeRentalStationVertex) {
-            Envelope env = new Envelope(v.getCoordinate());
-            bikeRentalStationTree.insert(env, v);
+            bikeRentalStationTree.insert(env, (BikeRentalStationVertex) v);
         }
-        Envelope env = new Envelope(v.getCoordinate());
         verticesTree.insert(env, v);
     }
 
@@ -319,27 +288,17 @@ public class StreetVertexIndexServiceImpl implements StreetVertexIndexService {
      * @return The nearest intersection, null if none found.
      */
     public StreetVertex getIntersectionAt(Coordinate coordinate) {
-        double dLon = SphericalDistanceLibrary.metersToLonDegrees(MAX_CORNER_DISTANCE_METERS,
-                coordinate.y);
-        double dLat = SphericalDistanceLibrary.metersToDegrees(MAX_CORNER_DISTANCE_METERS);
-        Envelope envelope = new Envelope(coordinate);
-        envelope.expandBy(dLon, dLat);
-        List<Vertex> nearby = getVerticesForEnvelope(envelope);
-        StreetVertex nearest = null;
-        double bestDistanceMeter = Double.POSITIVE_INFINITY;
-        for (Vertex v : nearby) {
-            if (v instanceof StreetVertex) {
-                v.getLabel().startsWith("osm:");
-                double distanceMeter = SphericalDistanceLibrary.fastDistance(coordinate, v.getCoordinate());
-                if (distanceMeter < MAX_CORNER_DISTANCE_METERS) {
-                    if (distanceMeter < bestDistanceMeter) {
-                        bestDistanceMeter = distanceMeter;
-                        nearest = (StreetVertex) v;
+        double xscale = Math.cos(Math.toRadians(coordinate.y));
+        List<Vertex> nearest = verticesTree.nearest(coordinate.x, coordinate.y, xscale, 1,
+                SphericalDistanceLibrary.metersToDegrees(MAX_CORNER_DISTANCE_METERS), v -> {
+                    if (!(v instanceof StreetVertex)) {
+                        return Double.POSITIVE_INFINITY;
                     }
-                }
-            }
-        }
-        return nearest;
+                    double dx = (v.getLon() - coordinate.x) * xscale;
+                    double dy = v.getLat() - coordinate.y;
+                    return Math.sqrt(dx * dx + dy * dy);
+                });
+        return nearest.isEmpty() ? null : (StreetVertex) nearest.get(0);
     }
     
     @Override
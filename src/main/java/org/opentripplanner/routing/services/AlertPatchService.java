@@ -14,6 +14,7 @@
 package org.opentripplanner.routing.services;
 
 import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.routing.alertpatch.AlertIndex;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
 import org.opentripplanner.routing.edgetype.TripPattern;
 
@@ -39,6 +40,9 @@ public interface AlertPatchService {
 
     Collection<AlertPatch> getTripPatternPatches(TripPattern tripPattern);
 
+    /** @return an immutable index of the current patches, replaced whenever they change. */
+    AlertIndex getAlertIndex();
+
     void apply(AlertPatch alertPatch);
 
     void expire(Set<String> ids);
@@ -13,9 +13,12 @@
 
 package org.opentripplanner.routing.services;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.geotools.referencing.factory.DeferredAuthorityFactory;
 import org.geotools.util.WeakCollectionCleaner;
 import org.opentripplanner.routing.error.GraphNotFoundException;
+import org.opentripplanner.routing.graph.SharedStreetData;
+import org.opentripplanner.standalone.InFlightRequests;
 import org.opentripplanner.standalone.Router;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,7 +27,11 @@ import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,7 +57,39 @@ public class GraphService {
 
     private String defaultRouterId = "";
 
+    /** Street geometries, elevation profiles and names loaded with one router's graph, shared with the others. */
+    private final SharedStreetData sharedStreetData = new SharedStreetData();
 
+    /** How long a graph being reloaded may wait for its blocking updaters and warm-up before it is swapped in. */
+    private static final long WARM_UP_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    /** How long a router replaced by a reload is kept for the requests still using it before it is shut down. */
+    private static final long DRAIN_TIMEOUT_MILLIS = 2 * 60 * 1000;
+
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
+
+    /** Reloads run one at a time in the background, so that the request asking for one is not waited for. */
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("graph-reloader").setDaemon(true).build()
+    );
+
+    private final Map<String, ReloadStatus> reloadStatus = new ConcurrentHashMap<>();
+
+    /** The progress of the last reload of a router. */
+    public enum ReloadStatus {
+        /** Waiting for another reload to finish. */
+        QUEUED,
+        /** Loading the new graph, while the current one serves requests. */
+        LOADING,
+        /** Waiting for the updaters of the new graph to be ready, and for it to be warmed up. */
+        WARMING_UP,
+        /** The new graph serves requests, the old one is shut down once the requests using it are finished. */
+        DRAINING,
+        /** The new graph serves requests and the old one is released. */
+        DONE,
+        /** No new graph could be loaded, the current one still serves requests. */
+        FAILED
+    }
 
     /** @param defaultRouterId The ID of the default router to return when no one is specified */
     public void setDefaultRouterId(String defaultRouterId) {
@@ -65,9 +104,18 @@ public class GraphService {
     @PreDestroy
     private void teardown() {
         LOG.info("Cleaning-up graphs...");
+        reloader.shutdownNow();
         cleanupWebapp();
     }
 
+    public SharedStreetData getSharedStreetData() {
+        return sharedStreetData;
+    }
+
+    public InFlightRequests getInFlightRequests() {
+        return inFlightRequests;
+    }
+
     /**
      * @return the current default router object
      */
@@ -137,6 +185,96 @@ public class GraphService {
         }
     }
 
+    /**
+     * Load a new graph for the given router in the background, and swap it in without interrupting the service: the
+     * current graph keeps serving requests while the new one is loaded and warmed up, requests started after the swap
+     * use the new one, and the old one is shut down once the requests started before the swap are finished.
+     *
+     * @return false if the routerId is not registered, or its graph cannot be reloaded
+     * @see #getReloadStatus(String)
+     * @see #canReload(String)
+     */
+    public boolean startReload(String routerId) {
+        GraphSource graphSource = graphSources.get(routerId);
+        if (graphSource == null) {
+            LOG.error("no graph registered with the routerId '{}'", routerId);
+            return false;
+        }
+        if (!graphSource.canReload()) {
+            LOG.warn("The graph of router '{}' cannot be reloaded.", routerId);
+            return false;
+        }
+        reloadStatus.put(routerId, ReloadStatus.QUEUED);
+        reloader.execute(() -> reload(routerId, graphSource));
+        return true;
+    }
+
+    /** @return whether the router is registered and its graph source can load it again. */
+    public boolean canReload(String routerId) {
+        GraphSource graphSource = graphSources.get(routerId);
+        return graphSource != null && graphSource.canReload();
+    }
+
+    /** @return the progress of the last reload of the given router, or null if it was never reloaded. */
+    public ReloadStatus getReloadStatus(String routerId) {
+        return reloadStatus.get(routerId);
+    }
+
+    private void reload(String routerId, GraphSource graphSource) {
+        LOG.info("Reloading router '{}'", routerId);
+        reloadStatus.put(routerId, ReloadStatus.LOADING);
+        Router oldRouter;
+        try {
+            oldRouter = graphSource.reload(router -> {
+                reloadStatus.put(routerId, ReloadStatus.WARMING_UP);
+                warmUp(router);
+            });
+        } catch (RuntimeException e) {
+            LOG.error("Could not reload router '{}', the current graph is kept.", routerId, e);
+            reloadStatus.put(routerId, ReloadStatus.FAILED);
+            return;
+        }
+        // Requests started from now on get the new router.
+        long lastRequest = inFlightRequests.getLastStarted();
+        reloadStatus.put(routerId, ReloadStatus.DRAINING);
+        LOG.info("Router '{}' swapped in, waiting for {} requests to finish.", routerId, inFlightRequests.size());
+        if (oldRouter != null) {
+            try {
+                if (!inFlightRequests.awaitRequestsUpTo(lastRequest, DRAIN_TIMEOUT_MILLIS)) {
+                    LOG.warn("Requests still running on the replaced router '{}', shutting it down anyway.", routerId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            oldRouter.shutdown();
+        }
+        reloadStatus.put(routerId, ReloadStatus.DONE);
+        LOG.info("Router '{}' reloaded.", routerId);
+    }
+
+    /**
+     * Wait for the updaters which block readiness, so that the new graph has real-time data when swapped in, and for
+     * the router to be warmed up if it is configured to.
+     */
+    private void warmUp(Router router) {
+        long deadline = System.currentTimeMillis() + WARM_UP_TIMEOUT_MILLIS;
+        try {
+            List<String> waitingUpdaters;
+            while (!(waitingUpdaters = router.getWaitingUpdaters()).isEmpty()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    LOG.warn("Swapping in router '{}' before updaters {} are ready.", router.id, waitingUpdaters);
+                    return;
+                }
+                Thread.sleep(1000);
+            }
+            if (router.warmUp != null && !router.warmUp.await(deadline - System.currentTimeMillis())) {
+                LOG.warn("Swapping in router '{}' before it is warmed up: {}", router.id, router.warmUp.getProgress());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Hook to cleanup various stuff of some used libraries (org.geotools), which depend on the
      * external client to call them for cleaning-up.
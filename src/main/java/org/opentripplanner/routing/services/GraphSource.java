@@ -2,6 +2,8 @@ package org.opentripplanner.routing.services;
 
 import org.opentripplanner.standalone.Router;
 
+import java.util.function.Consumer;
+
 /**
  * A class responsible of graph creation / ownership.
  * 
@@ -17,4 +19,21 @@ public interface GraphSource {
      * Looad the graph from it's source.
      */
     void load();
+
+    /**
+     * @return whether {@link #reload(Consumer)} can load a new graph, i.e. whether the graph comes from somewhere it
+     * can be read again.
+     */
+    boolean canReload();
+
+    /**
+     * Load a new graph from the source and swap it in for the current one, which keeps serving requests while the new
+     * one is loaded and warmed up. The router replaced is not shut down, as requests may still be using it. Only
+     * called if {@link #canReload()}.
+     *
+     * @param warmUp called on the new router before it is swapped in
+     * @return the router replaced, or null if there was none
+     * @throws IllegalStateException if no new graph could be loaded, in which case the current one is kept
+     */
+    Router reload(Consumer<Router> warmUp);
 }
@@ -15,6 +15,8 @@ package org.opentripplanner.routing.spt;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import org.opentripplanner.routing.core.RoutingRequest;
 import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.graph.Vertex;
@@ -44,14 +46,42 @@ public class ShortestPathTree {
 
     public final DominanceFunction dominanceFunction;
 
+    /**
+     * States at the vertices of the graph, keyed on their dense number. Vertices are numbered along a space-filling
+     * curve, so the table slots touched by a search expanding outward from its origin are clustered.
+     */
+    private TIntObjectMap<List<State>> indexedStateSets;
+
+    /** States at vertices that have no number: temporary vertices, and all vertices of graphs not laid out. */
     private Map<Vertex, List<State>> stateSets;
 
     public ShortestPathTree (RoutingRequest options, DominanceFunction dominanceFunction) {
         this.options = options;
         this.dominanceFunction = dominanceFunction;
+        indexedStateSets = new TIntObjectHashMap<List<State>>();
         stateSets = new IdentityHashMap<Vertex, List<State>>();
     }
 
+    private List<State> statesAt(Vertex vertex) {
+        int index = vertex.getIndex();
+        return index == Vertex.NO_INDEX ? stateSets.get(vertex) : indexedStateSets.get(index);
+    }
+
+    private void putStates(Vertex vertex, List<State> states) {
+        int index = vertex.getIndex();
+        if (index == Vertex.NO_INDEX) {
+            stateSets.put(vertex, states);
+        } else {
+            indexedStateSets.put(index, states);
+        }
+    }
+
+    private List<List<State>> allStateSets() {
+        List<List<State>> all = new ArrayList<>(indexedStateSets.valueCollection());
+        all.addAll(stateSets.values());
+        return all;
+    }
+
     /** @return a list of GraphPaths, sometimes empty but never null. */
     public List<GraphPath> getPaths(Vertex dest, boolean optimize) {
         List<? extends State> stateList = getStates(dest);
@@ -89,8 +119,7 @@ public class ShortestPathTree {
         Multiset<Integer> histogram = HashMultiset.create();
         int statesCount = 0;
         int maxSize = 0;
-        for (Map.Entry<Vertex, List<State>> kv : stateSets.entrySet()) {
-            List<State> states = kv.getValue();
+        for (List<State> states : allStateSets()) {
             int size = states.size();
             histogram.add(size);
             statesCount += size;
@@ -98,9 +127,9 @@ public class ShortestPathTree {
                 maxSize = size;
             }
         }
-        LOG.info("SPT: vertices: " + stateSets.size() + " states: total: "
+        LOG.info("SPT: vertices: " + getVertexCount() + " states: total: "
                 + statesCount + " per vertex max: " + maxSize + " avg: "
-                + (statesCount * 1.0 / stateSets.size()));
+                + (statesCount * 1.0 / getVertexCount()));
         List<Integer> nStates = new ArrayList<Integer>(histogram.elementSet());
         Collections.sort(nStates);
         for (Integer nState : nStates) {
@@ -109,7 +138,16 @@ public class ShortestPathTree {
     }
 
     public Set<Vertex> getVertices() {
-        return stateSets.keySet();
+        if (indexedStateSets.isEmpty()) {
+            return stateSets.keySet();
+        }
+        // A vertex always keeps at least one state once it has been reached.
+        Set<Vertex> vertices = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<State> states : indexedStateSets.valueCollection()) {
+            vertices.add(states.get(0).getVertex());
+        }
+        vertices.addAll(stateSets.keySet());
+        return vertices;
     }
 
     /**
@@ -124,12 +162,12 @@ public class ShortestPathTree {
      */
     public boolean add(State newState) {
         Vertex vertex = newState.getVertex();
-        List<State> states = stateSets.get(vertex);
+        List<State> states = statesAt(vertex);
 
         // if the vertex has no states, add one and return
         if (states == null) {
             states = new ArrayList<>();
-            stateSets.put(vertex, states);
+            putStates(vertex, states);
             states.add(newState);
             return true;
         }
@@ -159,7 +197,7 @@ public class ShortestPathTree {
      * @return a 'best' state at that vertex
      */
     public State getState(Vertex dest) {
-        Collection<State> states = stateSets.get(dest);
+        Collection<State> states = statesAt(dest);
         if (states == null)
             return null;
         State ret = null;
@@ -182,12 +220,12 @@ public class ShortestPathTree {
      * @return a collection of 'interesting' states at that vertex
      */
     public List<State> getStates(Vertex dest) {
-        return stateSets.get(dest);
+        return statesAt(dest);
     }
 
     /** @return number of vertices referenced in this SPT */
     public int getVertexCount() {
-        return stateSets.keySet().size();
+        return indexedStateSets.size() + stateSets.size();
     }
 
     /**
@@ -215,7 +253,7 @@ public class ShortestPathTree {
      */
     public boolean visit(State state) {
         boolean ret = false;
-        for (State s : stateSets.get(state.getVertex())) {
+        for (State s : statesAt(state.getVertex())) {
             if (s == state) {
                 ret = true;
                 break;
@@ -227,14 +265,14 @@ public class ShortestPathTree {
     /** @return every state in this tree */
     public Collection<State> getAllStates() {
         ArrayList<State> allStates = new ArrayList<State>();
-        for (List<State> stateSet : stateSets.values()) {
+        for (List<State> stateSet : allStateSets()) {
             allStates.addAll(stateSet);
         }
         return allStates;
     }
 
     public String toString() {
-        return "ShortestPathTree(" + this.stateSets.size() + " vertices)";
+        return "ShortestPathTree(" + getVertexCount() + " vertices)";
     }
 
 }
\ No newline at end of file
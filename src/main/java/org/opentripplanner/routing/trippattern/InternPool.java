@@ -0,0 +1,97 @@
+package org.opentripplanner.routing.trippattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.opentripplanner.util.I18NString;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A long-lived, thread-safe counterpart of the {@link Deduplicator}, held by the graph for as long as it serves
+ * requests. Real-time updaters use it to share identical arrays between the TripTimes they create, and street names
+ * are interned in it when the graph is indexed.
+ *
+ * Objects are interned weakly: they stay in the pool for as long as something else references them, so the pool
+ * does not grow over the service day as updates replace one another. Arrays cannot be interned weakly (the wrapper
+ * giving them value equality would only be weakly reachable), so they are held in a bounded cache instead.
+ */
+public class InternPool {
+
+    /** The number of distinct arrays of each type kept, which is plenty for the updates of a day. */
+    private static final int MAX_ARRAYS = 100_000;
+
+    private final Interner<String> strings = Interners.newWeakInterner();
+
+    private final Interner<I18NString> names = Interners.newWeakInterner();
+
+    private final Cache<IntArray, int[]> intArrays = CacheBuilder.newBuilder().maximumSize(MAX_ARRAYS).build();
+
+    private final Cache<BooleanArray, boolean[]> booleanArrays =
+            CacheBuilder.newBuilder().maximumSize(MAX_ARRAYS).build();
+
+    public String intern(String string) {
+        return string == null ? null : strings.intern(string);
+    }
+
+    /** The I18NString implementations must define equals and hashCode by value. */
+    public I18NString intern(I18NString name) {
+        return name == null ? null : names.intern(name);
+    }
+
+    public int[] intern(int[] array) {
+        if (array == null) return null;
+        try {
+            return intArrays.get(new IntArray(array), () -> array);
+        } catch (ExecutionException e) {
+            return array; // Cannot happen, the loader does not throw.
+        }
+    }
+
+    public boolean[] intern(boolean[] array) {
+        if (array == null) return null;
+        try {
+            return booleanArrays.get(new BooleanArray(array), () -> array);
+        } catch (ExecutionException e) {
+            return array;
+        }
+    }
+
+    /** Value equality for int arrays, which must not be modified once interned. */
+    private static class IntArray {
+        final int[] array;
+        final int hashCode;
+        IntArray(int[] array) {
+            this.array = array;
+            this.hashCode = Arrays.hashCode(array);
+        }
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IntArray && Arrays.equals(array, ((IntArray) other).array);
+        }
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /** Value equality for boolean arrays, which must not be modified once interned. */
+    private static class BooleanArray {
+        final boolean[] array;
+        final int hashCode;
+        BooleanArray(boolean[] array) {
+            this.array = array;
+            this.hashCode = Arrays.hashCode(array);
+        }
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BooleanArray && Arrays.equals(array, ((BooleanArray) other).array);
+        }
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -89,16 +89,21 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
     final int[] scheduledDepartureTimes;
 
     /**
-     * The time in seconds after midnight at which the vehicle arrives at each stop, accounting for
-     * any real-time updates. Non-final to allow updates.
+     * The difference in seconds between the real-time and the (time-shifted) scheduled arrival at each stop, or null
+     * if the trip has no real-time updates. Delays are often the same for many stops and trips, so storing them
+     * rather than absolute times lets identical updates share one array. Non-final to allow updates.
      */
-    int[] arrivalTimes;
+    int[] arrivalDelays;
+
+    /** The difference between the real-time and scheduled departure at each stop, see arrivalDelays. */
+    int[] departureDelays;
 
     /**
-     * The time in seconds after midnight at which the vehicle leaves each stop, accounting for
-     * any real-time updates. Non-final to allow updates.
+     * Whether the real-time arrays (delays, per-stop flags, pickups and dropoffs) are private to this TripTimes and
+     * may be written in place. They are not when they are shared: with the scheduled data, with the TripTimes this
+     * one was cloned from, or with other trips through an {@link InternPool}. Writers copy them first.
      */
-    int[] departureTimes;
+    private transient boolean realTimeArraysOwned;
 
     /**
      * Flag to indicate that the stop has been passed without removing arrival/departure-times - i.e. "estimates" are
@@ -238,8 +243,8 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
         this.dropoffs = deduplicator.deduplicateIntArray(dropoffs);
         // We set these to null to indicate that this is a non-updated/scheduled TripTimes.
         // We cannot point to the scheduled times because they are shifted, and updated times are not.
-        this.arrivalTimes = null;
-        this.departureTimes = null;
+        this.arrivalDelays = null;
+        this.departureDelays = null;
         this.isRecordedStop = null;
         this.timepoints = deduplicator.deduplicateBitSet(timepoints);
         this.continuousPickup = deduplicator.deduplicateIntArray(continuousPickup);
@@ -310,8 +315,8 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
         // Skip setting these, related to real time or not the same as the source
         this.stopTimeIds = null;
-        this.arrivalTimes = null;
-        this.departureTimes = null;
+        this.arrivalDelays = null;
+        this.departureDelays = null;
         this.isRecordedStop = null;
         this.isCancelledStop = null;
         this.isPredictionInaccurate = null;
@@ -378,14 +383,14 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
     /** @return the time in seconds after midnight that the vehicle arrives at the stop. */
     public int getArrivalTime(final int stop) {
-        if (arrivalTimes == null) return getScheduledArrivalTime(stop);
-        else return arrivalTimes[stop]; // updated times are not time shifted.
+        if (arrivalDelays == null) return getScheduledArrivalTime(stop);
+        else return getScheduledArrivalTime(stop) + arrivalDelays[stop];
     }
 
     /** @return the amount of time in seconds that the vehicle waits at the stop. */
     public int getDepartureTime(final int stop) {
-        if (departureTimes == null) return getScheduledDepartureTime(stop);
-        else return departureTimes[stop]; // updated times are not time shifted.
+        if (departureDelays == null) return getScheduledDepartureTime(stop);
+        else return getScheduledDepartureTime(stop) + departureDelays[stop];
     }
 
     public AgencyAndId getStopTimeIdByIndex(int i) {
@@ -406,12 +411,12 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
     /** @return the difference between the scheduled and actual arrival times at this stop. */
     public int getArrivalDelay(final int stop) {
-        return getArrivalTime(stop) - (scheduledArrivalTimes[stop] + timeShift);
+        return arrivalDelays == null ? 0 : arrivalDelays[stop];
     }
 
     /** @return the difference between the scheduled and actual departure times at this stop. */
     public int getDepartureDelay(final int stop) {
-        return getDepartureTime(stop) - (scheduledDepartureTimes[stop] + timeShift);
+        return departureDelays == null ? 0 : departureDelays[stop];
     }
 
     public int getCallAndRideBoardTime(int stop, long currTime, ServiceDay sd, boolean useClockTime, long startClockTime) {
@@ -462,7 +467,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
 
     public void setRecorded(int stop, boolean recorded) {
-        checkCreateTimesArrays();
+        ensureRealTimeArraysOwned();
         isRecordedStop[stop] = recorded;
     }
 
@@ -475,7 +480,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
     //Is single stop cancelled
     public void setCancelledStop(int stop, boolean isCancelled) {
-        checkCreateTimesArrays();
+        ensureRealTimeArraysOwned();
         isCancelledStop[stop] = isCancelled;
     }
 
@@ -487,7 +492,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
     }
 
     public void setPickupType(int stop, int pickupType) {
-        checkCreateTimesArrays();
+        ensureRealTimeArraysOwned();
         pickups[stop] = pickupType;
     }
 
@@ -499,7 +504,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
     }
 
     public void setDropoffType(int stop, int dropoffType) {
-        checkCreateTimesArrays();
+        ensureRealTimeArraysOwned();
         dropoffs[stop] = dropoffType;
     }
 
@@ -517,7 +522,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
      *         information is actually available in this TripTimes.
      */
     public boolean isScheduled() {
-        return departureTimes == null && arrivalTimes == null;
+        return departureDelays == null && arrivalDelays == null;
     }
 
     /**
@@ -542,7 +547,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
     //Is prediction for single stop inaccurate
     public void setPredictionInaccurate(int stop, boolean predictionInaccurate) {
-        checkCreateTimesArrays();
+        ensureRealTimeArraysOwned();
         isPredictionInaccurate[stop] = predictionInaccurate;
     }
 
@@ -639,15 +644,16 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
     /** Cancel this entire trip */
     public void cancel() {
-        arrivalTimes = new int[getNumStops()];
-        Arrays.fill(arrivalTimes, UNAVAILABLE);
-        departureTimes = arrivalTimes;
+        for (int i = 0; i < getNumStops(); i++) {
+            updateArrivalTime(i, UNAVAILABLE);
+            updateDepartureTime(i, UNAVAILABLE);
+        }
 
         cancelAllStops();
 
         pickups = new int[getNumStops()];
         Arrays.fill(pickups, PICKDROP_NONE);
-        dropoffs = pickups;
+        dropoffs = pickups.clone();
 
         // Update the real-time state
         realTimeState = RealTimeState.CANCELED;
@@ -661,47 +667,61 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
 
 
     public void updateDepartureTime(final int stop, final int time) {
-        checkCreateTimesArrays();
-        departureTimes[stop] = time;
+        ensureRealTimeArraysOwned();
+        departureDelays[stop] = time - getScheduledDepartureTime(stop);
     }
 
     public void updateDepartureDelay(final int stop, final int delay) {
-        checkCreateTimesArrays();
-        departureTimes[stop] = scheduledDepartureTimes[stop] + timeShift + delay;
+        ensureRealTimeArraysOwned();
+        departureDelays[stop] = delay;
     }
 
     public void updateArrivalTime(final int stop, final int time) {
-        checkCreateTimesArrays();
-        arrivalTimes[stop] = time;
+        ensureRealTimeArraysOwned();
+        arrivalDelays[stop] = time - getScheduledArrivalTime(stop);
     }
 
     public void updateArrivalDelay(final int stop, final int delay) {
-        checkCreateTimesArrays();
-        arrivalTimes[stop] = scheduledArrivalTimes[stop] + timeShift + delay;
+        ensureRealTimeArraysOwned();
+        arrivalDelays[stop] = delay;
     }
 
     /**
-     * If they don't already exist, create arrays for updated arrival and departure times
-     * that are just time-shifted copies of the zero-based scheduled departure times.
+     * Make the real-time arrays writable: create the missing ones (zero delays, no flags set) and copy the shared
+     * ones, including the pickup and dropoff arrays which start out shared with the scheduled data.
      */
-    private void checkCreateTimesArrays() {
-        if (arrivalTimes == null) {
-            arrivalTimes = Arrays.copyOf(scheduledArrivalTimes, scheduledArrivalTimes.length);
-            departureTimes = Arrays.copyOf(scheduledDepartureTimes, scheduledDepartureTimes.length);
-            isRecordedStop = new boolean[arrivalTimes.length];
-            isCancelledStop = new boolean[arrivalTimes.length];
-            isPredictionInaccurate = new boolean[arrivalTimes.length];
-            for (int i = 0; i < arrivalTimes.length; i++) {
-                arrivalTimes[i] += timeShift;
-                departureTimes[i] += timeShift;
-                isRecordedStop[i] = false;
-                isCancelledStop[i] = false;
-                isPredictionInaccurate[i] = false;
-            }
-
+    private void ensureRealTimeArraysOwned() {
+        if (realTimeArraysOwned) {
+            return;
+        }
+        final int nStops = getNumStops();
+        if (arrivalDelays == null) {
             // Update the real-time state
             realTimeState = RealTimeState.UPDATED;
         }
+        arrivalDelays = arrivalDelays == null ? new int[nStops] : arrivalDelays.clone();
+        departureDelays = departureDelays == null ? new int[nStops] : departureDelays.clone();
+        isRecordedStop = isRecordedStop == null ? new boolean[nStops] : isRecordedStop.clone();
+        isCancelledStop = isCancelledStop == null ? new boolean[nStops] : isCancelledStop.clone();
+        isPredictionInaccurate = isPredictionInaccurate == null ? new boolean[nStops] : isPredictionInaccurate.clone();
+        pickups = pickups == null ? null : pickups.clone();
+        dropoffs = dropoffs == null ? null : dropoffs.clone();
+        realTimeArraysOwned = true;
+    }
+
+    /**
+     * Replace the real-time arrays with the equal instances held by the pool, so that trips with identical updates
+     * share them. Call this once the updates of this TripTimes are complete; later updates copy the arrays again.
+     */
+    public void internRealTimeArrays(InternPool pool) {
+        arrivalDelays = pool.intern(arrivalDelays);
+        departureDelays = pool.intern(departureDelays);
+        isRecordedStop = pool.intern(isRecordedStop);
+        isCancelledStop = pool.intern(isCancelledStop);
+        isPredictionInaccurate = pool.intern(isPredictionInaccurate);
+        pickups = pool.intern(pickups);
+        dropoffs = pool.intern(dropoffs);
+        realTimeArraysOwned = false;
     }
 
     public int getNumStops () {
@@ -719,6 +739,9 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
         TripTimes ret = null;
         try {
             ret = (TripTimes) super.clone();
+            // The real-time arrays are now shared with the clone.
+            ret.realTimeArraysOwned = false;
+            realTimeArraysOwned = false;
         } catch (final CloneNotSupportedException e) {
             LOG.error("This is not happening.");
         }
@@ -730,6 +753,14 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
      */
     public void timeShiftThis(int deltaDurationInSeconds) {
         this.timeShift += deltaDurationInSeconds;
+        if (arrivalDelays != null) {
+            // Updated times are not time shifted.
+            ensureRealTimeArraysOwned();
+            for (int i = 0; i < arrivalDelays.length; i++) {
+                arrivalDelays[i] -= deltaDurationInSeconds;
+                departureDelays[i] -= deltaDurationInSeconds;
+            }
+        }
     }
 
    /**
@@ -739,7 +770,7 @@ public class TripTimes implements Serializable, Comparable<TripTimes>, Cloneable
     * without updates for now (frequency trips don't have updates).
     */
     public TripTimes timeShiftClone(final int stop, final int time, final boolean depart) {
-        if (arrivalTimes != null || departureTimes != null) return null;
+        if (arrivalDelays != null || departureDelays != null) return null;
         final TripTimes shifted = this.clone();
         // Adjust 0-based times to match desired stoptime.
         final int shift = time - (depart ? getDepartureTime(stop) : getArrivalTime(stop));
@@ -0,0 +1,32 @@
+package org.opentripplanner.standalone;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import java.io.IOException;
+
+/**
+ * Registers each HTTP request with the {@link InFlightRequests} of the graph service for as long as it is handled, so
+ * that graphs being reloaded are not shut down under requests still using them.
+ */
+public class InFlightRequestFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String PROPERTY = InFlightRequestFilter.class.getName();
+
+    @Context OTPServer otpServer;
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        request.setProperty(PROPERTY, otpServer.getGraphService().getInFlightRequests().begin());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        Object number = request.getProperty(PROPERTY);
+        if (number != null) {
+            otpServer.getGraphService().getInFlightRequests().end((Long) number);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.opentripplanner.standalone;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the HTTP requests being handled, so that a router replaced by a newly loaded one is only shut down
+ * once the requests which may have picked it up are finished. Requests are numbered in the order they start: a request
+ * started after a router was swapped out cannot be using it, so it is enough to wait for the requests numbered up to
+ * the last one started at the time of the swap. This class is thread-safe.
+ */
+public class InFlightRequests {
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final AtomicLong lastStarted = new AtomicLong();
+
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    /** @return the number of the request started, to be passed to {@link #end(long)} when it is finished. */
+    public long begin() {
+        long request = lastStarted.incrementAndGet();
+        active.add(request);
+        return request;
+    }
+
+    public void end(long request) {
+        active.remove(request);
+    }
+
+    /** @return the number of the last request started. */
+    public long getLastStarted() {
+        return lastStarted.get();
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    /**
+     * Wait for all the requests numbered up to the given one to be finished.
+     * @return false if some of them are still running after the timeout.
+     */
+    public boolean awaitRequestsUpTo(long request, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (active.stream().anyMatch(r -> r <= request)) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        return true;
+    }
+}
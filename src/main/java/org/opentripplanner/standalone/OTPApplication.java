@@ -77,13 +77,17 @@ public class OTPApplication extends Application {
             ExternalGeocoderResource.class,
             AlertPatcher.class,
             PlannerResource.class,
+            TravelTimeMatrixResource.class,
+            IsochroneResource.class,
             Routers.class,
             KartverketToken.class,
             ServerInfo.class,
             GraphInspectorTileResource.class,
             UpdaterStatusResource.class,
+            RoutingMetricsResource.class,
             /* Features and Filters: extend Jersey, manipulate requests and responses. */
             CorsFilter.class,
+            InFlightRequestFilter.class,
             MultiPartFeature.class
         ));
         
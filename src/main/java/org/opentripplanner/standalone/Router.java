@@ -7,19 +7,24 @@ import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.FileAppender;
 import com.fasterxml.jackson.databind.JsonNode;
+import org.opentripplanner.analyst.request.TravelTimeMatrixService;
 import org.opentripplanner.inspector.TileRendererManager;
 import org.opentripplanner.model.TransmodelTransportSubmode;
 import org.opentripplanner.reflect.ReflectiveInitializer;
 import org.opentripplanner.routing.core.RoutingRequest;
 import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterConfigurator;
+import org.opentripplanner.updater.ReadinessBlockingUpdater;
 import org.opentripplanner.util.ElevationUtils;
 import org.opentripplanner.util.WorldEnvelope;
 import org.opentripplanner.visualizer.GraphVisualizer;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 
 /**
  * Represents the configuration of a single router (a single graph for a specific geographic area)
@@ -45,6 +50,9 @@ public class Router {
     // Inspector/debug services
     public TileRendererManager tileRendererManager;
 
+    /** Computes travel time matrices on a thread pool shared by all matrix requests to this router. */
+    public TravelTimeMatrixService travelTimeMatrixService;
+
     // A RoutingRequest containing default parameters that will be cloned when handling each request
     public RoutingRequest defaultRoutingRequest;
 
@@ -53,6 +61,9 @@ public class Router {
 
     public String kartverketToken;
 
+    /** Replays requests to warm up the JIT before this router is reported as ready, null if not configured. */
+    public RouterWarmUp warmUp = null;
+
     public Router(String id, Graph graph) {
         this.id = id;
         this.graph = graph;
@@ -71,6 +82,7 @@ public class Router {
     public void startup(JsonNode config) {
 
         this.tileRendererManager = new TileRendererManager(this.graph);
+        this.travelTimeMatrixService = new TravelTimeMatrixService(this.graph);
 
         /* Create the default router parameters from the JSON router config. */
         JsonNode routingDefaultsNode = config.get("routingDefaults");
@@ -169,6 +181,13 @@ public class Router {
         /* Create Graph updater modules from JSON config. */
         GraphUpdaterConfigurator.setupGraph(this.graph, config);
 
+        /* Warm up in the background, the router is not reported as ready until done. */
+        JsonNode warmUpConfig = config.get("warmUp");
+        if (warmUpConfig != null && warmUpConfig.isObject()) {
+            this.warmUp = new RouterWarmUp(warmUpConfig);
+            this.warmUp.start(this);
+        }
+
         /* Compute ellipsoidToGeoidDifference for this Graph */
         try {
             WorldEnvelope env = graph.getEnvelope();
@@ -181,9 +200,30 @@ public class Router {
         }
     }
 
+    /**
+     * @return the types of the updaters which must be initialized before this router is reported as ready, and are
+     * not yet. The list is empty once the router is ready.
+     */
+    public List<String> getWaitingUpdaters() {
+        List<String> waitingUpdaters = new ArrayList<>();
+        if (graph.updaterManager != null && graph.updaterManager.getUpdaterList() != null) {
+            for (GraphUpdater updater : graph.updaterManager.getUpdaterList()) {
+                if (updater instanceof ReadinessBlockingUpdater) {
+                    if (!((ReadinessBlockingUpdater) updater).isReady()) {
+                        waitingUpdaters.add(((ReadinessBlockingUpdater) updater).getType());
+                    }
+                }
+            }
+        }
+        return waitingUpdaters;
+    }
+
     /** Shut down this router when evicted or (auto-)reloaded. Stop any real-time updater threads. */
     public void shutdown() {
         GraphUpdaterConfigurator.shutdownGraph(this.graph);
+        if (travelTimeMatrixService != null) {
+            travelTimeMatrixService.shutdown();
+        }
     }
 
     /**
@@ -0,0 +1,280 @@
+package org.opentripplanner.standalone;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.opentripplanner.api.resource.GraphPathToTripPlanConverter;
+import org.opentripplanner.common.model.GenericLocation;
+import org.opentripplanner.index.transmodel.TransmodelApiContext;
+import org.opentripplanner.index.transmodel.TransmodelGraphIndex;
+import org.opentripplanner.index.transmodel.model.scalars.DateTimeScalarFactory;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.impl.GraphPathFinder;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays a set of representative requests against a newly loaded router before it reports ready, so that the JIT has
+ * compiled the street and transit searches, the itinerary conversion and the GraphQL fetchers by the time real
+ * traffic comes in. The requests are read from a request log written by the planner resource (see requestLogFile in
+ * the router config), or made between random pairs of stops. Half of them go through the planner, the other half
+ * through the Transmodel GraphQL trip query, and they are run on all cores.
+ *
+ * Configured with a "warmUp" object in the router config, for example:
+ * <pre>
+ * "warmUp" : { "requests" : 500, "threads" : 8, "requestLog" : "/var/otp/requests.log" }
+ * </pre>
+ * Requests which fail, e.g. because no path is found, still count: they still exercise the searches.
+ */
+public class RouterWarmUp {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RouterWarmUp.class);
+
+    private static final String TRIP_QUERY = "query($from: Location!, $to: Location!, $dateTime: DateTime) { "
+            + "trip(from: $from, to: $to, dateTime: $dateTime) { tripPatterns { duration legs { "
+            + "mode aimedStartTime expectedStartTime fromPlace { name } toPlace { name } } } } }";
+
+    private final int nRequests;
+
+    private final int nThreads;
+
+    private final String requestLog;
+
+    private final AtomicInteger done = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private volatile int total;
+
+    private volatile long startMillis;
+
+    private volatile long durationMillis = -1;
+
+    private TransmodelGraphIndex transmodelIndex;
+
+    public RouterWarmUp(JsonNode config) {
+        this.nRequests = config.path("requests").asInt(500);
+        this.nThreads = config.path("threads").asInt(Runtime.getRuntime().availableProcessors());
+        this.requestLog = config.hasNonNull("requestLog") ? config.get("requestLog").asText() : null;
+    }
+
+    /** Warm up the router in the background. */
+    public void start(Router router) {
+        Thread thread = new Thread(() -> run(router), "warm-up-" + router.id);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Warm up the router, blocking until all the requests are made. */
+    public void run(Router router) {
+        startMillis = System.currentTimeMillis();
+        try {
+            List<RoutingRequest> requests = makeRequests(router);
+            total = requests.size();
+            LOG.info("Warming up router '{}' with {} requests on {} threads.", router.id, total, nThreads);
+            ExecutorService executor = Executors.newFixedThreadPool(nThreads,
+                    new ThreadFactoryBuilder().setNameFormat("warm-up-" + router.id + "-%d").setDaemon(true).build());
+            for (int i = 0; i < requests.size(); i++) {
+                RoutingRequest request = requests.get(i);
+                boolean graphQL = i % 2 == 1;
+                executor.execute(() -> replay(router, request, graphQL));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOG.error("Warm-up of router '{}' failed.", router.id, e);
+        } finally {
+            durationMillis = System.currentTimeMillis() - startMillis;
+            synchronized (this) {
+                if (transmodelIndex != null) {
+                    transmodelIndex.threadPool.shutdown();
+                    transmodelIndex = null;
+                }
+            }
+            // Leave the metrics to the real traffic.
+            router.graph.resetRoutingMetrics();
+            finished.countDown();
+            LOG.info("Router '{}' warmed up: {}", router.id, getProgress());
+        }
+    }
+
+    /** Wait for the warm-up to finish. @return false on timeout. */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /** @return a one-line description of the progress or outcome of the warm-up, for the readiness endpoint. */
+    public String getProgress() {
+        long duration = isDone() ? durationMillis : System.currentTimeMillis() - startMillis;
+        return String.format("%d/%d requests (%d failed) in %.1f s", done.get(), total, failed.get(),
+                duration / 1000.0);
+    }
+
+    private void replay(Router router, RoutingRequest request, boolean graphQL) {
+        try {
+            if (graphQL) {
+                Map<String, Object> variables = new HashMap<>();
+                variables.put("from", location(request.from));
+                variables.put("to", location(request.to));
+                variables.put("dateTime", ZonedDateTime.ofInstant(Instant.ofEpochSecond(request.dateTime),
+                        ZoneId.systemDefault()).format(DateTimeScalarFactory.FORMATTER));
+                Map<String, Object> result = getTransmodelIndex(router).getGraphQLExecutionResult(TRIP_QUERY,
+                        new TransmodelApiContext(router, "warm-up"), variables, null, 30000, 1000000);
+                if (result.get("errors") != null) {
+                    failed.incrementAndGet();
+                }
+            } else {
+                try {
+                    List<GraphPath> paths = new GraphPathFinder(router).graphPathFinderEntryPoint(request);
+                    GraphPathToTripPlanConverter.generatePlan(paths, request);
+                } finally {
+                    request.cleanup();
+                }
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        } finally {
+            done.incrementAndGet();
+        }
+    }
+
+    /**
+     * The router may not serve requests yet, and the one it replaces may, so the warm-up has its own index rather
+     * than the one made by the factory for the routerId.
+     */
+    private synchronized TransmodelGraphIndex getTransmodelIndex(Router router) {
+        if (transmodelIndex == null) {
+            transmodelIndex = new TransmodelGraphIndex(router);
+        }
+        return transmodelIndex;
+    }
+
+    private static Map<String, Object> location(GenericLocation location) {
+        Map<String, Object> coordinates = new HashMap<>();
+        coordinates.put("latitude", location.lat);
+        coordinates.put("longitude", location.lng);
+        Map<String, Object> result = new HashMap<>();
+        result.put("coordinates", coordinates);
+        return result;
+    }
+
+    private List<RoutingRequest> makeRequests(Router router) {
+        List<RoutingRequest> requests = new ArrayList<>();
+        if (requestLog != null) {
+            try {
+                readRequestLog(router, requests);
+            } catch (IOException e) {
+                LOG.warn("Could not read warm-up requests from {}, using random stops instead.", requestLog, e);
+                requests.clear();
+            }
+        }
+        if (requests.isEmpty()) {
+            makeRandomRequests(router, requests);
+        }
+        return requests;
+    }
+
+    private void readRequestLog(Router router, List<RoutingRequest> requests) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(requestLog), StandardCharsets.UTF_8)) {
+            String line;
+            while (requests.size() < nRequests && (line = reader.readLine()) != null) {
+                RoutingRequest request = parseRequestLogLine(router, line);
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse a request logged by the planner resource, a line like
+     * "127.0.0.1 DEPART 2019-05-13T08:30 WALK,TRANSIT 59.91 10.75 59.93 10.80 ..." possibly prefixed with a
+     * timestamp. It is replayed at the same time of day today, as the logged day may be out of the transit data.
+     * @return null if the line is not a logged request.
+     */
+    static RoutingRequest parseRequestLogLine(Router router, String line) {
+        String[] fields = line.trim().split("\\s+");
+        for (int i = 0; i + 6 < fields.length; i++) {
+            if (fields[i].equals("DEPART") || fields[i].equals("ARRIVE")) {
+                try {
+                    RoutingRequest request = makeRequest(router,
+                            Double.parseDouble(fields[i + 3]), Double.parseDouble(fields[i + 4]),
+                            Double.parseDouble(fields[i + 5]), Double.parseDouble(fields[i + 6]),
+                            LocalDateTime.parse(fields[i + 1]).toLocalTime());
+                    request.arriveBy = fields[i].equals("ARRIVE");
+                    request.setModes(new TraverseModeSet(fields[i + 2]));
+                    return request;
+                } catch (RuntimeException e) {
+                    LOG.debug("Skipping malformed request log line: {}", line);
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Requests between random pairs of stops, at random times during the day. */
+    private void makeRandomRequests(Router router, List<RoutingRequest> requests) {
+        if (router.graph.index == null) {
+            return;
+        }
+        List<Stop> stops = new ArrayList<>(router.graph.index.stopForId.values());
+        if (stops.size() < 2) {
+            return;
+        }
+        // Always the same requests for a given graph, so that warm-ups are comparable.
+        Random random = new Random(42);
+        for (int i = 0; i < nRequests; i++) {
+            Stop from = stops.get(random.nextInt(stops.size()));
+            Stop to = stops.get(random.nextInt(stops.size()));
+            LocalTime time = LocalTime.of(6 + random.nextInt(16), random.nextInt(60));
+            requests.add(makeRequest(router, from.getLat(), from.getLon(), to.getLat(), to.getLon(), time));
+        }
+    }
+
+    private static RoutingRequest makeRequest(Router router, double fromLat, double fromLon, double toLat,
+            double toLon, LocalTime time) {
+        RoutingRequest request = router.defaultRoutingRequest.clone();
+        request.routerId = router.id;
+        request.from = new GenericLocation(fromLat, fromLon);
+        request.to = new GenericLocation(toLat, toLon);
+        request.setModes(new TraverseModeSet(TraverseMode.WALK, TraverseMode.TRANSIT));
+        ZoneId zone = router.graph.getTimeZone() == null
+                ? ZoneId.systemDefault() : router.graph.getTimeZone().toZoneId();
+        request.dateTime = LocalDate.now(zone).atTime(time).atZone(zone).toEpochSecond();
+        return request;
+    }
+}
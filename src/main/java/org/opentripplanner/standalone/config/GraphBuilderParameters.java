@@ -200,6 +200,19 @@ public class GraphBuilderParameters {
      */
     public double distanceBetweenElevationSamples;
 
+    /**
+     * Build street contraction hierarchies for the default CAR and BICYCLE profiles, to speed up long street-only
+     * searches. This makes the graph build slower and the graph larger.
+     */
+    public final boolean contractionHierarchies;
+
+    /**
+     * Number of landmarks for which street path weights are precomputed for the WALK, BICYCLE and CAR profiles, to
+     * give street-only A* searches a tighter heuristic. Each landmark costs two floats per street vertex and mode.
+     * Zero (the default) disables landmarks; 8 to 16 is a reasonable number for a city.
+     */
+    public final int landmarks;
+
 
     /**
      * Set all parameters from the given Jackson JSON tree, applying defaults.
@@ -241,5 +254,7 @@ public class GraphBuilderParameters {
         linkMultiModalStopsToParentStations = config.path("linkMultiModalStopsToParentStations").asBoolean(false);
         analyzeTransfers = config.path("analyzeTransfers").asBoolean(false);
         distanceBetweenElevationSamples = config.path("distanceBetweenElevationSamples").asDouble(10);
+        contractionHierarchies = config.path("contractionHierarchies").asBoolean(false);
+        landmarks = config.path("landmarks").asInt(0);
     }
 }
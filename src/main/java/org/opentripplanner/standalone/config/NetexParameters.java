@@ -122,6 +122,15 @@ public class NetexParameters {
 
     public final int defaultMinimumFlexPaddingTimeMins;
 
+    /**
+     * The number of threads used to parse the <em>group files</em> of a group. The files are still loaded in the
+     * order they appear in the module file, so the result does not depend on this number. Set to 1 to parse the
+     * files one at a time.
+     * <p>
+     * Default value is the number of available processors.
+     */
+    public final int parseThreads;
+
     NetexParameters(JsonNode config) {
         ignoreFilePattern = pattern("ignoreFilePattern", IGNORE_FILE_PATTERN, config);
         sharedFilePattern = pattern("sharedFilePattern", SHARED_FILE_PATTERN, config);
@@ -130,6 +139,7 @@ public class NetexParameters {
         netexFeedId = text("netexFeedId", NETEX_FEED_ID, config);
         defaultFlexMaxTravelTime = text("flexMaxTravelTime", DEFAULT_FLEX_MAX_TRAVEL_TIME, config);
         defaultMinimumFlexPaddingTimeMins = integer("defaultMinimumFlexPaddingTime", DEFAULT_MINIMUM_FLEX_PADDING_TIME, config);
+        parseThreads = integer("parseThreads", Runtime.getRuntime().availableProcessors(), config);
     }
 
     private static Pattern pattern(String path, String defaultValue, JsonNode config) {
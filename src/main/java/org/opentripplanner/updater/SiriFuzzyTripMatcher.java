@@ -7,10 +7,10 @@ import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.edgetype.TripPattern;
 import org.opentripplanner.routing.graph.GraphIndex;
 import org.opentripplanner.routing.trippattern.TripTimes;
+import org.opentripplanner.updater.siri.EstimatedJourney;
+import org.opentripplanner.updater.siri.EstimatedJourneyCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.EstimatedCall;
-import uk.org.siri.siri20.EstimatedVehicleJourney;
 import uk.org.siri.siri20.VehicleActivityStructure;
 import uk.org.siri.siri20.VehicleModesEnumeration;
 
@@ -81,8 +81,8 @@ public class SiriFuzzyTripMatcher {
         return trips;
     }
 
-    public Trip findTripByDatedVehicleJourneyRef(EstimatedVehicleJourney journey) {
-        String serviceJourneyId = resolveDatedVehicleJourneyRef(journey);
+    public Trip findTripByDatedVehicleJourneyRef(EstimatedJourney journey) {
+        String serviceJourneyId = journey.getDatedVehicleJourneyRef();
         if (serviceJourneyId != null) {
             for (String feedId : index.agenciesForFeedId.keySet()) {
                 Trip trip = index.tripForId.get(new AgencyAndId(feedId, serviceJourneyId));
@@ -94,38 +94,27 @@ public class SiriFuzzyTripMatcher {
         return null;
     }
 
-    private String resolveDatedVehicleJourneyRef(EstimatedVehicleJourney journey) {
-
-        if (journey.getFramedVehicleJourneyRef() != null) {
-            return journey.getFramedVehicleJourneyRef().getDatedVehicleJourneyRef();
-        } else if (journey.getDatedVehicleJourneyRef() != null) {
-            return journey.getDatedVehicleJourneyRef().getValue();
-        }
-
-        return null;
-    }
-
     /**
      * Matches EstimatedVehicleJourney to a set of possible Trips based on tripId
      */
-    public Set<Trip> match(EstimatedVehicleJourney journey) {
+    public Set<Trip> match(EstimatedJourney journey) {
         Set<Trip> trips = null;
         if (journey.getVehicleRef() != null &&
                 (journey.getVehicleModes() != null && journey.getVehicleModes().contains(VehicleModesEnumeration.RAIL))) {
-            trips = getCachedTripsByVehicleRef(journey.getVehicleRef().getValue());
+            trips = getCachedTripsByVehicleRef(journey.getVehicleRef());
         }
 
         if (trips == null || trips.isEmpty()) {
-            String serviceJourneyId = resolveDatedVehicleJourneyRef(journey);
+            String serviceJourneyId = journey.getDatedVehicleJourneyRef();
             if (serviceJourneyId != null) {
                 trips = getCachedTripsBySiriId(serviceJourneyId);
             }
         }
         if (trips == null || trips.isEmpty()) {
-            List<EstimatedCall> estimatedCalls = journey.getEstimatedCalls().getEstimatedCalls();
-            EstimatedCall lastStop = estimatedCalls.get(estimatedCalls.size() - 1);
+            List<EstimatedJourneyCall> estimatedCalls = journey.getEstimatedCalls();
+            EstimatedJourneyCall lastStop = estimatedCalls.get(estimatedCalls.size() - 1);
 
-            String lastStopPoint = lastStop.getStopPointRef().getValue();
+            String lastStopPoint = lastStop.getStopPointRef();
 
             ZonedDateTime arrivalTime = lastStop.getAimedArrivalTime() != null ? lastStop.getAimedArrivalTime() : lastStop.getAimedDepartureTime();
 
@@ -0,0 +1,236 @@
+package org.opentripplanner.updater;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.opentripplanner.routing.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects the updates of a streaming realtime source for a short time window and hands them to the graph writer
+ * thread as a single batch, so that they are applied under one lock acquisition and published in one timetable
+ * snapshot. Streaming sources deliver a message every few milliseconds, each touching a handful of trips; applying
+ * them one by one makes the writer thread the bottleneck and lets the backlog (and the age of the published data)
+ * grow during peaks.
+ *
+ * A batch is handed over when the window has elapsed since its first update or when it holds the maximum number
+ * of updates, whichever comes first. Updates with the same key (usually the trip they apply to) replace each other,
+ * since each of them describes the full realtime state of the trip: only the latest one is applied. Updates without
+ * a key are all kept. A full dataset supersedes everything received before it, so the pending updates are dropped
+ * and the batch is applied as a full dataset.
+ *
+ * A window of zero disables batching: each message is handed over immediately, as before.
+ *
+ * @param <T> the type of a single update, e.g. a GTFS-RT TripUpdate or a SIRI EstimatedVehicleJourney.
+ */
+public class UpdateBatcher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpdateBatcher.class);
+
+    /** Log the statistics every so many batches. */
+    private static final int LOG_INTERVAL_BATCHES = 1000;
+
+    /** Creates the graph writer task applying a batch of updates. */
+    public interface WriterFactory<T> {
+        GraphWriterRunnable createWriter(boolean fullDataset, List<T> updates);
+    }
+
+    private final String name;
+
+    private final GraphUpdaterManager updaterManager;
+
+    private final Function<T, Object> keyFunction;
+
+    private final WriterFactory<T> writerFactory;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private ScheduledExecutorService flushTimer;
+
+    /* The batch being collected, guarded by this. */
+
+    private Map<Object, T> pending = new LinkedHashMap<>();
+
+    private boolean pendingFullDataset = false;
+
+    private long oldestPendingMillis = Long.MAX_VALUE;
+
+    /* Statistics */
+
+    private final AtomicInteger updatesInFlight = new AtomicInteger();
+
+    private volatile long lastLagMillis = 0;
+
+    private volatile long maxLagMillis = 0;
+
+    private long receivedUpdates = 0;
+
+    private long mergedUpdates = 0;
+
+    private long batches = 0;
+
+    /**
+     * @param name used in log messages and thread names
+     * @param keyFunction returns the key of an update, or null if it must not be merged with other updates
+     * @param windowMillis the longest an update waits for others before being applied, 0 to disable batching
+     * @param maxBatchSize the number of updates after which a batch is applied without waiting for the window
+     */
+    public UpdateBatcher(String name, GraphUpdaterManager updaterManager, Function<T, Object> keyFunction,
+            WriterFactory<T> writerFactory, long windowMillis, int maxBatchSize) {
+        this.name = name;
+        this.updaterManager = updaterManager;
+        this.keyFunction = keyFunction;
+        this.writerFactory = writerFactory;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Add the updates of one message to the current batch.
+     * @param producedAtMillis when the message was produced by the source, to measure the end-to-end lag
+     */
+    public void add(boolean fullDataset, List<T> updates, long producedAtMillis) {
+        if (updates.isEmpty() && !fullDataset) {
+            return;
+        }
+        if (windowMillis <= 0) {
+            submit(fullDataset, new ArrayList<>(updates), producedAtMillis);
+            return;
+        }
+        boolean full;
+        boolean startTimer;
+        synchronized (this) {
+            startTimer = pending.isEmpty() && !pendingFullDataset;
+            if (fullDataset) {
+                mergedUpdates += pending.size();
+                pending.clear();
+                pendingFullDataset = true;
+            }
+            for (T update : updates) {
+                Object key = keyFunction.apply(update);
+                if (key == null) {
+                    key = new Object();
+                }
+                // Remove first, so that the replacing update takes the place of the latest message.
+                if (pending.remove(key) != null) {
+                    mergedUpdates++;
+                }
+                pending.put(key, update);
+            }
+            receivedUpdates += updates.size();
+            oldestPendingMillis = Math.min(oldestPendingMillis, producedAtMillis);
+            full = pending.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        } else if (startTimer) {
+            getFlushTimer().schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Hand the current batch over to the graph writer thread, if it is not empty. */
+    public void flush() {
+        List<T> updates;
+        boolean fullDataset;
+        long oldest;
+        synchronized (this) {
+            if (pending.isEmpty() && !pendingFullDataset) {
+                return;
+            }
+            updates = new ArrayList<>(pending.values());
+            fullDataset = pendingFullDataset;
+            oldest = oldestPendingMillis;
+            pending = new LinkedHashMap<>();
+            pendingFullDataset = false;
+            oldestPendingMillis = Long.MAX_VALUE;
+        }
+        submit(fullDataset, updates, oldest);
+    }
+
+    private void submit(boolean fullDataset, List<T> updates, long producedAtMillis) {
+        GraphWriterRunnable writer = writerFactory.createWriter(fullDataset, updates);
+        updatesInFlight.addAndGet(updates.size());
+        updaterManager.execute(new GraphWriterRunnable() {
+            @Override
+            public void run(Graph graph) {
+                try {
+                    writer.run(graph);
+                } finally {
+                    updatesInFlight.addAndGet(-updates.size());
+                    applied(updates.size(), producedAtMillis);
+                }
+            }
+        });
+    }
+
+    private void applied(int size, long producedAtMillis) {
+        long lag = Math.max(0, System.currentTimeMillis() - producedAtMillis);
+        lastLagMillis = lag;
+        maxLagMillis = Math.max(maxLagMillis, lag);
+        boolean log;
+        synchronized (this) {
+            batches++;
+            log = batches % LOG_INTERVAL_BATCHES == 0;
+        }
+        LOG.debug("{}: applied batch of {} updates, lag {} ms, backlog {}", name, size, lag, getBacklog());
+        if (log) {
+            LOG.info("{}: {}", name, this);
+            maxLagMillis = 0;
+        }
+    }
+
+    private synchronized ScheduledExecutorService getFlushTimer() {
+        if (flushTimer == null) {
+            flushTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat(name + "-batcher").setDaemon(true).build());
+        }
+        return flushTimer;
+    }
+
+    /** Apply what is pending and stop the timer. */
+    public void stop() {
+        flush();
+        synchronized (this) {
+            if (flushTimer != null) {
+                flushTimer.shutdownNow();
+                flushTimer = null;
+            }
+        }
+    }
+
+    /** @return the number of updates received but not yet applied to the graph. */
+    public int getBacklog() {
+        synchronized (this) {
+            return pending.size() + updatesInFlight.get();
+        }
+    }
+
+    /** @return the time between the production of the oldest message of the last batch and its application. */
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    /** @return the highest lag since the statistics were last logged. */
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("batches: %d, updates: %d (%d merged), backlog: %d, lag: %d ms (max %d ms)",
+                batches, receivedUpdates, mergedUpdates, pending.size() + updatesInFlight.get(), lastLagMillis,
+                maxLagMillis);
+    }
+
+}
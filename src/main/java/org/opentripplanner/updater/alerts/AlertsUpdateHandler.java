@@ -70,14 +70,17 @@ public class AlertsUpdateHandler {
         alertPatchService.expire(patchIds);
         patchIds.clear();
 
+        // Applied all at once, as the alert index is rebuilt every time patches are applied.
+        Set<AlertPatch> alertPatches = new LinkedHashSet<>();
         for (FeedEntity entity : message.getEntityList()) {
             if (!entity.hasAlert()) {
                 continue;
             }
             GtfsRealtime.Alert alert = entity.getAlert();
             String id = entity.getId();
-            handleAlert(id, alert);
+            handleAlert(id, alert, alertPatches);
         }
+        alertPatchService.applyAll(alertPatches);
     }
 
     public void update(ServiceDelivery delivery) {
@@ -837,7 +840,7 @@ public class AlertsUpdateHandler {
     }
 
 
-    private void handleAlert(String id, GtfsRealtime.Alert alert) {
+    private void handleAlert(String id, GtfsRealtime.Alert alert, Set<AlertPatch> alertPatches) {
         Alert alertText = new Alert();
         alertText.alertDescriptionText = deBuffer(alert.getDescriptionText());
         alertText.alertHeaderText = deBuffer(alert.getHeaderText());
@@ -926,7 +929,7 @@ public class AlertsUpdateHandler {
             patch.setId(patchId);
             patchIds.add(patchId);
 
-            alertPatchService.apply(patch);
+            alertPatches.add(patch);
         }
     }
 
@@ -147,6 +147,7 @@ public class BikeParkUpdater extends PollingGraphUpdater {
         public void run(Graph graph) {
             // Apply stations to graph
             Set<BikePark> bikeParkSet = new HashSet<BikePark>();
+            boolean parksAdded = false;
             /* Add any new park and update space available for existing parks */
             for (BikePark bikePark : bikeParks) {
                 bikeService.addBikePark(bikePark);
@@ -154,6 +155,7 @@ public class BikeParkUpdater extends PollingGraphUpdater {
                 BikeParkVertex bikeParkVertex = verticesByPark.get(bikePark);
                 if (bikeParkVertex == null) {
                     bikeParkVertex = new BikeParkVertex(graph, bikePark);
+                    parksAdded = true;
                     if (!linker.link(bikeParkVertex)) {
                         graph.addBuilderAnnotation(new BikeParkUnlinked(bikeParkVertex));
                     }
@@ -181,6 +183,10 @@ public class BikeParkUpdater extends PollingGraphUpdater {
                 // post-iteration removal to avoid concurrent modification
                 verticesByPark.remove(bikePark);
             }
+            if ((parksAdded || !toRemove.isEmpty()) && graph.index != null) {
+                // The walk neighbourhoods of the nearest queries no longer list the right bike parks.
+                graph.index.invalidateWalkNeighbourhoods();
+            }
         }
     }
 }
@@ -183,6 +183,7 @@ public class BikeRentalUpdater extends PollingGraphUpdater {
             // Apply stations to graph
             Set<BikeRentalStation> stationSet = new HashSet<BikeRentalStation>();
             Set<String> defaultNetworks = new HashSet<String>(Arrays.asList(network));
+            boolean stationsAdded = false;
             /* add any new stations and update bike counts for existing stations */
             for (BikeRentalStation station : stations) {
                 if (station.networks == null) {
@@ -194,6 +195,7 @@ public class BikeRentalUpdater extends PollingGraphUpdater {
                 BikeRentalStationVertex vertex = verticesByStation.get(station);
                 if (vertex == null) {
                     vertex = new BikeRentalStationVertex(graph, station);
+                    stationsAdded = true;
                     if (!linker.link(vertex)) {
                         graph.addBuilderAnnotation(new BikeRentalStationUnlinked(vertex));
                     }
@@ -226,6 +228,10 @@ public class BikeRentalUpdater extends PollingGraphUpdater {
                 // post-iteration removal to avoid concurrent modification
                 verticesByStation.remove(station);
             }
+            if ((stationsAdded || !toRemove.isEmpty()) && graph.index != null) {
+                // The walk neighbourhoods of the nearest queries no longer list the right stations.
+                graph.index.invalidateWalkNeighbourhoods();
+            }
         }
     }
 }
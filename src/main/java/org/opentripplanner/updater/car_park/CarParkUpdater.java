@@ -161,12 +161,14 @@ public class CarParkUpdater extends PollingGraphUpdater {
             } else {
                 // Apply stations to graph
                 Set<CarPark> carParkSet = new HashSet<CarPark>();
+                boolean parksAdded = false;
                 /* Add any new park and update space available for existing parks */
                 for (CarPark carPark : carParks) {
                     carParkService.addCarPark(carPark);
                     carParkSet.add(carPark);
                     if (verticesByPark.get(carPark) == null) {
                         ParkAndRideVertex carParkVertex = new ParkAndRideVertex(graph, carPark);
+                        parksAdded = true;
                         new ParkAndRideEdge(carParkVertex);
                         Envelope envelope = carPark.geometry.getEnvelopeInternal();
                         long numberOfVertices = streetIndex
@@ -206,6 +208,10 @@ public class CarParkUpdater extends PollingGraphUpdater {
                     // post-iteration removal to avoid concurrent modification
                     verticesByPark.remove(carPark);
                 }
+                if ((parksAdded || !toRemove.isEmpty()) && graph.index != null) {
+                    // The walk neighbourhoods of the nearest queries no longer list the right car parks.
+                    graph.index.invalidateWalkNeighbourhoods();
+                }
             }
         }
     }
@@ -0,0 +1,193 @@
+package org.opentripplanner.updater.siri;
+
+import uk.org.siri.siri20.VehicleModesEnumeration;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The realtime state of one trip, holding only the parts of a SIRI-ET EstimatedVehicleJourney that are used to
+ * update timetables. Both XML and protobuf messages are decoded straight into this model by
+ * {@link EstimatedTimetableXmlReader} and {@link EstimatedTimetableProtobufReader}, instead of materializing the
+ * complete JAXB object tree of the message.
+ */
+public class EstimatedJourney {
+
+    private String lineRef;
+
+    private String externalLineRef;
+
+    private String operatorRef;
+
+    private String publishedLineName;
+
+    private String datedVehicleJourneyRef;
+
+    private String framedVehicleJourneyRef;
+
+    private String dataFrameRef;
+
+    private String estimatedVehicleJourneyCode;
+
+    private String vehicleRef;
+
+    private final List<VehicleModesEnumeration> vehicleModes = new ArrayList<>(1);
+
+    private boolean extraJourney;
+
+    private Boolean cancellation;
+
+    private Boolean monitored;
+
+    private boolean predictionInaccurate;
+
+    private final List<EstimatedJourneyCall> recordedCalls = new ArrayList<>();
+
+    private final List<EstimatedJourneyCall> estimatedCalls = new ArrayList<>();
+
+    /** Set the field with the given SIRI element name, see {@link EstimatedTimetableBuilder}. */
+    void set(String element, String text) {
+        switch (element) {
+            case "LineRef":
+                lineRef = text;
+                break;
+            case "ExternalLineRef":
+                externalLineRef = text;
+                break;
+            case "OperatorRef":
+                operatorRef = text;
+                break;
+            case "PublishedLineName":
+                if (publishedLineName == null) {
+                    publishedLineName = text;
+                }
+                break;
+            case "DatedVehicleJourneyRef":
+                datedVehicleJourneyRef = text;
+                break;
+            case "FramedVehicleJourneyRef/DatedVehicleJourneyRef":
+                framedVehicleJourneyRef = text;
+                break;
+            case "FramedVehicleJourneyRef/DataFrameRef":
+                dataFrameRef = text;
+                break;
+            case "EstimatedVehicleJourneyCode":
+                estimatedVehicleJourneyCode = text;
+                break;
+            case "VehicleRef":
+                vehicleRef = text;
+                break;
+            case "VehicleMode":
+                VehicleModesEnumeration mode = EstimatedTimetableBuilder.parseEnum(VehicleModesEnumeration.class,
+                        text);
+                if (mode != null) {
+                    vehicleModes.add(mode);
+                }
+                break;
+            case "ExtraJourney":
+                extraJourney = Boolean.parseBoolean(text);
+                break;
+            case "Cancellation":
+                cancellation = Boolean.valueOf(text);
+                break;
+            case "Monitored":
+                monitored = Boolean.valueOf(text);
+                break;
+            case "PredictionInaccurate":
+                predictionInaccurate = Boolean.parseBoolean(text);
+                break;
+        }
+    }
+
+    void addCall(EstimatedJourneyCall call) {
+        if (call.isRecorded()) {
+            recordedCalls.add(call);
+        } else {
+            estimatedCalls.add(call);
+        }
+    }
+
+    public String getLineRef() {
+        return lineRef;
+    }
+
+    public String getExternalLineRef() {
+        return externalLineRef;
+    }
+
+    public String getOperatorRef() {
+        return operatorRef;
+    }
+
+    public String getPublishedLineName() {
+        return publishedLineName;
+    }
+
+    /**
+     * @return the id of the service journey this journey is an update of, from the FramedVehicleJourneyRef if
+     * given, else from the DatedVehicleJourneyRef.
+     */
+    public String getDatedVehicleJourneyRef() {
+        return framedVehicleJourneyRef != null ? framedVehicleJourneyRef : datedVehicleJourneyRef;
+    }
+
+    public String getDataFrameRef() {
+        return dataFrameRef;
+    }
+
+    public String getEstimatedVehicleJourneyCode() {
+        return estimatedVehicleJourneyCode;
+    }
+
+    public String getVehicleRef() {
+        return vehicleRef;
+    }
+
+    public List<VehicleModesEnumeration> getVehicleModes() {
+        return vehicleModes;
+    }
+
+    public boolean isExtraJourney() {
+        return extraJourney;
+    }
+
+    public Boolean isCancellation() {
+        return cancellation;
+    }
+
+    public Boolean isMonitored() {
+        return monitored;
+    }
+
+    public boolean isPredictionInaccurate() {
+        return predictionInaccurate;
+    }
+
+    public List<EstimatedJourneyCall> getRecordedCalls() {
+        return recordedCalls;
+    }
+
+    public List<EstimatedJourneyCall> getEstimatedCalls() {
+        return estimatedCalls;
+    }
+
+    /**
+     * @return the aimed departure time from the first call, which determines the service date of the journey.
+     */
+    public ZonedDateTime getFirstAimedDepartureTime() {
+        if (!recordedCalls.isEmpty()) {
+            return recordedCalls.get(0).getAimedDepartureTime();
+        }
+        if (!estimatedCalls.isEmpty()) {
+            return estimatedCalls.get(0).getAimedDepartureTime();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "EstimatedJourney(" + (extraJourney ? estimatedVehicleJourneyCode : getDatedVehicleJourneyRef())
+                + ", line " + lineRef + ")";
+    }
+}
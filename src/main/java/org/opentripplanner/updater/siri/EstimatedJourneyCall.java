@@ -0,0 +1,192 @@
+package org.opentripplanner.updater.siri;
+
+import uk.org.siri.siri20.ArrivalBoardingActivityEnumeration;
+import uk.org.siri.siri20.CallStatusEnumeration;
+import uk.org.siri.siri20.DepartureBoardingActivityEnumeration;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A recorded or estimated call of an {@link EstimatedJourney}, holding only the parts of a SIRI RecordedCall or
+ * EstimatedCall that are used to update timetables.
+ */
+public class EstimatedJourneyCall {
+
+    private final boolean recorded;
+
+    private String stopPointRef;
+
+    private Integer order;
+
+    private Integer visitNumber;
+
+    private ZonedDateTime aimedArrivalTime;
+
+    private ZonedDateTime aimedDepartureTime;
+
+    private ZonedDateTime expectedArrivalTime;
+
+    private ZonedDateTime expectedDepartureTime;
+
+    private ZonedDateTime actualArrivalTime;
+
+    private ZonedDateTime actualDepartureTime;
+
+    private Boolean cancellation;
+
+    private boolean predictionInaccurate;
+
+    private CallStatusEnumeration arrivalStatus;
+
+    private CallStatusEnumeration departureStatus;
+
+    private ArrivalBoardingActivityEnumeration arrivalBoardingActivity;
+
+    private DepartureBoardingActivityEnumeration departureBoardingActivity;
+
+    private String destinationDisplay;
+
+    public EstimatedJourneyCall(boolean recorded) {
+        this.recorded = recorded;
+    }
+
+    /** Set the field with the given SIRI element name, see {@link EstimatedTimetableBuilder}. */
+    void set(String element, String text) {
+        switch (element) {
+            case "StopPointRef":
+                stopPointRef = text;
+                break;
+            case "Order":
+                order = Integer.valueOf(text);
+                break;
+            case "VisitNumber":
+                visitNumber = Integer.valueOf(text);
+                break;
+            case "Cancellation":
+                cancellation = Boolean.valueOf(text);
+                break;
+            case "PredictionInaccurate":
+                predictionInaccurate = Boolean.parseBoolean(text);
+                break;
+            case "ArrivalStatus":
+                arrivalStatus = EstimatedTimetableBuilder.parseEnum(CallStatusEnumeration.class, text);
+                break;
+            case "DepartureStatus":
+                departureStatus = EstimatedTimetableBuilder.parseEnum(CallStatusEnumeration.class, text);
+                break;
+            case "ArrivalBoardingActivity":
+                arrivalBoardingActivity = EstimatedTimetableBuilder.parseEnum(
+                        ArrivalBoardingActivityEnumeration.class, text);
+                break;
+            case "DepartureBoardingActivity":
+                departureBoardingActivity = EstimatedTimetableBuilder.parseEnum(
+                        DepartureBoardingActivityEnumeration.class, text);
+                break;
+            case "DestinationDisplay":
+                // Only the first language is used.
+                if (destinationDisplay == null) {
+                    destinationDisplay = text;
+                }
+                break;
+            case "AimedArrivalTime":
+            case "AimedDepartureTime":
+            case "ExpectedArrivalTime":
+            case "ExpectedDepartureTime":
+            case "ActualArrivalTime":
+            case "ActualDepartureTime":
+                set(element, ZonedDateTime.parse(text));
+                break;
+        }
+    }
+
+    void set(String element, ZonedDateTime time) {
+        switch (element) {
+            case "AimedArrivalTime":
+                aimedArrivalTime = time;
+                break;
+            case "AimedDepartureTime":
+                aimedDepartureTime = time;
+                break;
+            case "ExpectedArrivalTime":
+                expectedArrivalTime = time;
+                break;
+            case "ExpectedDepartureTime":
+                expectedDepartureTime = time;
+                break;
+            case "ActualArrivalTime":
+                actualArrivalTime = time;
+                break;
+            case "ActualDepartureTime":
+                actualDepartureTime = time;
+                break;
+        }
+    }
+
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+    public String getStopPointRef() {
+        return stopPointRef;
+    }
+
+    public Integer getOrder() {
+        return order;
+    }
+
+    public Integer getVisitNumber() {
+        return visitNumber;
+    }
+
+    public ZonedDateTime getAimedArrivalTime() {
+        return aimedArrivalTime;
+    }
+
+    public ZonedDateTime getAimedDepartureTime() {
+        return aimedDepartureTime;
+    }
+
+    public ZonedDateTime getExpectedArrivalTime() {
+        return expectedArrivalTime;
+    }
+
+    public ZonedDateTime getExpectedDepartureTime() {
+        return expectedDepartureTime;
+    }
+
+    public ZonedDateTime getActualArrivalTime() {
+        return actualArrivalTime;
+    }
+
+    public ZonedDateTime getActualDepartureTime() {
+        return actualDepartureTime;
+    }
+
+    public Boolean isCancellation() {
+        return cancellation;
+    }
+
+    public boolean isPredictionInaccurate() {
+        return predictionInaccurate;
+    }
+
+    public CallStatusEnumeration getArrivalStatus() {
+        return arrivalStatus;
+    }
+
+    public CallStatusEnumeration getDepartureStatus() {
+        return departureStatus;
+    }
+
+    public ArrivalBoardingActivityEnumeration getArrivalBoardingActivity() {
+        return arrivalBoardingActivity;
+    }
+
+    public DepartureBoardingActivityEnumeration getDepartureBoardingActivity() {
+        return departureBoardingActivity;
+    }
+
+    public String getDestinationDisplay() {
+        return destinationDisplay;
+    }
+}
@@ -0,0 +1,44 @@
+package org.opentripplanner.updater.siri;
+
+import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.UpdateBatcher;
+import java.time.ZonedDateTime;
+
+/**
+ * Batches the journeys of streamed SIRI-ET messages, see {@link UpdateBatcher}. The journeys of a batch are applied
+ * together, since they are handled independently of the message they arrived in.
+ */
+public class EstimatedTimetableBatcher extends UpdateBatcher<EstimatedJourney> {
+
+    public EstimatedTimetableBatcher(String name, GraphUpdaterManager updaterManager, long windowMillis,
+            int maxBatchSize) {
+        super(name, updaterManager, EstimatedTimetableBatcher::key, EstimatedTimetableGraphWriterRunnable::new,
+                windowMillis, maxBatchSize);
+    }
+
+    /** Add all journeys of the given message to the current batch. */
+    public void add(EstimatedTimetableMessage message) {
+        ZonedDateTime responseTimestamp = message.getResponseTimestamp();
+        long producedAt = responseTimestamp != null ? responseTimestamp.toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        add(false, message.getJourneys(), producedAt);
+    }
+
+    /**
+     * Journeys are identified the same way as when they are matched to trips: extra journeys by their code, other
+     * journeys by their dated vehicle journey reference and service date.
+     * @return the key of the trip the journey applies to, or null if it cannot be determined.
+     */
+    static Object key(EstimatedJourney journey) {
+        if (journey.isExtraJourney()) {
+            String code = journey.getEstimatedVehicleJourneyCode();
+            return code == null ? null : "extra " + code;
+        }
+        String ref = journey.getDatedVehicleJourneyRef();
+        ZonedDateTime departure = journey.getFirstAimedDepartureTime();
+        if (ref == null || departure == null) {
+            return null;
+        }
+        return ref + " " + departure.toLocalDate();
+    }
+}
@@ -0,0 +1,114 @@
+package org.opentripplanner.updater.siri;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Builds an {@link EstimatedTimetableMessage} from the elements of a SIRI-ET service delivery, as they are read by
+ * a streaming reader. Elements are named by their SIRI XML element name. Elements nested in a structure that is
+ * not a journey or a call are named by their path from the journey or call, e.g.
+ * "FramedVehicleJourneyRef/DataFrameRef". Unknown elements are ignored.
+ */
+class EstimatedTimetableBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EstimatedTimetableBuilder.class);
+
+    static final String JOURNEY = "EstimatedVehicleJourney";
+
+    static final String ESTIMATED_CALL = "EstimatedCall";
+
+    static final String RECORDED_CALL = "RecordedCall";
+
+    private static final Pattern CAMEL_CASE_BOUNDARY = Pattern.compile("([a-z0-9])([A-Z])");
+
+    private final EstimatedTimetableMessage message = new EstimatedTimetableMessage();
+
+    private EstimatedJourney journey;
+
+    private EstimatedJourneyCall call;
+
+    /** @return true if an element of this name starts a journey or a call. */
+    static boolean isContainer(String element) {
+        return JOURNEY.equals(element) || ESTIMATED_CALL.equals(element) || RECORDED_CALL.equals(element);
+    }
+
+    void start(String container) {
+        if (JOURNEY.equals(container)) {
+            journey = new EstimatedJourney();
+        } else if (journey != null) {
+            call = new EstimatedJourneyCall(RECORDED_CALL.equals(container));
+        }
+    }
+
+    void end(String container) {
+        if (JOURNEY.equals(container)) {
+            if (journey != null) {
+                message.journeys.add(journey);
+            }
+            journey = null;
+        } else if (call != null) {
+            journey.addCall(call);
+            call = null;
+        }
+    }
+
+    void value(String element, String text) {
+        try {
+            setValue(element, text);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            LOG.debug("Ignoring invalid value of {}: {}", element, text);
+        }
+    }
+
+    private void setValue(String element, String text) {
+        if (call != null) {
+            call.set(element, text);
+        } else if (journey != null) {
+            journey.set(element, text);
+        } else if (element.endsWith("ResponseTimestamp")) {
+            if (message.responseTimestamp == null) {
+                message.responseTimestamp = ZonedDateTime.parse(text);
+            }
+        } else if (element.endsWith("MoreData")) {
+            message.moreData |= Boolean.parseBoolean(text);
+        }
+    }
+
+    void value(String element, ZonedDateTime time) {
+        if (call != null) {
+            call.set(element, time);
+        } else if (journey == null && element.endsWith("ResponseTimestamp") && message.responseTimestamp == null) {
+            message.responseTimestamp = time;
+        }
+    }
+
+    EstimatedTimetableMessage build() {
+        return message;
+    }
+
+    /**
+     * Parse an enumeration value from its XML form (e.g. "noAlighting") or its protobuf form, the constant name
+     * possibly prefixed by the enumeration type (e.g. "ARRIVAL_BOARDING_ACTIVITY_ENUMERATION_NO_ALIGHTING").
+     * @return the constant with the longest matching name, or null if none matches.
+     */
+    static <E extends Enum<E>> E parseEnum(Class<E> type, String text) {
+        String name = CAMEL_CASE_BOUNDARY.matcher(text).replaceAll("$1_$2").replace('-', '_').toUpperCase(Locale.ROOT);
+        E result = null;
+        for (E constant : type.getEnumConstants()) {
+            String constantName = constant.name();
+            if (name.equals(constantName)) {
+                return constant;
+            }
+            if (name.endsWith("_" + constantName)
+                    && (result == null || constantName.length() > result.name().length())) {
+                result = constant;
+            }
+        }
+        return result;
+    }
+}
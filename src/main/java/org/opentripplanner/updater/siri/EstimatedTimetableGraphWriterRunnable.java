@@ -19,7 +19,6 @@ import org.opentripplanner.updater.GraphWriterRunnable;
 import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.EstimatedTimetableDeliveryStructure;
 
 import java.util.List;
 
@@ -35,10 +34,10 @@ public class EstimatedTimetableGraphWriterRunnable implements GraphWriterRunnabl
     /**
      * The list with updates to apply to the graph
      */
-    private final List<EstimatedTimetableDeliveryStructure> updates;
+    private final List<EstimatedJourney> updates;
 
 
-    public EstimatedTimetableGraphWriterRunnable(final boolean fullDataset, final List<EstimatedTimetableDeliveryStructure> updates) {
+    public EstimatedTimetableGraphWriterRunnable(final boolean fullDataset, final List<EstimatedJourney> updates) {
         // Preconditions
         Preconditions.checkNotNull(updates);
 
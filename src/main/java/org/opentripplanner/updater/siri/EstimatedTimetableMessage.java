@@ -0,0 +1,31 @@
+package org.opentripplanner.updater.siri;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The journeys of a SIRI-ET service delivery, from all its estimated timetable deliveries and version frames, which
+ * do not influence how the journeys are applied.
+ */
+public class EstimatedTimetableMessage {
+
+    ZonedDateTime responseTimestamp;
+
+    boolean moreData;
+
+    final List<EstimatedJourney> journeys = new ArrayList<>();
+
+    public ZonedDateTime getResponseTimestamp() {
+        return responseTimestamp;
+    }
+
+    /** @return true if the producer has more data available, which should be fetched right away. */
+    public boolean isMoreData() {
+        return moreData;
+    }
+
+    public List<EstimatedJourney> getJourneys() {
+        return journeys;
+    }
+}
@@ -0,0 +1,105 @@
+package org.opentripplanner.updater.siri;
+
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the estimated timetables of a SIRI protobuf message (as published on the SIRI Pubsub topics) straight into
+ * an {@link EstimatedTimetableMessage}, without mapping the message to the JAXB object tree first.
+ *
+ * The message is walked through its descriptors. The protobuf schema mirrors the SIRI XML schema, so a field is
+ * given to {@link EstimatedTimetableBuilder} under the XML element name derived from its field name (stop_point_ref
+ * becomes StopPointRef). Single-value wrapper messages such as references or natural language strings are unwrapped
+ * to their value, and timestamps are converted to the time zone given to the reader.
+ */
+public class EstimatedTimetableProtobufReader {
+
+    private static final String VALUE_FIELD = "value";
+
+    private final ZoneId timeZone;
+
+    public EstimatedTimetableProtobufReader(ZoneId timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public EstimatedTimetableMessage read(Message siri) {
+        EstimatedTimetableBuilder builder = new EstimatedTimetableBuilder();
+        visit(builder, siri, "");
+        return builder.build();
+    }
+
+    /**
+     * @param prefix the path of the message from the innermost journey or call, followed by a slash, or empty if
+     *               the message is a journey or call itself
+     */
+    private void visit(EstimatedTimetableBuilder builder, Message message, String prefix) {
+        for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+            String element = elementName(field.getKey().getName());
+            if (field.getKey().isRepeated()) {
+                for (Object value : (List<?>) field.getValue()) {
+                    visitValue(builder, prefix, element, value);
+                }
+            } else {
+                visitValue(builder, prefix, element, field.getValue());
+            }
+        }
+    }
+
+    private void visitValue(EstimatedTimetableBuilder builder, String prefix, String element, Object value) {
+        String name = prefix + element;
+        if (!(value instanceof Message)) {
+            builder.value(name, scalarText(value));
+            return;
+        }
+        Message message = (Message) value;
+        if (EstimatedTimetableBuilder.isContainer(element)) {
+            // Wrappers such as EstimatedCalls are not part of the names below a journey or call.
+            builder.start(element);
+            visit(builder, message, "");
+            builder.end(element);
+        } else if (message instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) message;
+            Instant instant = Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+            builder.value(name, ZonedDateTime.ofInstant(instant, timeZone));
+        } else {
+            FieldDescriptor valueField = message.getDescriptorForType().findFieldByName(VALUE_FIELD);
+            if (valueField != null && !valueField.isRepeated()
+                    && valueField.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                builder.value(name, scalarText(message.getField(valueField)));
+            } else {
+                visit(builder, message, name + "/");
+            }
+        }
+    }
+
+    private static String scalarText(Object value) {
+        if (value instanceof EnumValueDescriptor) {
+            return ((EnumValueDescriptor) value).getName();
+        }
+        return String.valueOf(value);
+    }
+
+    /** The XML element name for a protobuf field name, in either snake or camel case. */
+    static String elementName(String fieldName) {
+        StringBuilder name = new StringBuilder(fieldName.length());
+        boolean upper = true;
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+}
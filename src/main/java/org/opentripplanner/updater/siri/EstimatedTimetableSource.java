@@ -13,15 +13,13 @@
 
 package org.opentripplanner.updater.siri;
 
-import uk.org.siri.siri20.Siri;
-
 public interface EstimatedTimetableSource {
     /**
      * Wait for one message to arrive, and decode it into a List of TripUpdates. Blocking call.
-     * @return a Siri-object potentially containing updates for several different trips,
+     * @return the estimated timetables of the message, potentially containing updates for several different trips,
      *         or null if an exception occurred while processing the message
      */
-    public Siri getUpdates();
+    public EstimatedTimetableMessage getUpdates();
     
     /**
      * @return true iff the last list with updates represent all updates that are active right
@@ -0,0 +1,97 @@
+package org.opentripplanner.updater.siri;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads the estimated timetables of a SIRI XML document with a streaming (StAX) parser, straight into an
+ * {@link EstimatedTimetableMessage}. Only the elements used to update timetables are kept, so this avoids building
+ * the JAXB object tree of the whole document, which dominates the cost of large SIRI-ET deliveries.
+ */
+public class EstimatedTimetableXmlReader {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public static EstimatedTimetableMessage read(InputStream is) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(is);
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public static EstimatedTimetableMessage read(String xml) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static EstimatedTimetableMessage read(XMLStreamReader reader) throws XMLStreamException {
+        EstimatedTimetableBuilder builder = new EstimatedTimetableBuilder();
+        // The names of the open elements, and the depth at which each open journey or call starts.
+        List<String> path = new ArrayList<>();
+        Deque<Integer> containerDepths = new ArrayDeque<>();
+        containerDepths.push(0);
+        StringBuilder text = new StringBuilder();
+        boolean leaf = false;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = reader.getLocalName();
+                    path.add(name);
+                    if (EstimatedTimetableBuilder.isContainer(name)) {
+                        builder.start(name);
+                        containerDepths.push(path.size());
+                        leaf = false;
+                    } else {
+                        leaf = true;
+                        text.setLength(0);
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    if (leaf) {
+                        text.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (containerDepths.peek() == path.size()) {
+                        builder.end(path.get(path.size() - 1));
+                        containerDepths.pop();
+                    } else if (leaf) {
+                        builder.value(elementName(path, containerDepths.peek()), text.toString().trim());
+                    }
+                    path.remove(path.size() - 1);
+                    leaf = false;
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    /** The path of the innermost element from the innermost journey or call. */
+    private static String elementName(List<String> path, int containerDepth) {
+        if (containerDepth == path.size() - 1) {
+            return path.get(containerDepth);
+        }
+        return String.join("/", path.subList(containerDepth, path.size()));
+    }
+}
@@ -10,7 +10,6 @@ import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.rutebanken.siri20.util.SiriXml;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.EstimatedTimetableDeliveryStructure;
 import uk.org.siri.siri20.Siri;
 import uk.org.siri.siri20.VehicleMonitoringDeliveryStructure;
 
@@ -23,6 +22,8 @@ import java.util.List;
 public class SiriActiveMQUpdater implements GraphUpdater {
     private static final Logger LOG = LoggerFactory.getLogger(SiriActiveMQUpdater.class);
 
+    private static final int DEFAULT_BATCH_MAX_SIZE = 5000;
+
     String activeMQUrl;
 
     String topicName;
@@ -34,6 +35,12 @@ public class SiriActiveMQUpdater implements GraphUpdater {
 
     private Connection connection;
 
+    /**
+     * Collects the estimated timetables of consecutive messages into batches. Vehicle monitoring messages are
+     * applied one by one.
+     */
+    private EstimatedTimetableBatcher batcher;
+
     @Override
     public void setGraphUpdaterManager(GraphUpdaterManager updaterManager) {
         this.updaterManager = updaterManager;
@@ -53,6 +60,9 @@ public class SiriActiveMQUpdater implements GraphUpdater {
 
         topicName = config.path("topicName").asText();
 
+        batcher = new EstimatedTimetableBatcher(getClass().getSimpleName(), updaterManager,
+                config.path("batchWindowMs").asLong(0), config.path("batchMaxSize").asInt(DEFAULT_BATCH_MAX_SIZE));
+
         if (graph.timetableSnapshotSource == null) {
             TimetableSnapshotSource snapshotSource = new TimetableSnapshotSource(graph);
             // Add snapshot source to graph
@@ -83,21 +93,23 @@ public class SiriActiveMQUpdater implements GraphUpdater {
             try {
                 if (message instanceof TextMessage) {
                     TextMessage textMessage = (TextMessage) message;
-                    Siri siri = null;
-                    try {
-                        siri = SiriXml.parseXml(textMessage.getText());
-                    } catch (JAXBException | XMLStreamException e) {
-                        LOG.error("Could not parse XML", e);
+                    String text = textMessage.getText();
+                    if (text.contains("EstimatedTimetableDelivery")) {
+                        try {
+                            batcher.add(EstimatedTimetableXmlReader.read(text));
+                        } catch (XMLStreamException e) {
+                            LOG.error("Could not parse XML", e);
+                        }
                     }
-                    if (siri != null && siri.getServiceDelivery() != null) {
-                        if (siri.getServiceDelivery().getEstimatedTimetableDeliveries() != null &&
-                                !siri.getServiceDelivery().getEstimatedTimetableDeliveries().isEmpty()) {
-                            List<EstimatedTimetableDeliveryStructure> updates = siri.getServiceDelivery().getEstimatedTimetableDeliveries();
-                            EstimatedTimetableGraphWriterRunnable runnable =
-                                    new EstimatedTimetableGraphWriterRunnable(false, updates);
-                            updaterManager.execute(runnable);
+                    if (text.contains("VehicleMonitoringDelivery")) {
+                        Siri siri = null;
+                        try {
+                            siri = SiriXml.parseXml(text);
+                        } catch (JAXBException | XMLStreamException e) {
+                            LOG.error("Could not parse XML", e);
                         }
-                        if (siri.getServiceDelivery().getVehicleMonitoringDeliveries() != null &&
+                        if (siri != null && siri.getServiceDelivery() != null &&
+                                siri.getServiceDelivery().getVehicleMonitoringDeliveries() != null &&
                                 !siri.getServiceDelivery().getVehicleMonitoringDeliveries().isEmpty()) {
                             List<VehicleMonitoringDeliveryStructure> updates = siri.getServiceDelivery().getVehicleMonitoringDeliveries();
                             VehicleMonitoringGraphWriterRunnable runnable =
@@ -114,6 +126,7 @@ public class SiriActiveMQUpdater implements GraphUpdater {
 
     @Override
     public void teardown() {
+        batcher.stop();
 
         try {
             connection.close();
@@ -123,4 +136,8 @@ public class SiriActiveMQUpdater implements GraphUpdater {
 
     }
 
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [topic: " + topicName + ", " + batcher + "]";
+    }
 }
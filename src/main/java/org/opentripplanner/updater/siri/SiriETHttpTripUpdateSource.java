@@ -20,7 +20,6 @@ import org.opentripplanner.updater.SiriHelper;
 import org.opentripplanner.util.HttpUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.Siri;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -90,7 +89,7 @@ public class SiriETHttpTripUpdateSource implements EstimatedTimetableSource, Jso
     }
 
     @Override
-    public Siri getUpdates() {
+    public EstimatedTimetableMessage getUpdates() {
         long t1 = System.currentTimeMillis();
         long creating = 0;
         long fetching = 0;
@@ -107,18 +106,21 @@ public class SiriETHttpTripUpdateSource implements EstimatedTimetableSource, Jso
                 fetching = System.currentTimeMillis()-t1;
                 t1 = System.currentTimeMillis();
 
-                Siri siri = SiriHelper.unmarshal(is);
+                EstimatedTimetableMessage updates = EstimatedTimetableXmlReader.read(is);
                 unmarshalling = System.currentTimeMillis()-t1;
 
-                if (siri.getServiceDelivery().getResponseTimestamp().isBefore(lastTimestamp)) {
-                    LOG.info("Newer data has already been processed");
-                    return null;
+                ZonedDateTime responseTimestamp = updates.getResponseTimestamp();
+                if (responseTimestamp != null) {
+                    if (responseTimestamp.isBefore(lastTimestamp)) {
+                        LOG.info("Newer data has already been processed");
+                        return null;
+                    }
+                    lastTimestamp = responseTimestamp;
                 }
-                lastTimestamp = siri.getServiceDelivery().getResponseTimestamp();
 
                 //All subsequent requests will return changes since last request
                 fullDataset = false;
-                return siri;
+                return updates;
 
             }
         } catch (IOException e) {
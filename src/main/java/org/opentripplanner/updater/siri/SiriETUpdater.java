@@ -19,7 +19,6 @@ import org.opentripplanner.updater.*;
 import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.Siri;
 
 import java.util.concurrent.ExecutionException;
 
@@ -149,13 +148,13 @@ public class SiriETUpdater extends PollingGraphUpdater {
     @Override
     public void runPolling() throws Exception {
         // Get update lists from update source
-        Siri updates = updateSource.getUpdates();
+        EstimatedTimetableMessage updates = updateSource.getUpdates();
         boolean fullDataset = updateSource.getFullDatasetValueOfLastUpdates();
 
-        if (updates != null && updates.getServiceDelivery().getEstimatedTimetableDeliveries() != null) {
+        if (updates != null) {
             // Handle trip updates via graph writer runnable
             EstimatedTimetableGraphWriterRunnable runnable =
-                    new EstimatedTimetableGraphWriterRunnable(fullDataset, updates.getServiceDelivery().getEstimatedTimetableDeliveries());
+                    new EstimatedTimetableGraphWriterRunnable(fullDataset, updates.getJourneys());
             if (blockReadinessUntilInitialized && !isInitialized) {
                 LOG.info("Execute blocking tripupdates");
                 updaterManager.executeBlocking(runnable);
@@ -163,10 +162,7 @@ public class SiriETUpdater extends PollingGraphUpdater {
                 updaterManager.execute(runnable);
             }
         }
-        if (updates != null &&
-                updates.getServiceDelivery() != null &&
-                updates.getServiceDelivery().isMoreData() != null &&
-                updates.getServiceDelivery().isMoreData()) {
+        if (updates != null && updates.isMoreData()) {
             LOG.info("More data is available - fetching immediately");
             runPolling();
         }
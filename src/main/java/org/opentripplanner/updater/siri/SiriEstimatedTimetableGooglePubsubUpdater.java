@@ -29,7 +29,6 @@ import com.google.pubsub.v1.PushConfig;
 import com.google.pubsub.v1.Subscription;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
-import org.entur.protobuf.mapper.SiriMapper;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterManager;
@@ -39,14 +38,11 @@ import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.opentripplanner.util.HttpUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.EstimatedTimetableDeliveryStructure;
-import uk.org.siri.siri20.Siri;
 import uk.org.siri.www.siri.SiriType;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.ZonedDateTime;
-import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -73,6 +69,8 @@ import java.util.concurrent.atomic.AtomicLong;
  *   "projectName":"project-1234",                                                      // Google Cloud project name
  *   "topicName": "protobuf.estimated_timetables",                                      // Google Cloud Pubsub topic
  *   "dataInitializationUrl": "http://server/realtime/protobuf/et"  // Optional URL used to initialize with all existing data
+ *   "batchWindowMs": 500,                                                              // Optional, collect messages for this long and apply them at once
+ *   "batchMaxSize": 5000                                                               // Optional, apply a batch early when it holds this many journeys
  * </pre>
  *
  */
@@ -80,6 +78,8 @@ public class SiriEstimatedTimetableGooglePubsubUpdater extends ReadinessBlocking
 
     private static final int DEFAULT_RECONNECT_PERIOD_SEC = 5; // Five seconds
 
+    private static final int DEFAULT_BATCH_MAX_SIZE = 5000;
+
     private static Logger LOG = LoggerFactory.getLogger(SiriEstimatedTimetableGooglePubsubUpdater.class);
 
     /**
@@ -102,6 +102,16 @@ public class SiriEstimatedTimetableGooglePubsubUpdater extends ReadinessBlocking
      */
     private int reconnectPeriodSec;
 
+    /**
+     * Collects the journeys received once the updater is initialized into batches.
+     */
+    private EstimatedTimetableBatcher batcher;
+
+    /**
+     * Decodes the protobuf messages, with their timestamps in the time zone of the graph.
+     */
+    private EstimatedTimetableProtobufReader reader;
+
     private SubscriptionAdminClient subscriptionAdminClient;
     private ProjectSubscriptionName subscriptionName;
     private ProjectTopicName topic;
@@ -167,6 +177,11 @@ public class SiriEstimatedTimetableGooglePubsubUpdater extends ReadinessBlocking
 
         blockReadinessUntilInitialized = config.path("blockReadinessUntilInitialized").asBoolean(false);
 
+        reader = new EstimatedTimetableProtobufReader(graph.getTimeZone().toZoneId());
+
+        batcher = new EstimatedTimetableBatcher(getClass().getSimpleName(), updaterManager,
+                config.path("batchWindowMs").asLong(0), config.path("batchMaxSize").asInt(DEFAULT_BATCH_MAX_SIZE));
+
         // set subscriber
         String subscriptionId = System.getenv("HOSTNAME");
         if (subscriptionId == null || subscriptionId.isBlank()) {
@@ -259,6 +274,9 @@ public class SiriEstimatedTimetableGooglePubsubUpdater extends ReadinessBlocking
 
     @Override
     public void teardown() {
+        if (batcher != null) {
+            batcher.stop();
+        }
         if (subscriptionAdminClient != null) {
             LOG.info("Deleting subscription {}", subscriptionName);
             subscriptionAdminClient.deleteSubscription(subscriptionName);
@@ -266,6 +284,11 @@ public class SiriEstimatedTimetableGooglePubsubUpdater extends ReadinessBlocking
         }
     }
 
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [topic: " + topic + ", " + batcher + "]";
+    }
+
     private String getTimeSinceStartupString() {
         return DurationFormatUtils.formatDuration((now() - startTime), "HH:mm:ss");
     }
@@ -310,54 +333,42 @@ public class SiriEstimatedTimetableGooglePubsubUpdater extends ReadinessBlocking
         @Override
         public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
 
-            Siri siri;
+            EstimatedTimetableMessage updates;
             try {
                 sizeCounter.addAndGet(message.getData().size());
 
                 final ByteString data = message.getData();
 
                 final SiriType siriType = SiriType.parseFrom(data);
-                siri = SiriMapper.mapToJaxb(siriType);
+                updates = reader.read(siriType);
 
             } catch (InvalidProtocolBufferException e) {
                 throw new RuntimeException(e);
             }
 
-            if (siri.getServiceDelivery() != null) {
-                // Handle trip updates via graph writer runnable
-                List<EstimatedTimetableDeliveryStructure> estimatedTimetableDeliveries = siri.getServiceDelivery().getEstimatedTimetableDeliveries();
-
-                int numberOfUpdatedTrips = 0;
-                try {
-                    numberOfUpdatedTrips = estimatedTimetableDeliveries.get(0).getEstimatedJourneyVersionFrames().get(0).getEstimatedVehicleJourneies().size();
-                } catch (Throwable t) {
-                    //ignore
-                }
-                long numberOfUpdates = updateCounter.addAndGet(numberOfUpdatedTrips);
-                long numberOfMessages = messageCounter.incrementAndGet();
+            // Handle trip updates via graph writer runnable
+            long numberOfUpdates = updateCounter.addAndGet(updates.getJourneys().size());
+            long numberOfMessages = messageCounter.incrementAndGet();
 
-                if (numberOfMessages % 1000 == 0) {
-                    LOG.info("Pubsub stats: [messages: {},  updates: {}, total size: {}, current delay {} ms, time since startup: {}]", numberOfMessages, numberOfUpdates, FileUtils.byteCountToDisplaySize(sizeCounter.get()),
-                            (now() - siri.getServiceDelivery().getResponseTimestamp().toInstant().toEpochMilli()),
-                            getTimeSinceStartupString());
-                }
+            if (numberOfMessages % 1000 == 0) {
+                ZonedDateTime responseTimestamp = updates.getResponseTimestamp();
+                LOG.info("Pubsub stats: [messages: {},  updates: {}, total size: {}, current delay {} ms, time since startup: {}]", numberOfMessages, numberOfUpdates, FileUtils.byteCountToDisplaySize(sizeCounter.get()),
+                        responseTimestamp != null ? (now() - responseTimestamp.toInstant().toEpochMilli()) : "unknown",
+                        getTimeSinceStartupString());
+            }
 
+            if (!isReady()) {
                 EstimatedTimetableGraphWriterRunnable runnable =
-                        new EstimatedTimetableGraphWriterRunnable(false,
-                                estimatedTimetableDeliveries);
-
-                if (!isReady()) {
-                    try {
-                        updaterManager.executeBlocking(runnable);
-                    } catch (Throwable e) {
-                        throw new RuntimeException(e);
-                    }
-                } else {
-                    updaterManager.execute(runnable);
+                        new EstimatedTimetableGraphWriterRunnable(false, updates.getJourneys());
+                try {
+                    updaterManager.executeBlocking(runnable);
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
                 }
+            } else {
+                batcher.add(updates);
             }
 
-
             // Ack only after all work for the message is complete.
             consumer.ack();
         }
@@ -17,10 +17,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.JsonConfigurable;
 import org.opentripplanner.util.HttpUtils;
-import org.rutebanken.siri20.util.SiriXml;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.Siri;
 
 import java.io.InputStream;
 import java.time.ZonedDateTime;
@@ -57,7 +55,7 @@ public class SiriLiteETHttpTripUpdateSource implements EstimatedTimetableSource,
     }
 
     @Override
-    public Siri getUpdates() {
+    public EstimatedTimetableMessage getUpdates() {
         long t1 = System.currentTimeMillis();
         try {
 
@@ -67,19 +65,22 @@ public class SiriLiteETHttpTripUpdateSource implements EstimatedTimetableSource,
                 LOG.info("Fetching ET-data took {} ms", (System.currentTimeMillis()-t1));
                 t1 = System.currentTimeMillis();
 
-                Siri siri = SiriXml.parseXml(is);
+                EstimatedTimetableMessage updates = EstimatedTimetableXmlReader.read(is);
 
                 LOG.info("Unmarshalling ET-data took {} ms", (System.currentTimeMillis()-t1));
 
-                if (siri.getServiceDelivery().getResponseTimestamp().isBefore(lastTimestamp)) {
-                    LOG.info("Newer data has already been processed");
-                    return null;
+                ZonedDateTime responseTimestamp = updates.getResponseTimestamp();
+                if (responseTimestamp != null) {
+                    if (responseTimestamp.isBefore(lastTimestamp)) {
+                        LOG.info("Newer data has already been processed");
+                        return null;
+                    }
+                    lastTimestamp = responseTimestamp;
                 }
-                lastTimestamp = siri.getServiceDelivery().getResponseTimestamp();
 
                 //All subsequent requests will return changes since last request
                 fullDataset = false;
-                return siri;
+                return updates;
 
             }
         } catch (Exception e) {
@@ -18,7 +18,6 @@ import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.JsonConfigurable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.org.siri.siri20.Siri;
 
 /**
  * Update OTP stop time tables from some (realtime) source
@@ -67,19 +66,16 @@ public class SiriLiteETUpdater extends SiriETUpdater {
     @Override
     public void runPolling() {
         // Get update lists from update source
-        Siri updates = updateSource.getUpdates();
+        EstimatedTimetableMessage updates = updateSource.getUpdates();
         boolean fullDataset = updateSource.getFullDatasetValueOfLastUpdates();
 
-        if (updates != null && updates.getServiceDelivery().getEstimatedTimetableDeliveries() != null) {
+        if (updates != null) {
             // Handle trip updates via graph writer runnable
             EstimatedTimetableGraphWriterRunnable runnable =
-                    new EstimatedTimetableGraphWriterRunnable(fullDataset, updates.getServiceDelivery().getEstimatedTimetableDeliveries());
+                    new EstimatedTimetableGraphWriterRunnable(fullDataset, updates.getJourneys());
             super.updaterManager.execute(runnable);
         }
-        if (updates != null &&
-                updates.getServiceDelivery() != null &&
-                updates.getServiceDelivery().isMoreData() != null &&
-                updates.getServiceDelivery().isMoreData()) {
+        if (updates != null && updates.isMoreData()) {
             LOG.info("More data is available - fetching immediately");
             runPolling();
         }
@@ -36,16 +36,13 @@ import org.opentripplanner.routing.trippattern.RealTimeState;
 import org.opentripplanner.routing.trippattern.TripTimes;
 import org.opentripplanner.updater.GtfsRealtimeFuzzyTripMatcher;
 import org.opentripplanner.updater.SiriFuzzyTripMatcher;
+import org.opentripplanner.updater.siri.EstimatedJourney;
+import org.opentripplanner.updater.siri.EstimatedJourneyCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.org.siri.siri20.ArrivalBoardingActivityEnumeration;
 import uk.org.siri.siri20.DepartureBoardingActivityEnumeration;
-import uk.org.siri.siri20.EstimatedCall;
-import uk.org.siri.siri20.EstimatedTimetableDeliveryStructure;
-import uk.org.siri.siri20.EstimatedVehicleJourney;
-import uk.org.siri.siri20.EstimatedVersionFrameStructure;
 import uk.org.siri.siri20.NaturalLanguageStringStructure;
-import uk.org.siri.siri20.RecordedCall;
 import uk.org.siri.siri20.VehicleActivityCancellationStructure;
 import uk.org.siri.siri20.VehicleActivityStructure;
 import uk.org.siri.siri20.VehicleModesEnumeration;
@@ -140,6 +137,7 @@ public class TimetableSnapshotSource {
     public TimetableSnapshotSource(final Graph graph) {
         timeZone = graph.getTimeZone();
         graphIndex = graph.index;
+        buffer.setInternPool(graph.internPool);
 
         // Create dummy agency for added trips
         Agency dummy = new Agency();
@@ -395,9 +393,9 @@ public class TimetableSnapshotSource {
      *  @param graph graph to update (needed for adding/changing stop patterns)
      * @param fullDataset true iff the list with updates represent all updates that are active right
      *        now, i.e. all previous updates should be disregarded
-     * @param updates SIRI VehicleMonitoringDeliveries that should be applied atomically
+     * @param updates SIRI EstimatedVehicleJourneys that should be applied atomically
      */
-    public void applyEstimatedTimetable(final Graph graph, final boolean fullDataset, final List<EstimatedTimetableDeliveryStructure> updates) {
+    public void applyEstimatedTimetable(final Graph graph, final boolean fullDataset, final List<EstimatedJourney> updates) {
         if (updates == null) {
             LOG.warn("updates is null");
             return;
@@ -412,49 +410,38 @@ public class TimetableSnapshotSource {
                 buffer.clear(SIRI_FEED_ID);
             }
 
-            for (EstimatedTimetableDeliveryStructure etDelivery : updates) {
-
-                List<EstimatedVersionFrameStructure> estimatedJourneyVersions = etDelivery.getEstimatedJourneyVersionFrames();
-                if (estimatedJourneyVersions != null) {
-                    //Handle deliveries
-                    for (EstimatedVersionFrameStructure estimatedJourneyVersion : estimatedJourneyVersions) {
-                        List<EstimatedVehicleJourney> journeys = estimatedJourneyVersion.getEstimatedVehicleJourneies();
-                        LOG.debug("Handling {} EstimatedVehicleJourneys.", journeys.size());
-                        int handledCounter = 0;
-                        int skippedCounter = 0;
-                        int addedCounter = 0;
-                        int notMonitoredCounter = 0;
-                        for (EstimatedVehicleJourney journey : journeys) {
-                            if (journey.isExtraJourney() != null && journey.isExtraJourney()) {
-                                // Added trip
-                                try {
-                                    if (handleAddedTrip(graph, journey)) {
-                                        addedCounter++;
-                                    } else {
-                                        skippedCounter++;
-                                    }
-                                } catch (Throwable t) {
-                                    // Since this is work in progress - catch everything to continue processing updates
-                                    LOG.warn("Adding ExtraJourney with id='{}' failed with '{}'.", journey.getEstimatedVehicleJourneyCode(), t.getMessage());
-                                    skippedCounter++;
-                                }
-                            } else {
-                                // Updated trip
-                                if (handleModifiedTrip(graph, journey)) {
-                                    handledCounter++;
-                                } else {
-                                    if (journey.isMonitored() != null && !journey.isMonitored()) {
-                                        notMonitoredCounter++;
-                                    } else {
-                                        skippedCounter++;
-                                    }
-                                }
-                            }
+            int handledCounter = 0;
+            int skippedCounter = 0;
+            int addedCounter = 0;
+            int notMonitoredCounter = 0;
+            for (EstimatedJourney journey : updates) {
+                if (journey.isExtraJourney()) {
+                    // Added trip
+                    try {
+                        if (handleAddedTrip(graph, journey)) {
+                            addedCounter++;
+                        } else {
+                            skippedCounter++;
+                        }
+                    } catch (Throwable t) {
+                        // Since this is work in progress - catch everything to continue processing updates
+                        LOG.warn("Adding ExtraJourney with id='{}' failed with '{}'.", journey.getEstimatedVehicleJourneyCode(), t.getMessage());
+                        skippedCounter++;
+                    }
+                } else {
+                    // Updated trip
+                    if (handleModifiedTrip(graph, journey)) {
+                        handledCounter++;
+                    } else {
+                        if (journey.isMonitored() != null && !journey.isMonitored()) {
+                            notMonitoredCounter++;
+                        } else {
+                            skippedCounter++;
                         }
-                        LOG.debug("Processed EstimatedVehicleJourneys: updated {}, added {}, skipped {}, not monitored {}.", handledCounter, addedCounter, skippedCounter, notMonitoredCounter);
                     }
                 }
             }
+            LOG.debug("Processed EstimatedVehicleJourneys: updated {}, added {}, skipped {}, not monitored {}.", handledCounter, addedCounter, skippedCounter, notMonitoredCounter);
 
             LOG.debug("message contains {} trip updates", updates.size());
             int uIndex = 0;
@@ -572,7 +559,7 @@ public class TimetableSnapshotSource {
         return tripPattern.scheduledTimetable;
     }
 
-    private boolean handleAddedTrip(Graph graph, EstimatedVehicleJourney estimatedVehicleJourney) {
+    private boolean handleAddedTrip(Graph graph, EstimatedJourney estimatedVehicleJourney) {
 
         // Verifying values required in SIRI Profile
 
@@ -585,12 +572,12 @@ public class TimetableSnapshotSource {
 //        Preconditions.checkNotNull(existingServiceJourneyRef, "VehicleJourneyRef is required");
 
         // LineRef of added trip
-        Preconditions.checkNotNull(estimatedVehicleJourney.getLineRef(), "LineRef is required");
-        String lineRef = estimatedVehicleJourney.getLineRef().getValue();
+        String lineRef = estimatedVehicleJourney.getLineRef();
+        Preconditions.checkNotNull(lineRef, "LineRef is required");
 
         //OperatorRef of added trip
-        Preconditions.checkNotNull(estimatedVehicleJourney.getOperatorRef(), "OperatorRef is required");
-        String operatorRef = estimatedVehicleJourney.getOperatorRef().getValue();
+        String operatorRef = estimatedVehicleJourney.getOperatorRef();
+        Preconditions.checkNotNull(operatorRef, "OperatorRef is required");
 
         //Required in SIRI, but currently not in use by OTP
 //        Preconditions.checkNotNull(estimatedVehicleJourney.getRouteRef(), "RouteRef is required");
@@ -600,7 +587,7 @@ public class TimetableSnapshotSource {
 //        String groupOfLines = estimatedVehicleJourney.getGroupOfLinesRef().getValue();
 
 //        Preconditions.checkNotNull(estimatedVehicleJourney.getExternalLineRef(), "ExternalLineRef is required");
-        String externalLineRef = estimatedVehicleJourney.getExternalLineRef().getValue();
+        String externalLineRef = estimatedVehicleJourney.getExternalLineRef();
 
         Operator operator = graphIndex.operatorForId.get(new AgencyAndId(SIRI_FEED_ID, operatorRef));
         Preconditions.checkNotNull(operator, "Operator " + operatorRef + " is unknown");
@@ -631,8 +618,8 @@ public class TimetableSnapshotSource {
                     .findFirst().get().getAgency();
             route.setAgency(agency);
 
-            if (estimatedVehicleJourney.getPublishedLineNames() != null && !estimatedVehicleJourney.getPublishedLineNames().isEmpty()) {
-                route.setShortName("" + estimatedVehicleJourney.getPublishedLineNames().get(0).getValue());
+            if (estimatedVehicleJourney.getPublishedLineName() != null) {
+                route.setShortName(estimatedVehicleJourney.getPublishedLineName());
             } else {
                 route.setShortName("");
             }
@@ -660,8 +647,8 @@ public class TimetableSnapshotSource {
         trip.setServiceId(serviceId);
 
         // TODO: PublishedLineName not defined in SIRI-profile
-        if (estimatedVehicleJourney.getPublishedLineNames() != null && !estimatedVehicleJourney.getPublishedLineNames().isEmpty()) {
-            trip.setRouteShortName("" + estimatedVehicleJourney.getPublishedLineNames().get(0).getValue());
+        if (estimatedVehicleJourney.getPublishedLineName() != null) {
+            trip.setRouteShortName(estimatedVehicleJourney.getPublishedLineName());
         }
 
         trip.setTripOperator(operator);
@@ -678,13 +665,13 @@ public class TimetableSnapshotSource {
         List<Stop> addedStops = new ArrayList<>();
         List<StopTime> aimedStopTimes = new ArrayList<>();
 
-        List<EstimatedCall> estimatedCalls = estimatedVehicleJourney.getEstimatedCalls().getEstimatedCalls();
+        List<EstimatedJourneyCall> estimatedCalls = estimatedVehicleJourney.getEstimatedCalls();
         for (int i = 0; i < estimatedCalls.size(); i++) {
-            EstimatedCall estimatedCall = estimatedCalls.get(i);
+            EstimatedJourneyCall estimatedCall = estimatedCalls.get(i);
 
-            Stop stop = getStopForStopId(SIRI_FEED_ID,estimatedCall.getStopPointRef().getValue());
+            Stop stop = getStopForStopId(SIRI_FEED_ID,estimatedCall.getStopPointRef());
 
-            Preconditions.checkNotNull(stop, "Unknown stop-id: " + estimatedCall.getStopPointRef().getValue());
+            Preconditions.checkNotNull(stop, "Unknown stop-id: " + estimatedCall.getStopPointRef());
 
             StopTime stopTime = new StopTime();
             stopTime.setStop(stop);
@@ -713,9 +700,8 @@ public class TimetableSnapshotSource {
                 stopTime.setPickupType(PICKDROP_NONE);
             }
 
-            if (estimatedCall.getDestinationDisplaies() != null && !estimatedCall.getDestinationDisplaies().isEmpty()) {
-                NaturalLanguageStringStructure destinationDisplay = estimatedCall.getDestinationDisplaies().get(0);
-                stopTime.setStopHeadsign(destinationDisplay.getValue());
+            if (estimatedCall.getDestinationDisplay() != null) {
+                stopTime.setStopHeadsign(estimatedCall.getDestinationDisplay());
             }
 
             if (i == 0) {
@@ -735,11 +721,11 @@ public class TimetableSnapshotSource {
 
         TripTimes tripTimes = new TripTimes(trip, aimedStopTimes, graph.deduplicator);
 
-        boolean isJourneyPredictionInaccurate = (estimatedVehicleJourney.isPredictionInaccurate() != null && estimatedVehicleJourney.isPredictionInaccurate());
+        boolean isJourneyPredictionInaccurate = estimatedVehicleJourney.isPredictionInaccurate();
 
         // If added trip is updated with realtime - loop through and add delays
         for (int i = 0; i < estimatedCalls.size(); i++) {
-            EstimatedCall estimatedCall = estimatedCalls.get(i);
+            EstimatedJourneyCall estimatedCall = estimatedCalls.get(i);
             ZonedDateTime expectedArrival = estimatedCall.getExpectedArrivalTime();
             ZonedDateTime expectedDeparture = estimatedCall.getExpectedDepartureTime();
 
@@ -759,7 +745,7 @@ public class TimetableSnapshotSource {
                 tripTimes.setCancelledStop(i,  estimatedCall.isCancellation());
             }
 
-            boolean isCallPredictionInaccurate = estimatedCall.isPredictionInaccurate() != null && estimatedCall.isPredictionInaccurate();
+            boolean isCallPredictionInaccurate = estimatedCall.isPredictionInaccurate();
             tripTimes.setPredictionInaccurate(i, (isJourneyPredictionInaccurate | isCallPredictionInaccurate));
 
             if (i == 0) {
@@ -830,7 +816,7 @@ public class TimetableSnapshotSource {
         return 700;
     }
 
-    private boolean handleModifiedTrip(Graph graph, EstimatedVehicleJourney estimatedVehicleJourney) {
+    private boolean handleModifiedTrip(Graph graph, EstimatedJourney estimatedVehicleJourney) {
 
         //Check if EstimatedVehicleJourney is reported as NOT monitored
         if (estimatedVehicleJourney.isMonitored() != null && !estimatedVehicleJourney.isMonitored()) {
@@ -841,10 +827,10 @@ public class TimetableSnapshotSource {
         }
 
         //Values used in logging
-        String operatorRef = (estimatedVehicleJourney.getOperatorRef() != null ? estimatedVehicleJourney.getOperatorRef().getValue() : null);
+        String operatorRef = estimatedVehicleJourney.getOperatorRef();
         String vehicleModes = "" + estimatedVehicleJourney.getVehicleModes();
-        String lineRef = estimatedVehicleJourney.getLineRef().getValue();
-        String vehicleRef = (estimatedVehicleJourney.getVehicleRef() != null ? estimatedVehicleJourney.getVehicleRef().getValue() : null);
+        String lineRef = estimatedVehicleJourney.getLineRef();
+        String vehicleRef = estimatedVehicleJourney.getVehicleRef();
 
         ServiceDate serviceDate = getServiceDateForEstimatedVehicleJourney(estimatedVehicleJourney);
 
@@ -951,14 +937,8 @@ public class TimetableSnapshotSource {
         return result;
     }
 
-    private ServiceDate getServiceDateForEstimatedVehicleJourney(EstimatedVehicleJourney estimatedVehicleJourney) {
-        ZonedDateTime date;
-        if (estimatedVehicleJourney.getRecordedCalls() != null && !estimatedVehicleJourney.getRecordedCalls().getRecordedCalls().isEmpty()){
-            date = estimatedVehicleJourney.getRecordedCalls().getRecordedCalls().get(0).getAimedDepartureTime();
-        } else {
-            EstimatedCall firstCall = estimatedVehicleJourney.getEstimatedCalls().getEstimatedCalls().get(0);
-            date = firstCall.getAimedDepartureTime();
-        }
+    private ServiceDate getServiceDateForEstimatedVehicleJourney(EstimatedJourney estimatedVehicleJourney) {
+        ZonedDateTime date = estimatedVehicleJourney.getFirstAimedDepartureTime();
 
         if (date == null) {
             return null;
@@ -1755,7 +1735,7 @@ public class TimetableSnapshotSource {
         return patterns;
     }
 
-    private Set<TripPattern> getPatternForTrip(Set<Trip> trips, EstimatedVehicleJourney journey) {
+    private Set<TripPattern> getPatternForTrip(Set<Trip> trips, EstimatedJourney journey) {
         Set<TripPattern> patterns = new HashSet<>();
         for (Trip trip : trips) {
             TripPattern pattern = getPatternForTrip(trip, journey);
@@ -1765,15 +1745,13 @@ public class TimetableSnapshotSource {
         }
         return patterns;
     }
-    private TripPattern getPatternForTrip(Trip trip, EstimatedVehicleJourney journey) {
+    private TripPattern getPatternForTrip(Trip trip, EstimatedJourney journey) {
 
         Set<ServiceDate> serviceDates = graphIndex.graph.getCalendarService().getServiceDatesForServiceId(trip.getServiceId());
 
-        List<RecordedCall> recordedCalls = (journey.getRecordedCalls() != null ? journey.getRecordedCalls().getRecordedCalls():null);
-        List<EstimatedCall> estimatedCalls;
-        if (journey.getEstimatedCalls() != null) {
-            estimatedCalls = journey.getEstimatedCalls().getEstimatedCalls();
-        } else {
+        List<EstimatedJourneyCall> recordedCalls = journey.getRecordedCalls();
+        List<EstimatedJourneyCall> estimatedCalls = journey.getEstimatedCalls();
+        if (estimatedCalls.isEmpty()) {
             return null;
         }
 
@@ -1782,12 +1760,12 @@ public class TimetableSnapshotSource {
         ServiceDate journeyDate;
         //Resolve first stop - check recordedCalls, then estimatedCalls
         if (recordedCalls != null && !recordedCalls.isEmpty()) {
-            RecordedCall recordedCall = recordedCalls.get(0);
-            journeyFirstStopId = recordedCall.getStopPointRef().getValue();
+            EstimatedJourneyCall recordedCall = recordedCalls.get(0);
+            journeyFirstStopId = recordedCall.getStopPointRef();
             journeyDate = new ServiceDate(Date.from(recordedCall.getAimedDepartureTime().toInstant()));
         } else if (estimatedCalls != null && !estimatedCalls.isEmpty()) {
-            EstimatedCall estimatedCall = estimatedCalls.get(0);
-            journeyFirstStopId = estimatedCall.getStopPointRef().getValue();
+            EstimatedJourneyCall estimatedCall = estimatedCalls.get(0);
+            journeyFirstStopId = estimatedCall.getStopPointRef();
             journeyDate = new ServiceDate(Date.from(estimatedCall.getAimedDepartureTime().toInstant()));
         } else {
             return null;
@@ -1795,11 +1773,11 @@ public class TimetableSnapshotSource {
 
         //Resolve last stop - check estimatedCalls, then recordedCalls
         if (estimatedCalls != null && !estimatedCalls.isEmpty()) {
-            EstimatedCall estimatedCall = estimatedCalls.get(estimatedCalls.size() - 1);
-            journeyLastStopId = estimatedCall.getStopPointRef().getValue();
+            EstimatedJourneyCall estimatedCall = estimatedCalls.get(estimatedCalls.size() - 1);
+            journeyLastStopId = estimatedCall.getStopPointRef();
         } else if (recordedCalls != null && !recordedCalls.isEmpty()) {
-            RecordedCall recordedCall = recordedCalls.get(recordedCalls.size() - 1);
-            journeyLastStopId = recordedCall.getStopPointRef().getValue();
+            EstimatedJourneyCall recordedCall = recordedCalls.get(recordedCalls.size() - 1);
+            journeyLastStopId = recordedCall.getStopPointRef();
         } else {
             return null;
         }
@@ -1900,27 +1878,27 @@ public class TimetableSnapshotSource {
      * @param journey
      * @return
      */
-    private Set<Trip> getTripForJourney(Set<Trip> trips, EstimatedVehicleJourney journey) {
+    private Set<Trip> getTripForJourney(Set<Trip> trips, EstimatedJourney journey) {
 
 
-        List<RecordedCall> recordedCalls = (journey.getRecordedCalls() != null ? journey.getRecordedCalls().getRecordedCalls():null);
-        List<EstimatedCall> estimatedCalls = (journey.getEstimatedCalls() != null ? journey.getEstimatedCalls().getEstimatedCalls():null);
+        List<EstimatedJourneyCall> recordedCalls = journey.getRecordedCalls();
+        List<EstimatedJourneyCall> estimatedCalls = journey.getEstimatedCalls();
 
         ZonedDateTime date;
         int stopNumber = 1;
         String firstStopId;
         if (recordedCalls != null && !recordedCalls.isEmpty()) {
-            RecordedCall recordedCall = recordedCalls.get(0);
+            EstimatedJourneyCall recordedCall = recordedCalls.get(0);
             date = recordedCall.getAimedDepartureTime();
-            firstStopId = recordedCall.getStopPointRef().getValue();
+            firstStopId = recordedCall.getStopPointRef();
         } else if (estimatedCalls != null && !estimatedCalls.isEmpty()) {
-            EstimatedCall estimatedCall = estimatedCalls.get(0);
+            EstimatedJourneyCall estimatedCall = estimatedCalls.get(0);
             if (estimatedCall.getOrder() != null) {
                 stopNumber = estimatedCall.getOrder().intValue();
             } else if (estimatedCall.getVisitNumber() != null) {
                 stopNumber = estimatedCall.getVisitNumber().intValue();
             }
-            firstStopId = estimatedCall.getStopPointRef().getValue();
+            firstStopId = estimatedCall.getStopPointRef();
             date = estimatedCall.getAimedDepartureTime();
         } else {
             return null;
@@ -73,6 +73,9 @@ public class TripPatternCache {
             // Create vertices and edges for new TripPattern
             // TODO: purge these vertices and edges once in a while?
             tripPattern.makePatternVerticesAndEdges(graph, graph.index.stopVertexForStop);
+
+            // Heuristic searches done without the new edges could overestimate the weight of paths using them.
+            graph.getHeuristicCache().clear();
             
             // TODO: Add pattern to graph index?
 
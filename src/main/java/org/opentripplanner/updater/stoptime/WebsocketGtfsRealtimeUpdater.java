@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.UpdateBatcher;
 import org.opentripplanner.updater.GraphWriterRunnable;
 import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.slf4j.Logger;
@@ -48,8 +49,13 @@ import com.ning.http.client.websocket.WebSocketUpgradeHandler;
  * websocket.type = websocket-gtfs-rt-updater
  * websocket.defaultAgencyId = agency
  * websocket.url = ws://localhost:8088/tripUpdates
+ * websocket.batchWindowMs = 500
+ * websocket.batchMaxSize = 5000
  * </pre>
  *
+ * When batchWindowMs is set, the trip updates received within that window are applied at once, keeping only the
+ * latest update of each trip.
+ *
  */
 public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
     /**
@@ -59,6 +65,8 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
 
     private static final int DEFAULT_RECONNECT_PERIOD_SEC = 300; // Five minutes
 
+    private static final int DEFAULT_BATCH_MAX_SIZE = 5000;
+
     private static Logger LOG = LoggerFactory.getLogger(WebsocketGtfsRealtimeUpdater.class);
 
     /**
@@ -81,6 +89,8 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
      */
     private int reconnectPeriodSec;
 
+    private UpdateBatcher<TripUpdate> batcher;
+
     @Override
     public void setGraphUpdaterManager(GraphUpdaterManager updaterManager) {
         this.updaterManager = updaterManager;
@@ -91,6 +101,18 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
         url = config.path("url").asText();
         feedId = config.path("feedId").asText("");
         reconnectPeriodSec = config.path("reconnectPeriodSec").asInt(DEFAULT_RECONNECT_PERIOD_SEC);
+        batcher = new UpdateBatcher<>(getClass().getSimpleName(), updaterManager,
+                WebsocketGtfsRealtimeUpdater::tripKey,
+                (fullDataset, updates) -> new TripUpdateGraphWriterRunnable(fullDataset, updates, feedId),
+                config.path("batchWindowMs").asLong(0), config.path("batchMaxSize").asInt(DEFAULT_BATCH_MAX_SIZE));
+    }
+
+    /** Updates of the same trip on the same day replace each other. */
+    private static Object tripKey(TripUpdate update) {
+        if (!update.getTrip().hasTripId()) {
+            return null;
+        }
+        return update.getTrip().getTripId() + " " + update.getTrip().getStartDate();
     }
 
     @Override
@@ -162,6 +184,12 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
 
     @Override
     public void teardown() {
+        batcher.stop();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [url: " + url + ", " + batcher + "]";
     }
 
     /**
@@ -200,9 +228,9 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
 
             if (updates != null) {
                 // Handle trip updates via graph writer runnable
-                TripUpdateGraphWriterRunnable runnable = new TripUpdateGraphWriterRunnable(
-                        fullDataset, updates, feedId);
-                updaterManager.execute(runnable);
+                long producedAt = feedMessage.getHeader().hasTimestamp()
+                        ? feedMessage.getHeader().getTimestamp() * 1000 : System.currentTimeMillis();
+                batcher.add(fullDataset, updates, producedAt);
             }
         }
     }
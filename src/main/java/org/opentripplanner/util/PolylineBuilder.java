@@ -0,0 +1,50 @@
+package org.opentripplanner.util;
+
+import org.opentripplanner.common.geometry.CoordinateSink;
+import org.opentripplanner.util.model.EncodedPolylineBean;
+
+/**
+ * Encodes a polyline point by point as the points are produced, e.g. by edges decoding their geometries, instead of
+ * collecting them into a coordinate sequence and a LineString first. Gives the same result as
+ * {@link PolylineEncoder#createEncodings(Iterable)}.
+ *
+ * Several lines can be joined into one polyline by calling {@link #startLine()} before each of them: the first point
+ * of every line but the first is then dropped, as it is the last point of the previous line.
+ */
+public class PolylineBuilder implements CoordinateSink {
+
+    private final StringBuilder points = new StringBuilder();
+
+    private int plat = 0;
+
+    private int plng = 0;
+
+    private int count = 0;
+
+    /** True if the next point is the start of a line joined to the previous one, and should be skipped. */
+    private boolean joining = false;
+
+    /** The following points are a new line, starting where the previous one ended. */
+    public void startLine() {
+        joining = count > 0;
+    }
+
+    @Override
+    public void add(double x, double y) {
+        if (joining) {
+            joining = false;
+            return;
+        }
+        int late5 = PolylineEncoder.floor1e5(y);
+        int lnge5 = PolylineEncoder.floor1e5(x);
+        PolylineEncoder.appendSignedNumber(points, late5 - plat);
+        PolylineEncoder.appendSignedNumber(points, lnge5 - plng);
+        plat = late5;
+        plng = lnge5;
+        count++;
+    }
+
+    public EncodedPolylineBean build() {
+        return new EncodedPolylineBean(points.toString(), null, count);
+    }
+}
@@ -125,7 +125,7 @@ public class PolylineEncoder {
      * Private Methods
      ****************************************************************************/
 
-    private static final int floor1e5(double coordinate) {
+    static final int floor1e5(double coordinate) {
         return (int) Math.floor(coordinate * 1e5);
     }
 
@@ -137,6 +137,19 @@ public class PolylineEncoder {
         return (encodeNumber(sgn_num));
     }
 
+    /** Same as {@link #encodeSignedNumber(int)}, appending to a builder instead of making a new string. */
+    static void appendSignedNumber(StringBuilder sb, int num) {
+        int sgn_num = num << 1;
+        if (num < 0) {
+            sgn_num = ~(sgn_num);
+        }
+        while (sgn_num >= 0x20) {
+            sb.append((char) ((0x20 | (sgn_num & 0x1f)) + 63));
+            sgn_num >>= 5;
+        }
+        sb.append((char) (sgn_num + 63));
+    }
+
     public static int decodeSignedNumber(String value) {
         int[] r = decodeSignedNumberWithIndex(value, 0);
         return r[0];
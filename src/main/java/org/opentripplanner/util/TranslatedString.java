@@ -41,6 +41,11 @@ public class TranslatedString implements I18NString, Serializable {
         return (other instanceof TranslatedString) && this.translations.equals(((TranslatedString)other).translations);
     }
 
+    @Override
+    public int hashCode() {
+        return translations.hashCode();
+    }
+
     /**
      * Gets an interned I18NString.
      * If the translations only have a single value, and no language set, return a NonTranslatedString, otherwise a TranslatedString
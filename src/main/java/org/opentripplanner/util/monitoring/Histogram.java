@@ -0,0 +1,141 @@
+package org.opentripplanner.util.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative long values with log-linear buckets: values below 2^subBucketBits are counted exactly,
+ * larger values in 2^subBucketBits buckets per power of two, so that percentiles are known within 1 / 2^subBucketBits
+ * of their value whatever their magnitude. Recording is lock-free and takes constant memory, so it can be done from
+ * all request threads at once.
+ */
+public class Histogram {
+
+    /** The default precision, within an eighth of the values, is enough to monitor routing requests. */
+    private static final int DEFAULT_SUB_BUCKET_BITS = 3;
+
+    private final int subBucketBits;
+
+    private final AtomicLongArray counts;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram() {
+        this(DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    /** @param subBucketBits the percentiles are known within 1 / 2^subBucketBits of their value. */
+    public Histogram(int subBucketBits) {
+        this.subBucketBits = subBucketBits;
+        int subBuckets = 1 << subBucketBits;
+        this.counts = new AtomicLongArray(subBuckets + (63 - subBucketBits) * subBuckets);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value, subBucketBits));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return an upper bound on the value below which the given fraction of the recorded values fall, within the
+     *         precision of the buckets, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double quantile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int b = 0; b < counts.length(); b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return Math.min(upperBound(b, subBucketBits), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public Summary summarize() {
+        return new Summary(this);
+    }
+
+    static int bucket(long value) {
+        return bucket(value, DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int bucket) {
+        return upperBound(bucket, DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    static int bucket(long value, int subBucketBits) {
+        int subBuckets = 1 << subBucketBits;
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - subBucketBits;
+        int subBucket = (int) (value >>> shift) & (subBuckets - 1);
+        return subBuckets + shift * subBuckets + subBucket;
+    }
+
+    static long upperBound(int bucket, int subBucketBits) {
+        int subBuckets = 1 << subBucketBits;
+        if (bucket < subBuckets) {
+            return bucket;
+        }
+        int shift = (bucket - subBuckets) / subBuckets;
+        int subBucket = (bucket - subBuckets) % subBuckets;
+        long lower = (long) (subBuckets + subBucket) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /** The usual statistics of a histogram, for serialization in web service responses. */
+    public static class Summary {
+
+        public final long count;
+
+        public final double mean;
+
+        public final long p50;
+
+        public final long p90;
+
+        public final long p99;
+
+        public final long max;
+
+        private Summary(Histogram histogram) {
+            count = histogram.getCount();
+            mean = histogram.getMean();
+            p50 = histogram.getPercentile(0.5);
+            p90 = histogram.getPercentile(0.9);
+            p99 = histogram.getPercentile(0.99);
+            max = histogram.getMax();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.opentripplanner.util.monitoring;
+
+/** The quantities counted by {@link RoutingInstrumentation} during a routing request. */
+public enum RoutingCounter {
+
+    /** States taken from the priority queue and expanded by A*. */
+    STATES_VISITED,
+
+    /** States added to the priority queue by A*. */
+    STATES_ENQUEUED,
+
+    /** Searches for the next or previous trip in a timetable, when boarding or alighting. */
+    TIMETABLE_LOOKUPS,
+
+    /** Vertices closed by the interleaved reverse search of the bidirectional heuristic. */
+    HEURISTIC_STEPS,
+
+    /** Street paths found in a contraction hierarchy and proven optimal without any A* search. */
+    CONTRACTION_HIERARCHY_PATHS
+}
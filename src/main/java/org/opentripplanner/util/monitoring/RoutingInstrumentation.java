@@ -0,0 +1,79 @@
+package org.opentripplanner.util.monitoring;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Phase timings and counters of one routing request. It is held by the routing context and shared with the
+ * routing contexts of the sub-requests made on behalf of the request (reversed searches, intermediate places), so
+ * that all the work done for a request adds up in one place.
+ *
+ * Recording is meant to be cheap enough to be always on: phases are timed with System.nanoTime() around coarse
+ * steps, and counters are updated in bulk (e.g. once per search) rather than in the innermost loops whenever
+ * possible. An instance is not thread-safe; it is only used by the thread handling the request.
+ */
+public class RoutingInstrumentation {
+
+    private static final RoutingPhase[] PHASES = RoutingPhase.values();
+
+    private static final RoutingCounter[] COUNTERS = RoutingCounter.values();
+
+    private final long[] phaseNanos = new long[PHASES.length];
+
+    private final long[] counts = new long[COUNTERS.length];
+
+    /** Add the time elapsed since startNanos, a value of System.nanoTime(), to a phase. */
+    public void addTime(RoutingPhase phase, long startNanos) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    public void add(RoutingCounter counter, long n) {
+        counts[counter.ordinal()] += n;
+    }
+
+    public void increment(RoutingCounter counter) {
+        counts[counter.ordinal()]++;
+    }
+
+    /** Add the timings and counts of another request, e.g. a sub-request that had its own routing context. */
+    public void addAll(RoutingInstrumentation other) {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] += other.phaseNanos[i];
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public long getNanos(RoutingPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long getCount(RoutingCounter counter) {
+        return counts[counter.ordinal()];
+    }
+
+    /** @return the time spent in each phase that was entered, in milliseconds. */
+    public Map<RoutingPhase, Double> getPhaseMillis() {
+        Map<RoutingPhase, Double> millis = new EnumMap<>(RoutingPhase.class);
+        for (RoutingPhase phase : PHASES) {
+            if (phaseNanos[phase.ordinal()] > 0) {
+                millis.put(phase, phaseNanos[phase.ordinal()] / 1e6);
+            }
+        }
+        return millis;
+    }
+
+    public Map<RoutingCounter, Long> getCounters() {
+        Map<RoutingCounter, Long> counters = new EnumMap<>(RoutingCounter.class);
+        for (RoutingCounter counter : COUNTERS) {
+            counters.put(counter, counts[counter.ordinal()]);
+        }
+        return counters;
+    }
+
+    @Override
+    public String toString() {
+        return "RoutingInstrumentation " + getPhaseMillis() + " " + getCounters();
+    }
+}
@@ -0,0 +1,72 @@
+package org.opentripplanner.util.monitoring;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregates the {@link RoutingInstrumentation} of the requests made to one router into histograms: one of the
+ * time spent in each phase, in microseconds, and one of each counter. Only the phases a request entered are
+ * recorded, so that e.g. the reverse search histogram is not swamped with zeros from requests that do not compact
+ * their legs. Thread-safe.
+ */
+public class RoutingMetrics {
+
+    private final Histogram requestTimes = new Histogram();
+
+    private final Map<RoutingPhase, Histogram> phaseTimes = new EnumMap<>(RoutingPhase.class);
+
+    private final Map<RoutingCounter, Histogram> counters = new EnumMap<>(RoutingCounter.class);
+
+    public RoutingMetrics() {
+        for (RoutingPhase phase : RoutingPhase.values()) {
+            phaseTimes.put(phase, new Histogram());
+        }
+        for (RoutingCounter counter : RoutingCounter.values()) {
+            counters.put(counter, new Histogram());
+        }
+    }
+
+    /**
+     * Record the instrumentation of a routing request once it is done.
+     * @param totalNanos the total time taken by the request, in nanoseconds
+     */
+    public void record(RoutingInstrumentation instrumentation, long totalNanos) {
+        requestTimes.record(totalNanos / 1000);
+        for (RoutingPhase phase : RoutingPhase.values()) {
+            long nanos = instrumentation.getNanos(phase);
+            if (nanos > 0) {
+                phaseTimes.get(phase).record(nanos / 1000);
+            }
+        }
+        for (RoutingCounter counter : RoutingCounter.values()) {
+            counters.get(counter).record(instrumentation.getCount(counter));
+        }
+    }
+
+    /** Record the time spent in a phase that happens after the request was recorded, e.g. itinerary conversion. */
+    public void record(RoutingPhase phase, long nanos) {
+        phaseTimes.get(phase).record(nanos / 1000);
+    }
+
+    public Histogram getPhaseTimes(RoutingPhase phase) {
+        return phaseTimes.get(phase);
+    }
+
+    public Histogram getCounter(RoutingCounter counter) {
+        return counters.get(counter);
+    }
+
+    /** @return summaries of all histograms by name, for the metrics web service. */
+    public Map<String, Histogram.Summary> summarize() {
+        Map<String, Histogram.Summary> summaries = new LinkedHashMap<>();
+        summaries.put("REQUEST_MICROS", requestTimes.summarize());
+        for (Map.Entry<RoutingPhase, Histogram> entry : phaseTimes.entrySet()) {
+            summaries.put(entry.getKey().name() + "_MICROS", entry.getValue().summarize());
+        }
+        for (Map.Entry<RoutingCounter, Histogram> entry : counters.entrySet()) {
+            summaries.put(entry.getKey().name(), entry.getValue().summarize());
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,26 @@
+package org.opentripplanner.util.monitoring;
+
+/**
+ * The phases of a routing request that are timed by {@link RoutingInstrumentation}. Phases may be nested: the main
+ * search includes the initialization of the heuristic, for instance.
+ */
+public enum RoutingPhase {
+
+    /** Finding or creating the origin and destination vertices, including splitting street edges. */
+    STREET_LINKING,
+
+    /** Creating the temporary flag stops and deviated route hops of flex searches. */
+    FLEX_GRAPH_MODIFICATION,
+
+    /** Initializing the goal direction heuristic, e.g. the street searches of the bidirectional heuristic. */
+    HEURISTIC_INITIALIZATION,
+
+    /** The A* searches for itineraries, including heuristic initialization and the interleaved heuristic work. */
+    MAIN_SEARCH,
+
+    /** The reversed searches that compact the legs of the itineraries found by the main search. */
+    REVERSE_SEARCH,
+
+    /** Converting the paths found into itineraries for the response. */
+    ITINERARY_CONVERSION
+}
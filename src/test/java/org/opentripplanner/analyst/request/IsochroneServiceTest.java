@@ -0,0 +1,86 @@
+package org.opentripplanner.analyst.request;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentripplanner.analyst.core.IsochroneResult;
+import org.opentripplanner.analyst.core.TravelTimeSurface;
+import org.opentripplanner.common.model.GenericLocation;
+import org.opentripplanner.graph_builder.module.FakeGraph;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.impl.DefaultStreetVertexIndexFactory;
+import org.opentripplanner.routing.vertextype.OsmVertex;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IsochroneServiceTest {
+
+    private static Graph graph;
+
+    private static GenericLocation origin;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        graph = FakeGraph.buildGraphNoTransit();
+        graph.index(new DefaultStreetVertexIndexFactory());
+        for (Vertex v : graph.getVertices()) {
+            if (v instanceof OsmVertex && v.getOutgoing().size() > 1) {
+                origin = new GenericLocation(v.getLat(), v.getLon());
+                break;
+            }
+        }
+    }
+
+    @Test
+    public void testWalkIsochrones() {
+        IsochroneService service = new IsochroneService(graph);
+        RoutingRequest request = new RoutingRequest(new TraverseModeSet(TraverseMode.WALK));
+        IsochroneResult result = service.compute(request, origin, Arrays.asList(600, 1200), 100, true);
+
+        assertNotNull(result);
+        assertEquals(2, result.isochrones.size());
+        assertEquals(600, result.isochrones.get(0).cutoffSec);
+        assertNotNull(result.isochrones.get(0).geometry);
+        assertTrue(result.isochrones.get(1).geometry.getArea() >= result.isochrones.get(0).geometry.getArea());
+
+        TravelTimeSurface surface = result.surface;
+        assertNotNull(surface);
+        boolean reached = false;
+        for (int time : surface.times) {
+            assertTrue(time == TravelTimeSurface.UNREACHABLE || time <= 1200);
+            reached |= time != TravelTimeSurface.UNREACHABLE;
+        }
+        assertTrue(reached);
+
+        // A request from the same origin cell and time bucket is served from the cache.
+        assertSame(result, service.compute(request, origin, Arrays.asList(600, 1200), 100, true));
+    }
+
+    /** Only requests whose edge weights depend on nothing but their street cost profile are cached. */
+    @Test
+    public void testModeChangesNotCached() {
+        IsochroneService service = new IsochroneService(graph);
+        RoutingRequest request = new RoutingRequest(new TraverseModeSet(TraverseMode.WALK, TraverseMode.BICYCLE));
+        request.allowBikeRental = true;
+        IsochroneResult result = service.compute(request, origin, Arrays.asList(600), 200, false);
+        assertNotNull(result);
+        assertNotSame(result, service.compute(request, origin, Arrays.asList(600), 200, false));
+    }
+
+    @Test
+    public void testUnlinkableOrigin() {
+        RoutingRequest request = new RoutingRequest(new TraverseModeSet(TraverseMode.WALK));
+        assertNull(new IsochroneService(graph)
+                .compute(request, new GenericLocation(0.0, 0.0), Arrays.asList(600), 200, false));
+    }
+}
@@ -0,0 +1,71 @@
+package org.opentripplanner.analyst.request;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentripplanner.analyst.core.Sample;
+import org.opentripplanner.analyst.core.TravelTimeMatrix;
+import org.opentripplanner.common.model.GenericLocation;
+import org.opentripplanner.graph_builder.module.FakeGraph;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.impl.DefaultStreetVertexIndexFactory;
+import org.opentripplanner.routing.vertextype.OsmVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TravelTimeMatrixServiceTest {
+
+    private static Graph graph;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        graph = FakeGraph.buildGraphNoTransit();
+        graph.index(new DefaultStreetVertexIndexFactory());
+    }
+
+    @Test
+    public void testWalkMatrix() {
+
+        List<GenericLocation> points = new ArrayList<>();
+        for (Vertex v : graph.getVertices()) {
+            if (v instanceof OsmVertex && !v.getOutgoing().isEmpty()) {
+                points.add(new GenericLocation(v.getLat(), v.getLon()));
+                if (points.size() == 3) break;
+            }
+        }
+
+        RoutingRequest request = new RoutingRequest(new TraverseModeSet(TraverseMode.WALK));
+        TravelTimeMatrixService service = new TravelTimeMatrixService(graph, 2);
+        TravelTimeMatrix matrix = service.compute(request, points.subList(0, 2), points, 3600);
+        // A second matrix runs on the same threads.
+        TravelTimeMatrix again = service.compute(request, points.subList(0, 2), points, 3600);
+        service.shutdown();
+
+        assertEquals(2, matrix.getOriginCount());
+        assertEquals(3, matrix.getDestinationCount());
+        for (int o = 0; o < 2; o++) {
+            // Every origin is also a destination and must be reached almost immediately, without transit.
+            assertTrue(matrix.isReachable(o, o));
+            assertTrue(matrix.travelTimes[o][o] < 10);
+            assertEquals(0, matrix.transfers[o][o]);
+            assertArrayEquals(matrix.travelTimes[o], again.travelTimes[o]);
+        }
+    }
+
+    @Test
+    public void testUnlinkableDestination() {
+        List<Sample> samples = new TravelTimeMatrixService(graph)
+                .linkDestinations(Arrays.asList(new GenericLocation(0.0, 0.0)));
+        assertEquals(1, samples.size());
+        assertEquals(null, samples.get(0));
+    }
+}
@@ -86,6 +86,39 @@ public class CompactLineStringTest extends TestCase {
         assertTrue(lsi.equalsExact(ls2, 0.00000015));
     }
 
+    @Test
+    public final void testAppendCoordinates() {
+        GeometryFactory gf = new GeometryFactory();
+        double x0 = 1.111111111;
+        double y0 = 0.123456789;
+        double x1 = 2.0;
+        double y1 = 0.0;
+        LineString ls = gf.createLineString(new Coordinate[] { new Coordinate(x0, y0),
+                new Coordinate(1.5, 0.2), new Coordinate(1.7, -0.3), new Coordinate(x1, y1) });
+        LineString straight = gf.createLineString(new Coordinate[] { new Coordinate(x0, y0),
+                new Coordinate(x1, y1) });
+        for (LineString line : new LineString[] { ls, straight }) {
+            byte[] packed = CompactLineString.compackLineString(x0, y0, x1, y1, line, false);
+            assertSameCoordinates(CompactLineString.uncompackLineString(x0, y0, x1, y1, packed, false),
+                    x0, y0, x1, y1, packed, false);
+            // As stored by the back edge of a pair, going from 1 to 0
+            byte[] packedBack = CompactLineString.compackLineString(x1, y1, x0, y0, line, true);
+            assertSameCoordinates(CompactLineString.uncompackLineString(x1, y1, x0, y0, packedBack, true),
+                    x1, y1, x0, y0, packedBack, true);
+        }
+    }
+
+    private void assertSameCoordinates(LineString expected, double xa, double ya, double xb, double yb,
+            byte[] packed, boolean reverse) {
+        CoordinateBuffer buffer = new CoordinateBuffer();
+        CompactLineString.appendCoordinates(xa, ya, xb, yb, packed, reverse, buffer);
+        assertEquals(expected.getNumPoints(), buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(expected.getCoordinateN(i).x, buffer.getX(i), 0.0);
+            assertEquals(expected.getCoordinateN(i).y, buffer.getY(i), 0.0);
+        }
+    }
+
     @Test
     public final void testDlugoszVarLenIntPacker() {
 
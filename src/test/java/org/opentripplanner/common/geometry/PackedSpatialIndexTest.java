@@ -0,0 +1,88 @@
+package org.opentripplanner.common.geometry;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedSpatialIndexTest {
+
+    private static final double X_SCALE = 0.7;
+
+    /** Compare the results of random queries with a brute force search, for trees of various depths. */
+    @Test
+    public void testRandomQueries() {
+        Random random = new Random(42);
+        for (int n : new int[] { 0, 1, 16, 17, 1000 }) {
+            List<Envelope> envelopes = new ArrayList<>();
+            PackedSpatialIndex.Builder<Envelope> builder = PackedSpatialIndex.builder();
+            for (int i = 0; i < n; i++) {
+                double x = random.nextDouble();
+                double y = random.nextDouble();
+                Envelope envelope = new Envelope(x, x + random.nextDouble() * 0.05, y, y + random.nextDouble() * 0.05);
+                envelopes.add(envelope);
+                builder.add(envelope, envelope);
+            }
+            PackedSpatialIndex<Envelope> index = builder.build();
+            assertEquals(n, index.size());
+
+            for (int q = 0; q < 100; q++) {
+                double x = random.nextDouble();
+                double y = random.nextDouble();
+                Envelope search = new Envelope(x, x + 0.1, y, y + 0.1);
+                List<Envelope> expected = new ArrayList<>();
+                for (Envelope envelope : envelopes) {
+                    if (envelope.intersects(search)) {
+                        expected.add(envelope);
+                    }
+                }
+                List<Envelope> found = index.query(search);
+                assertEquals(expected.size(), found.size());
+                assertEquals(new HashSet<>(expected), new HashSet<>(found));
+
+                ToDoubleFunction<Envelope> distance = envelope -> {
+                    double dx = Math.max(0, Math.max(envelope.getMinX() - x, x - envelope.getMaxX())) * X_SCALE;
+                    double dy = Math.max(0, Math.max(envelope.getMinY() - y, y - envelope.getMaxY()));
+                    return Math.sqrt(dx * dx + dy * dy);
+                };
+                List<Envelope> nearest = index.nearest(x, y, X_SCALE, 5, 0.2, distance);
+                List<Envelope> inRange = new ArrayList<>();
+                for (Envelope envelope : envelopes) {
+                    if (distance.applyAsDouble(envelope) <= 0.2) {
+                        inRange.add(envelope);
+                    }
+                }
+                inRange.sort(Comparator.comparingDouble(distance));
+                assertEquals(Math.min(5, inRange.size()), nearest.size());
+                for (int i = 0; i < nearest.size(); i++) {
+                    assertEquals(distance.applyAsDouble(inRange.get(i)), distance.applyAsDouble(nearest.get(i)), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOverlay() {
+        PackedSpatialIndex.Builder<String> builder = PackedSpatialIndex.builder();
+        builder.add(new Envelope(0, 0, 0, 0), "a");
+        builder.add(new Envelope(0.003, 0.003, 0, 0), "c");
+        LayeredSpatialIndex<String> index = new LayeredSpatialIndex<>(builder.build());
+        index.insert(new Envelope(0.002, 0.002, 0, 0), "b");
+
+        ToDoubleFunction<String> distance = s -> s.equals("a") ? 0 : s.equals("b") ? 0.002 : 0.003;
+        assertEquals(List.of("a", "b", "c"), index.nearest(0, 0, 1, 10, 1, distance));
+        assertEquals(List.of("a", "b"), index.nearest(0, 0, 1, 2, 1, distance));
+        assertTrue(index.query(new Envelope(0.0015, 0.0025, -1, 1)).contains("b"));
+
+        assertTrue(index.remove(new Envelope(0.002, 0.002, 0, 0), "b"));
+        assertEquals(List.of("a", "c"), index.nearest(0, 0, 1, 10, 1, distance));
+    }
+}
@@ -0,0 +1,48 @@
+package org.opentripplanner.graph_builder;
+
+import org.junit.Test;
+import org.opentripplanner.graph_builder.annotation.ConflictingBikeTags;
+import org.opentripplanner.graph_builder.annotation.GraphBuilderAnnotationStore;
+import org.opentripplanner.graph_builder.annotation.StreetCarSpeedZero;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.standalone.datastore.file.FileDataSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.opentripplanner.standalone.datastore.FileType.REPORT;
+
+public class GraphBuilderTest {
+
+    /** Annotations added once the annotations are saved, e.g. by the updaters of a served graph, are kept in memory. */
+    @Test
+    public void testAddAnnotationAfterSaving() throws Exception {
+        File file = File.createTempFile("otp-annotations", ".jsonl");
+        file.deleteOnExit();
+        File target = File.createTempFile(GraphBuilderAnnotationStore.FILENAME, "");
+        target.deleteOnExit();
+
+        Graph graph = new Graph();
+        graph.setBuilderAnnotationStore(new GraphBuilderAnnotationStore(file));
+        graph.addBuilderAnnotation(new ConflictingBikeTags(1L));
+
+        GraphBuilder.saveAnnotations(graph, new FileDataSource(target, REPORT));
+        assertFalse(file.exists());
+        List<GraphBuilderAnnotationStore.Record> records = new ArrayList<>();
+        try (InputStream in = new FileInputStream(target)) {
+            GraphBuilderAnnotationStore.read(in, records::add);
+        }
+        assertEquals(1, records.size());
+        assertEquals("ConflictingBikeTags", records.get(0).type);
+
+        graph.addBuilderAnnotation(new StreetCarSpeedZero(2L));
+        assertNull(graph.getBuilderAnnotationStore().getFile());
+        assertEquals(1, graph.getBuilderAnnotations().size());
+    }
+}
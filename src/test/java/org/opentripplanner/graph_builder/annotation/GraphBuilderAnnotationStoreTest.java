@@ -0,0 +1,51 @@
+package org.opentripplanner.graph_builder.annotation;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphBuilderAnnotationStoreTest {
+
+    @Test
+    public void testStreamToFile() throws Exception {
+        File file = File.createTempFile("annotations", ".jsonl");
+        file.deleteOnExit();
+        GraphBuilderAnnotationStore store = new GraphBuilderAnnotationStore(file);
+        store.add(new ConflictingBikeTags(1L));
+        store.add(new StreetCarSpeedZero(2L));
+        assertEquals(2, store.size());
+        // The annotation objects are not kept.
+        assertTrue(store.getAnnotations().isEmpty());
+
+        // Records can be read back while the file is still being written...
+        List<GraphBuilderAnnotationStore.Record> records = new ArrayList<>();
+        store.forEach(records::add);
+        assertEquals(2, records.size());
+        assertEquals("ConflictingBikeTags", records.get(0).type);
+        assertEquals(new ConflictingBikeTags(1L).getMessage(), records.get(0).message);
+        assertEquals(new StreetCarSpeedZero(2L).getHTMLMessage(), records.get(1).htmlMessage);
+
+        // ...and after it is closed, with all annotations in order.
+        store.close();
+        records.clear();
+        store.forEach(records::add);
+        assertEquals(2, records.size());
+        assertEquals("StreetCarSpeedZero", records.get(1).type);
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        GraphBuilderAnnotationStore store = new GraphBuilderAnnotationStore();
+        ConflictingBikeTags annotation = new ConflictingBikeTags(1L);
+        store.add(annotation);
+        assertEquals(1, store.getAnnotations().size());
+        List<GraphBuilderAnnotationStore.Record> records = new ArrayList<>();
+        store.forEach(records::add);
+        assertEquals(annotation.getMessage(), records.get(0).message);
+    }
+}
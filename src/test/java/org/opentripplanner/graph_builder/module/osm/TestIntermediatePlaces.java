@@ -131,6 +131,62 @@ public class TestIntermediatePlaces {
         handleRequest(fromLocation, toLocation, intermediateLocations, "TRANSIT,WALK", true);
     }
 
+    @Test public void testTransitTwoIntermediatePlacesInParallel() {
+        GenericLocation fromLocation = new GenericLocation(39.9908, -83.0118);
+        GenericLocation toLocation = new GenericLocation(39.9998, -83.0198);
+        GenericLocation[] intermediateLocations = new GenericLocation[2];
+        intermediateLocations[0] = new GenericLocation(40.0000, -82.900);
+        intermediateLocations[1] = new GenericLocation(39.9100, -83.100);
+        assertSameInParallel(fromLocation, toLocation, intermediateLocations);
+    }
+
+    /** More legs than are searched ahead of time at once. */
+    @Test public void testTransitFourIntermediatePlacesInParallel() {
+        GenericLocation fromLocation = new GenericLocation(39.9908, -83.0118);
+        GenericLocation toLocation = new GenericLocation(39.9998, -83.0198);
+        GenericLocation[] intermediateLocations = new GenericLocation[4];
+        intermediateLocations[0] = new GenericLocation(40.0000, -82.900);
+        intermediateLocations[1] = new GenericLocation(39.9100, -83.100);
+        intermediateLocations[2] = new GenericLocation(39.9948, -83.0148);
+        intermediateLocations[3] = new GenericLocation(39.9108, -83.0118);
+        assertSameInParallel(fromLocation, toLocation, intermediateLocations);
+    }
+
+    private void assertSameInParallel(GenericLocation from, GenericLocation to, GenericLocation[] via) {
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            TripPlan sequential = plan(from, to, via, "TRANSIT,WALK", arriveBy, false);
+            TripPlan parallel = plan(from, to, via, "TRANSIT,WALK", arriveBy, true);
+            assertFalse(sequential.itinerary.isEmpty());
+            assertEquals(sequential.itinerary.size(), parallel.itinerary.size());
+            for (int i = 0; i < sequential.itinerary.size(); i++) {
+                List<Leg> sequentialLegs = sequential.itinerary.get(i).legs;
+                List<Leg> parallelLegs = parallel.itinerary.get(i).legs;
+                assertEquals(sequentialLegs.size(), parallelLegs.size());
+                for (int l = 0; l < sequentialLegs.size(); l++) {
+                    assertEquals(sequentialLegs.get(l).mode, parallelLegs.get(l).mode);
+                    assertEquals(sequentialLegs.get(l).routeId, parallelLegs.get(l).routeId);
+                    assertEquals(sequentialLegs.get(l).startTime, parallelLegs.get(l).startTime);
+                    assertEquals(sequentialLegs.get(l).endTime, parallelLegs.get(l).endTime);
+                }
+            }
+        }
+    }
+
+    private TripPlan plan(GenericLocation from, GenericLocation to, GenericLocation[] via, String modes,
+        boolean arriveBy, boolean parallel) {
+        RoutingRequest request = new RoutingRequest(modes);
+        request.setDateTime("2016-04-20", "13:00", timeZone);
+        request.setArriveBy(arriveBy);
+        request.maxTransfers = 4;
+        request.parallelIntermediatePlaces = parallel;
+        request.from = from;
+        request.to = to;
+        for (GenericLocation intermediateLocation : via) {
+            request.addIntermediatePlace(intermediateLocation);
+        }
+        return GraphPathToTripPlanConverter.generatePlan(graphPathFinder.graphPathFinderEntryPoint(request), request);
+    }
+
     private void handleRequest(GenericLocation from, GenericLocation to, GenericLocation[] via,
         String modes, boolean arriveBy) {
         RoutingRequest request = new RoutingRequest(modes);
@@ -0,0 +1,68 @@
+package org.opentripplanner.loadtest;
+
+import org.junit.Test;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadTestRequestTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void testPlan() throws Exception {
+        LoadTestRequest request = LoadTestRequest.parse(
+                "{ \"plan\" : { \"fromPlace\" : \"59.91,10.75\", \"toPlace\" : \"59.93,10.8\", \"time\" : \"08:30\" } }");
+        assertEquals(LoadTestRequest.Endpoint.PLAN, request.endpoint);
+        HttpRequest httpRequest = request.toHttpRequest("http://localhost:8080/otp/routers/default", TIMEOUT);
+        assertEquals("GET", httpRequest.method());
+        assertEquals("http://localhost:8080/otp/routers/default/plan"
+                        + "?fromPlace=59.91%2C10.75&toPlace=59.93%2C10.8&time=08%3A30",
+                httpRequest.uri().toString());
+
+        assertFalse(request.isError("{\"plan\":{}}"));
+        assertFalse(request.isError("{\"error\":{\"id\":404,\"message\":\"PATH_NOT_FOUND\"}}"));
+        assertTrue(request.isError("{\"error\":{\"id\":500,\"message\":\"SYSTEM_ERROR\"}}"));
+    }
+
+    @Test
+    public void testGraphQL() throws Exception {
+        LoadTestRequest request = LoadTestRequest.parse(
+                "{ \"query\" : \"{ quay(id: $id) { name } }\", \"variables\" : { \"id\" : \"NSR:Quay:1\" } }");
+        assertEquals(LoadTestRequest.Endpoint.GRAPHQL, request.endpoint);
+        HttpRequest httpRequest = request.toHttpRequest("http://localhost:8080/otp/routers/default", TIMEOUT);
+        assertEquals("POST", httpRequest.method());
+        assertEquals("http://localhost:8080/otp/routers/default/transmodel/index/graphql",
+                httpRequest.uri().toString());
+
+        assertFalse(request.isError("{\"data\":{\"quay\":null}}"));
+        assertTrue(request.isError("{\"errors\":[{\"message\":\"Timeout\"}]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNeitherPlanNorGraphQL() throws Exception {
+        LoadTestRequest.parse("{ \"foo\" : 1 }");
+    }
+
+    @Test
+    public void testReport() {
+        LoadTestReport report = new LoadTestReport();
+        for (int i = 1; i <= 1000; i++) {
+            report.record(LoadTestRequest.Endpoint.PLAN, i * 1_000_000L, i % 100 == 0);
+        }
+        LoadTestReport.Result result = report.getResult(new LinkedHashMap<>(), 2_000_000_000L);
+        LoadTestReport.EndpointResult plan = result.endpoints.get("PLAN");
+        assertEquals(1000, plan.requests);
+        assertEquals(0.01, plan.errorRate, 1e-9);
+        assertEquals(500, plan.throughput, 1e-9);
+        assertEquals(500, plan.percentilesMillis.get("p50"), 500 / 128.0);
+        assertEquals(990, plan.percentilesMillis.get("p99"), 990 / 128.0);
+        assertEquals(1000, plan.percentilesMillis.get("max"), 0);
+        assertFalse(result.endpoints.containsKey("GRAPHQL"));
+    }
+}
@@ -0,0 +1,79 @@
+package org.opentripplanner.routing.algorithm;
+
+import org.junit.Test;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.GraphLayout;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BoundedWalkSearchTest {
+
+    /** Searching repeatedly from the corners of a street grid gives the same arrival times as EarliestArrivalSearch. */
+    @Test
+    public void testSameAsEarliestArrivalSearch() {
+        int size = 10;
+        Graph graph = new Graph();
+        IntersectionVertex[][] grid = new IntersectionVertex[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                grid[i][j] = new IntersectionVertex(graph, "v" + i + "_" + j, 10 + i * 0.001, 60 + j * 0.001);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i + 1 < size) {
+                    street(grid[i][j], grid[i + 1][j], 50 + j);
+                }
+                if (j + 1 < size) {
+                    street(grid[i][j], grid[i][j + 1], 100 - i);
+                }
+            }
+        }
+        int nVertices = GraphLayout.layOut(graph);
+
+        int maxDuration = 600;
+        EarliestArrivalSearch earliestArrivalSearch = new EarliestArrivalSearch();
+        earliestArrivalSearch.maxDuration = maxDuration;
+        BoundedWalkSearch search = new BoundedWalkSearch(graph, nVertices, maxDuration);
+        for (Vertex origin : new Vertex[] { grid[0][0], grid[size - 1][size - 1], grid[0][size - 1] }) {
+            RoutingRequest options = new RoutingRequest(TraverseMode.WALK);
+            options.clampInitialWait = 0;
+            options.setRoutingContext(graph, origin, null);
+            ShortestPathTree spt = earliestArrivalSearch.getShortestPathTree(options);
+            search.search(origin);
+
+            Set<Vertex> reached = new HashSet<>();
+            search.forEachReached(state -> reached.add(state.getVertex()));
+            assertEquals(spt.getVertices(), reached);
+            for (Vertex v : graph.getVertices()) {
+                State expected = spt.getState(v);
+                State state = search.getState(v);
+                if (expected == null) {
+                    assertNull(state);
+                } else {
+                    assertEquals(expected.getElapsedTimeSeconds(), state.getElapsedTimeSeconds());
+                }
+            }
+        }
+    }
+
+    private static void street(IntersectionVertex a, IntersectionVertex b, double length) {
+        new StreetEdge(a, b, GeometryUtils.makeLineString(a.getLon(), a.getLat(), b.getLon(), b.getLat()),
+                a.getLabel() + b.getLabel(), length, StreetTraversalPermission.PEDESTRIAN, false);
+        new StreetEdge(b, a, GeometryUtils.makeLineString(b.getLon(), b.getLat(), a.getLon(), a.getLat()),
+                b.getLabel() + a.getLabel(), length, StreetTraversalPermission.PEDESTRIAN, false);
+    }
+}
@@ -0,0 +1,174 @@
+package org.opentripplanner.routing.algorithm.ch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.core.ConstantIntersectionTraversalCostModel;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.util.monitoring.RoutingCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ContractionHierarchyTest {
+
+    private static final int SIZE = 12;
+
+    private Graph graph;
+
+    private IntersectionVertex[][] grid;
+
+    @Before
+    public void before() {
+        // A grid city with blocks of random length, some of the streets being one-way.
+        graph = new Graph();
+        Random random = new Random(42);
+        grid = new IntersectionVertex[SIZE][SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                grid[i][j] = new IntersectionVertex(graph, "v_" + i + "_" + j, i * 0.001, j * 0.001);
+            }
+        }
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (i + 1 < SIZE) edge(grid[i][j], grid[i + 1][j], 50 + random.nextInt(100), random.nextInt(5) > 0);
+                if (j + 1 < SIZE) edge(grid[i][j], grid[i][j + 1], 50 + random.nextInt(100), random.nextInt(5) > 0);
+            }
+        }
+        graph.putContractionHierarchy(new ContractionHierarchyBuilder(
+                StreetCostProfile.defaultRequest(TraverseMode.CAR)).build(graph, TraverseMode.CAR));
+    }
+
+    @Test
+    public void testSameWeightAsAStar() {
+        Random random = new Random(7);
+        for (int n = 0; n < 50; n++) {
+            IntersectionVertex from = grid[random.nextInt(SIZE)][random.nextInt(SIZE)];
+            IntersectionVertex to = grid[random.nextInt(SIZE)][random.nextInt(SIZE)];
+            if (from == to) continue;
+
+            RoutingRequest options = request();
+            options.setRoutingContext(graph, from, to);
+            GraphPath chPath = new ContractionHierarchyRouter(graph).getPath(options);
+
+            RoutingRequest aStarOptions = request();
+            aStarOptions.setRoutingContext(graph, from, to);
+            ShortestPathTree spt = new AStar().getShortestPathTree(aStarOptions);
+            GraphPath aStarPath = spt.getPath(to, false);
+
+            if (aStarPath == null) {
+                assertNull(chPath);
+                continue;
+            }
+            assertNotNull(chPath);
+            assertEquals(from, chPath.states.getFirst().getVertex());
+            assertEquals(to, chPath.states.getLast().getVertex());
+            assertEquals(aStarPath.getWeight(), chPath.getWeight(), 0.01);
+        }
+    }
+
+    @Test
+    public void testSameWeightAsAStarWithTurnCosts() {
+        // Neighbours first, which are joined without any turn, then random pairs.
+        List<IntersectionVertex[]> pairs = new ArrayList<>();
+        for (int i = 0; i + 1 < SIZE; i++) {
+            pairs.add(new IntersectionVertex[] { grid[i][0], grid[i + 1][0] });
+            pairs.add(new IntersectionVertex[] { grid[i + 1][0], grid[i][0] });
+        }
+        Random random = new Random(11);
+        for (int n = 0; n < 50; n++) {
+            pairs.add(new IntersectionVertex[] {
+                    grid[random.nextInt(SIZE)][random.nextInt(SIZE)], grid[random.nextInt(SIZE)][random.nextInt(SIZE)] });
+        }
+        long provenPaths = 0;
+        long chStates = 0;
+        long aStarStates = 0;
+        for (IntersectionVertex[] pair : pairs) {
+            if (pair[0] == pair[1]) continue;
+            RoutingRequest options = new RoutingRequest(TraverseMode.CAR);
+            options.setRoutingContext(graph, pair[0], pair[1]);
+            GraphPath chPath = new ContractionHierarchyRouter(graph).getPath(options);
+
+            RoutingRequest aStarOptions = new RoutingRequest(TraverseMode.CAR);
+            aStarOptions.setRoutingContext(graph, pair[0], pair[1]);
+            GraphPath aStarPath = new AStar().getShortestPathTree(aStarOptions).getPath(pair[1], false);
+
+            if (aStarPath == null) {
+                assertNull(chPath);
+                continue;
+            }
+            assertNotNull(chPath);
+            assertEquals(pair[1], chPath.states.getLast().getVertex());
+            // A* keeps a single state per vertex whatever the turn it arrived by, so with turn costs the searches
+            // may find different paths. The one guided by the hierarchy should not be worse.
+            assertTrue(chPath.getWeight() <= aStarPath.getWeight() + 0.01);
+            provenPaths += options.rctx.instrumentation.getCount(RoutingCounter.CONTRACTION_HIERARCHY_PATHS);
+            chStates += options.rctx.instrumentation.getCount(RoutingCounter.STATES_VISITED);
+            aStarStates += aStarOptions.rctx.instrumentation.getCount(RoutingCounter.STATES_VISITED);
+        }
+        // Paths without turns are proven optimal in the hierarchy, the others are searched with it as heuristic.
+        assertTrue(provenPaths >= 2 * (SIZE - 1));
+        assertTrue(chStates + " states visited with the hierarchy, " + aStarStates + " without",
+                chStates * 2 < aStarStates);
+    }
+
+    @Test
+    public void testArriveBy() {
+        RoutingRequest options = request();
+        options.setArriveBy(true);
+        options.setRoutingContext(graph, grid[0][0], grid[SIZE - 1][SIZE - 1]);
+        GraphPath path = new ContractionHierarchyRouter(graph).getPath(options);
+        assertNotNull(path);
+        assertEquals(grid[0][0], path.states.getFirst().getVertex());
+        assertEquals(grid[SIZE - 1][SIZE - 1], path.states.getLast().getVertex());
+        assertEquals(options.dateTime, path.getEndTime());
+    }
+
+    @Test
+    public void testProfileMismatch() {
+        RoutingRequest options = request();
+        options.carSpeed = options.carSpeed * 2;
+        options.setRoutingContext(graph, grid[0][0], grid[SIZE - 1][SIZE - 1]);
+        ContractionHierarchyRouter router = new ContractionHierarchyRouter(graph);
+        assertNull(router.findHierarchy(options));
+        assertNull(router.getPath(options));
+
+        RoutingRequest bike = new RoutingRequest(TraverseMode.BICYCLE);
+        bike.setRoutingContext(graph, grid[0][0], grid[SIZE - 1][SIZE - 1]);
+        assertNull(router.findHierarchy(bike));
+    }
+
+    private static RoutingRequest request() {
+        RoutingRequest options = new RoutingRequest(TraverseMode.CAR);
+        // The hierarchy does not include turn costs, so compare with A* without them.
+        options.traversalCostModel = new ConstantIntersectionTraversalCostModel(0.0);
+        return options;
+    }
+
+    private static void edge(IntersectionVertex a, IntersectionVertex b, double length, boolean twoWay) {
+        Coordinate[] coordinates = new Coordinate[] { a.getCoordinate(), b.getCoordinate() };
+        LineString geometry = GeometryUtils.getGeometryFactory().createLineString(coordinates);
+        new StreetEdge(a, b, geometry, "street", length, StreetTraversalPermission.ALL, false);
+        if (twoWay) {
+            new StreetEdge(b, a, (LineString) geometry.reverse(), "street", length, StreetTraversalPermission.ALL,
+                    true);
+        }
+    }
+}
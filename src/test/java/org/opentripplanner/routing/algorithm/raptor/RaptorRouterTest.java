@@ -0,0 +1,111 @@
+package org.opentripplanner.routing.algorithm.raptor;
+
+import junit.framework.TestCase;
+import org.opentripplanner.graph_builder.module.DirectTransferGenerator;
+import org.opentripplanner.graph_builder.module.FakeGraph;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.impl.DefaultStreetVertexIndexFactory;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.util.TestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+
+public class RaptorRouterTest extends TestCase {
+
+    /**
+     * A grid of bus lines along the rows and tram lines along the columns of the Columbus street network, each running
+     * every ten minutes. Trips between stops that are not on the same line need at least one transfer.
+     */
+    private static Graph graph;
+
+    public void testRaptorData() throws Exception {
+        Graph graph = getGraph();
+        RaptorData data = graph.getRaptorData();
+        assertTrue(data.stops.length > 0);
+        assertTrue(data.patterns.length > 0);
+        for (int s = 0; s < data.stops.length; s++) {
+            assertEquals(s, data.indexOf(data.stops[s]));
+            for (int p : data.patternsForStop[s]) {
+                boolean found = false;
+                for (int stop : data.patternStops[p]) {
+                    found |= stop == s;
+                }
+                assertTrue(found);
+            }
+        }
+    }
+
+    /**
+     * RAPTOR finds the earliest arrival, so it may not arrive later than the path found by A*. A* minimizes a weight
+     * rather than the arrival time, so it may arrive later.
+     */
+    public void testSameArrivalAsAStar() throws Exception {
+        Graph graph = getGraph();
+        String[][] queries = {
+                { "s-2-3", "s-30-15" },
+                { "s-40-1", "s-5-20" },
+                { "s-10-10", "s-11-22" },
+                { "s-0-5", "s-30-5" },
+                { "s-50-20", "s-3-2" }
+        };
+        int[] hours = { 7, 8, 12, 17 };
+        for (String[] query : queries) {
+            for (int hour : hours) {
+                long startTime = TestUtils.dateInSeconds("America/New_York", 2015, 5, 12, hour, 3, 0);
+                GraphPath aStarPath = aStar(graph, query[0], query[1], startTime);
+                assertNotNull(aStarPath);
+
+                List<GraphPath> raptorPaths = raptor(graph, query[0], query[1], startTime);
+                assertFalse(raptorPaths.isEmpty());
+                long bestRaptorArrival = Long.MAX_VALUE;
+                boolean usedTransit = false;
+                for (GraphPath path : raptorPaths) {
+                    assertEquals(stop(graph, query[0]), path.states.getFirst().getVertex());
+                    assertEquals(stop(graph, query[1]), path.states.getLast().getVertex());
+                    bestRaptorArrival = Math.min(bestRaptorArrival, path.getEndTime());
+                    usedTransit |= !path.getTrips().isEmpty();
+                }
+                assertTrue(usedTransit);
+                assertTrue(query[0] + " to " + query[1] + " at " + hour + "h",
+                        bestRaptorArrival <= aStarPath.getEndTime());
+            }
+        }
+    }
+
+    private static GraphPath aStar(Graph graph, String from, String to, long startTime) {
+        RoutingRequest options = new RoutingRequest();
+        options.dateTime = startTime;
+        options.setRoutingContext(graph, stop(graph, from), stop(graph, to));
+        ShortestPathTree spt = new AStar().getShortestPathTree(options);
+        return spt.getPath(stop(graph, to), true);
+    }
+
+    private static List<GraphPath> raptor(Graph graph, String from, String to, long startTime) {
+        RoutingRequest options = new RoutingRequest();
+        options.dateTime = startTime;
+        options.numItineraries = 3;
+        options.useRaptor = true;
+        options.setRoutingContext(graph, stop(graph, from), stop(graph, to));
+        return new RaptorRouter(graph).getPaths(options, 10);
+    }
+
+    private static Vertex stop(Graph graph, String stopId) {
+        return graph.getVertex(graph.getFeedIds().iterator().next() + ":" + stopId);
+    }
+
+    private static synchronized Graph getGraph() throws Exception {
+        if (graph == null) {
+            graph = FakeGraph.buildGraphNoTransit();
+            FakeGraph.addPerpendicularRoutes(graph);
+            FakeGraph.link(graph);
+            new DirectTransferGenerator(2000).buildGraph(graph, new HashMap<>());
+            graph.index(new DefaultStreetVertexIndexFactory());
+        }
+        return graph;
+    }
+}
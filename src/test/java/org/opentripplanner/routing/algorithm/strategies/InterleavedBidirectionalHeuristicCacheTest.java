@@ -0,0 +1,63 @@
+package org.opentripplanner.routing.algorithm.strategies;
+
+import gnu.trove.map.TObjectDoubleMap;
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+import org.junit.Test;
+import org.opentripplanner.common.pqueue.BinHeap;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InterleavedBidirectionalHeuristicCacheTest {
+
+    private final Graph graph = new Graph();
+
+    private final Vertex a = new IntersectionVertex(graph, "a", 0, 0);
+
+    private final Vertex b = new IntersectionVertex(graph, "b", 0, 0.001);
+
+    @Test
+    public void testUnfinishedTablesAreCopied() {
+        InterleavedBidirectionalHeuristicCache cache = new InterleavedBidirectionalHeuristicCache();
+        assertNull(cache.get("key"));
+        InterleavedBidirectionalHeuristicCache.Table table = table(100, false);
+        cache.put("key", table);
+
+        InterleavedBidirectionalHeuristicCache.Table copy = cache.get("key");
+        assertNotSame(table, copy);
+        copy.postBoardingWeights.put(b, 200);
+        copy.transitQueue.extract_min();
+        assertEquals(Double.POSITIVE_INFINITY, table.postBoardingWeights.get(b), 0);
+        assertEquals(1, table.transitQueue.size());
+        assertEquals(10, copy.postBoardingWeights.get(a), 0);
+    }
+
+    @Test
+    public void testMostCompleteTableIsKept() {
+        InterleavedBidirectionalHeuristicCache cache = new InterleavedBidirectionalHeuristicCache();
+        cache.put("key", table(100, false));
+        cache.put("key", table(50, false));
+        assertEquals(100, cache.get("key").maxWeightSeen, 0);
+        InterleavedBidirectionalHeuristicCache.Table finished = table(80, true);
+        cache.put("key", finished);
+        assertSame(finished, cache.get("key"));
+        cache.put("key", table(500, false));
+        assertSame(finished, cache.get("key"));
+
+        cache.clear();
+        assertNull(cache.get("key"));
+    }
+
+    private InterleavedBidirectionalHeuristicCache.Table table(double maxWeightSeen, boolean finished) {
+        TObjectDoubleMap<Vertex> weights = new TObjectDoubleHashMap<>(10, 0.5f, Double.POSITIVE_INFINITY);
+        weights.put(a, 10);
+        BinHeap<Vertex> queue = new BinHeap<>();
+        queue.insert(b, 20);
+        return new InterleavedBidirectionalHeuristicCache.Table(weights, queue, maxWeightSeen, finished);
+    }
+}
@@ -0,0 +1,123 @@
+package org.opentripplanner.routing.algorithm.strategies;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.algorithm.AStar;
+import org.opentripplanner.routing.algorithm.StreetCostProfile;
+import org.opentripplanner.routing.algorithm.landmarks.LandmarkSetBuilder;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LandmarkRemainingWeightHeuristicTest {
+
+    private static final int SIZE = 10;
+
+    private Graph graph;
+
+    private IntersectionVertex[][] grid;
+
+    @Before
+    public void before() {
+        // A grid city with blocks of random length, some of the streets being one-way.
+        graph = new Graph();
+        Random random = new Random(42);
+        grid = new IntersectionVertex[SIZE][SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                grid[i][j] = new IntersectionVertex(graph, "v_" + i + "_" + j, i * 0.001, j * 0.001);
+            }
+        }
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (i + 1 < SIZE) edge(grid[i][j], grid[i + 1][j], 50 + random.nextInt(100), random.nextInt(5) > 0);
+                if (j + 1 < SIZE) edge(grid[i][j], grid[i][j + 1], 50 + random.nextInt(100), random.nextInt(5) > 0);
+            }
+        }
+        graph.putLandmarkSet(new LandmarkSetBuilder(StreetCostProfile.defaultRequest(TraverseMode.CAR))
+                .build(graph, TraverseMode.CAR, 4));
+    }
+
+    @Test
+    public void testSameWeightAsDijkstra() {
+        Random random = new Random(7);
+        for (int n = 0; n < 30; n++) {
+            IntersectionVertex from = grid[random.nextInt(SIZE)][random.nextInt(SIZE)];
+            IntersectionVertex to = grid[random.nextInt(SIZE)][random.nextInt(SIZE)];
+            if (from == to) continue;
+            GraphPath landmarkPath = search(from, to, LandmarkRemainingWeightHeuristic.forRequest(graph, request()));
+            GraphPath dijkstraPath = search(from, to, new TrivialRemainingWeightHeuristic());
+            if (dijkstraPath == null) {
+                assertNull(landmarkPath);
+                continue;
+            }
+            assertNotNull(landmarkPath);
+            assertEquals(dijkstraPath.getWeight(), landmarkPath.getWeight(), 0.01);
+        }
+    }
+
+    @Test
+    public void testAdmissible() {
+        IntersectionVertex to = grid[SIZE - 2][SIZE - 3];
+        RoutingRequest options = request();
+        options.setRoutingContext(graph, grid[0][0], to);
+        LandmarkRemainingWeightHeuristic heuristic = LandmarkRemainingWeightHeuristic.forRequest(graph, options);
+        assertNotNull(heuristic);
+        heuristic.initialize(options, Long.MAX_VALUE);
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (grid[i][j] == to) continue;
+                GraphPath path = search(grid[i][j], to, new TrivialRemainingWeightHeuristic());
+                if (path == null) continue;
+                double estimate = heuristic.estimateRemainingWeight(new State(grid[i][j], options));
+                assertTrue(estimate <= path.getWeight());
+            }
+        }
+    }
+
+    @Test
+    public void testProfileMismatch() {
+        RoutingRequest options = request();
+        options.carSpeed = options.carSpeed * 2;
+        assertNull(LandmarkRemainingWeightHeuristic.forRequest(graph, options));
+        assertNull(LandmarkRemainingWeightHeuristic.forRequest(graph, new RoutingRequest(TraverseMode.WALK)));
+    }
+
+    private GraphPath search(IntersectionVertex from, IntersectionVertex to, RemainingWeightHeuristic heuristic) {
+        RoutingRequest options = request();
+        options.setRoutingContext(graph, from, to);
+        options.rctx.remainingWeightHeuristic = heuristic;
+        return new AStar().getShortestPathTree(options).getPath(to, false);
+    }
+
+    private static RoutingRequest request() {
+        RoutingRequest options = new RoutingRequest(TraverseMode.CAR);
+        options.useContractionHierarchy = false;
+        return options;
+    }
+
+    private static void edge(IntersectionVertex a, IntersectionVertex b, double length, boolean twoWay) {
+        Coordinate[] coordinates = new Coordinate[] { a.getCoordinate(), b.getCoordinate() };
+        LineString geometry = GeometryUtils.getGeometryFactory().createLineString(coordinates);
+        new StreetEdge(a, b, geometry, "street", length, StreetTraversalPermission.ALL, false);
+        if (twoWay) {
+            new StreetEdge(b, a, (LineString) geometry.reverse(), "street", length, StreetTraversalPermission.ALL,
+                    true);
+        }
+    }
+}
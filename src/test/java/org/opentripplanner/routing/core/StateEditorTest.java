@@ -14,10 +14,16 @@
 package org.opentripplanner.routing.core;
 
 import org.junit.Test;
+import org.opentripplanner.routing.edgetype.FreeEdge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.impl.StreetVertexIndexServiceImpl;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class StateEditorTest {
 
@@ -58,4 +64,41 @@ public class StateEditorTest {
         assertEquals(true, updatedState.isBikeParked());
         assertEquals(false, updatedState.isBikeRenting());
     }
+
+    /**
+     * Neither street traversals nor transit events should copy the state data, and transit changes should not leak
+     * into earlier states.
+     */
+    @Test
+    public final void testStateDataSharing() {
+        Graph graph = new Graph();
+        IntersectionVertex a = new IntersectionVertex(graph, "a", 0, 0);
+        IntersectionVertex b = new IntersectionVertex(graph, "b", 0, 0.001);
+        FreeEdge edge = new FreeEdge(a, b);
+        State parent = new State(a, new RoutingRequest());
+
+        StateEditor street = parent.edit(edge);
+        street.setBackMode(TraverseMode.WALK);
+        street.setBackWalkingBike(true);
+        street.setEnteredNoThroughTrafficArea();
+        State walked = street.makeState();
+        assertSame(parent.stateData, walked.stateData);
+        assertEquals(TraverseMode.WALK, walked.getBackMode());
+        assertTrue(walked.isBackWalkingBike());
+        assertTrue(walked.hasEnteredNoThruTrafficArea());
+        assertNull(parent.getBackMode());
+
+        StateEditor transit = walked.edit(new FreeEdge(b, a));
+        transit.incrementNumBoardings();
+        transit.setZone("zone");
+        State boarded = transit.makeState();
+        assertSame(walked.stateData, boarded.stateData);
+        assertNotSame(walked.transit, boarded.transit);
+        assertEquals(1, boarded.getNumBoardings());
+        assertEquals("zone", boarded.getZone());
+        assertTrue(boarded.isEverBoarded());
+        assertEquals(0, walked.getNumBoardings());
+        assertNull(walked.getZone());
+        assertEquals(0, new State(a, new RoutingRequest()).getNumBoardings());
+    }
 }
@@ -0,0 +1,55 @@
+package org.opentripplanner.routing.core;
+
+import org.junit.Test;
+import org.opentripplanner.routing.edgetype.FreeEdge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StateMergerTest {
+
+    private final Graph graph = new Graph();
+
+    private final IntersectionVertex a = new IntersectionVertex(graph, "a", 0, 0);
+
+    private final IntersectionVertex b = new IntersectionVertex(graph, "b", 0, 0.001);
+
+    @Test
+    public void testMergeBoarded() {
+        State first = state(TraverseMode.BUS, false, false, true);
+        State next = state(TraverseMode.WALK, true, true, false);
+        StateMerger.merge(first, next);
+        assertEquals(TraverseMode.BUS, first.getBackMode());
+        assertTrue(first.isBackWalkingBike());
+        assertTrue(first.hasEnteredNoThruTrafficArea());
+        assertTrue(first.isEverBoarded());
+        assertEquals(1, first.getNumBoardings());
+    }
+
+    @Test
+    public void testMergeNotBoarded() {
+        State first = state(TraverseMode.CAR, true, true, false);
+        State next = state(TraverseMode.WALK, false, false, false);
+        StateMerger.merge(first, next);
+        assertEquals(TraverseMode.WALK, first.getBackMode());
+        assertFalse(first.isBackWalkingBike());
+        assertFalse(first.hasEnteredNoThruTrafficArea());
+        assertFalse(first.isEverBoarded());
+    }
+
+    private State state(TraverseMode backMode, boolean walkingBike, boolean noThroughTraffic, boolean board) {
+        StateEditor editor = new State(a, new RoutingRequest()).edit(new FreeEdge(a, b));
+        editor.setBackMode(backMode);
+        editor.setBackWalkingBike(walkingBike);
+        if (noThroughTraffic) {
+            editor.setEnteredNoThroughTrafficArea();
+        }
+        if (board) {
+            editor.incrementNumBoardings();
+        }
+        return editor.makeState();
+    }
+}
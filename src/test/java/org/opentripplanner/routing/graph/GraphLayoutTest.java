@@ -0,0 +1,77 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphLayoutTest {
+
+    /** Lay out a grid of vertices linked to their neighbours and check the numbering is dense and local. */
+    @Test
+    public void testLayOut() {
+        int size = 16;
+        Graph graph = new Graph();
+        Vertex[][] grid = new Vertex[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                grid[i][j] = new SimpleConcreteVertex(graph, "v" + i + "_" + j, i * 0.001, j * 0.001);
+            }
+        }
+        int nEdges = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i + 1 < size) {
+                    new SimpleConcreteEdge(grid[i][j], grid[i + 1][j]);
+                    new SimpleConcreteEdge(grid[i + 1][j], grid[i][j]);
+                    nEdges += 2;
+                }
+                if (j + 1 < size) {
+                    new SimpleConcreteEdge(grid[i][j], grid[i][j + 1]);
+                    new SimpleConcreteEdge(grid[i][j + 1], grid[i][j]);
+                    nEdges += 2;
+                }
+            }
+        }
+
+        assertEquals(size * size, GraphLayout.layOut(graph));
+
+        Set<Integer> vertexIndexes = new HashSet<>();
+        Set<Integer> edgeIndexes = new HashSet<>();
+        for (Vertex v : graph.getVertices()) {
+            vertexIndexes.add(v.getIndex());
+            List<Edge> outgoing = new ArrayList<>(v.getOutgoing());
+            for (int k = 0; k < outgoing.size(); k++) {
+                edgeIndexes.add(outgoing.get(k).getIndex());
+                if (k > 0) {
+                    assertEquals(outgoing.get(k - 1).getIndex() + 1, outgoing.get(k).getIndex());
+                    assertTrue(outgoing.get(k - 1).getToVertex().getIndex() < outgoing.get(k).getToVertex().getIndex());
+                }
+            }
+        }
+        assertEquals(size * size, vertexIndexes.size());
+        assertTrue(vertexIndexes.contains(0) && vertexIndexes.contains(size * size - 1));
+        assertEquals(nEdges, edgeIndexes.size());
+        assertTrue(edgeIndexes.contains(0) && edgeIndexes.contains(nEdges - 1));
+
+        // Along a Hilbert curve, consecutive vertices are neighbours in the grid.
+        Vertex[] byIndex = new Vertex[size * size];
+        for (Vertex v : graph.getVertices()) {
+            byIndex[v.getIndex()] = v;
+        }
+        for (int k = 1; k < byIndex.length; k++) {
+            double dx = Math.abs(byIndex[k].getX() - byIndex[k - 1].getX());
+            double dy = Math.abs(byIndex[k].getY() - byIndex[k - 1].getY());
+            assertEquals(0.001, dx + dy, 1e-9);
+        }
+
+        // Temporary vertices are not numbered.
+        Vertex temporary = new SimpleConcreteVertex(null, "temporary", 0, 0);
+        assertEquals(Vertex.NO_INDEX, temporary.getIndex());
+    }
+}
@@ -0,0 +1,48 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.Test;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.util.NonLocalizedString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SharedStreetDataTest {
+
+    @Test
+    public void testShareArrays() {
+        SharedStreetData shared = new SharedStreetData();
+        byte[] a = { 1, 2, 3 };
+        byte[] b = { 1, 2, 3 };
+        byte[] c = { 1, 2, 4 };
+        assertSame(a, shared.share(a));
+        assertSame(a, shared.share(b));
+        assertSame(c, shared.share(c));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, a);
+    }
+
+    @Test
+    public void testShareGraphs() {
+        SharedStreetData shared = new SharedStreetData();
+        Graph firstGraph = new Graph();
+        Graph secondGraph = new Graph();
+        StreetEdge first = makeStreet(firstGraph);
+        StreetEdge second = makeStreet(secondGraph);
+        assertNotSame(first.getRawName(), second.getRawName());
+
+        shared.share(firstGraph);
+        shared.share(secondGraph);
+        assertSame(first.getRawName(), second.getRawName());
+    }
+
+    private static StreetEdge makeStreet(Graph graph) {
+        IntersectionVertex a = new IntersectionVertex(graph, "a", 10.0, 60.0);
+        IntersectionVertex b = new IntersectionVertex(graph, "b", 10.001, 60.001);
+        return new StreetEdge(a, b, GeometryUtils.makeLineString(10.0, 60.0, 10.0005, 60.0002, 10.001, 60.001),
+                new NonLocalizedString("Main Street"), 100, StreetTraversalPermission.ALL, false);
+    }
+}
@@ -0,0 +1,108 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.bike_rental.BikeRentalStation;
+import org.opentripplanner.routing.edgetype.StreetBikeRentalLink;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTransitLink;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.impl.StreetVertexIndexServiceImpl;
+import org.opentripplanner.routing.vertextype.BikeRentalStationVertex;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStop;
+import org.opentripplanner.util.NonLocalizedString;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WalkNeighbourhoodsTest {
+
+    private Graph graph;
+
+    private StreetVertex a;
+
+    private TransitStop stop;
+
+    private BikeRentalStationVertex station;
+
+    /** A straight street a - b - c of two 100 m edges, with a bike rental station at b and a stop at c. */
+    @Before
+    public void setUp() {
+        graph = new Graph();
+        a = new IntersectionVertex(graph, "a", 10.000, 60.0);
+        StreetVertex b = new IntersectionVertex(graph, "b", 10.002, 60.0);
+        StreetVertex c = new IntersectionVertex(graph, "c", 10.004, 60.0);
+        street(a, b);
+        street(b, c);
+
+        BikeRentalStation rentalStation = new BikeRentalStation();
+        rentalStation.id = "station";
+        rentalStation.name = new NonLocalizedString("station");
+        rentalStation.x = 10.002;
+        rentalStation.y = 60.0001;
+        station = new BikeRentalStationVertex(graph, rentalStation);
+        new StreetBikeRentalLink(b, station);
+        new StreetBikeRentalLink(station, b);
+
+        Stop s = new Stop();
+        s.setId(new AgencyAndId("A", "stop"));
+        s.setName("stop");
+        s.setLon(10.004);
+        s.setLat(60.0001);
+        stop = new TransitStop(graph, s);
+        new StreetTransitLink(c, stop, true);
+        new StreetTransitLink(stop, c, true);
+
+        graph.streetIndex = new StreetVertexIndexServiceImpl(graph);
+    }
+
+    private static void street(StreetVertex from, StreetVertex to) {
+        new StreetEdge(from, to, GeometryUtils.makeLineString(from.getLon(), from.getLat(), to.getLon(), to.getLat()),
+                from.getLabel() + to.getLabel(), 100, StreetTraversalPermission.PEDESTRIAN, false);
+        new StreetEdge(to, from, GeometryUtils.makeLineString(to.getLon(), to.getLat(), from.getLon(), from.getLat()),
+                to.getLabel() + from.getLabel(), 100, StreetTraversalPermission.PEDESTRIAN, false);
+    }
+
+    @Test
+    public void testNeighbourhood() {
+        WalkNeighbourhoods neighbourhoods = new WalkNeighbourhoods(graph, 500);
+        WalkNeighbourhoods.Neighbourhood neighbourhood = neighbourhoods.getNeighbourhood(a);
+        assertEquals(2, neighbourhood.size());
+        assertSame(station, neighbourhood.places[0]);
+        assertEquals(100, neighbourhood.distances[0]);
+        assertSame(stop, neighbourhood.places[1]);
+        assertEquals(200, neighbourhood.distances[1]);
+        // Complete neighbourhoods are kept
+        assertTrue(neighbourhood.complete);
+        assertSame(neighbourhood, neighbourhoods.getNeighbourhood(a));
+
+        // The radius bounds the neighbourhood
+        assertEquals(1, new WalkNeighbourhoods(graph, 150).getNeighbourhood(a).size());
+    }
+
+    @Test
+    public void testFindPlaces() {
+        WalkNeighbourhoods neighbourhoods = new WalkNeighbourhoods(graph, 500);
+        // On the street, a quarter of the way from a to b
+        List<WalkNeighbourhoods.PlaceAtDistance> places = neighbourhoods.findPlaces(60.0, 10.0005, 500);
+        assertEquals(2, places.size());
+        assertSame(station, places.get(0).vertex);
+        assertEquals(75, places.get(0).distance, 1);
+        assertSame(stop, places.get(1).vertex);
+        assertEquals(175, places.get(1).distance, 1);
+
+        assertEquals(1, neighbourhoods.findPlaces(60.0, 10.0005, 100).size());
+
+        // Far away from any street
+        assertNull(neighbourhoods.findPlaces(61.0, 10.0, 500));
+    }
+}
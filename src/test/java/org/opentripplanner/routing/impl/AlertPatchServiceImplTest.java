@@ -17,11 +17,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.opentripplanner.model.AgencyAndId;
 import org.opentripplanner.routing.alertpatch.Alert;
+import org.opentripplanner.routing.alertpatch.AlertIndex;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
+import org.opentripplanner.routing.alertpatch.TimePeriod;
 import org.opentripplanner.routing.graph.Graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -91,6 +96,43 @@ public class AlertPatchServiceImplTest {
         assertTrue(instance.getStopAndRoutePatches(testStop, testRoute).isEmpty());
     }
 
+    @Test
+    public void testAlertIndex() {
+        AlertPatchServiceImpl instance = getAlertPatchServiceImpl();
+        assertTrue(instance.getAlertIndex().isEmpty());
+
+        alerts[0].setTimePeriods(Arrays.asList(new TimePeriod(100, 200), new TimePeriod(300, 400)));
+        alerts[1].setTimePeriods(Collections.singletonList(new TimePeriod(150, 250)));
+        alerts[2].setTimePeriods(Collections.singletonList(new TimePeriod(0, 1000)));
+        instance.applyAll(new HashSet<>(Arrays.asList(alerts[0], alerts[1], alerts[2])));
+
+        AlertIndex index = instance.getAlertIndex();
+        assertEquals(3, index.size());
+        assertEquals(1, index.getRoutePatches(testRoute).size());
+        assertEquals(1, index.getStopPatches(testStop).size());
+        assertEquals(1, index.getStopAndRoutePatches(testStop, testRoute).size());
+        assertNull(index.getTripPatches(testRoute));
+        assertNull(index.getStopAndTripPatches(testStop, testRoute));
+
+        // Between the two time periods of the route alert
+        assertEquals(0, displayedDuring(index.getRoutePatches(testRoute), 210, 290).size());
+        assertEquals(1, displayedDuring(index.getRoutePatches(testRoute), 210, 300).size());
+        assertEquals(1, displayedDuring(index.getStopPatches(testStop), 0, 150).size());
+        assertEquals(0, displayedDuring(index.getStopPatches(testStop), 250, 300).size());
+
+        // The published index is a snapshot, replaced when the patches change.
+        instance.expire(Collections.singleton(alerts[0].getId()));
+        assertEquals(1, index.getRoutePatches(testRoute).size());
+        assertNull(instance.getAlertIndex().getRoutePatches(testRoute));
+        assertEquals(2, instance.getAlertIndex().size());
+    }
+
+    private static List<AlertPatch> displayedDuring(AlertIndex.Patches patches, long start, long end) {
+        List<AlertPatch> displayed = new ArrayList<>();
+        patches.forEachDisplayedDuring(start, end, displayed::add);
+        return displayed;
+    }
+
     @Test
     public void testExpire() {
         Set<String> purge = new HashSet<String>();
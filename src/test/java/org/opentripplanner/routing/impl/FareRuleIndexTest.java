@@ -0,0 +1,77 @@
+package org.opentripplanner.routing.impl;
+
+import gnu.trove.list.TIntList;
+import org.junit.Test;
+import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.model.FareAttribute;
+import org.opentripplanner.routing.core.FareRuleSet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FareRuleIndexTest {
+
+    private static final AgencyAndId ROUTE_A = new AgencyAndId("F", "A");
+
+    private static final AgencyAndId ROUTE_B = new AgencyAndId("F", "B");
+
+    @Test
+    public void testCandidates() {
+        FareRuleSet routeRule = rule("route");
+        routeRule.addRoute(ROUTE_A);
+        FareRuleSet odRule = rule("od");
+        odRule.addOriginDestination("1", "2");
+        FareRuleSet reverseOdRule = rule("reverse");
+        reverseOdRule.addOriginDestination(null, "2");
+        FareRuleSet containsRule = rule("contains");
+        containsRule.addContains("1");
+        containsRule.addContains("2");
+        FareRuleSet flatRule = rule("flat");
+        List<FareRuleSet> rules = Arrays.asList(routeRule, odRule, reverseOdRule, containsRule, flatRule);
+        FareRuleIndex index = new FareRuleIndex(rules);
+
+        Set<String> zones = new HashSet<>(Arrays.asList("1", "2"));
+        assertEquals(set(0, 1, 3, 4), candidates(index, ROUTE_A, "1", zones));
+        assertEquals(set(2, 4), candidates(index, ROUTE_B, "2", Collections.singleton("2")));
+        // Outside of any zone, every origin-destination rule may still match.
+        assertEquals(set(1, 2, 4), candidates(index, ROUTE_B, null, Collections.emptySet()));
+
+        // The index never drops a rule that matches.
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).matches(Collections.singleton("F"), "1", "2", zones, Collections.singleton(ROUTE_A),
+                    Collections.emptySet())) {
+                assertTrue(candidates(index, ROUTE_A, "1", zones).contains(i));
+            }
+        }
+    }
+
+    private static Set<Integer> candidates(FareRuleIndex index, AgencyAndId route, String startZone,
+            Set<String> zones) {
+        Ride ride = new Ride();
+        ride.route = route;
+        ride.trip = new AgencyAndId("F", "trip");
+        TIntList candidates = index.candidates(ride, startZone, zones);
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            result.add(candidates.get(i));
+        }
+        return result;
+    }
+
+    private static Set<Integer> set(Integer... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static FareRuleSet rule(String id) {
+        FareAttribute attribute = new FareAttribute();
+        attribute.setId(new AgencyAndId("F", id));
+        attribute.setPrice(1);
+        return new FareRuleSet(attribute);
+    }
+}
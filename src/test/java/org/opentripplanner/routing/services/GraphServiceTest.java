@@ -0,0 +1,78 @@
+package org.opentripplanner.routing.services;
+
+import org.junit.Test;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.impl.MemoryGraphSource;
+import org.opentripplanner.standalone.Router;
+
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GraphServiceTest {
+
+    /** The old router is swapped out at once, but only shut down when the requests started before are finished. */
+    @Test
+    public void testHotSwap() throws Exception {
+        GraphService graphService = new GraphService();
+        TestRouter oldRouter = new TestRouter();
+        TestRouter newRouter = new TestRouter();
+        graphService.registerGraph("A", new GraphSource() {
+            private Router router = oldRouter;
+            @Override public Router getRouter() { return router; }
+            @Override public void load() { }
+            @Override public boolean canReload() { return true; }
+            @Override public Router reload(Consumer<Router> warmUp) {
+                warmUp.accept(newRouter);
+                Router replaced = router;
+                router = newRouter;
+                return replaced;
+            }
+        });
+        assertNull(graphService.getReloadStatus("A"));
+        assertFalse(graphService.startReload("B"));
+
+        long request = graphService.getInFlightRequests().begin();
+        assertTrue(graphService.startReload("A"));
+        awaitStatus(graphService, GraphService.ReloadStatus.DRAINING);
+        assertSame(newRouter, graphService.getRouter("A"));
+        assertFalse(oldRouter.shutDown);
+
+        graphService.getInFlightRequests().end(request);
+        awaitStatus(graphService, GraphService.ReloadStatus.DONE);
+        assertTrue(oldRouter.shutDown);
+        assertFalse(newRouter.shutDown);
+    }
+
+    /** A graph given in memory has nothing to be reloaded from, so no reload is started for it. */
+    @Test
+    public void testNoReloadInMemory() {
+        GraphService graphService = new GraphService();
+        graphService.registerGraph("A", new MemoryGraphSource("A", new Graph()));
+        assertFalse(graphService.canReload("A"));
+        assertFalse(graphService.startReload("A"));
+        assertNull(graphService.getReloadStatus("A"));
+    }
+
+    private static void awaitStatus(GraphService graphService, GraphService.ReloadStatus status) throws Exception {
+        for (int i = 0; i < 100 && graphService.getReloadStatus("A") != status; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(status, graphService.getReloadStatus("A"));
+    }
+
+    private static class TestRouter extends Router {
+        volatile boolean shutDown = false;
+        TestRouter() {
+            super("A", new Graph());
+        }
+        @Override
+        public void shutdown() {
+            shutDown = true;
+        }
+    }
+}
@@ -15,6 +15,7 @@ package org.opentripplanner.routing.trippattern;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -163,6 +164,31 @@ public class TripTimesTest {
         }
     }
 
+    @Test
+    public void testInternRealTimeArrays() {
+        InternPool pool = new InternPool();
+        TripTimes updatedTripTimesA = new TripTimes(originalTripTimes);
+        TripTimes updatedTripTimesB = new TripTimes(originalTripTimes);
+        for (TripTimes updated : Arrays.asList(updatedTripTimesA, updatedTripTimesB)) {
+            updated.updateArrivalDelay(2, 30);
+            updated.updateDepartureDelay(2, 30);
+            updated.setPickupType(4, 1);
+            updated.internRealTimeArrays(pool);
+        }
+
+        assertSame(updatedTripTimesA.arrivalDelays, updatedTripTimesB.arrivalDelays);
+        assertSame(updatedTripTimesA.pickups, updatedTripTimesB.pickups);
+        assertEquals(2 * 60 + 30, updatedTripTimesB.getArrivalTime(2));
+
+        // Updates after interning must not leak into the trips sharing the arrays, nor into the schedule.
+        updatedTripTimesA.updateArrivalDelay(2, 60);
+        updatedTripTimesA.setPickupType(5, 1);
+        assertEquals(2 * 60 + 60, updatedTripTimesA.getArrivalTime(2));
+        assertEquals(2 * 60 + 30, updatedTripTimesB.getArrivalTime(2));
+        assertEquals(0, updatedTripTimesB.getPickupType(5));
+        assertEquals(0, originalTripTimes.getPickupType(4));
+    }
+
     @Test
     public void testApply() {
         Trip trip = new Trip();
@@ -0,0 +1,45 @@
+package org.opentripplanner.standalone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.opentripplanner.routing.core.RoutingRequest;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouterWarmUpTest {
+
+    @Test
+    public void testParseRequestLogLine() {
+        Router router = new Router("A", new Graph());
+        router.defaultRoutingRequest = new RoutingRequest();
+
+        RoutingRequest request = RouterWarmUp.parseRequestLogLine(router,
+                "2019-05-13T08:31:02.123 127.0.0.1 ARRIVE 2019-05-13T08:30 BUS,WALK 59.91 10.75 59.93 10.8 1200 2");
+        assertTrue(request.arriveBy);
+        assertEquals(59.91, request.from.lat, 0);
+        assertEquals(10.8, request.to.lng, 0);
+        assertTrue(request.modes.contains(TraverseMode.BUS));
+        assertEquals(LocalTime.of(8, 30), Instant.ofEpochSecond(request.dateTime)
+                .atZone(ZoneId.of("GMT")).toLocalTime());
+
+        assertNull(RouterWarmUp.parseRequestLogLine(router, "127.0.0.1 DEPART not a request"));
+        assertNull(RouterWarmUp.parseRequestLogLine(router, "Some other line"));
+    }
+
+    @Test
+    public void testNothingToReplay() throws Exception {
+        Router router = new Router("A", new Graph());
+        RouterWarmUp warmUp = new RouterWarmUp(new ObjectMapper().readTree("{ \"requests\" : 10 }"));
+        warmUp.run(router);
+        assertTrue(warmUp.isDone());
+        assertTrue(warmUp.getProgress().startsWith("0/0 requests (0 failed)"));
+    }
+}
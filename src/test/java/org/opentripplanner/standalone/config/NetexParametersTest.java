@@ -21,6 +21,7 @@ public class NetexParametersTest {
         assertTrue(subject.sharedGroupFilePattern.matcher("RUT-anything-shared.xml").matches());
         assertTrue(subject.groupFilePattern.matcher("RUT-anything.xml").matches());
         assertEquals("DefaultFeed", subject.netexFeedId);
+        assertEquals(Runtime.getRuntime().availableProcessors(), subject.parseThreads);
     }
 
     @Test
@@ -35,7 +36,8 @@ public class NetexParametersTest {
                 "    'sharedFilePattern' : '_stops.xml',\n" +
                 "    'sharedGroupFilePattern' : '_(\\\\w{3})_shared_data.xml',\n" +
                 "    'groupFilePattern' : '(\\\\w{3})_.*\\\\.xml',\n" +
-                "    'netexFeedId': 'RB'\n" +
+                "    'netexFeedId': 'RB',\n" +
+                "    'parseThreads': 1\n" +
                 "}";
         // Replace ' with " and % with \\\\ (double escape char)
         configText = configText.replace("'", "\"");
@@ -52,6 +54,7 @@ public class NetexParametersTest {
         assertTrue(subject.sharedGroupFilePattern.matcher("_RUT_shared_data.xml").matches());
         assertTrue(subject.groupFilePattern.matcher("RUT_anything.xml").matches());
         assertEquals("RB", subject.netexFeedId);
+        assertEquals(1, subject.parseThreads);
 
     }
 }
\ No newline at end of file
@@ -1,8 +1,15 @@
 package org.opentripplanner.updater;
 
+import com.google.transit.realtime.GtfsRealtime;
+import com.google.transit.realtime.GtfsRealtime.EntitySelector;
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.google.transit.realtime.GtfsRealtime.TranslatedString;
 import org.junit.Test;
 import org.opentripplanner.GtfsTest;
 import org.opentripplanner.model.AgencyAndId;
+import org.opentripplanner.routing.alertpatch.AlertIndex;
 import org.opentripplanner.routing.alertpatch.AlertPatch;
 import org.opentripplanner.routing.alertpatch.AlertUrl;
 import org.opentripplanner.routing.alertpatch.StopCondition;
@@ -446,6 +453,49 @@ public class AlertsUpdateHandlerTest extends GtfsTest {
         assertTrue(tripPatches.isEmpty());
     }
 
+    @Test
+    public void testGtfsRtUpdate() {
+        init();
+        alertsUpdateHandler.setFeedId("FEED");
+
+        FeedMessage message = FeedMessage.newBuilder()
+                .setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("1.0"))
+                .addEntity(createAlertEntity("alert1",
+                        EntitySelector.newBuilder().setRouteId("route0"),
+                        EntitySelector.newBuilder().setRouteId("route1")))
+                .addEntity(createAlertEntity("alert2", EntitySelector.newBuilder().setStopId("stop0")))
+                .build();
+        alertsUpdateHandler.update(message);
+
+        assertEquals(3, alertsUpdateHandler.getAlertPatchService().getAllAlertPatches().size());
+        AlertIndex alertIndex = alertsUpdateHandler.getAlertPatchService().getAlertIndex();
+        assertEquals(3, alertIndex.size());
+        assertNotNull(alertIndex.getRoutePatches(new AgencyAndId("FEED", "route0")));
+        assertNotNull(alertIndex.getRoutePatches(new AgencyAndId("FEED", "route1")));
+        assertNotNull(alertIndex.getStopPatches(new AgencyAndId("FEED", "stop0")));
+
+        // The patches of the previous message are expired by the next one.
+        alertsUpdateHandler.update(FeedMessage.newBuilder()
+                .setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("1.0"))
+                .addEntity(createAlertEntity("alert2", EntitySelector.newBuilder().setStopId("stop0")))
+                .build());
+
+        assertEquals(1, alertsUpdateHandler.getAlertPatchService().getAllAlertPatches().size());
+        alertIndex = alertsUpdateHandler.getAlertPatchService().getAlertIndex();
+        assertNull(alertIndex.getRoutePatches(new AgencyAndId("FEED", "route0")));
+        assertNotNull(alertIndex.getStopPatches(new AgencyAndId("FEED", "stop0")));
+    }
+
+    private FeedEntity createAlertEntity(String id, EntitySelector.Builder... informedEntities) {
+        GtfsRealtime.Alert.Builder alert = GtfsRealtime.Alert.newBuilder()
+                .setHeaderText(TranslatedString.newBuilder()
+                        .addTranslation(TranslatedString.Translation.newBuilder().setText(id)));
+        for (EntitySelector.Builder informedEntity : informedEntities) {
+            alert.addInformedEntity(informedEntity);
+        }
+        return FeedEntity.newBuilder().setId(id).setAlert(alert).build();
+    }
+
     @Test
     public void testSiriSxUpdateForTripAndStop() {
         init();
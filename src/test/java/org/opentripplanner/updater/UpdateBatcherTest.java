@@ -0,0 +1,107 @@
+package org.opentripplanner.updater;
+
+import org.junit.After;
+import org.junit.Test;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UpdateBatcherTest {
+
+    private final Graph graph = new Graph();
+
+    /** Runs the graph writers right away, on the calling thread. */
+    private final GraphUpdaterManager updaterManager = new GraphUpdaterManager(graph) {
+        @Override
+        public void execute(GraphWriterRunnable runnable) {
+            runnable.run(graph);
+        }
+    };
+
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private final List<Boolean> fullDatasets = new ArrayList<>();
+
+    @After
+    public void after() {
+        updaterManager.stop();
+    }
+
+    @Test
+    public void testSameKeyIsMerged() {
+        UpdateBatcher<String> batcher = batcher(60000, 100);
+        batcher.add(false, Arrays.asList("a1", "b1"), System.currentTimeMillis());
+        batcher.add(false, Arrays.asList("c1", "a2"), System.currentTimeMillis());
+        batcher.add(false, Arrays.asList("x", "x"), System.currentTimeMillis());
+        assertTrue(batches.isEmpty());
+        assertEquals(5, batcher.getBacklog());
+
+        batcher.flush();
+        assertEquals(Collections.singletonList(Arrays.asList("b1", "c1", "a2", "x", "x")), batches);
+        assertEquals(0, batcher.getBacklog());
+        batcher.stop();
+    }
+
+    @Test
+    public void testFullDatasetDropsPendingUpdates() {
+        UpdateBatcher<String> batcher = batcher(60000, 100);
+        batcher.add(false, Arrays.asList("a1", "b1"), System.currentTimeMillis());
+        batcher.add(true, Collections.singletonList("c1"), System.currentTimeMillis());
+        batcher.add(false, Collections.singletonList("c2"), System.currentTimeMillis());
+        batcher.flush();
+        assertEquals(Collections.singletonList(Collections.singletonList("c2")), batches);
+        assertEquals(Collections.singletonList(true), fullDatasets);
+
+        batcher.add(false, Collections.singletonList("d1"), System.currentTimeMillis());
+        batcher.flush();
+        assertFalse(fullDatasets.get(1));
+        batcher.stop();
+    }
+
+    @Test
+    public void testFlushOnSizeAndWindow() throws InterruptedException {
+        UpdateBatcher<String> batcher = batcher(60000, 3);
+        batcher.add(false, Arrays.asList("a1", "b1"), System.currentTimeMillis());
+        assertTrue(batches.isEmpty());
+        batcher.add(false, Collections.singletonList("c1"), System.currentTimeMillis());
+        assertEquals(1, batches.size());
+        batcher.stop();
+
+        batcher = batcher(10, 100);
+        batcher.add(false, Collections.singletonList("a1"), System.currentTimeMillis() - 1000);
+        for (int i = 0; i < 100 && batches.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        synchronized (batches) {
+            assertEquals(2, batches.size());
+        }
+        assertTrue(batcher.getLastLagMillis() >= 1000);
+        batcher.stop();
+    }
+
+    @Test
+    public void testNoBatching() {
+        UpdateBatcher<String> batcher = batcher(0, 100);
+        batcher.add(false, Arrays.asList("a1", "a2"), System.currentTimeMillis());
+        batcher.add(false, Collections.singletonList("a3"), System.currentTimeMillis());
+        assertEquals(Arrays.asList(Arrays.asList("a1", "a2"), Collections.singletonList("a3")), batches);
+    }
+
+    /** Updates are keyed by their first letter, except "x" which has no key. */
+    private UpdateBatcher<String> batcher(long windowMillis, int maxBatchSize) {
+        return new UpdateBatcher<>("test", updaterManager, update -> update.equals("x") ? null : update.charAt(0),
+                (fullDataset, updates) -> graph -> {
+                    synchronized (batches) {
+                        batches.add(updates);
+                        fullDatasets.add(fullDataset);
+                    }
+                }, windowMillis, maxBatchSize);
+    }
+}
@@ -0,0 +1,189 @@
+package org.opentripplanner.updater.siri;
+
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import org.junit.Test;
+import uk.org.siri.siri20.ArrivalBoardingActivityEnumeration;
+import uk.org.siri.siri20.CallStatusEnumeration;
+import uk.org.siri.siri20.VehicleModesEnumeration;
+import uk.org.siri.www.siri.SiriType;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EstimatedTimetableProtobufReaderTest {
+
+    private static final ZoneId TIME_ZONE = ZoneId.of("Europe/Oslo");
+
+    @Test
+    public void testRead() {
+        Object[] journey = {
+                "line_ref", "RUT:Line:1",
+                "vehicle_mode", Collections.singletonList("BUS"),
+                "framed_vehicle_journey_ref", new Object[] {
+                        "data_frame_ref", "2018-11-01",
+                        "dated_vehicle_journey_ref", "RUT:ServiceJourney:1" },
+                "recorded_calls", new Object[] {
+                        "recorded_call", Collections.singletonList(new Object[] {
+                                "stop_point_ref", "NSR:Quay:1",
+                                "order", 1,
+                                "aimed_departure_time", timestamp("2018-11-01T08:50:00Z"),
+                                "actual_departure_time", timestamp("2018-11-01T08:51:00Z") }) },
+                "estimated_calls", new Object[] {
+                        "estimated_call", Arrays.asList(
+                                new Object[] {
+                                        "stop_point_ref", "NSR:Quay:2",
+                                        "order", 2,
+                                        "destination_display", Collections.singletonList("Sentrum"),
+                                        "aimed_arrival_time", timestamp("2018-11-01T09:05:00Z"),
+                                        "expected_arrival_time", timestamp("2018-11-01T09:06:00Z"),
+                                        "arrival_status", "CANCELLED",
+                                        "arrival_boarding_activity", "NO_ALIGHTING",
+                                        "cancellation", true },
+                                new Object[] {
+                                        "stop_point_ref", "NSR:Quay:3",
+                                        "order", 3,
+                                        "aimed_arrival_time", timestamp("2018-11-01T09:10:00Z"),
+                                        "expected_arrival_time", timestamp("2018-11-01T09:12:00Z") }) },
+                "is_complete_stop_sequence", true };
+        Object[] extraJourney = {
+                "line_ref", "RUT:Line:2",
+                "estimated_vehicle_journey_code", "RUT:ServiceJourney:Extra",
+                "extra_journey", true,
+                "estimated_calls", new Object[] {
+                        "estimated_call", Collections.singletonList(new Object[] {
+                                "stop_point_ref", "NSR:Quay:4",
+                                "order", 1,
+                                "aimed_departure_time", timestamp("2018-11-01T09:20:00Z") }) } };
+        Object[] cancelledJourney = {
+                "line_ref", "RUT:Line:3",
+                "dated_vehicle_journey_ref", "RUT:ServiceJourney:3",
+                "cancellation", true };
+        SiriType siri = (SiriType) set(SiriType.newBuilder(),
+                "service_delivery", new Object[] {
+                        "response_timestamp", timestamp("2018-11-01T09:00:00Z"),
+                        "more_data", true,
+                        "estimated_timetable_delivery", Collections.singletonList(new Object[] {
+                                "estimated_journey_version_frame", Collections.singletonList(new Object[] {
+                                        "estimated_vehicle_journey",
+                                        Arrays.asList(journey, extraJourney, cancelledJourney) }) }) }).build();
+
+        EstimatedTimetableMessage message = new EstimatedTimetableProtobufReader(TIME_ZONE).read(siri);
+
+        // Timestamps are given in the time zone of the reader, i.e. that of the graph.
+        assertEquals(ZonedDateTime.parse("2018-11-01T10:00:00+01:00[Europe/Oslo]"), message.getResponseTimestamp());
+        assertTrue(message.isMoreData());
+        assertEquals(3, message.getJourneys().size());
+
+        EstimatedJourney first = message.getJourneys().get(0);
+        assertEquals("RUT:Line:1", first.getLineRef());
+        assertEquals("RUT:ServiceJourney:1", first.getDatedVehicleJourneyRef());
+        assertEquals("2018-11-01", first.getDataFrameRef());
+        assertEquals(VehicleModesEnumeration.BUS, first.getVehicleModes().get(0));
+        assertFalse(first.isExtraJourney());
+        assertNull(first.isCancellation());
+
+        assertEquals(1, first.getRecordedCalls().size());
+        EstimatedJourneyCall recordedCall = first.getRecordedCalls().get(0);
+        assertTrue(recordedCall.isRecorded());
+        assertEquals("NSR:Quay:1", recordedCall.getStopPointRef());
+        assertEquals(Integer.valueOf(1), recordedCall.getOrder());
+        assertEquals(ZonedDateTime.parse("2018-11-01T09:51:00+01:00[Europe/Oslo]"),
+                recordedCall.getActualDepartureTime());
+        assertEquals(recordedCall.getAimedDepartureTime(), first.getFirstAimedDepartureTime());
+
+        assertEquals(2, first.getEstimatedCalls().size());
+        EstimatedJourneyCall cancelledCall = first.getEstimatedCalls().get(0);
+        assertFalse(cancelledCall.isRecorded());
+        assertEquals("NSR:Quay:2", cancelledCall.getStopPointRef());
+        assertEquals(Integer.valueOf(2), cancelledCall.getOrder());
+        assertEquals("Sentrum", cancelledCall.getDestinationDisplay());
+        assertEquals(ZonedDateTime.parse("2018-11-01T10:06:00+01:00[Europe/Oslo]"),
+                cancelledCall.getExpectedArrivalTime());
+        assertNull(cancelledCall.getExpectedDepartureTime());
+        assertEquals(CallStatusEnumeration.CANCELLED, cancelledCall.getArrivalStatus());
+        assertEquals(ArrivalBoardingActivityEnumeration.NO_ALIGHTING, cancelledCall.getArrivalBoardingActivity());
+        assertEquals(Boolean.TRUE, cancelledCall.isCancellation());
+
+        EstimatedJourneyCall nextCall = first.getEstimatedCalls().get(1);
+        assertEquals("NSR:Quay:3", nextCall.getStopPointRef());
+        assertEquals(ZonedDateTime.parse("2018-11-01T10:12:00+01:00[Europe/Oslo]"),
+                nextCall.getExpectedArrivalTime());
+        assertNull(nextCall.isCancellation());
+        assertNull(nextCall.getArrivalStatus());
+
+        EstimatedJourney extra = message.getJourneys().get(1);
+        assertEquals("RUT:Line:2", extra.getLineRef());
+        assertEquals("RUT:ServiceJourney:Extra", extra.getEstimatedVehicleJourneyCode());
+        assertTrue(extra.isExtraJourney());
+        assertTrue(extra.getRecordedCalls().isEmpty());
+        assertEquals(1, extra.getEstimatedCalls().size());
+        assertEquals(ZonedDateTime.parse("2018-11-01T10:20:00+01:00[Europe/Oslo]"),
+                extra.getFirstAimedDepartureTime());
+
+        EstimatedJourney cancelled = message.getJourneys().get(2);
+        assertEquals("RUT:ServiceJourney:3", cancelled.getDatedVehicleJourneyRef());
+        assertEquals(Boolean.TRUE, cancelled.isCancellation());
+        assertTrue(cancelled.getEstimatedCalls().isEmpty());
+    }
+
+    private static Timestamp timestamp(String instant) {
+        return Timestamp.newBuilder().setSeconds(ZonedDateTime.parse(instant).toEpochSecond()).build();
+    }
+
+    /**
+     * Set the fields of a message by their names in the protobuf schema, given as alternating names and values.
+     * Nested messages are given as arrays of names and values in the same way, and repeated fields as lists. A string
+     * given for a message field is set as the value of the message, as for references and natural language strings.
+     * Enumeration values are given by the end of their name, without the prefix of their type.
+     */
+    private static Message.Builder set(Message.Builder builder, Object... fields) {
+        for (int i = 0; i < fields.length; i += 2) {
+            FieldDescriptor field = builder.getDescriptorForType().findFieldByName((String) fields[i]);
+            assertNotNull(builder.getDescriptorForType().getName() + " has no field " + fields[i], field);
+            if (field.isRepeated()) {
+                for (Object element : (List<?>) fields[i + 1]) {
+                    builder.addRepeatedField(field, value(builder, field, element));
+                }
+            } else {
+                builder.setField(field, value(builder, field, fields[i + 1]));
+            }
+        }
+        return builder;
+    }
+
+    private static Object value(Message.Builder builder, FieldDescriptor field, Object value) {
+        switch (field.getJavaType()) {
+            case MESSAGE:
+                if (value instanceof Message) {
+                    return value;
+                }
+                Object[] fields = value instanceof Object[] ? (Object[]) value : new Object[] { "value", value };
+                return set(builder.newBuilderForField(field), fields).build();
+            case ENUM:
+                for (EnumValueDescriptor constant : field.getEnumType().getValues()) {
+                    if (constant.getName().equals(value) || constant.getName().endsWith("_" + value)) {
+                        return constant;
+                    }
+                }
+                throw new IllegalArgumentException(field.getEnumType().getName() + " has no value " + value);
+            case LONG:
+                return ((Number) value).longValue();
+            case STRING:
+                return String.valueOf(value);
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.opentripplanner.updater.siri;
+
+import org.junit.Test;
+import uk.org.siri.siri20.ArrivalBoardingActivityEnumeration;
+import uk.org.siri.siri20.CallStatusEnumeration;
+import uk.org.siri.siri20.VehicleModesEnumeration;
+
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EstimatedTimetableXmlReaderTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Siri xmlns=\"http://www.siri.org.uk/siri\" version=\"2.0\">"
+            + "<ServiceDelivery>"
+            + "<ResponseTimestamp>2018-11-01T10:00:00+01:00</ResponseTimestamp>"
+            + "<MoreData>true</MoreData>"
+            + "<EstimatedTimetableDelivery version=\"2.0\">"
+            + "<ResponseTimestamp>2018-11-01T10:00:01+01:00</ResponseTimestamp>"
+            + "<EstimatedJourneyVersionFrame>"
+            + "<RecordedAtTime>2018-11-01T10:00:00+01:00</RecordedAtTime>"
+            + "<EstimatedVehicleJourney>"
+            + "<LineRef>RUT:Line:1</LineRef>"
+            + "<VehicleMode>bus</VehicleMode>"
+            + "<FramedVehicleJourneyRef>"
+            + "<DataFrameRef>2018-11-01</DataFrameRef>"
+            + "<DatedVehicleJourneyRef>RUT:ServiceJourney:1</DatedVehicleJourneyRef>"
+            + "</FramedVehicleJourneyRef>"
+            + "<DestinationDisplay>Ignored</DestinationDisplay>"
+            + "<RecordedCalls>"
+            + "<RecordedCall>"
+            + "<StopPointRef>NSR:Quay:1</StopPointRef>"
+            + "<Order>1</Order>"
+            + "<AimedDepartureTime>2018-11-01T09:50:00+01:00</AimedDepartureTime>"
+            + "<ActualDepartureTime>2018-11-01T09:51:00+01:00</ActualDepartureTime>"
+            + "</RecordedCall>"
+            + "</RecordedCalls>"
+            + "<EstimatedCalls>"
+            + "<EstimatedCall>"
+            + "<StopPointRef>NSR:Quay:2</StopPointRef>"
+            + "<Order>2</Order>"
+            + "<DestinationDisplay xml:lang=\"NO\">Sentrum</DestinationDisplay>"
+            + "<DestinationDisplay xml:lang=\"EN\">Centre</DestinationDisplay>"
+            + "<AimedArrivalTime>2018-11-01T10:05:00+01:00</AimedArrivalTime>"
+            + "<ExpectedArrivalTime>2018-11-01T10:06:00+01:00</ExpectedArrivalTime>"
+            + "<ArrivalStatus>cancelled</ArrivalStatus>"
+            + "<ArrivalBoardingActivity>noAlighting</ArrivalBoardingActivity>"
+            + "</EstimatedCall>"
+            + "</EstimatedCalls>"
+            + "<IsCompleteStopSequence>true</IsCompleteStopSequence>"
+            + "</EstimatedVehicleJourney>"
+            + "</EstimatedJourneyVersionFrame>"
+            + "</EstimatedTimetableDelivery>"
+            + "</ServiceDelivery>"
+            + "</Siri>";
+
+    @Test
+    public void testRead() throws Exception {
+        EstimatedTimetableMessage message = EstimatedTimetableXmlReader.read(XML);
+
+        assertEquals(ZonedDateTime.parse("2018-11-01T10:00:00+01:00"), message.getResponseTimestamp());
+        assertTrue(message.isMoreData());
+        assertEquals(1, message.getJourneys().size());
+
+        EstimatedJourney journey = message.getJourneys().get(0);
+        assertEquals("RUT:Line:1", journey.getLineRef());
+        assertEquals("RUT:ServiceJourney:1", journey.getDatedVehicleJourneyRef());
+        assertEquals("2018-11-01", journey.getDataFrameRef());
+        assertEquals(VehicleModesEnumeration.BUS, journey.getVehicleModes().get(0));
+        assertFalse(journey.isExtraJourney());
+        assertNull(journey.isMonitored());
+
+        assertEquals(1, journey.getRecordedCalls().size());
+        EstimatedJourneyCall recordedCall = journey.getRecordedCalls().get(0);
+        assertTrue(recordedCall.isRecorded());
+        assertEquals("NSR:Quay:1", recordedCall.getStopPointRef());
+        assertEquals(ZonedDateTime.parse("2018-11-01T09:51:00+01:00"), recordedCall.getActualDepartureTime());
+        assertEquals(recordedCall.getAimedDepartureTime(), journey.getFirstAimedDepartureTime());
+
+        assertEquals(1, journey.getEstimatedCalls().size());
+        EstimatedJourneyCall estimatedCall = journey.getEstimatedCalls().get(0);
+        assertFalse(estimatedCall.isRecorded());
+        assertEquals("NSR:Quay:2", estimatedCall.getStopPointRef());
+        assertEquals(Integer.valueOf(2), estimatedCall.getOrder());
+        assertEquals("Sentrum", estimatedCall.getDestinationDisplay());
+        assertEquals(ZonedDateTime.parse("2018-11-01T10:06:00+01:00"), estimatedCall.getExpectedArrivalTime());
+        assertNull(estimatedCall.getExpectedDepartureTime());
+        assertEquals(CallStatusEnumeration.CANCELLED, estimatedCall.getArrivalStatus());
+        assertEquals(ArrivalBoardingActivityEnumeration.NO_ALIGHTING, estimatedCall.getArrivalBoardingActivity());
+    }
+
+    @Test
+    public void testParseEnum() {
+        assertEquals(ArrivalBoardingActivityEnumeration.NO_ALIGHTING,
+                EstimatedTimetableBuilder.parseEnum(ArrivalBoardingActivityEnumeration.class, "noAlighting"));
+        assertEquals(ArrivalBoardingActivityEnumeration.NO_ALIGHTING,
+                EstimatedTimetableBuilder.parseEnum(ArrivalBoardingActivityEnumeration.class,
+                        "ARRIVAL_BOARDING_ACTIVITY_ENUMERATION_NO_ALIGHTING"));
+        assertNull(EstimatedTimetableBuilder.parseEnum(CallStatusEnumeration.class, "unknownStatus"));
+    }
+
+    @Test
+    public void testElementName() {
+        assertEquals("StopPointRef", EstimatedTimetableProtobufReader.elementName("stop_point_ref"));
+        assertEquals("StopPointRef", EstimatedTimetableProtobufReader.elementName("stopPointRef"));
+    }
+}
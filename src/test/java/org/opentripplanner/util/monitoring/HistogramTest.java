@@ -0,0 +1,55 @@
+package org.opentripplanner.util.monitoring;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long[] values = { 0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123456789, Long.MAX_VALUE };
+        for (long value : values) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(value <= Histogram.upperBound(bucket));
+            if (bucket > 0) {
+                assertTrue(value > Histogram.upperBound(bucket - 1));
+            }
+            // Within one eighth of the value
+            assertTrue(Histogram.upperBound(bucket) - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void testPrecision() {
+        Histogram histogram = new Histogram(7);
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= 50000 && p50 <= 50000 + 50000 / 128);
+        for (long value : new long[] { 0, 127, 128, 129, 123456789, Long.MAX_VALUE }) {
+            int bucket = Histogram.bucket(value, 7);
+            assertTrue(value <= Histogram.upperBound(bucket, 7));
+            assertTrue(Histogram.upperBound(bucket, 7) - value <= value / 128);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 500 + 500 / 8);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        assertEquals(1000, histogram.getPercentile(1));
+    }
+}